@@ -0,0 +1,348 @@
+package ack;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+
+import dataset.DcfDatasetStatus;
+import soap.GetAck;
+import utils.XmlUtils;
+
+/**
+ * Log obtained from the {@link GetAck} request. Differently from the
+ * {@link DcfAckLog}, all the fields are read in a single streaming pass when
+ * the log is created and no dom is kept. Only the raw log is kept, the
+ * operation logs are read again from it when they are requested.
+ */
+public class CompactDcfAckLog implements IDcfAckLog {
+
+	private static final String DC_CODE = "dcCode";
+	private static final String MESSAGE_VAL_RES_CODE = "messageValResCode";
+	private static final String MESSAGE_VAL_RES_TEXT = "messageValResText";
+	private static final String DETAILED_ACK_RES_ID = "detailedAckResId";
+	private static final String OP_RES_CODE = "opResCode";
+	private static final String DATASET_ID = "datasetId";
+	private static final String DATASET_STATUS = "datasetStatus";
+	private static final String OP_RES_LOG = "opResLog";
+
+	private static final String[] FIELDS = { DC_CODE, MESSAGE_VAL_RES_CODE, MESSAGE_VAL_RES_TEXT,
+			DETAILED_ACK_RES_ID, OP_RES_CODE, DATASET_ID, DATASET_STATUS };
+
+	private final byte[] rawLog;
+
+	private String dcCode;
+	private MessageValResCode messageValResCode;
+	private String messageValResText;
+	private String detailedAckResId;
+	private OkCode opResCode;
+	private String datasetId;
+	private DcfDatasetStatus datasetStatus;
+	private int opResLogCount;
+	private OpResError opResError;
+
+	/**
+	 * Read the log
+	 * @param rawLog the xml of the log, it is read until the end but not closed
+	 * @throws IOException if the log cannot be read or it is not valid xml
+	 */
+	public CompactDcfAckLog(InputStream rawLog) throws IOException {
+
+		this.rawLog = IOUtils.toByteArray(rawLog);
+		this.opResError = OpResError.NONE;
+
+		try {
+
+			AckReader reader = new AckReader(this.rawLog);
+
+			String opResLog;
+			while ((opResLog = reader.nextOpResLog()) != null) {
+
+				this.opResLogCount++;
+
+				OpResError current = OpResError.fromString(opResLog);
+
+				if (current.priorTo(this.opResError))
+					this.opResError = current;
+			}
+
+			setFields(reader.fields);
+
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void setFields(Map<String, String> fields) {
+
+		this.dcCode = fields.get(DC_CODE);
+		this.messageValResText = fields.get(MESSAGE_VAL_RES_TEXT);
+		this.detailedAckResId = fields.get(DETAILED_ACK_RES_ID);
+		this.datasetId = fields.get(DATASET_ID);
+
+		String code = fields.get(MESSAGE_VAL_RES_CODE);
+		if (code != null && !code.isEmpty())
+			this.messageValResCode = MessageValResCode.fromString(code);
+
+		code = fields.get(OP_RES_CODE);
+		if (code != null && !code.isEmpty())
+			this.opResCode = OkCode.fromString(code);
+
+		code = fields.get(DATASET_STATUS);
+		if (code != null && !code.isEmpty())
+			this.datasetStatus = DcfDatasetStatus.fromString(code);
+	}
+
+	/**
+	 * Get a new stream of the log at each call
+	 */
+	@Override
+	public InputStream getRawLog() {
+		return new ByteArrayInputStream(this.rawLog);
+	}
+
+	@Override
+	public String getDCCode() {
+		return this.dcCode;
+	}
+
+	@Override
+	public MessageValResCode getMessageValResCode() {
+		return this.messageValResCode;
+	}
+
+	@Override
+	public String getDetailedAckResId() {
+		return this.detailedAckResId;
+	}
+
+	@Override
+	public String getMessageValResText() {
+		return this.messageValResText;
+	}
+
+	@Override
+	public OkCode getOpResCode() {
+		return this.opResCode;
+	}
+
+	@Override
+	public boolean isOk() {
+		return this.opResCode == OkCode.OK;
+	}
+
+	/**
+	 * Get the operation logs, read again from the raw log. Use
+	 * {@link #opResLogIterator()} to not keep all of them in memory.
+	 */
+	@Override
+	public Collection<String> getOpResLog() {
+
+		Collection<String> logs = new ArrayList<>(this.opResLogCount);
+
+		Iterator<String> iterator = opResLogIterator();
+		while (iterator.hasNext()) {
+			logs.add(iterator.next());
+		}
+
+		return logs;
+	}
+
+	/**
+	 * Iterate the operation logs, reading them from the raw log one at a time
+	 * @return
+	 */
+	public Iterator<String> opResLogIterator() {
+		try {
+			return new OpResLogIterator(new AckReader(this.rawLog));
+		} catch (XMLStreamException e) {
+			// already read when the log was created
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the number of operation logs
+	 * @return
+	 */
+	public int getOpResLogCount() {
+		return this.opResLogCount;
+	}
+
+	@Override
+	public boolean hasErrors() {
+		return this.opResLogCount > 0;
+	}
+
+	@Override
+	public OpResError getOpResError() {
+		return this.opResError;
+	}
+
+	@Override
+	public String getDatasetId() {
+		return this.datasetId;
+	}
+
+	@Override
+	public DcfDatasetStatus getDatasetStatus() {
+		return this.datasetStatus;
+	}
+
+	@Override
+	public String toString() {
+		return "messageResValCode=" + getMessageValResCode()
+			+ "; opResCode=" + getOpResCode()
+			+ "; datasetId=" + getDatasetId()
+			+ "; datasetStatus=" + getDatasetStatus();
+	}
+
+	/**
+	 * Iterator which reads the next operation log only when it is requested
+	 */
+	private static class OpResLogIterator implements Iterator<String> {
+
+		private final AckReader reader;
+		private String next;
+
+		private OpResLogIterator(AckReader reader) {
+			this.reader = reader;
+			this.next = read();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public String next() {
+
+			if (this.next == null)
+				throw new NoSuchElementException();
+
+			String current = this.next;
+			this.next = read();
+
+			return current;
+		}
+
+		private String read() {
+			try {
+				return this.reader.nextOpResLog();
+			} catch (XMLStreamException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Forward reader of the ack. As the dom of the {@link DcfAckLog}, each
+	 * field is taken from its first node in the document and the text of the
+	 * nodes includes the text of their children.
+	 */
+	private static class AckReader {
+
+		private final XMLStreamReader reader;
+		private Map<String, String> fields;
+
+		private AckReader(byte[] log) throws XMLStreamException {
+			this.reader = XmlUtils.getInputFactory().createXMLStreamReader(new ByteArrayInputStream(log));
+			this.fields = new HashMap<>();
+		}
+
+		/**
+		 * Read until the next operation log, keeping the fields found
+		 * @return the text of the operation log, null at the end of the log
+		 * @throws XMLStreamException
+		 */
+		private String nextOpResLog() throws XMLStreamException {
+
+			while (this.reader.hasNext()) {
+
+				if (this.reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = getName();
+
+				if (name.equals(OP_RES_LOG))
+					return readText();
+
+				if (isField(name) && !this.fields.containsKey(name))
+					this.fields.put(name, readText());
+			}
+
+			this.reader.close();
+
+			return null;
+		}
+
+		/**
+		 * Read all the text of the current element
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private String readText() throws XMLStreamException {
+
+			StringBuilder text = new StringBuilder();
+			int depth = 1;
+
+			while (depth > 0) {
+
+				switch (this.reader.next()) {
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					text.append(this.reader.getText());
+					break;
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				default:
+					break;
+				}
+			}
+
+			return text.toString();
+		}
+
+		/**
+		 * Get the qualified name of the current element, as the node name of
+		 * the dom
+		 * @return
+		 */
+		private String getName() {
+
+			String prefix = this.reader.getPrefix();
+
+			if (prefix == null || prefix.isEmpty())
+				return this.reader.getLocalName();
+
+			return prefix + ":" + this.reader.getLocalName();
+		}
+
+		private static boolean isField(String name) {
+
+			for (String field : FIELDS) {
+				if (field.equals(name))
+					return true;
+			}
+
+			return false;
+		}
+	}
+}
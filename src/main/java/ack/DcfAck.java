@@ -1,6 +1,15 @@
 package ack;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
 import soap.GetAck;
+import utils.XmlUtils;
 
 /**
  * Acknowledge obtained with {@link GetAck}
@@ -30,6 +39,35 @@ public class DcfAck {
 		return this.log;
 	}
 	
+	/**
+	 * Get the attachment of the ack response
+	 * @return the xml of the log, null if the ack has no log
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public Document getAttachment() throws ParserConfigurationException, SAXException, IOException {
+		
+		if (this.log == null)
+			return null;
+		
+		try (InputStream raw = this.log.getRawLog()) {
+			return XmlUtils.parse(raw);
+		}
+	}
+	
+	/**
+	 * Get the raw attachment of the ack response
+	 * @return the xml of the log, null if the ack has no log
+	 */
+	public InputStream getRawAttachment() {
+		
+		if (this.log == null)
+			return null;
+		
+		return this.log.getRawLog();
+	}
+	
 	public boolean isReady() {
 		return this.state != null && this.state == FileState.READY;
 	}
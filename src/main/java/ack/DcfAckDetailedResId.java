@@ -1,5 +1,15 @@
 package ack;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import utils.XmlUtils;
+
 /**
  * Acknowledge obtained with {@link GetAck}
  * @author shahaal
@@ -9,6 +19,7 @@ public class DcfAckDetailedResId {
 	
 	private FileState state;
 	private IDcfAckLog log;
+	private DetailedAckSummary summary;
 	
 	/**
 	 * Create an acknowledgement.
@@ -20,6 +31,16 @@ public class DcfAckDetailedResId {
 		this.log = log;
 	}
 	
+	/**
+	 * Create an acknowledgement parsed with the {@link DetailedAckParser}
+	 * @param state status of the ack
+	 * @param summary aggregates of the errors of the ack, if present
+	 */
+	public DcfAckDetailedResId(FileState state, DetailedAckSummary summary) {
+		this.state = state;
+		this.summary = summary;
+	}
+	
 	public FileState getState() {
 		return this.state;
 	}
@@ -28,6 +49,44 @@ public class DcfAckDetailedResId {
 		return this.log;
 	}
 	
+	/**
+	 * Get the aggregates of the errors, only if the ack was
+	 * parsed with the {@link DetailedAckParser}
+	 * @return
+	 */
+	public DetailedAckSummary getSummary() {
+		return this.summary;
+	}
+	
+	/**
+	 * Get the attachment of the ack response
+	 * @return the xml of the log, null if the ack has no log
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public Document getAttachment() throws ParserConfigurationException, SAXException, IOException {
+		
+		if (this.log == null)
+			return null;
+		
+		try (InputStream raw = this.log.getRawLog()) {
+			return XmlUtils.parse(raw);
+		}
+	}
+	
+	/**
+	 * Get the raw attachment of the ack response
+	 * @return the xml of the log, null if the ack has no log
+	 */
+	public InputStream getRawAttachment() {
+		
+		if (this.log == null)
+			return null;
+		
+		return this.log.getRawLog();
+	}
+	
 	public boolean isReady() {
 		return this.state != null && this.state == FileState.READY;
 	}
@@ -42,6 +101,10 @@ public class DcfAckDetailedResId {
 	
 	@Override
 	public String toString() {
+		
+		if (this.summary != null)
+			return "AckDetailedResID: state=" + this.state + "; summary=" + this.summary;
+		
 		return "AckDetailedResID: state=" + this.state + "; log=" + this.log;
 	}
 }
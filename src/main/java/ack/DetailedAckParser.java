@@ -0,0 +1,331 @@
+package ack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import soap.GetAckDetailedResId;
+import utils.XmlUtils;
+
+/**
+ * Parser of the detailed ack obtained with {@link GetAckDetailedResId}, which
+ * can contain the validation errors of hundreds of thousands of records. The
+ * ack is read in a single forward pass with StAX: the errors are passed to a
+ * {@link Handler} one at a time and only their aggregates are kept in the
+ * {@link DetailedAckSummary}, therefore the memory used does not depend on
+ * the size of the ack.
+ *
+ * As in the {@link DcfAckLog}, each {@code opResLog} of the ack is an error
+ * of the operation, whose code is its {@link OpResError}. The errors of the
+ * records are the {@code error} elements, with the {@code code},
+ * {@code field} and {@code message} of the error, grouped in {@code record}
+ * elements identified by their {@code recordId}. The elements are matched
+ * by their local name, whatever their namespace.
+ *
+ * An ack without any of these elements and without the
+ * {@code messageValResCode} and the {@code opResCode} of the
+ * {@link DcfAckLog} is refused, since its errors cannot be found.
+ */
+public class DetailedAckParser {
+
+	private static final String RECORD = "record";
+	private static final String RECORD_ID = "recordId";
+	private static final String ERROR = "error";
+	private static final String CODE = "code";
+	private static final String FIELD = "field";
+	private static final String MESSAGE = "message";
+	private static final String OP_RES_LOG = "opResLog";
+	private static final String OP_RES_CODE = "opResCode";
+	private static final String MESSAGE_VAL_RES_CODE = "messageValResCode";
+
+	private static final int DEFAULT_MAX_KEYS = 10000;
+
+	private int maxKeys = DEFAULT_MAX_KEYS;
+
+	/**
+	 * Set the max number of error codes and of fields which are counted in
+	 * the {@link DetailedAckSummary}, 10000 by default
+	 * @param maxKeys
+	 * @return
+	 */
+	public DetailedAckParser setMaxKeys(int maxKeys) {
+
+		if (maxKeys < 0)
+			throw new IllegalArgumentException("The max number of keys cannot be negative: " + maxKeys);
+
+		this.maxKeys = maxKeys;
+		return this;
+	}
+
+	public int getMaxKeys() {
+		return this.maxKeys;
+	}
+
+	/**
+	 * Parse the detailed ack
+	 * @param input the xml of the ack, it is not closed
+	 * @param handler receives the errors in the order of the ack, null to
+	 * compute only the aggregates
+	 * @return the aggregates of the errors
+	 * @throws IOException if the ack cannot be read, it is not valid xml or
+	 * it does not contain any known element
+	 */
+	public DetailedAckSummary parse(InputStream input, Handler handler) throws IOException {
+
+		XMLStreamReader reader = null;
+		try {
+
+			reader = XmlUtils.getInputFactory().createXMLStreamReader(input);
+
+			Parse parse = new Parse(reader, handler, new DetailedAckSummary(this.maxKeys));
+			DetailedAckSummary summary = parse.parse();
+
+			// the errors would be silently lost
+			if (!parse.known)
+				throw new IOException("No known element found in the detailed ack, its errors cannot be read");
+
+			return summary;
+
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			close(reader);
+		}
+	}
+
+	private static void close(XMLStreamReader reader) {
+
+		if (reader == null)
+			return;
+
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// nothing to release
+		}
+	}
+
+	/**
+	 * Receives the errors of the detailed ack while it is parsed
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for each error of the ack
+		 * @param error
+		 */
+		public void onError(RecordError error);
+	}
+
+	/**
+	 * Parse of a single ack
+	 */
+	private static class Parse {
+
+		private final XMLStreamReader reader;
+		private final Handler handler;
+		private final DetailedAckSummary summary;
+		private boolean known;  // true if an element of the ack was recognized
+
+		private Parse(XMLStreamReader reader, Handler handler, DetailedAckSummary summary) {
+			this.reader = reader;
+			this.handler = handler;
+			this.summary = summary;
+		}
+
+		private DetailedAckSummary parse() throws XMLStreamException {
+
+			while (this.reader.hasNext()) {
+
+				if (this.reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = getName();
+
+				if (name.equals(RECORD))
+					readRecord();
+				else if (name.equals(ERROR))
+					notify(readError(null));
+				else if (name.equals(OP_RES_LOG))
+					notify(readOpResLog(null));
+				else if (name.equals(OP_RES_CODE) || name.equals(MESSAGE_VAL_RES_CODE))
+					this.known = true;
+			}
+
+			return this.summary;
+		}
+
+		/**
+		 * Read a record. Its errors are notified at the end of the record,
+		 * since the id can follow them.
+		 * @throws XMLStreamException
+		 */
+		private void readRecord() throws XMLStreamException {
+
+			this.known = true;
+
+			String recordId = null;
+			List<RecordError> errors = new ArrayList<>();
+
+			int depth = 1;
+
+			while (depth > 0) {
+
+				int event = this.reader.next();
+
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					continue;
+				}
+
+				if (event != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = getName();
+
+				if (name.equals(RECORD_ID) && recordId == null)
+					recordId = readText();
+				else if (name.equals(ERROR))
+					errors.add(readError(recordId));
+				else if (name.equals(OP_RES_LOG))
+					errors.add(readOpResLog(recordId));
+				else
+					depth++;
+			}
+
+			this.summary.addRecord(errors.size());
+
+			for (RecordError error : errors) {
+
+				// the id was found after the error
+				if (error.getRecordId() == null && recordId != null)
+					error = new RecordError(recordId, error.getCode(), error.getField(), error.getMessage());
+
+				notify(error);
+			}
+		}
+
+		/**
+		 * Read an error
+		 * @param recordId id of the record of the error
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private RecordError readError(String recordId) throws XMLStreamException {
+
+			this.known = true;
+
+			String code = null;
+			String field = null;
+			String message = null;
+
+			while (nextChild()) {
+
+				switch (getName()) {
+				case CODE:
+					code = readText();
+					break;
+				case FIELD:
+					field = readText();
+					break;
+				case MESSAGE:
+					message = readText();
+					break;
+				default:
+					readText();
+					break;
+				}
+			}
+
+			return new RecordError(recordId, code, field, message);
+		}
+
+		/**
+		 * Read an operation log, whose code is its {@link OpResError}
+		 * @param recordId id of the record of the error
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private RecordError readOpResLog(String recordId) throws XMLStreamException {
+
+			this.known = true;
+
+			String message = readText();
+
+			return new RecordError(recordId, OpResError.fromString(message).name(), null, message);
+		}
+
+		private void notify(RecordError error) {
+
+			this.summary.addError(error);
+
+			if (this.handler != null)
+				this.handler.onError(error);
+		}
+
+		/**
+		 * Move to the next child element of the current element
+		 * @return false if the current element ended
+		 * @throws XMLStreamException
+		 */
+		private boolean nextChild() throws XMLStreamException {
+
+			while (true) {
+
+				int event = this.reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT)
+					return true;
+
+				if (event == XMLStreamConstants.END_ELEMENT)
+					return false;
+			}
+		}
+
+		/**
+		 * Read all the text of the current element, including the text of
+		 * its children, without the leading and trailing spaces
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private String readText() throws XMLStreamException {
+
+			StringBuilder text = new StringBuilder();
+			int depth = 1;
+
+			while (depth > 0) {
+
+				switch (this.reader.next()) {
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					text.append(this.reader.getText());
+					break;
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				default:
+					break;
+				}
+			}
+
+			return text.toString().trim();
+		}
+
+		/**
+		 * Get the local name of the current element, without its prefix
+		 * @return
+		 */
+		private String getName() {
+			return this.reader.getLocalName();
+		}
+	}
+}
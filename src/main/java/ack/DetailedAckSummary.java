@@ -0,0 +1,157 @@
+package ack;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregates of the errors of a detailed ack, computed while it is parsed by
+ * the {@link DetailedAckParser}. The errors are counted by code and by
+ * field. To bound the memory, at most {@link #getMaxKeys()} different codes
+ * and fields are counted, the errors of the others are counted together in
+ * {@link #getOtherCodesCount()} and {@link #getOtherFieldsCount()}.
+ */
+public class DetailedAckSummary {
+
+	private final int maxKeys;
+
+	private long recordsCount;
+	private long recordsWithErrorsCount;
+	private long errorsCount;
+
+	private final Map<String, Long> countsByCode;
+	private final Map<String, Long> countsByField;
+	private long otherCodesCount;
+	private long otherFieldsCount;
+
+	/**
+	 * @param maxKeys max number of codes and of fields which are counted
+	 */
+	DetailedAckSummary(int maxKeys) {
+		this.maxKeys = maxKeys;
+		this.countsByCode = new HashMap<>();
+		this.countsByField = new HashMap<>();
+	}
+
+	/**
+	 * Count a record
+	 * @param errors number of errors of the record
+	 */
+	void addRecord(int errors) {
+
+		this.recordsCount++;
+
+		if (errors > 0)
+			this.recordsWithErrorsCount++;
+	}
+
+	/**
+	 * Count an error
+	 * @param error
+	 */
+	void addError(RecordError error) {
+
+		this.errorsCount++;
+
+		if (!increment(this.countsByCode, error.getCode()))
+			this.otherCodesCount++;
+
+		if (error.getField() != null && !increment(this.countsByField, error.getField()))
+			this.otherFieldsCount++;
+	}
+
+	/**
+	 * Increment the count of the key
+	 * @param counts
+	 * @param key
+	 * @return false if the key is not counted since the max number of keys was reached
+	 */
+	private boolean increment(Map<String, Long> counts, String key) {
+
+		Long count = counts.get(key);
+
+		if (count == null && counts.size() >= this.maxKeys)
+			return false;
+
+		counts.put(key, count == null ? 1 : count + 1);
+
+		return true;
+	}
+
+	/**
+	 * Get the number of records found in the ack
+	 * @return
+	 */
+	public long getRecordsCount() {
+		return this.recordsCount;
+	}
+
+	/**
+	 * Get the number of records with at least an error
+	 * @return
+	 */
+	public long getRecordsWithErrorsCount() {
+		return this.recordsWithErrorsCount;
+	}
+
+	/**
+	 * Get the number of errors found in the ack
+	 * @return
+	 */
+	public long getErrorsCount() {
+		return this.errorsCount;
+	}
+
+	/**
+	 * Check if the ack contains errors
+	 * @return
+	 */
+	public boolean hasErrors() {
+		return this.errorsCount > 0;
+	}
+
+	/**
+	 * Get the number of errors for each error code
+	 * @return
+	 */
+	public Map<String, Long> getCountsByCode() {
+		return Collections.unmodifiableMap(this.countsByCode);
+	}
+
+	/**
+	 * Get the number of errors for each field
+	 * @return
+	 */
+	public Map<String, Long> getCountsByField() {
+		return Collections.unmodifiableMap(this.countsByField);
+	}
+
+	/**
+	 * Get the number of errors whose code was not counted in
+	 * {@link #getCountsByCode()}, since there were too many codes
+	 * @return
+	 */
+	public long getOtherCodesCount() {
+		return this.otherCodesCount;
+	}
+
+	/**
+	 * Get the number of errors whose field was not counted in
+	 * {@link #getCountsByField()}, since there were too many fields
+	 * @return
+	 */
+	public long getOtherFieldsCount() {
+		return this.otherFieldsCount;
+	}
+
+	public int getMaxKeys() {
+		return this.maxKeys;
+	}
+
+	@Override
+	public String toString() {
+		return "records=" + this.recordsCount + "; recordsWithErrors=" + this.recordsWithErrorsCount
+				+ "; errors=" + this.errorsCount + "; countsByCode=" + this.countsByCode
+				+ "; countsByField=" + this.countsByField;
+	}
+}
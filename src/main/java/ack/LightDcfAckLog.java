@@ -0,0 +1,285 @@
+package ack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import dataset.DcfDatasetStatus;
+import soap.GetAck;
+import utils.XmlUtils;
+
+/**
+ * Log obtained from the light {@link GetAck} requests, used to poll the
+ * messages. Only the operation result and the dataset are read from the
+ * attachment while it is received, stopping as soon as they are found, and
+ * nothing of the attachment is kept. The other fields and the raw log are
+ * taken from the complete log, which is loaded with the {@link Loader} only
+ * when they are requested.
+ */
+public class LightDcfAckLog implements IDcfAckLog {
+
+	private static final String OP_RES_CODE = "opResCode";
+	private static final String DATASET_ID = "datasetId";
+	private static final String DATASET_STATUS = "datasetStatus";
+
+	private final Loader loader;
+
+	private OkCode opResCode;
+	private String datasetId;
+	private DcfDatasetStatus datasetStatus;
+
+	private IDcfAckLog fullLog;
+
+	/**
+	 * Read the log
+	 * @param rawLog the xml of the log, it is read only until the polled
+	 * fields are found and it is not closed
+	 * @param loader loads the complete log when the other fields are
+	 * requested, null if they are not needed
+	 * @throws IOException if the log cannot be read or it is not valid xml
+	 */
+	public LightDcfAckLog(InputStream rawLog, Loader loader) throws IOException {
+
+		this.loader = loader;
+
+		XMLStreamReader reader = null;
+		try {
+
+			reader = XmlUtils.getInputFactory().createXMLStreamReader(rawLog);
+			read(reader);
+
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			close(reader);
+		}
+	}
+
+	/**
+	 * Read the fields until all of them are found. As the dom of the
+	 * {@link DcfAckLog}, each field is taken from its first node in the
+	 * document.
+	 * @param reader
+	 * @throws XMLStreamException
+	 */
+	private void read(XMLStreamReader reader) throws XMLStreamException {
+
+		String code = null;
+		String status = null;
+		boolean datasetIdFound = false;
+
+		while (reader.hasNext() && (code == null || status == null || !datasetIdFound)) {
+
+			if (reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+
+			String name = getName(reader);
+
+			if (name.equals(OP_RES_CODE) && code == null) {
+				code = readText(reader);
+			}
+			else if (name.equals(DATASET_STATUS) && status == null) {
+				status = readText(reader);
+			}
+			else if (name.equals(DATASET_ID) && !datasetIdFound) {
+				this.datasetId = readText(reader);
+				datasetIdFound = true;
+			}
+		}
+
+		if (code != null && !code.isEmpty())
+			this.opResCode = OkCode.fromString(code);
+
+		if (status != null && !status.isEmpty())
+			this.datasetStatus = DcfDatasetStatus.fromString(status);
+	}
+
+	/**
+	 * Get the complete log, loaded at the first call
+	 * @return
+	 * @throws UncheckedIOException if the log cannot be loaded. The load is
+	 * tried again at the next call.
+	 */
+	private synchronized IDcfAckLog getFullLog() {
+
+		if (this.fullLog != null)
+			return this.fullLog;
+
+		if (this.loader == null)
+			throw new IllegalStateException("The complete log cannot be loaded, only the polled fields were read");
+
+		IDcfAckLog log;
+		try {
+			log = this.loader.load();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot load the complete log", e);
+		}
+
+		if (log == null)
+			throw new UncheckedIOException(new IOException("The complete log is not available"));
+
+		this.fullLog = log;
+
+		return this.fullLog;
+	}
+
+	/**
+	 * Check if the complete log was read
+	 * @return
+	 */
+	public synchronized boolean isFullLogLoaded() {
+		return this.fullLog != null;
+	}
+
+	/**
+	 * Get the raw log of the complete log, which is loaded at the first call
+	 */
+	@Override
+	public InputStream getRawLog() {
+		return getFullLog().getRawLog();
+	}
+
+	@Override
+	public String getDCCode() {
+		return getFullLog().getDCCode();
+	}
+
+	@Override
+	public MessageValResCode getMessageValResCode() {
+		return getFullLog().getMessageValResCode();
+	}
+
+	@Override
+	public String getDetailedAckResId() {
+		return getFullLog().getDetailedAckResId();
+	}
+
+	@Override
+	public String getMessageValResText() {
+		return getFullLog().getMessageValResText();
+	}
+
+	@Override
+	public OkCode getOpResCode() {
+		return this.opResCode;
+	}
+
+	@Override
+	public boolean isOk() {
+		return this.opResCode == OkCode.OK;
+	}
+
+	@Override
+	public Collection<String> getOpResLog() {
+		return getFullLog().getOpResLog();
+	}
+
+	@Override
+	public boolean hasErrors() {
+		return getFullLog().hasErrors();
+	}
+
+	@Override
+	public OpResError getOpResError() {
+		return getFullLog().getOpResError();
+	}
+
+	@Override
+	public String getDatasetId() {
+		return this.datasetId;
+	}
+
+	@Override
+	public DcfDatasetStatus getDatasetStatus() {
+		return this.datasetStatus;
+	}
+
+	/**
+	 * The message code is printed only if the complete log was already read,
+	 * since the responses are always printed in the logs
+	 */
+	@Override
+	public String toString() {
+
+		MessageValResCode messageValResCode = isFullLogLoaded() ? getMessageValResCode() : null;
+
+		return "messageResValCode=" + messageValResCode
+			+ "; opResCode=" + getOpResCode()
+			+ "; datasetId=" + getDatasetId()
+			+ "; datasetStatus=" + getDatasetStatus();
+	}
+
+	/**
+	 * Read all the text of the current element, including the text of its
+	 * children
+	 * @param reader
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+
+		while (depth > 0) {
+
+			switch (reader.next()) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				text.append(reader.getText());
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			default:
+				break;
+			}
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Get the qualified name of the current element, as the node name of
+	 * the dom
+	 * @param reader
+	 * @return
+	 */
+	private static String getName(XMLStreamReader reader) {
+
+		String prefix = reader.getPrefix();
+
+		if (prefix == null || prefix.isEmpty())
+			return reader.getLocalName();
+
+		return prefix + ":" + reader.getLocalName();
+	}
+
+	/**
+	 * Loads the complete log of the ack, as with a new call
+	 */
+	public interface Loader {
+		public IDcfAckLog load() throws IOException;
+	}
+
+	private static void close(XMLStreamReader reader) {
+
+		if (reader == null)
+			return;
+
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// nothing to release
+		}
+	}
+}
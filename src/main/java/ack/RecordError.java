@@ -0,0 +1,49 @@
+package ack;
+
+/**
+ * Validation error of a single record, found in the detailed ack
+ * by the {@link DetailedAckParser}
+ */
+public class RecordError {
+
+	private final String recordId;
+	private final String code;
+	private final String field;
+	private final String message;
+
+	/**
+	 * Create the error
+	 * @param recordId id of the record, null if not present
+	 * @param code code of the error
+	 * @param field field of the record which is not valid, null if not present
+	 * @param message description of the error
+	 */
+	public RecordError(String recordId, String code, String field, String message) {
+		this.recordId = recordId;
+		this.code = code;
+		this.field = field;
+		this.message = message;
+	}
+
+	public String getRecordId() {
+		return this.recordId;
+	}
+
+	public String getCode() {
+		return this.code;
+	}
+
+	public String getField() {
+		return this.field;
+	}
+
+	public String getMessage() {
+		return this.message;
+	}
+
+	@Override
+	public String toString() {
+		return "recordId=" + this.recordId + "; code=" + this.code + "; field=" + this.field
+				+ "; message=" + this.message;
+	}
+}
@@ -8,7 +8,8 @@ import java.util.Properties;
 import proxy.ProxyMode;
 
 /**
- * Configuration of the application
+ * Configuration of the application. The configuration files are read once
+ * and kept in memory, they are read again when they change on disk.
  * @author avonva
  * @author shahaal
  */
@@ -29,6 +30,8 @@ public class Config {
 	public static final String PROXY_PORT = "Proxy.ManualPort";
 	public static final String PROXY_MODE = "Proxy.Mode";
 	
+	private static final ConfigFiles FILES = new ConfigFiles();
+	
 	public static String getProxyConfigPath() {
 		return Config.PROXY_CONFIG_PATH;
 	}
@@ -92,7 +95,16 @@ public class Config {
 	}
 	
 	/**
-	 * Read the application properties from the xml file
+	 * Read again all the configuration files, without waiting for the
+	 * notification of their changes
+	 */
+	public static void reload() {
+		FILES.reload();
+	}
+	
+	/**
+	 * Read the application properties from the xml file. The file is read
+	 * from disk at each call.
 	 * @return
 	 */
 	public static Properties getProperties(String filename) {
@@ -109,14 +121,6 @@ public class Config {
 	}
 	
 	private static String getValue(String propertiesFilename, String property) {
-		
-		Properties prop = getProperties(propertiesFilename);
-		
-		if (prop == null)
-			return null;
-		
-		String value = prop.getProperty(property);
-		
-		return value;
+		return FILES.getValue(propertiesFilename, property);
 	}
 }
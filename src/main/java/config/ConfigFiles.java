@@ -0,0 +1,290 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In memory copy of the configuration files. Each file is read the first time
+ * it is used, then its properties are kept in memory and read without locks.
+ * The folders of the files are watched and a file is read again when it is
+ * created, modified or deleted. If the folder of a file cannot be watched (for
+ * example it does not exist yet), the file is read again at most every
+ * {@link #DEFAULT_RETRY_INTERVAL} milliseconds when it is used, until its
+ * folder can be watched.
+ */
+class ConfigFiles {
+
+	private static final Logger LOGGER = LogManager.getLogger(ConfigFiles.class);
+
+	static final long DEFAULT_RETRY_INTERVAL = 5000;
+
+	private Map<Path, Map<String, String>> files;
+	private Set<Path> watchedFolders;
+	private Map<Path, Long> unwatchedFiles;  // file -> time of the next read
+	private long retryInterval;
+	private WatchService watcher;
+	private volatile boolean closed;
+
+	ConfigFiles() {
+		this(DEFAULT_RETRY_INTERVAL);
+	}
+
+	/**
+	 * @param retryInterval milliseconds after which the files of the folders
+	 * which are not watched are read again
+	 */
+	ConfigFiles(long retryInterval) {
+		this.files = new ConcurrentHashMap<>();
+		this.watchedFolders = ConcurrentHashMap.newKeySet();
+		this.unwatchedFiles = new ConcurrentHashMap<>();
+		this.retryInterval = retryInterval;
+	}
+
+	/**
+	 * Get a property of the file
+	 * @param filename
+	 * @param property
+	 * @return the value, null if the file or the property do not exist
+	 */
+	String getValue(String filename, String property) {
+		return getProperties(filename).get(property);
+	}
+
+	/**
+	 * Get the properties of the file
+	 * @param filename
+	 * @return the properties, empty if the file does not exist
+	 */
+	Map<String, String> getProperties(String filename) {
+
+		Path path = Paths.get(filename).toAbsolutePath().normalize();
+
+		Map<String, String> properties = this.files.get(path);
+
+		if (properties != null) {
+
+			// no notification for this file, check it again from time to time
+			Long nextRead = this.unwatchedFiles.get(path);
+			if (nextRead != null && System.currentTimeMillis() >= nextRead)
+				return retry(path);
+
+			return properties;
+		}
+
+		// first use of the file
+		if (!watch(path.getParent()))
+			this.unwatchedFiles.put(path, System.currentTimeMillis() + this.retryInterval);
+
+		return this.files.computeIfAbsent(path, file -> {
+			Map<String, String> values = read(file);
+			return values == null ? Collections.emptyMap() : values;
+		});
+	}
+
+	/**
+	 * Try again to watch the folder of a file which is not watched, and read
+	 * the file again
+	 * @param path
+	 * @return the properties of the file
+	 */
+	private Map<String, String> retry(Path path) {
+
+		if (this.closed) {
+			this.unwatchedFiles.remove(path);
+		}
+		else if (watch(path.getParent())) {
+			LOGGER.info("Configuration folder watched=" + path.getParent());
+			this.unwatchedFiles.remove(path);
+		}
+		else {
+			this.unwatchedFiles.put(path, System.currentTimeMillis() + this.retryInterval);
+		}
+
+		// the file could be created before the folder was watched
+		update(path);
+
+		return this.files.get(path);
+	}
+
+	/**
+	 * Read again all the files
+	 */
+	void reload() {
+		for (Path path : this.files.keySet()) {
+			update(path);
+		}
+	}
+
+	/**
+	 * Read again the file. If it cannot be parsed (for example while it is
+	 * written) the values in memory are kept.
+	 * @param path
+	 */
+	private void update(Path path) {
+
+		Map<String, String> values = read(path);
+
+		if (values != null)
+			this.files.put(path, values);
+	}
+
+	/**
+	 * Stop watching the folders
+	 */
+	synchronized void close() {
+
+		this.closed = true;
+
+		if (this.watcher == null)
+			return;
+
+		try {
+			this.watcher.close();
+		} catch (IOException e) {
+			LOGGER.error("Cannot close the watcher of the configuration files", e);
+		}
+	}
+
+	/**
+	 * Read the properties of the xml file
+	 * @param path
+	 * @return the properties, empty if the file does not exist, null if it
+	 * cannot be read
+	 */
+	private static Map<String, String> read(Path path) {
+
+		Properties properties = new Properties();
+
+		try (InputStream stream = Files.newInputStream(path)) {
+			properties.loadFromXML(stream);
+		} catch (NoSuchFileException e) {
+			LOGGER.debug("Configuration file not found=" + path);
+		} catch (IOException e) {
+			LOGGER.error("Cannot read the configuration file=" + path, e);
+			return null;
+		}
+
+		Map<String, String> values = new HashMap<>();
+		for (String name : properties.stringPropertyNames()) {
+			values.put(name, properties.getProperty(name));
+		}
+
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Watch the changes of the files of the folder
+	 * @param folder
+	 * @return true if the folder is watched
+	 */
+	private synchronized boolean watch(Path folder) {
+
+		if (folder == null || this.closed)
+			return false;
+
+		if (this.watchedFolders.contains(folder))
+			return true;
+
+		if (!Files.isDirectory(folder))
+			return false;
+
+		try {
+
+			if (this.watcher == null) {
+				this.watcher = FileSystems.getDefault().newWatchService();
+				Thread thread = new Thread(this::processEvents, "dcf-config-watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			folder.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+			this.watchedFolders.add(folder);
+
+			return true;
+
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.warn("Cannot watch the configuration folder=" + folder
+					+ ", its files will be read again every " + this.retryInterval + " ms", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Stop watching a folder which was deleted, its files are read again
+	 * from time to time until it is created again
+	 * @param folder
+	 */
+	private synchronized void unwatch(Path folder) {
+
+		this.watchedFolders.remove(folder);
+
+		for (Path path : this.files.keySet()) {
+			if (folder.equals(path.getParent()))
+				this.unwatchedFiles.put(path, System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Read again the files which changed, until the watcher is closed
+	 */
+	private void processEvents() {
+
+		while (!this.closed) {
+
+			WatchKey key;
+			try {
+				key = this.watcher.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			Path folder = (Path) key.watchable();
+
+			for (WatchEvent<?> event : key.pollEvents()) {
+
+				// events lost, read again all the files of the folder
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					for (Path path : this.files.keySet()) {
+						if (folder.equals(path.getParent()))
+							update(path);
+					}
+					continue;
+				}
+
+				Path path = folder.resolve((Path) event.context());
+
+				if (this.files.containsKey(path)) {
+					LOGGER.info("Configuration file changed=" + path);
+					update(path);
+				}
+			}
+
+			// the folder is not valid anymore (deleted)
+			if (!key.reset()) {
+				LOGGER.warn("Configuration folder not watched anymore=" + folder);
+				unwatch(folder);
+			}
+		}
+	}
+}
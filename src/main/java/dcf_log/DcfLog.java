@@ -1,9 +1,14 @@
 package dcf_log;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 /**
  * Class which models a dcf log(the log which is downloadable by the
  * dcf web interface in the Logs tab, by pressing "download results" in
@@ -13,6 +18,8 @@ import java.util.Collection;
  */
 public class DcfLog {
 	
+	private static final Logger LOGGER = LogManager.getLogger(DcfLog.class);
+	
 	private String action;
 	private Timestamp transmissionDate;
 	private Timestamp processingDate;
@@ -25,6 +32,7 @@ public class DcfLog {
 	private Collection<String> macroOpLogs;
 	private Collection<LogNode> logNodes;
 	private Collection<LogNode> validationErrors;
+	private DetailsLoader details;  // loads the nodes when first requested
 	
 	/**
 	 * Initialise a dcf log document
@@ -62,6 +70,45 @@ public class DcfLog {
 		this.logNodes = logNodes;
 		this.validationErrors = validationErrors;
 	}
+	
+	/**
+	 * Initialise a dcf log document whose operation nodes and validation
+	 * errors are loaded only when they are requested
+	 * @param details loads the complete log
+	 * @see #DcfLog(String, Timestamp, Timestamp, String, String, String, String, String, DcfResponse, Collection, Collection, Collection)
+	 */
+	public DcfLog(String action, Timestamp transmissionDate, Timestamp processingDate,
+			String uploadedFilename, String catalogueCode, String catalogueVersion, 
+			String catalogueStatus, String macroOpName, DcfResponse macroOpResult, 
+			Collection<String> macroOpLogs, DetailsLoader details) {
+		
+		this(action, transmissionDate, processingDate, uploadedFilename, catalogueCode, catalogueVersion,
+				catalogueStatus, macroOpName, macroOpResult, macroOpLogs, null, null);
+		
+		this.details = details;
+	}
+	
+	/**
+	 * Load the operation nodes and the validation errors, if not done yet
+	 * @throws UncheckedIOException if the log cannot be read anymore, as
+	 * when its file was deleted. The load is tried again at the next call.
+	 */
+	private synchronized void loadDetails() {
+		
+		if (this.details == null)
+			return;
+		
+		try {
+			DcfLog log = this.details.load();
+			this.logNodes = log.getLogNodes();
+			this.validationErrors = log.getValidationErrors();
+		} catch (IOException e) {
+			LOGGER.error("Cannot load the operations of the log", e);
+			throw new UncheckedIOException("Cannot load the operations of the log", e);
+		}
+		
+		this.details = null;
+	}
 
 	public String getAction() {
 		return this.action;
@@ -132,13 +179,36 @@ public class DcfLog {
 		return this.macroOpLogs;
 	}
 	
+	/**
+	 * Get the operation nodes
+	 * @return
+	 * @throws UncheckedIOException if they were not loaded yet and the log
+	 * cannot be read anymore
+	 */
 	public Collection<LogNode> getLogNodes() {
+		loadDetails();
 		return this.logNodes;
 	}
 	
+	/**
+	 * Get the validation errors
+	 * @return
+	 * @throws UncheckedIOException if they were not loaded yet and the log
+	 * cannot be read anymore
+	 */
 	public Collection<LogNode> getValidationErrors() {
+		loadDetails();
 		return this.validationErrors;
 	}
+	
+	/**
+	 * Check if the operation nodes and the validation errors were
+	 * loaded
+	 * @return
+	 */
+	public synchronized boolean isDetailsLoaded() {
+		return this.details == null;
+	}
 	/**
 	 * Get all the log nodes that were not successful
 	 * @return
@@ -148,14 +218,14 @@ public class DcfLog {
 		// filter nodes by their result
 		Collection<LogNode> nodes = new ArrayList<>();
 
-		for(LogNode node : this.logNodes) {
+		for(LogNode node : getLogNodes()) {
 			
 			// if erroneous operation
 			if(!node.isOperationCorrect())
 				nodes.add(node);
 		}
 		
-		for(LogNode node : this.validationErrors) {
+		for(LogNode node : getValidationErrors()) {
 			// if erroneous operation
 			if(!node.isOperationCorrect())
 				nodes.add(node);
@@ -165,6 +235,10 @@ public class DcfLog {
 	}
 
 	
+	/**
+	 * The operation nodes are printed only if they were already loaded, since
+	 * the logs are printed when they are received
+	 */
 	@Override
 	public String toString() {
 		return "DcfLog: action=" + this.action 
@@ -177,6 +251,15 @@ public class DcfLog {
 				+ ";macroOpName=" + this.macroOpName
 				+ ";macroOpResult" + this.macroOpResult
 				+ ";macroOpLogs" + this.macroOpLogs
-				+ ";operationsLogs=" + this.logNodes;
+				+ ";operationsLogs=" + (isDetailsLoaded() ? getLogNodes() : "not loaded");
+	}
+	
+	/**
+	 * Loads the complete log, to get its operation nodes and
+	 * validation errors
+	 */
+	@FunctionalInterface
+	public interface DetailsLoader {
+		public DcfLog load() throws IOException;
 	}
 }
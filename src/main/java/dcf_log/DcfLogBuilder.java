@@ -35,6 +35,7 @@ public class DcfLogBuilder {
 	private Collection<String> macroOpLogs;
 	private Collection<LogNode> logNodes;
 	private Collection<LogNode> validationErrors;
+	private DcfLog.DetailsLoader details;
 	
 	/**
 	 * Initialise the dcf log builder memory
@@ -119,12 +120,26 @@ public class DcfLogBuilder {
 	public void setValidationErrors(Collection<LogNode> validationErrors) {
 		this.validationErrors = validationErrors;
 	}
+	/**
+	 * Load the log nodes and the validation errors only when requested,
+	 * instead of using the ones set in the builder
+	 * @param details
+	 */
+	public void setDetails(DcfLog.DetailsLoader details) {
+		this.details = details;
+	}
 	
 	/**
 	 * Build the log document
 	 * @return
 	 */
 	public DcfLog build() {
+		
+		if (this.details != null)
+			return new DcfLog(this.action, this.transmissionDate, this.processingDate, this.uploadedFilename, 
+					this.catalogueCode, this.catalogueVersion, this.catalogueStatus, this.macroOpName, 
+					this.macroOpResult, this.macroOpLogs, this.details);
+		
 		return new DcfLog(this.action, this.transmissionDate, this.processingDate, this.uploadedFilename, 
 				this.catalogueCode, this.catalogueVersion, this.catalogueStatus, this.macroOpName, 
 				this.macroOpResult, this.macroOpLogs, this.logNodes, this.validationErrors);
@@ -7,7 +7,6 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -15,6 +14,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import utils.XmlUtils;
+
 /**
  * Class used to parse a dcf log document and retrieve
  * all the {@link LogNode} contained in it.
@@ -68,8 +69,7 @@ public class DcfLogParser implements IDcfLogParser {
 		
 		Document document;
 		try {
-			document = DocumentBuilderFactory.newInstance()
-				.newDocumentBuilder().parse(input);
+			document = XmlUtils.parse(input);
 		} catch (SAXException | ParserConfigurationException e) {
 			e.printStackTrace();
 			throw new IOException(e);  // follow interface
@@ -0,0 +1,439 @@
+package dcf_log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import utils.XmlUtils;
+
+/**
+ * Parser of the dcf log document which reads the document in a single
+ * forward pass with StAX, without building the DOM. It builds the same
+ * {@link DcfLog} of the {@link DcfLogParser}, but the memory used does not
+ * depend on the size of the document, except for the log itself.
+ */
+public class DcfLogStreamParser implements IDcfLogParser {
+
+	private static final String ACTION = "action";
+	private static final String TRANSMISSION_DATE = "transmissionDateTime";
+	private static final String PROCESSING_DATE = "processingDateTime";
+	private static final String UPLOADED_FILENAME = "uploadedFileName";
+	private static final String CATALOGUE_CODE = "catalogueCode";
+	private static final String CATALOGUE_VERSION = "catalogueVersion";
+	private static final String CATALOGUE_STATUS = "catalogueStatus";
+	private static final String MACRO_OP_NAME = "macroOperationName";
+	private static final String MACRO_OP_RESULT = "macroOperationResult";
+	private static final String MACRO_OP_LOGS_BLOCK = "macroOperationLogs";
+	private static final String MACRO_OP_LOG = "operationLog";
+
+	private static final String OPERATIONS_BLOCK = "operations";
+	private static final String OPERATION_BLOCK = "operation";
+	private static final String OP_NAME = "operationName";
+	private static final String OP_RESULT = "operationResult";
+	private static final String OP_LOGS_BLOCK = "operationLogs";
+	private static final String OP_LOG = "operationLog";
+
+	private static final String VALIDATION_ERROR_BLOCK = "validationErrorLogs";
+	private static final String VALIDATION_ERROR = "validationError";
+
+	private static final String[] SINGLE_FIELDS = { ACTION, TRANSMISSION_DATE, PROCESSING_DATE,
+			UPLOADED_FILENAME, CATALOGUE_CODE, CATALOGUE_VERSION, CATALOGUE_STATUS, MACRO_OP_NAME,
+			MACRO_OP_RESULT };
+
+	@Override
+	public DcfLog parse(File file) throws IOException {
+
+		try (InputStream input = new FileInputStream(file);) {
+			return this.parse(input);
+		}
+	}
+
+	@Override
+	public DcfLog parse(InputStream input) throws IOException {
+		return parse(input, null);
+	}
+
+	/**
+	 * Parse the header and the macro operation result, then stop reading the
+	 * file. The operation nodes and the validation errors are parsed from
+	 * the file when they are requested to the log.
+	 */
+	@Override
+	public DcfLog parseResult(File file) throws IOException {
+
+		DcfLog log;
+		try (InputStream input = new FileInputStream(file);) {
+			log = parse(input, () -> parse(file));
+		}
+
+		return log;
+	}
+
+	/**
+	 * Parse the log
+	 * @param input
+	 * @param details loads the operation nodes and the validation errors
+	 * later, null to parse them now
+	 * @return
+	 * @throws IOException
+	 */
+	private static DcfLog parse(InputStream input, DcfLog.DetailsLoader details) throws IOException {
+
+		XMLStreamReader reader = null;
+		try {
+
+			reader = XmlUtils.getInputFactory().createXMLStreamReader(input);
+
+			return new Parse(reader, details).parse();
+
+		} catch (XMLStreamException e) {
+			throw new IOException(e);  // follow interface
+		} finally {
+			close(reader);
+		}
+	}
+
+	private static void close(XMLStreamReader reader) {
+
+		if (reader == null)
+			return;
+
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// nothing to release
+		}
+	}
+
+	/**
+	 * Parse of a single document. As the dom parser, the single fields and
+	 * the blocks are taken from their first node in the document, wherever it is.
+	 */
+	private static class Parse {
+
+		private final XMLStreamReader reader;
+		private final DcfLog.DetailsLoader details;
+
+		private Map<String, String> fields;
+		private Collection<String> macroOpLogs;
+		private Collection<LogNode> operations;
+		private Collection<LogNode> validationErrors;
+
+		/**
+		 * @param reader
+		 * @param details loads the operation nodes and the validation errors
+		 * later, null to parse them now
+		 */
+		private Parse(XMLStreamReader reader, DcfLog.DetailsLoader details) {
+			this.reader = reader;
+			this.details = details;
+			this.fields = new HashMap<>();
+		}
+
+		private DcfLog parse() throws XMLStreamException {
+
+			while (this.reader.hasNext() && !isResultRead()) {
+
+				if (this.reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = getName();
+
+				if (isSingleField(name) && !this.fields.containsKey(name))
+					readText();
+				else if (name.equals(MACRO_OP_LOGS_BLOCK) && this.macroOpLogs == null)
+					this.macroOpLogs = readMacroOperations();
+				else if (this.details != null && (name.equals(OPERATIONS_BLOCK) 
+						|| name.equals(VALIDATION_ERROR_BLOCK)))
+					skip();
+				else if (name.equals(OPERATIONS_BLOCK) && this.operations == null)
+					this.operations = readOperations();
+				else if (name.equals(VALIDATION_ERROR_BLOCK) && this.validationErrors == null)
+					this.validationErrors = readValidationErrors();
+			}
+
+			DcfLogBuilder logBuilder = new DcfLogBuilder();
+			logBuilder.setAction(this.fields.get(ACTION));
+			logBuilder.setTransmissionDate(this.fields.get(TRANSMISSION_DATE));
+			logBuilder.setUploadedFilename(this.fields.get(UPLOADED_FILENAME));
+			logBuilder.setProcessingDate(this.fields.get(PROCESSING_DATE));
+			logBuilder.setCatalogueCode(this.fields.get(CATALOGUE_CODE));
+			logBuilder.setCatalogueVersion(this.fields.get(CATALOGUE_VERSION));
+			logBuilder.setCatalogueStatus(this.fields.get(CATALOGUE_STATUS));
+			logBuilder.setMacroOpName(this.fields.get(MACRO_OP_NAME));
+			logBuilder.setMacroOpResult(this.fields.get(MACRO_OP_RESULT));
+
+			logBuilder.setMacroOpLogs(this.macroOpLogs == null ? new ArrayList<>() : this.macroOpLogs);
+
+			if (this.details != null) {
+				logBuilder.setDetails(this.details);
+				return logBuilder.build();
+			}
+
+			logBuilder.setLogNodes(this.operations == null ? new ArrayList<>() : this.operations);
+			logBuilder.setValidationErrors(this.validationErrors == null ? new ArrayList<>()
+					: this.validationErrors);
+
+			return logBuilder.build();
+		}
+
+		private Collection<String> readMacroOperations() throws XMLStreamException {
+
+			Collection<String> ops = new ArrayList<>();
+
+			while (nextChild()) {
+
+				boolean log = getName().equals(MACRO_OP_LOG);
+				String text = readText();
+
+				if (log)
+					ops.add(text);
+			}
+
+			return ops;
+		}
+
+		private Collection<LogNode> readOperations() throws XMLStreamException {
+
+			Collection<LogNode> ops = new ArrayList<>();
+
+			while (nextChild()) {
+				if (getName().equals(OPERATION_BLOCK))
+					ops.add(readOperation());
+				else
+					readText();
+			}
+
+			return ops;
+		}
+
+		private LogNode readOperation() throws XMLStreamException {
+
+			LogNodeBuilder builder = new LogNodeBuilder();
+
+			while (nextChild()) {
+
+				switch (getName()) {
+				case OP_NAME:
+					builder.setName(readText());
+					break;
+				case OP_RESULT:
+					builder.setResult(readText());
+					break;
+				case OP_LOGS_BLOCK:
+					builder.setOpLogs(readOperationLogs());
+					break;
+				default:
+					readText();
+					break;
+				}
+			}
+
+			return builder.build();
+		}
+
+		private Collection<String> readOperationLogs() throws XMLStreamException {
+
+			Collection<String> opLogs = new ArrayList<>();
+
+			while (nextChild()) {
+
+				boolean log = getName().equals(OP_LOG);
+				String text = readText();
+
+				if (log)
+					opLogs.add(text);
+			}
+
+			return opLogs;
+		}
+
+		private Collection<LogNode> readValidationErrors() throws XMLStreamException {
+
+			Collection<LogNode> errors = new ArrayList<>();
+
+			while (nextChild()) {
+				if (getName().equals(VALIDATION_ERROR))
+					errors.add(readValidationError());
+				else
+					readText();
+			}
+
+			return errors;
+		}
+
+		/**
+		 * As the dom parser, each child node of the error is a log, including
+		 * the text between the elements
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private LogNode readValidationError() throws XMLStreamException {
+
+			LogNodeBuilder builder = new LogNodeBuilder();
+			builder.setResult(DcfResponse.ERROR);
+			builder.setName(VALIDATION_ERROR);
+
+			StringBuilder text = null;
+
+			while (true) {
+
+				int event = this.reader.next();
+
+				// adjacent text is a single node, cdata sections are separated
+				if (isText(event) && event != XMLStreamConstants.CDATA) {
+					if (text == null)
+						text = new StringBuilder();
+					text.append(this.reader.getText());
+					continue;
+				}
+
+				if (text != null) {
+					builder.addOpLog(text.toString());
+					text = null;
+				}
+
+				if (event == XMLStreamConstants.START_ELEMENT)
+					builder.addOpLog(readText());
+				else if (event == XMLStreamConstants.CDATA || event == XMLStreamConstants.COMMENT)
+					builder.addOpLog(this.reader.getText());
+				else if (event == XMLStreamConstants.END_ELEMENT)
+					break;
+			}
+
+			return builder.build();
+		}
+
+		/**
+		 * Check if the header and the macro operation result were read, when
+		 * only the result is needed
+		 * @return
+		 */
+		private boolean isResultRead() {
+			return this.details != null && this.macroOpLogs != null
+					&& this.fields.size() == SINGLE_FIELDS.length;
+		}
+
+		/**
+		 * Skip the current element, keeping the single fields found inside it
+		 * @throws XMLStreamException
+		 */
+		private void skip() throws XMLStreamException {
+
+			int depth = 1;
+
+			while (depth > 0) {
+
+				int event = this.reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+
+					String name = getName();
+
+					if (isSingleField(name) && !this.fields.containsKey(name))
+						readText();
+					else
+						depth++;
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+				}
+			}
+		}
+
+		/**
+		 * Move to the next child element of the current element
+		 * @return false if the current element ended
+		 * @throws XMLStreamException
+		 */
+		private boolean nextChild() throws XMLStreamException {
+
+			while (true) {
+
+				int event = this.reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT)
+					return true;
+
+				if (event == XMLStreamConstants.END_ELEMENT)
+					return false;
+			}
+		}
+
+		/**
+		 * Read all the text of the current element, as the text content of
+		 * its dom node. The single fields found inside it are kept.
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private String readText() throws XMLStreamException {
+
+			String name = getName();
+			boolean field = isSingleField(name) && !this.fields.containsKey(name);
+
+			// reserve the field, the first node in the document wins
+			if (field)
+				this.fields.put(name, null);
+
+			StringBuilder text = new StringBuilder();
+
+			while (true) {
+
+				int event = this.reader.next();
+
+				if (isText(event))
+					text.append(this.reader.getText());
+				else if (event == XMLStreamConstants.START_ELEMENT)
+					text.append(readText());
+				else if (event == XMLStreamConstants.END_ELEMENT)
+					break;
+			}
+
+			String value = text.toString();
+
+			if (field)
+				this.fields.put(name, value);
+
+			return value;
+		}
+
+		/**
+		 * Get the qualified name of the current element, as the node name of
+		 * the dom parser
+		 * @return
+		 */
+		private String getName() {
+
+			String prefix = this.reader.getPrefix();
+
+			if (prefix == null || prefix.isEmpty())
+				return this.reader.getLocalName();
+
+			return prefix + ":" + this.reader.getLocalName();
+		}
+
+		private static boolean isText(int event) {
+			return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE;
+		}
+
+		private static boolean isSingleField(String name) {
+
+			for (String field : SINGLE_FIELDS) {
+				if (field.equals(name))
+					return true;
+			}
+
+			return false;
+		}
+	}
+}
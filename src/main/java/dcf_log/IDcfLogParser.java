@@ -22,4 +22,16 @@ public interface IDcfLogParser {
 	 * @throws IOException
 	 */
 	public DcfLog parse(InputStream input) throws IOException;
+	
+	/**
+	 * Parse only the header and the macro operation result of a log file.
+	 * The operation nodes and the validation errors are read from the
+	 * file only if they are requested. By default the whole log is parsed.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public default DcfLog parseResult(File file) throws IOException {
+		return parse(file);
+	}
 }
@@ -6,6 +6,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.soap.SOAPException;
 
@@ -30,7 +34,11 @@ public class PendingRequest implements IPendingRequest {
 	private static final Logger LOGGER = LogManager.getLogger(PendingRequest.class);
 	
 	private IExportCatalogueFile exportCatFile;
-	private boolean paused;
+	private volatile boolean paused;
+	
+	// used instead of the object monitor, which would pin the carrier of a virtual thread
+	private final Lock lock = new ReentrantLock();
+	private final Condition restarted = this.lock.newCondition();
 	
 	// type of the pending request (RESERVE, UNRESERVE, PUBLISH, UPLOAD_DATA)
 	private String type;
@@ -119,8 +127,9 @@ public class PendingRequest implements IPendingRequest {
 			return DcfResponse.ERROR;
 		}
 		
-		// parse the log and get the dcf response in it
-		this.log = parser.parse(logFile);
+		// parse the log and get the dcf response in it, the operations
+		// are parsed only if they are requested to the log
+		this.log = parser.parseResult(logFile);
 		
 		// get the macro operation result
 		this.response = this.log.getMacroOpResult();
@@ -184,7 +193,22 @@ public class PendingRequest implements IPendingRequest {
 	 * @param maxAttempts max number of allowed attempts (prevents DOS)
 	 * @throws SOAPException 
 	 */
-	private synchronized File downloadLog(IDcfUser userVar, Environment env, String logCodeVar, 
+	private File downloadLog(IDcfUser userVar, Environment env, String logCodeVar, 
+			long interAttemptsTime, int maxAttempts) throws SOAPException {
+		
+		this.lock.lock();
+		try {
+			return pollLog(userVar, env, logCodeVar, interAttemptsTime, maxAttempts);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Polling cycle of {@link #downloadLog(IDcfUser, Environment, String, long, int)},
+	 * to be called holding the {@link #lock}
+	 */
+	private File pollLog(IDcfUser userVar, Environment env, String logCodeVar, 
 			long interAttemptsTime, int maxAttempts) throws SOAPException {
 		
 		// if maxAttempts is > 0 then a limit is applied
@@ -221,7 +245,7 @@ public class PendingRequest implements IPendingRequest {
 			// wait inter attempts time
 			try {
 				this.paused = true;
-				this.wait(interAttemptsTime);
+				this.restarted.await(interAttemptsTime, TimeUnit.MILLISECONDS);
 			} catch(InterruptedException e) {
 				LOGGER.error("Error during wait ", e);
 				e.printStackTrace();
@@ -351,13 +375,18 @@ public class PendingRequest implements IPendingRequest {
 	}
 
 	@Override
-	public synchronized void restart() {
-		
-		if (!this.isPaused())
-			return;
+	public void restart() {
 		
-		this.restartTime = System.currentTimeMillis();
-		this.notify();
+		this.lock.lock();
+		try {
+			if (!this.isPaused())
+				return;
+			
+			this.restartTime = System.currentTimeMillis();
+			this.restarted.signal();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	@Override
@@ -8,11 +8,13 @@ import java.util.List;
 import javax.xml.soap.SOAPException;
 
 import dcf_log.IDcfLogParser;
+import soap.SOAPExecutors;
 
 /**
  * Launcher for a set or {@link IPendingRequest}, that is,
  * one {@link PendingRequestThread} is created for each {@link IPendingRequest}.
- * Every thread is independent and runs in background.
+ * Every thread is independent and runs in background, on a virtual
+ * thread if {@link SOAPExecutors#isVirtualThreads()}.
  * @author avonva
  * @author shahaal
  */
@@ -80,6 +82,7 @@ public class PendingRequestLauncher {
 		// add the launcher to the pool
 		this.pool.add(launcher);
 		
-		launcher.start();
+		// run on a virtual thread if enabled, the waits of the polling are cheap there
+		SOAPExecutors.newThread(launcher, "dcf-pending-" + req.getLogCode()).start();
 	}
 }
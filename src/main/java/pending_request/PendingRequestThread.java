@@ -11,9 +11,14 @@ import org.xml.sax.SAXException;
 
 import dcf_log.IDcfLogParser;
 import soap.DetailedSOAPException;
+import soap.RetryPolicy;
 
 /**
- * Launcher for a single {@link IPendingRequest} in background.
+ * Launcher for a single {@link IPendingRequest} in background. It can be
+ * started as a thread, but the {@link PendingRequestLauncher} runs it as a
+ * {@link Runnable} on a thread created by
+ * {@link soap.SOAPExecutors#newThread(Runnable, String)}, so use
+ * {@link #isFinished()} to follow the requests of the launcher.
  * @author avonva
  *
  */
@@ -21,7 +26,8 @@ public class PendingRequestThread extends Thread {
 
 	private static final Logger LOGGER = LogManager.getLogger(PendingRequestThread.class);
 	
-	private boolean finished;
+	private volatile boolean finished;
+	private RetryPolicy relaunchPolicy;
 	private IPendingRequest request;
 	private IDcfLogParser parser;
 	
@@ -33,6 +39,22 @@ public class PendingRequestThread extends Thread {
 		this.request = request;
 		this.parser = parser;
 		this.finished = false;
+		
+		// relaunched until the connection comes back, waiting at most one minute
+		this.relaunchPolicy = new RetryPolicy()
+				.setBaseDelay(1000)
+				.setMaxDelay(60000)
+				.setDeadline(-1);
+	}
+	
+	/**
+	 * Set the backoff used to relaunch the request when the connection
+	 * is not available. The max attempts and the deadline of the policy
+	 * are not used, since the request is relaunched until it can be sent.
+	 * @param relaunchPolicy
+	 */
+	public void setRelaunchPolicy(RetryPolicy relaunchPolicy) {
+		this.relaunchPolicy = relaunchPolicy;
 	}
 	
 	public IPendingRequest getRequest() {
@@ -71,6 +93,7 @@ public class PendingRequestThread extends Thread {
 	private void startRequest() throws SOAPException, IOException, InterruptedException {
 		
 		boolean done = false;
+		int attempt = 0;
 		
 		// this cycle is needed to reiterate the
 		// start procedure if no connection error is found
@@ -80,13 +103,17 @@ public class PendingRequestThread extends Thread {
 				done = true;
 			}
 			catch(DetailedSOAPException e) {
-				if (e.isConnectionProblem()) {
+				// the errors which do not depend on the request are temporary
+				if (e.isTransient()) {
+					
+					// wait as asked by the server or with an increasing random delay
+					++attempt;
+					long delay = e.getRetryAfter() >= 0 ? e.getRetryAfter() : this.relaunchPolicy.getDelay(attempt);
 					
-					// bad connection, wait connection
-					LOGGER.error("Bad internet connection. The pending request=" 
-							+ this.request + " will be relaunched in one minute", e);
+					LOGGER.error("Temporary error=" + e.getError() + ". The pending request=" 
+							+ this.request + " will be relaunched in " + delay + " ms", e);
 					
-					Thread.sleep(60000);
+					Thread.sleep(delay);
 				}
 				else {
 					throw e;
@@ -10,7 +10,7 @@ import javax.xml.soap.SOAPException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import dcf_log.DcfLogParser;
+import dcf_log.DcfLogStreamParser;
 import dcf_log.IDcfLogParser;
 
 /**
@@ -27,7 +27,7 @@ public abstract class PendingRequestWorker extends SwingWorker<Void, PendingRequ
 	private PendingRequestLauncher pool;
 	
 	public PendingRequestWorker() {
-		this(new DcfLogParser());
+		this(new DcfLogStreamParser());
 	}
 	
 	public PendingRequestWorker(IDcfLogParser parser) {
@@ -7,7 +7,6 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.EndElement;
@@ -17,6 +16,7 @@ import javax.xml.stream.events.XMLEvent;
 import data_collection.IDcfCatalogueConfig;
 import data_collection.IDcfDCTable;
 import data_collection.IDcfDCTableLists;
+import utils.XmlUtils;
 
 /**
  * Parser used to extract all the {@link DCTable} from
@@ -52,11 +52,8 @@ public class DCResourceParser<T extends IDcfDCTable> implements AutoCloseable {
 		
 		this.output = output;
 		
-		XMLInputFactory factory = XMLInputFactory.newInstance();
-		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
-		
 		this.stream = new FileInputStream(file);
-		this.eventReader = factory.createXMLEventReader(this.stream);
+		this.eventReader = XmlUtils.getCoalescingInputFactory().createXMLEventReader(this.stream);
 	}
 	
 	/**
@@ -3,6 +3,10 @@ package response_parser;
 import java.sql.Timestamp;
 import java.text.ParseException;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -51,6 +55,110 @@ public class GetCataloguesListParser<T extends IDcfCatalogue> {
 		return this.output;
 	}
 	
+	/**
+	 * Get the catalogues from the cdata content, reading it while it is
+	 * received. The catalogues are added to the output one at a time.
+	 * @param reader reader of the cdata content
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public IDcfCataloguesList<T> parse(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT && "catalogue".equals(reader.getLocalName()))
+				this.output.add(getCatalogue(reader));
+		}
+		
+		return this.output;
+	}
+	
+	/**
+	 * Get a single catalogue from the reader
+	 * @param reader reader positioned on the start of the catalogue, it is
+	 * left on its end
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private T getCatalogue(XMLStreamReader reader) throws XMLStreamException {
+		
+		T catalogue = this.output.create();
+		
+		// add the catalogueDesc and the catalogueVersion properties
+		while (nextChild(reader)) {
+			while (nextChild(reader)) {
+				
+				String propertyName = reader.getLocalName();
+				String propertyValue = getValue(reader);
+				
+				// skip if no value is found (happen if there are catalogue errors)
+				if (propertyValue != null)
+					setProperty(catalogue, propertyName, propertyValue);
+			}
+		}
+		
+		return catalogue;
+	}
+	
+	/**
+	 * Move to the next child element of the current element
+	 * @param reader
+	 * @return false if the current element ended
+	 * @throws XMLStreamException
+	 */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (true) {
+			
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				return true;
+			
+			if (event == XMLStreamConstants.END_ELEMENT)
+				return false;
+		}
+	}
+	
+	/**
+	 * Get the value of a property, as the value of its first child node
+	 * of the dom
+	 * @param reader reader positioned on the start of the property, it is
+	 * left on its end
+	 * @return the text which precedes the first child element, null if
+	 * there is no text
+	 * @throws XMLStreamException
+	 */
+	private static String getValue(XMLStreamReader reader) throws XMLStreamException {
+		
+		StringBuilder value = null;
+		boolean firstNode = true;
+		int depth = 1;
+		
+		while (depth > 0) {
+			
+			int event = reader.next();
+			
+			boolean text = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE;
+			
+			if (text && firstNode) {
+				if (value == null)
+					value = new StringBuilder();
+				value.append(reader.getText());
+				continue;
+			}
+			
+			firstNode = false;
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+		
+		return value == null ? null : value.toString();
+	}
+	
 	/**
 	 * Extract data of the catalogue from the node and set 
 	 * them into the catalogue object passed in input
@@ -90,84 +198,95 @@ public class GetCataloguesListParser<T extends IDcfCatalogue> {
 			// Get the value of the property node
 			String propertyValue = propertyValueNode.getNodeValue();
 
-			// Add the property value to the catalogue builder
-			// according to the property name
-			switch (propertyName) {
-
-			case "code":
-				catalogue.setCode(propertyValue);
-				break;
-			case "name":
-				catalogue.setName(propertyValue);
-				break;
-			case "label":
-				catalogue.setLabel(propertyValue);
-				break;
-			case "scopeNote":
-				catalogue.setScopenotes(propertyValue);
-				break;
-			case "termCodeMask":
-				catalogue.setTermCodeMask(propertyValue);
-				break;
-			case "termCodeLength":
+			setProperty(catalogue, propertyName, propertyValue);
+		}  // end for
+
+		return catalogue;  // return the catalogue
+	}
+	
+	/**
+	 * Set a property of the catalogue
+	 * @param catalogue the catalogue which will be modified
+	 * @param propertyName name of the property (e.g. "code", "name", ...)
+	 * @param propertyValue value of the property
+	 */
+	private void setProperty(T catalogue, String propertyName, String propertyValue) {
+
+		// Add the property value to the catalogue builder
+		// according to the property name
+		switch (propertyName) {
+
+		case "code":
+			catalogue.setCode(propertyValue);
+			break;
+		case "name":
+			catalogue.setName(propertyValue);
+			break;
+		case "label":
+			catalogue.setLabel(propertyValue);
+			break;
+		case "scopeNote":
+			catalogue.setScopenotes(propertyValue);
+			break;
+		case "termCodeMask":
+			catalogue.setTermCodeMask(propertyValue);
+			break;
+		case "termCodeLength":
+			try {
+				int codeLength = Integer.parseInt(propertyValue);
+				catalogue.setTermCodeLength(codeLength);
+			}
+			catch (NumberFormatException e) {
+				e.printStackTrace();
+			}
+			break;
+		case "acceptNonStandardCodes":
+			catalogue.setAcceptNonStandardCodes(Boolean.parseBoolean(propertyValue));
+			break;
+		case "generateMissingCodes":
+			catalogue.setGenerateMissingCodes(Boolean.parseBoolean(propertyValue));
+			break;
+		case "version":
+			catalogue.setVersion(propertyValue);
+			break;
+		case "validFrom":
+			
+			if (propertyValue != null) {
+
+				// convert the string to timestamp
 				try {
-					int codeLength = Integer.parseInt(propertyValue);
-					catalogue.setTermCodeLength(codeLength);
+					Timestamp validFromTs = TimeUtils.getTimestampFromString(
+							propertyValue, ISO_8601_24H_FULL_FORMAT);
+					catalogue.setValidFrom(validFromTs);
 				}
-				catch (NumberFormatException e) {
+				catch (ParseException e) {
 					e.printStackTrace();
 				}
-				break;
-			case "acceptNonStandardCodes":
-				catalogue.setAcceptNonStandardCodes(Boolean.parseBoolean(propertyValue));
-				break;
-			case "generateMissingCodes":
-				catalogue.setGenerateMissingCodes(Boolean.parseBoolean(propertyValue));
-				break;
-			case "version":
-				catalogue.setVersion(propertyValue);
-				break;
-			case "validFrom":
-				
-				if (propertyValue != null) {
-
-					// convert the string to timestamp
-					try {
-						Timestamp validFromTs = TimeUtils.getTimestampFromString(
-								propertyValue, ISO_8601_24H_FULL_FORMAT);
-						catalogue.setValidFrom(validFromTs);
-					}
-					catch (ParseException e) {
-						e.printStackTrace();
-					}
-				}
-				
-				break;
+			}
+			
+			break;
 
-			case "validTo":
+		case "validTo":
 
-				if (propertyValue != null) {
+			if (propertyValue != null) {
 
-					// convert the string to timestamp
-					try {
-						Timestamp validToTs = TimeUtils.getTimestampFromString(
-								propertyValue, ISO_8601_24H_FULL_FORMAT);
-						catalogue.setValidTo(validToTs);
-					}
-					catch (ParseException e) {
-						e.printStackTrace();
-					}
+				// convert the string to timestamp
+				try {
+					Timestamp validToTs = TimeUtils.getTimestampFromString(
+							propertyValue, ISO_8601_24H_FULL_FORMAT);
+					catalogue.setValidTo(validToTs);
 				}
+				catch (ParseException e) {
+					e.printStackTrace();
+				}
+			}
 
-				break;
-			case "status":
-				catalogue.setStatus(propertyValue);
-				break;
-			default:
-				break;
-			}  // end switch
-		}  // end for
-
-		return catalogue;  // return the catalogue
+			break;
+		case "status":
+			catalogue.setStatus(propertyValue);
+			break;
+		default:
+			break;
+		}  // end switch
 	}
 }
@@ -2,6 +2,10 @@ package response_parser;
 
 import java.text.ParseException;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -36,6 +40,108 @@ public class GetDataCollectionsListParser<T extends IDcfDataCollection> {
 		return this.output;
 	}
 	
+	/**
+	 * Get the data collections from the cdata content, reading it while it
+	 * is received. The data collections are added to the output one at a time.
+	 * @param reader reader of the cdata content
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public IDcfDataCollectionsList<T> parse(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT 
+					&& "dataCollectionMainInfo".equals(reader.getLocalName()))
+				this.output.add(getDataCollection(reader));
+		}
+		
+		return this.output;
+	}
+	
+	/**
+	 * Get a single datacollection element from the reader
+	 * @param reader reader positioned on the start of the data collection,
+	 * it is left on its end
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private T getDataCollection(XMLStreamReader reader) throws XMLStreamException {
+		
+		T dc = this.output.create();
+		
+		while (nextChild(reader)) {
+			
+			String propertyName = reader.getLocalName();
+			String propertyValue = getValue(reader);
+			
+			// skip if no value is found (happen if there are catalogue errors)
+			if (propertyValue != null)
+				setProperty(dc, propertyName, propertyValue);
+		}
+		
+		return dc;
+	}
+	
+	/**
+	 * Move to the next child element of the current element
+	 * @param reader
+	 * @return false if the current element ended
+	 * @throws XMLStreamException
+	 */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (true) {
+			
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				return true;
+			
+			if (event == XMLStreamConstants.END_ELEMENT)
+				return false;
+		}
+	}
+	
+	/**
+	 * Get the value of a property, as the value of its first child node
+	 * of the dom
+	 * @param reader reader positioned on the start of the property, it is
+	 * left on its end
+	 * @return the text which precedes the first child element, null if
+	 * there is no text
+	 * @throws XMLStreamException
+	 */
+	private static String getValue(XMLStreamReader reader) throws XMLStreamException {
+		
+		StringBuilder value = null;
+		boolean firstNode = true;
+		int depth = 1;
+		
+		while (depth > 0) {
+			
+			int event = reader.next();
+			
+			boolean text = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE;
+			
+			if (text && firstNode) {
+				if (value == null)
+					value = new StringBuilder();
+				value.append(reader.getText());
+				continue;
+			}
+			
+			firstNode = false;
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+		
+		return value == null ? null : value.toString();
+	}
+	
 	/**
 	 * Get a single datacollection element from the node values
 	 * @param node
@@ -69,51 +175,62 @@ public class GetDataCollectionsListParser<T extends IDcfDataCollection> {
 			// Get the value of the property node
 			String propertyValue = propertyValueNode.getNodeValue();
 
-			// Add the property value to the catalogue builder
-			// according to the property name
-			switch (propertyName) {
-
-			case "dcCode":
-				dc.setCode(propertyValue);
-				break;
-			case "dcDescription":
-				dc.setDescription(propertyValue);
-				break;
-			case "dcCategory":
-				dc.setCategory(propertyValue);
-				break;
-
-			case "activeFrom":
-
-				if ( propertyValue != null ) {
-					try {
-						dc.setActiveFrom(TimeUtils.getTimestampFromString(propertyValue, DATE_FORMAT));
-					} catch (ParseException e) {
-						e.printStackTrace();
-					}
+			setProperty(dc, propertyName, propertyValue);
+		}  // end for
+		
+		return dc;
+	}
+	
+	/**
+	 * Set a property of the data collection
+	 * @param dc the data collection which will be modified
+	 * @param propertyName name of the property (e.g. "dcCode", ... )
+	 * @param propertyValue value of the property
+	 */
+	private void setProperty(T dc, String propertyName, String propertyValue) {
+
+		// Add the property value to the catalogue builder
+		// according to the property name
+		switch (propertyName) {
+
+		case "dcCode":
+			dc.setCode(propertyValue);
+			break;
+		case "dcDescription":
+			dc.setDescription(propertyValue);
+			break;
+		case "dcCategory":
+			dc.setCategory(propertyValue);
+			break;
+
+		case "activeFrom":
+
+			if ( propertyValue != null ) {
+				try {
+					dc.setActiveFrom(TimeUtils.getTimestampFromString(propertyValue, DATE_FORMAT));
+				} catch (ParseException e) {
+					e.printStackTrace();
 				}
+			}
 
-				break;
-				
-			case "activeTo":
+			break;
+			
+		case "activeTo":
 
-				if ( propertyValue != null ) {
-					try {
-						dc.setActiveTo(TimeUtils.getTimestampFromString(propertyValue, DATE_FORMAT));
-					} catch (ParseException e) {
-						e.printStackTrace();
-					}
+			if ( propertyValue != null ) {
+				try {
+					dc.setActiveTo(TimeUtils.getTimestampFromString(propertyValue, DATE_FORMAT));
+				} catch (ParseException e) {
+					e.printStackTrace();
 				}
-
-				break;
-			case "resourceId":
-				dc.setResourceId( propertyValue );
-				break;
-			default:
-				break;
-			}  // end switch
-		}  // end for
-		
-		return dc;
+			}
+
+			break;
+		case "resourceId":
+			dc.setResourceId( propertyValue );
+			break;
+		default:
+			break;
+		}  // end switch
 	}
 }
@@ -1,6 +1,9 @@
 package response_parser;
 
 import javax.xml.soap.SOAPBody;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -11,7 +14,7 @@ import dataset.IDcfDatasetsList;
 import soap.GetDatasetsList;
 
 /**
- * Parser for a dom document containing the {@link GetDatasetsList}
+ * Parser for a dom document or a stream containing the {@link GetDatasetsList}
  * response
  * @author avonva
  * @author shahaal
@@ -53,6 +56,123 @@ public class GetDatasetsListParser<T extends IDcfDataset> {
 		return this.output;
 	}
 	
+	/**
+	 * Get a list of datasets from the soap body, reading it while it is
+	 * received. The datasets are added to the output one at a time.
+	 * @param reader reader positioned inside the soap body
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public IDcfDatasetsList<T> parse(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (reader.getEventType() != XMLStreamConstants.END_DOCUMENT) {
+			
+			if (reader.isStartElement() && "dataset".equals(reader.getLocalName()))
+				this.output.add(getDataset(reader));
+			else if (reader.isEndElement() && "Body".equals(reader.getLocalName()))
+				break;
+			
+			reader.next();
+		}
+		
+		return this.output;
+	}
+	
+	/**
+	 * Get a single dataset from the reader
+	 * @param reader reader positioned on the start of the dataset
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private T getDataset(XMLStreamReader reader) throws XMLStreamException {
+		
+		T dataset = this.output.create();
+		
+		// parse the dataset info up to the end of the dataset
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			
+			switch (reader.getLocalName()) {
+			case DATASET_ID_NODE:
+				dataset.setId(reader.getElementText());
+				break;
+			case SENDER_DATASET_ID_NODE:
+				dataset.setSenderId(reader.getElementText());
+				break;
+			case LAST_MESSAGE_ID:
+				dataset.setLastMessageId(reader.getElementText());
+				break;
+			case LAST_MODIFYING_MESSAGE_ID:
+				dataset.setLastModifyingMessageId(reader.getElementText());
+				break;
+			case LAST_VALIDATION_MESSAGE_ID:
+				dataset.setLastValidationMessageId(reader.getElementText());
+				break;
+			case WRAPPER_STATUS_NODE:
+				dataset.setStatus(getStatus(reader));
+				break;
+			default:
+				skipElement(reader);
+				break;
+			}
+		}
+		
+		return dataset;
+	}
+	
+	/**
+	 * Get the dataset status object from the reader
+	 * @param reader reader positioned on the start of the status
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static DcfDatasetStatus getStatus(XMLStreamReader reader) throws XMLStreamException {
+		
+		DcfDatasetStatus status = null;
+		String step = null;
+		
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			
+			switch (reader.getLocalName()) {
+			case STATUS_NODE:
+				status = DcfDatasetStatus.fromString(reader.getElementText());
+				break;
+			case STEP_NODE:
+				step = reader.getElementText();
+				break;
+			default:
+				skipElement(reader);
+				break;
+			}
+		}
+		
+		// set also the step after the status is defined
+		if (status != null)
+			status.setStep(step);
+		
+		return status;
+	}
+	
+	/**
+	 * Skip an element and all its children
+	 * @param reader reader positioned on the start of the element, it is
+	 * left on its end
+	 * @throws XMLStreamException
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		
+		int depth = 1;
+		
+		while (depth > 0) {
+			
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+	
 	/**
 	 * Get a single dataset from a dataset node
 	 * @param datasetNode
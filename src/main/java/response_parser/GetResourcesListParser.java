@@ -1,5 +1,9 @@
 package response_parser;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
@@ -40,6 +44,106 @@ public class GetResourcesListParser<T extends IDcfResourceReference> {
 		return this.output;
 	}
 	
+	/**
+	 * Get the resources from the cdata content, reading it while it is
+	 * received. The resources are added to the output one at a time.
+	 * @param reader reader of the cdata content
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public IDcfResourcesList<T> parse(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT && RESOURCE_REF_NODE.equals(reader.getLocalName()))
+				this.output.add(getResource(reader));
+		}
+		
+		return this.output;
+	}
+	
+	/**
+	 * Get the resource from the reader
+	 * @param reader reader positioned on the start of the resource, it is
+	 * left on its end
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private T getResource(XMLStreamReader reader) throws XMLStreamException {
+		
+		T reference = this.output.create();
+		
+		while (nextChild(reader)) {
+			
+			String nodeName = reader.getLocalName();
+			String nodeValue = getText(reader);
+			
+			switch (nodeName) {
+			case RESOURCE_TYPE_NODE:
+				reference.setType(nodeValue);
+				break;
+			case RESOURCE_ID_NODE:
+				reference.setResourceId(nodeValue);
+				break;
+			default:
+				break;
+			}
+		}
+		
+		if (reference.isIncomplete()) {
+			LOGGER.warn("Missing reference value for " + reference);
+		}
+		
+		return reference;
+	}
+	
+	/**
+	 * Move to the next child element of the current element
+	 * @param reader
+	 * @return false if the current element ended
+	 * @throws XMLStreamException
+	 */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (true) {
+			
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				return true;
+			
+			if (event == XMLStreamConstants.END_ELEMENT)
+				return false;
+		}
+	}
+	
+	/**
+	 * Get all the text of the current element, as the text content of the dom
+	 * @param reader reader positioned on the start of the element, it is
+	 * left on its end
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static String getText(XMLStreamReader reader) throws XMLStreamException {
+		
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		
+		while (depth > 0) {
+			
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE)
+				text.append(reader.getText());
+		}
+		
+		return text.toString();
+	}
+	
 	/**
 	 * Get the resource from the node
 	 * @param resNode
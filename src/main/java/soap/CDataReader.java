@@ -0,0 +1,89 @@
+package soap;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reader of the text of an element of a streamed response, as the cdata of
+ * the return node of the lists. The text is copied from the events of the
+ * {@link XMLStreamReader} while it is read, without building a string with
+ * all the content.
+ */
+class CDataReader extends Reader {
+
+	private final XMLStreamReader reader;
+
+	private boolean text;  // true if the current event is text
+	private int offset;  // characters of the current event already read
+	private int depth;  // depth of the current element inside the node
+	private boolean ended;
+
+	/**
+	 * @param reader reader positioned on the start of the element, it is left
+	 * on the end of the element when all the text is read
+	 */
+	CDataReader(XMLStreamReader reader) {
+		this.reader = reader;
+		this.depth = 1;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+
+		if (len == 0)
+			return 0;
+
+		try {
+
+			while (!this.ended) {
+
+				if (this.text) {
+
+					int read = this.reader.getTextCharacters(this.offset, cbuf, off, len);
+
+					if (read > 0) {
+						this.offset += read;
+						return read;
+					}
+				}
+
+				next();
+			}
+
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Move to the next event of the element
+	 * @throws XMLStreamException
+	 */
+	private void next() throws XMLStreamException {
+
+		int event = this.reader.next();
+
+		this.offset = 0;
+		this.text = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE;
+
+		if (event == XMLStreamConstants.START_ELEMENT)
+			this.depth++;
+		else if (event == XMLStreamConstants.END_ELEMENT)
+			this.ended = --this.depth == 0;
+	}
+
+	/**
+	 * The response is not closed, only the element is read
+	 */
+	@Override
+	public void close() {
+		this.ended = true;
+	}
+}
@@ -0,0 +1,359 @@
+package soap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Circuit breaker of the dcf endpoints. After several consecutive calls
+ * failed since the endpoint was not reachable (no connection, send failed
+ * or server error), the circuit of the endpoint opens and the calls are
+ * refused immediately with a {@link CircuitOpenException}, instead of waiting
+ * for the timeout. After the open duration a trial call is allowed: if it
+ * succeeds the circuit closes, otherwise it opens again.
+ *
+ * The errors returned by a reachable endpoint (client errors, faults, too many
+ * requests) do not open the circuit.
+ */
+public class CircuitBreaker {
+
+	private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+	private final boolean enabled;
+	private volatile int failureThreshold;
+	private volatile long openDuration;
+	private volatile int halfOpenCalls;
+	private Map<String, Circuit> circuits;
+	private List<ICircuitBreakerListener> listeners;
+
+	public CircuitBreaker() {
+		this(true);
+	}
+
+	private CircuitBreaker(boolean enabled) {
+		this.enabled = enabled;
+		this.failureThreshold = 5;
+		this.openDuration = 30000;  // 30 seconds
+		this.halfOpenCalls = 1;
+		this.circuits = new ConcurrentHashMap<>();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Circuit breaker which never refuses the calls
+	 * @return
+	 */
+	public static CircuitBreaker none() {
+		return new CircuitBreaker(false);
+	}
+
+	/**
+	 * Number of consecutive failures which open the circuit
+	 * @param failureThreshold
+	 * @return
+	 */
+	public CircuitBreaker setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+		return this;
+	}
+
+	/**
+	 * Milliseconds the circuit stays open before a trial call
+	 * @param openDuration
+	 * @return
+	 */
+	public CircuitBreaker setOpenDuration(long openDuration) {
+		this.openDuration = openDuration;
+		return this;
+	}
+
+	/**
+	 * Number of trial calls allowed together while the circuit is half open
+	 * @param halfOpenCalls
+	 * @return
+	 */
+	public CircuitBreaker setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+		return this;
+	}
+
+	public void addListener(ICircuitBreakerListener listener) {
+		this.listeners.add(listener);
+	}
+
+	public void removeListener(ICircuitBreakerListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Check if a call to the endpoint can be sent
+	 * @param url endpoint of the call
+	 * @return the permit of the call, which must be released when the call
+	 * ends with one of its methods
+	 * @throws CircuitOpenException if the circuit of the endpoint is open
+	 */
+	public Permit acquire(String url) throws CircuitOpenException {
+
+		if (!this.enabled)
+			return new Permit(null, false);
+
+		Circuit circuit = this.circuits.computeIfAbsent(url, Circuit::new);
+
+		return new Permit(circuit, circuit.acquire());
+	}
+
+	/**
+	 * Get the state of the circuit of the endpoint
+	 * @param url
+	 * @return
+	 */
+	public CircuitState getState(String url) {
+		return getStats(url).getState();
+	}
+
+	/**
+	 * Get the statistics of the circuit of the endpoint
+	 * @param url
+	 * @return
+	 */
+	public CircuitBreakerStats getStats(String url) {
+
+		Circuit circuit = this.circuits.get(url);
+
+		if (circuit == null)
+			return new CircuitBreakerStats(CircuitState.CLOSED, 0, 0, 0, 0);
+
+		return circuit.getStats();
+	}
+
+	/**
+	 * Close the circuit of all the endpoints
+	 */
+	public void reset() {
+		for (Circuit circuit : this.circuits.values()) {
+			circuit.reset();
+		}
+	}
+
+	/**
+	 * Check if the error means that the endpoint is not reachable
+	 * @param e
+	 * @return
+	 */
+	private static boolean isEndpointFailure(DetailedSOAPException e) {
+		return e.isConnectionProblem() || e.isSendMessageFailed() || e.getError() == SOAPError.SERVER_ERROR;
+	}
+
+	private void fireStateChanged(String url, CircuitState from, CircuitState to) {
+
+		LOGGER.warn("Circuit of endpoint=" + url + " changed from " + from + " to " + to);
+
+		for (ICircuitBreakerListener listener : this.listeners) {
+			try {
+				listener.stateChanged(url, from, to);
+			} catch (RuntimeException e) {
+				LOGGER.error("Circuit breaker listener failed", e);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreaker [enabled=" + this.enabled + ", failureThreshold=" + this.failureThreshold
+				+ ", openDuration=" + this.openDuration + ", halfOpenCalls=" + this.halfOpenCalls + "]";
+	}
+
+	/**
+	 * Call allowed by the circuit of its endpoint
+	 */
+	public class Permit {
+
+		private final Circuit circuit;
+		private final boolean trial;
+		private boolean released;
+
+		private Permit(Circuit circuit, boolean trial) {
+			this.circuit = circuit;
+			this.trial = trial;
+		}
+
+		/**
+		 * The endpoint answered
+		 */
+		public void onSuccess() {
+			release(true, false);
+		}
+
+		/**
+		 * The call failed, the circuit counts the failure if the endpoint
+		 * was not reachable
+		 * @param e
+		 */
+		public void onError(DetailedSOAPException e) {
+			if (isEndpointFailure(e))
+				release(false, true);
+			else
+				release(true, false);
+		}
+
+		/**
+		 * The call ended without telling anything about the endpoint
+		 */
+		public void onIgnore() {
+			release(false, false);
+		}
+
+		private void release(boolean success, boolean failure) {
+
+			if (this.circuit == null || this.released)
+				return;
+
+			this.released = true;
+			this.circuit.release(success, failure, this.trial);
+		}
+	}
+
+	/**
+	 * Circuit of a single endpoint
+	 */
+	private class Circuit {
+
+		private final String url;
+
+		private CircuitState state;
+		private int consecutiveFailures;
+		private long openedAt;
+		private int trials;
+
+		private long failures;
+		private long rejected;
+		private long opened;
+
+		private Circuit(String url) {
+			this.url = url;
+			this.state = CircuitState.CLOSED;
+		}
+
+		/**
+		 * @return true if the call is a trial of the half open circuit
+		 * @throws CircuitOpenException
+		 */
+		private boolean acquire() throws CircuitOpenException {
+
+			CircuitState from;
+			long retryAfter;
+			boolean trial = false;
+
+			synchronized (this) {
+
+				from = this.state;
+
+				if (this.state == CircuitState.OPEN) {
+
+					long elapsed = System.currentTimeMillis() - this.openedAt;
+
+					// still open, refuse the call
+					if (elapsed < CircuitBreaker.this.openDuration) {
+						this.rejected++;
+						retryAfter = CircuitBreaker.this.openDuration - elapsed;
+						from = null;
+					}
+					else {
+						this.state = CircuitState.HALF_OPEN;
+						this.trials = 0;
+						retryAfter = -1;
+					}
+				}
+				else {
+					retryAfter = -1;
+				}
+
+				// only a few trials while half open
+				if (retryAfter < 0 && this.state == CircuitState.HALF_OPEN) {
+
+					if (this.trials >= CircuitBreaker.this.halfOpenCalls) {
+						this.rejected++;
+						retryAfter = 0;
+					}
+					else {
+						this.trials++;
+						trial = true;
+					}
+				}
+			}
+
+			if (from == CircuitState.OPEN)
+				fireStateChanged(this.url, CircuitState.OPEN, CircuitState.HALF_OPEN);
+
+			if (retryAfter >= 0)
+				throw new CircuitOpenException(this.url, retryAfter);
+
+			return trial;
+		}
+
+		private void release(boolean success, boolean failure, boolean trial) {
+
+			CircuitState from;
+			CircuitState to;
+
+			synchronized (this) {
+
+				from = this.state;
+
+				if (trial && this.state == CircuitState.HALF_OPEN)
+					this.trials--;
+
+				if (success) {
+					this.consecutiveFailures = 0;
+					if (this.state == CircuitState.HALF_OPEN)
+						this.state = CircuitState.CLOSED;
+				}
+				else if (failure) {
+
+					this.failures++;
+					this.consecutiveFailures++;
+
+					// the trial failed or too many failures
+					if (this.state == CircuitState.HALF_OPEN || (this.state == CircuitState.CLOSED
+							&& this.consecutiveFailures >= CircuitBreaker.this.failureThreshold))
+						open();
+				}
+
+				to = this.state;
+			}
+
+			if (from != to)
+				fireStateChanged(this.url, from, to);
+		}
+
+		private void open() {
+			this.state = CircuitState.OPEN;
+			this.openedAt = System.currentTimeMillis();
+			this.opened++;
+		}
+
+		private void reset() {
+
+			CircuitState from;
+
+			synchronized (this) {
+				from = this.state;
+				this.state = CircuitState.CLOSED;
+				this.consecutiveFailures = 0;
+				this.trials = 0;
+			}
+
+			if (from != CircuitState.CLOSED)
+				fireStateChanged(this.url, from, CircuitState.CLOSED);
+		}
+
+		private synchronized CircuitBreakerStats getStats() {
+			return new CircuitBreakerStats(this.state, this.consecutiveFailures, this.failures, this.rejected,
+					this.opened);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package soap;
+
+/**
+ * Snapshot of the circuit of an endpoint
+ */
+public class CircuitBreakerStats {
+
+	private CircuitState state;
+	private int consecutiveFailures;
+	private long failures;
+	private long rejected;
+	private long opened;
+
+	public CircuitBreakerStats(CircuitState state, int consecutiveFailures, long failures, long rejected,
+			long opened) {
+		this.state = state;
+		this.consecutiveFailures = consecutiveFailures;
+		this.failures = failures;
+		this.rejected = rejected;
+		this.opened = opened;
+	}
+
+	public CircuitState getState() {
+		return this.state;
+	}
+
+	/**
+	 * Get the number of failures since the last successful call
+	 * @return
+	 */
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	/**
+	 * Get the total number of calls failed since the endpoint was not reachable
+	 * @return
+	 */
+	public long getFailures() {
+		return this.failures;
+	}
+
+	/**
+	 * Get the number of calls refused while the circuit was open
+	 * @return
+	 */
+	public long getRejected() {
+		return this.rejected;
+	}
+
+	/**
+	 * Get how many times the circuit was opened
+	 * @return
+	 */
+	public long getOpened() {
+		return this.opened;
+	}
+
+	@Override
+	public String toString() {
+		return "state=" + this.state
+				+ "; consecutiveFailures=" + this.consecutiveFailures
+				+ "; failures=" + this.failures
+				+ "; rejected=" + this.rejected
+				+ "; opened=" + this.opened;
+	}
+}
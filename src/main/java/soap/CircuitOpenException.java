@@ -0,0 +1,37 @@
+package soap;
+
+import javax.xml.soap.SOAPException;
+
+/**
+ * Call refused by the {@link CircuitBreaker} since its endpoint is failing.
+ * The call did not reach the server.
+ */
+public class CircuitOpenException extends DetailedSOAPException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfter;
+
+	/**
+	 * @param url endpoint of the call
+	 * @param retryAfter milliseconds after which a trial call is allowed
+	 */
+	public CircuitOpenException(String url, long retryAfter) {
+		super(new SOAPException("Circuit open for " + url + ", the endpoint is not reachable"));
+		this.retryAfter = retryAfter;
+	}
+
+	@Override
+	public SOAPError getError() {
+		return SOAPError.NO_CONNECTION;
+	}
+
+	/**
+	 * Get when the circuit allows a trial call
+	 * @return milliseconds
+	 */
+	@Override
+	public long getRetryAfter() {
+		return this.retryAfter;
+	}
+}
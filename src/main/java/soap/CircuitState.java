@@ -0,0 +1,10 @@
+package soap;
+
+/**
+ * State of the circuit of an endpoint in the {@link CircuitBreaker}
+ */
+public enum CircuitState {
+	CLOSED,     // calls are sent
+	OPEN,       // calls are refused without reaching the endpoint
+	HALF_OPEN   // a trial call checks if the endpoint is back
+}
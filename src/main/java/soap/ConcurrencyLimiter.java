@@ -0,0 +1,374 @@
+package soap;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit of the calls in flight to each dcf host, with additive
+ * increase and multiplicative decrease (AIMD). The limit grows by one for
+ * each round of successful calls while the latency is stable, and it is
+ * multiplied by the backoff ratio when a call times out, when the server
+ * answers with too many requests, or when the p99 latency of the last window
+ * of calls exceeds the baseline latency times the latency tolerance. The
+ * baseline drops at once to the lowest p99 observed and it rises slowly
+ * towards the p99 of the following windows, so that a lasting change of the
+ * latency of the host becomes the new baseline.
+ *
+ * The calls over the limit wait until a call of the same host ends.
+ */
+public class ConcurrencyLimiter {
+
+	private final boolean limited;
+	private volatile int initialLimit;
+	private volatile int minLimit;
+	private volatile int maxLimit;
+	private volatile double backoffRatio;
+	private volatile double latencyTolerance;
+	private volatile double baselineDecay;
+	private volatile int windowSize;
+	private Map<String, HostLimit> hosts;
+
+	public ConcurrencyLimiter() {
+		this(true);
+	}
+
+	private ConcurrencyLimiter(boolean limited) {
+		this.limited = limited;
+		this.initialLimit = 10;
+		this.minLimit = 1;
+		this.maxLimit = 200;
+		this.backoffRatio = 0.9;
+		this.latencyTolerance = 2;
+		this.baselineDecay = 0.1;
+		this.windowSize = 50;
+		this.hosts = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Limiter which never limits the calls
+	 * @return
+	 */
+	public static ConcurrencyLimiter none() {
+		return new ConcurrencyLimiter(false);
+	}
+
+	/**
+	 * Limit of the hosts before any call ends
+	 * @param initialLimit
+	 * @return
+	 */
+	public ConcurrencyLimiter setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+		return this;
+	}
+
+	/**
+	 * The limit never goes below this value
+	 * @param minLimit
+	 * @return
+	 */
+	public ConcurrencyLimiter setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+		return this;
+	}
+
+	/**
+	 * The limit never goes above this value
+	 * @param maxLimit
+	 * @return
+	 */
+	public ConcurrencyLimiter setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+		return this;
+	}
+
+	/**
+	 * Ratio applied to the limit when the host is overloaded, between 0 and 1
+	 * @param backoffRatio
+	 * @return
+	 */
+	public ConcurrencyLimiter setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+		return this;
+	}
+
+	/**
+	 * How many times the p99 latency can grow over the baseline before
+	 * the limit is decreased
+	 * @param latencyTolerance
+	 * @return
+	 */
+	public ConcurrencyLimiter setLatencyTolerance(double latencyTolerance) {
+		this.latencyTolerance = latencyTolerance;
+		return this;
+	}
+
+	/**
+	 * Fraction of the distance to the p99 latency of each window by which the
+	 * baseline rises, between 0 (never) and 1 (at each window)
+	 * @param baselineDecay
+	 * @return
+	 */
+	public ConcurrencyLimiter setBaselineDecay(double baselineDecay) {
+		this.baselineDecay = baselineDecay;
+		return this;
+	}
+
+	/**
+	 * Number of calls used to compute the p99 latency
+	 * @param windowSize
+	 * @return
+	 */
+	public ConcurrencyLimiter setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+		return this;
+	}
+
+	/**
+	 * Wait until a call to the endpoint can start
+	 * @param url endpoint of the call
+	 * @return the permit of the call, which must be released when the call
+	 * ends with one of its methods
+	 * @throws InterruptedException
+	 */
+	public Permit acquire(String url) throws InterruptedException {
+
+		if (!this.limited)
+			return new Permit(null);
+
+		HostLimit host = this.hosts.computeIfAbsent(getHost(url), key -> new HostLimit());
+		host.acquire();
+
+		return new Permit(host);
+	}
+
+	/**
+	 * Get the current limit of the host of the endpoint
+	 * @param url
+	 * @return the limit, -1 if no call was made to the host
+	 */
+	public int getLimit(String url) {
+		HostLimit host = this.hosts.get(getHost(url));
+		return host == null ? -1 : host.getLimit();
+	}
+
+	/**
+	 * Get the number of calls in flight to the host of the endpoint
+	 * @param url
+	 * @return
+	 */
+	public int getInFlight(String url) {
+		HostLimit host = this.hosts.get(getHost(url));
+		return host == null ? 0 : host.inFlight;
+	}
+
+	/**
+	 * Get the number of calls waiting for the limit of the host
+	 * @param url
+	 * @return
+	 */
+	public int getWaiting(String url) {
+		HostLimit host = this.hosts.get(getHost(url));
+		return host == null ? 0 : host.waiting;
+	}
+
+	/**
+	 * Get the host and port of the endpoint
+	 * @param url
+	 * @return
+	 */
+	private static String getHost(String url) {
+
+		try {
+			URI uri = new URI(url);
+			if (uri.getHost() != null)
+				return uri.getHost() + ":" + uri.getPort();
+		} catch (URISyntaxException e) {
+			// not a valid url, the whole endpoint is used
+		}
+
+		return url;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyLimiter [limited=" + this.limited + ", initialLimit=" + this.initialLimit
+				+ ", minLimit=" + this.minLimit + ", maxLimit=" + this.maxLimit + ", backoffRatio="
+				+ this.backoffRatio + ", latencyTolerance=" + this.latencyTolerance + ", baselineDecay="
+				+ this.baselineDecay + ", windowSize=" + this.windowSize + "]";
+	}
+
+	/**
+	 * Slot of a call in the limit of its host
+	 */
+	public class Permit {
+
+		private final HostLimit host;
+		private final long start;
+		private boolean released;
+
+		private Permit(HostLimit host) {
+			this.host = host;
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * The call ended normally, its latency is used to adapt the limit
+		 */
+		public void onSuccess() {
+			release(Outcome.SUCCESS);
+		}
+
+		/**
+		 * The call failed since the host is overloaded, the limit is decreased
+		 */
+		public void onDropped() {
+			release(Outcome.DROPPED);
+		}
+
+		/**
+		 * The call failed for reasons not related to the load, the limit is
+		 * not changed
+		 */
+		public void onIgnore() {
+			release(Outcome.IGNORED);
+		}
+
+		private void release(Outcome outcome) {
+
+			if (this.host == null || this.released)
+				return;
+
+			this.released = true;
+			this.host.release(outcome, this.start, System.nanoTime());
+		}
+	}
+
+	private enum Outcome {
+		SUCCESS,
+		DROPPED,
+		IGNORED
+	}
+
+	/**
+	 * Limit of a single host
+	 */
+	private class HostLimit {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition available = this.lock.newCondition();
+
+		private double limit;
+		private volatile int inFlight;
+		private volatile int waiting;
+
+		private long[] window;
+		private int samples;
+		private long baseline;
+		private long lastDecrease;
+
+		private HostLimit() {
+			this.limit = ConcurrencyLimiter.this.initialLimit;
+			this.window = new long[Math.max(ConcurrencyLimiter.this.windowSize, 1)];
+			this.baseline = Long.MAX_VALUE;
+			this.lastDecrease = System.nanoTime();
+		}
+
+		private int getLimit() {
+			this.lock.lock();
+			try {
+				return (int) this.limit;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		private void acquire() throws InterruptedException {
+
+			this.lock.lock();
+			try {
+
+				++this.waiting;
+				try {
+					while (this.inFlight >= (int) this.limit) {
+						this.available.await();
+					}
+				} finally {
+					--this.waiting;
+				}
+
+				++this.inFlight;
+
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		private void release(Outcome outcome, long start, long end) {
+
+			this.lock.lock();
+			try {
+
+				int used = this.inFlight--;
+
+				switch (outcome) {
+				case SUCCESS:
+					addSample(end - start, used);
+					break;
+				case DROPPED:
+					// the calls which started before the last decrease were
+					// sent with the old limit
+					if (start - this.lastDecrease >= 0)
+						decrease(end);
+					break;
+				default:
+					break;
+				}
+
+				this.available.signalAll();
+
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		private void addSample(long latency, int used) {
+
+			this.window[this.samples++] = latency;
+
+			// grow only if the limit is really used
+			if (used * 2 >= this.limit)
+				this.limit = Math.min(ConcurrencyLimiter.this.maxLimit, this.limit + 1 / this.limit);
+
+			if (this.samples < this.window.length)
+				return;
+
+			long[] sorted = Arrays.copyOf(this.window, this.samples);
+			Arrays.sort(sorted);
+
+			long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+
+			this.samples = 0;
+
+			if (p99 > this.baseline * ConcurrencyLimiter.this.latencyTolerance)
+				decrease(System.nanoTime());
+
+			// a higher latency is followed slowly, since it can be caused by the load
+			if (p99 < this.baseline)
+				this.baseline = p99;
+			else
+				this.baseline += (long) ((p99 - this.baseline) * ConcurrencyLimiter.this.baselineDecay);
+		}
+
+		private void decrease(long now) {
+			this.limit = Math.max(Math.max(ConcurrencyLimiter.this.minLimit, 1), this.limit * ConcurrencyLimiter.this.backoffRatio);
+			this.lastDecrease = now;
+			this.samples = 0;
+		}
+	}
+}
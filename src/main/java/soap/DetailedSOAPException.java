@@ -1,6 +1,17 @@
 package soap;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+
 import javax.xml.soap.SOAPException;
+import javax.xml.stream.XMLStreamException;
+
+import org.xml.sax.SAXException;
+
+import soap_transport.SOAPHttpException;
 
 /**
  * Custom version of the soap exception which saves
@@ -12,6 +23,7 @@ import javax.xml.soap.SOAPException;
 public class DetailedSOAPException extends SOAPException {
 
 	private static final long serialVersionUID = 1L;
+	private static final String BAD_RESPONSE = "Bad response: (";
 
 	public DetailedSOAPException(SOAPException e) {
 		super(e);
@@ -51,8 +63,104 @@ public class DetailedSOAPException extends SOAPException {
 		return getError() == SOAPError.QUOTA_EXCEEDED;
 	}
 	
+	/**
+	 * Check if the call could succeed if repeated later, since the
+	 * error does not depend on the request
+	 * @return
+	 */
+	public boolean isTransient() {
+		
+		if (getHttpStatus() == 408)
+			return true;
+		
+		switch (getError()) {
+		case NO_CONNECTION:
+		case MESSAGE_SEND_FAILED:
+		case TOO_MANY_REQUESTS:
+		case SERVER_ERROR:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Get the http status of the response which caused the error
+	 * @return the status, -1 if no response was received
+	 */
+	public int getHttpStatus() {
+		
+		SOAPHttpException response = getResponseError();
+		if (response != null)
+			return response.getStatus();
+		
+		String message = this.getMessage();
+		int index = message == null ? -1 : message.indexOf(BAD_RESPONSE);
+		
+		if (index < 0 || message.length() < index + BAD_RESPONSE.length() + 3)
+			return -1;
+		
+		String status = message.substring(index + BAD_RESPONSE.length(), index + BAD_RESPONSE.length() + 3);
+		
+		try {
+			return Integer.parseInt(status);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Get how long the server asked to wait before repeating the call,
+	 * from the Retry-After header
+	 * @return milliseconds, -1 if not specified
+	 */
+	public long getRetryAfter() {
+		SOAPHttpException response = getResponseError();
+		return response == null ? -1 : response.getRetryAfter();
+	}
+	
+	/**
+	 * Get the code of the soap fault returned with the error
+	 * @return the code, null if no fault was returned
+	 */
+	public String getFaultCode() {
+		SOAPHttpException response = getResponseError();
+		return response == null ? null : response.getFaultCode();
+	}
+	
+	/**
+	 * Get the description of the soap fault returned with the error
+	 * @return the description, null if no fault was returned
+	 */
+	public String getFaultString() {
+		SOAPHttpException response = getResponseError();
+		return response == null ? null : response.getFaultString();
+	}
+	
 	public SOAPError getError() {
 		
+		// classify from the response of the server, if received
+		int status = getHttpStatus();
+		if (status > 0) {
+			SOAPError error = getStatusError(status);
+			if (error != null)
+				return error;
+		}
+		
+		// no response, check why
+		for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+			
+			if (cause instanceof InterruptedIOException  // timeouts
+					|| cause instanceof ConnectException
+					|| cause instanceof UnknownHostException
+					|| cause instanceof NoRouteToHostException
+					|| cause.getClass().getSimpleName().endsWith("TimeoutException"))
+				return SOAPError.NO_CONNECTION;
+			
+			if (cause instanceof IOException)
+				return SOAPError.MESSAGE_SEND_FAILED;
+		}
+		
 		SOAPError error;
 		
 		String message = this.getMessage();
@@ -67,9 +175,85 @@ public class DetailedSOAPException extends SOAPException {
 			error = SOAPError.UNAUTHORIZED;
 		else if (message.contains("403"))
 			error = SOAPError.FORBIDDEN;
+		else if (isParseError())
+			error = SOAPError.PARSE_ERROR;
 		else
-			error = SOAPError.NO_CONNECTION;
+			error = SOAPError.UNKNOWN;
 		
 		return error;
 	}
+	
+	/**
+	 * Check if the error was caused by a response which cannot be parsed.
+	 * Repeating the call would give the same response, therefore it is not
+	 * a connection problem.
+	 * @return
+	 */
+	private boolean isParseError() {
+		
+		for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof XMLStreamException || cause instanceof SAXException)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Get the error from the http status
+	 * @param status
+	 * @return the error, null if the status is not an error
+	 */
+	private SOAPError getStatusError(int status) {
+		
+		switch (status) {
+		case 401:
+			return SOAPError.UNAUTHORIZED;
+		case 403:
+			// the weekly quota is refused as forbidden
+			return contains("quota") ? SOAPError.QUOTA_EXCEEDED : SOAPError.FORBIDDEN;
+		case 429:
+			return contains("quota") ? SOAPError.QUOTA_EXCEEDED : SOAPError.TOO_MANY_REQUESTS;
+		default:
+			break;
+		}
+		
+		if (status >= 500)
+			return getFaultCode() != null ? SOAPError.SOAP_FAULT : SOAPError.SERVER_ERROR;
+		
+		if (status >= 400)
+			return SOAPError.CLIENT_ERROR;
+		
+		return null;
+	}
+	
+	/**
+	 * Check if the message or the body of the response contain the text,
+	 * ignoring the case
+	 * @param text
+	 * @return
+	 */
+	private boolean contains(String text) {
+		
+		String message = this.getMessage();
+		if (message != null && message.toLowerCase().contains(text))
+			return true;
+		
+		SOAPHttpException response = getResponseError();
+		return response != null && response.getBody().toLowerCase().contains(text);
+	}
+	
+	/**
+	 * Get the error status received by the transport
+	 * @return the error, null if no response was received
+	 */
+	private SOAPHttpException getResponseError() {
+		
+		for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof SOAPHttpException)
+				return (SOAPHttpException) cause;
+		}
+		
+		return null;
+	}
 }
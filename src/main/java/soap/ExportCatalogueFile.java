@@ -1,8 +1,8 @@
 package soap;
 
 import java.io.File;
+import java.io.IOException;
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -35,9 +35,10 @@ public class ExportCatalogueFile extends SOAPRequest implements IExportCatalogue
 	
 	private static final String XML_FILE_TYPE = "XML";
 	
-	private String catalogueCode;
-	private String exportType;
-	private String fileType;
+	// parameters of the call
+	private static final String CATALOGUE_CODE = "catalogueCode";
+	private static final String EXPORT_TYPE = "exportType";
+	private static final String FILE_TYPE = "fileType";
 	
 	public ExportCatalogueFile() {}
 	
@@ -112,35 +113,32 @@ public class ExportCatalogueFile extends SOAPRequest implements IExportCatalogue
 	public Object exportXml(Environment env, IDcfUser user, String code, String exportType1, 
 			String fileType1) throws DetailedSOAPException {
 		
-		this.catalogueCode = code;
-		this.exportType = exportType1;
-		this.fileType = fileType1;
-
-		Object obj = export(env, user);
-		return obj;
-	}
-	
-	/**
-	 * Make the export request.
-	 * @return
-	 * @throws SOAPException 
-	 */
-	private Object export(Environment env, IDcfUser user) throws DetailedSOAPException {
-		
 		boolean opeanpiUser = user.isOpeanapi();
 		
 		String url_request = (opeanpiUser ? OPENAPI_URL : URL);
 		
 		String url = env == Environment.PRODUCTION ? url_request : TEST_URL;
 		
-		Object obj = makeRequest(env, user, NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(CATALOGUE_CODE, code)
+				.withParameter(EXPORT_TYPE, exportType1)
+				.withParameter(FILE_TYPE, fileType1);
+		
+		Object obj = makeRequest(context);
 
 		return obj;
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
+		
+		String catalogueCode = context.getParameter(CATALOGUE_CODE);
+		String exportType = context.getParameter(EXPORT_TYPE);
+		String fileType = context.getParameter(FILE_TYPE);
+		
 		boolean opeanpiUser = user.isOpeanapi();
 		
 		// create the standard structure and get the message
@@ -158,21 +156,21 @@ public class ExportCatalogueFile extends SOAPRequest implements IExportCatalogue
 		SOAPElement export = soapBody.addChildElement("ExportCatalogueFile", "ws");
 
 		// add the catalogue code to the xml if there is one
-		if (this.catalogueCode != null) {
+		if (catalogueCode != null) {
 			SOAPElement catCodeNode = export.addChildElement("catalogueCode");
-			catCodeNode.setValue(this.catalogueCode);
+			catCodeNode.setValue(catalogueCode);
 		}
 		
 		// add the catalogue code to the xml if there is one
-		if (this.exportType != null) {
+		if (exportType != null) {
 			SOAPElement exportTypeNode = export.addChildElement("exportType");
-			exportTypeNode.setValue(this.exportType);
+			exportTypeNode.setValue(exportType);
 		}
 		
 		// add the file type if required
-		if (this.fileType != null) {
+		if (fileType != null) {
 			SOAPElement fileTypeNode = export.addChildElement("fileType");
-			fileTypeNode.setValue(this.fileType);
+			fileTypeNode.setValue(fileType);
 		}
 		
 		// save the changes
@@ -182,13 +180,15 @@ public class ExportCatalogueFile extends SOAPRequest implements IExportCatalogue
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		
 		File response = null;
 		
+		String exportType = context.getParameter(EXPORT_TYPE);
+		
 		// process the response based
 		// on the export type field
-		switch (this.exportType) {
+		switch (exportType) {
 		case EXPORT_TYPE_LOG:
 			response = writeXmlIntoFile(soapResponse, true);
 			break;
@@ -202,4 +202,38 @@ public class ExportCatalogueFile extends SOAPRequest implements IExportCatalogue
 
 		return response;
 	}
+
+	@Override
+	public boolean isStreamingResponse() {
+		return true;
+	}
+
+	@Override
+	public boolean isStreamedResponseRepeatable(SOAPRequestContext context) {
+		// the attachment is written into a new file at each attempt
+		return true;
+	}
+
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) throws IOException {
+
+		File file = null;
+
+		String exportType = context.getParameter(EXPORT_TYPE);
+
+		// the attachment is written into the file while it is downloaded
+		switch (exportType) {
+		case EXPORT_TYPE_LOG:
+			file = writeXmlIntoFile(response, true);
+			break;
+		case EXPORT_TYPE_INTERNAL_VERSION:
+		case EXPORT_TYPE_CATALOGUE:
+			file = writeXmlIntoFile(response, false);
+			break;
+		default:
+			break;
+		}
+
+		return file;
+	}
 }
@@ -3,24 +3,25 @@ package soap;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
+import ack.CompactDcfAckLog;
 import ack.DcfAck;
 import ack.DcfAckDetailedResId;
-import ack.DcfAckLog;
 import ack.FileState;
+import ack.IDcfAckLog;
+import ack.LightDcfAckLog;
 import config.Environment;
 import soap_interface.IGetAck;
 import user.IDcfUser;
@@ -39,8 +40,16 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	
-	private String messageId;
-	private SOAPMessage response;
+	private static final String MESSAGE_ID = "messageId";
+	
+	private static final String FILE_STATE = "fileState";
+	
+	// marks the calls which read the complete log of a light ack
+	private static final String FULL_LOG = "fullLog";
+	
+	private static volatile boolean defaultLight = false;
+	
+	private volatile Boolean light;  // null to use the default
 
 	
 	/**
@@ -51,12 +60,13 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	@Override
 	public DcfAck getAck(Environment env, IDcfUser user, String messageId1) throws DetailedSOAPException {
 		
-		this.messageId = messageId1;
-		
 		SOAPConsole.log("GetAck: messageId=" + messageId1, user);
 
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
-		Object response1 = makeRequest(env, user, NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(MESSAGE_ID, messageId1);
+		
+		Object response1 = makeRequest(context);
 		
 		SOAPConsole.log("GetAck:", response1);
 		
@@ -74,12 +84,13 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	@Override
 	public DcfAckDetailedResId getAckDetailedResId(Environment env, IDcfUser user, String detailedResId) throws DetailedSOAPException {
 		
-		this.messageId = detailedResId;
-		
 		SOAPConsole.log("GetAckDetailedResId: messageId=" + detailedResId, user);
 
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
-		Object response1 = makeRequest(env, user, NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(MESSAGE_ID, detailedResId);
+		
+		Object response1 = makeRequest(context);
 		
 		SOAPConsole.log("GetAckDetailedResId:", response1);
 		
@@ -90,51 +101,58 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	}
 
 	/**
-	 * Get the attachment of the ack response
+	 * Check if the light mode is used. In light mode the response is read
+	 * while it is received, without building the soap message, and only the
+	 * state, the operation result and the dataset are read from the ack log.
+	 * The other fields of the {@link LightDcfAckLog} are read only when
+	 * requested, with a new call which gets the complete log. Use it to poll
+	 * the acks.
 	 * @return
-	 * @throws IOException 
-	 * @throws SAXException 
-	 * @throws ParserConfigurationException 
-	 * @throws SOAPException 
 	 */
-	public Document getAttachment() throws SOAPException, 
-		ParserConfigurationException, SAXException, IOException {
-		
-		if (this.response == null) {
-			LOGGER.error("Cannot get attachment. Make request first!");
-			return null;
-		}
-		
-		return getFirstXmlAttachment(this.response);
+	public boolean isLight() {
+		Boolean current = this.light;
+		return current == null ? defaultLight : current;
 	}
 	
 	/**
-	 * Get raw attachment of the response
+	 * Set if the light mode is used by this request
+	 * @param light
 	 * @return
-	 * @throws SOAPException
 	 */
-	public InputStream getRawAttachment() throws DetailedSOAPException {
-		
-		if (this.response == null) {
-			LOGGER.error("Cannot get attachment. Make request first!");
-			return null;
-		}
-		
-		return getFirstRawAttachment(this.response);
+	public GetAck setLight(boolean light) {
+		this.light = light;
+		return this;
+	}
+	
+	/**
+	 * Check if the light mode is used by the requests which do not set it
+	 * @return
+	 */
+	public static boolean isDefaultLight() {
+		return defaultLight;
+	}
+	
+	/**
+	 * Set if the light mode is used by the requests which do not set it,
+	 * false by default
+	 * @param light
+	 */
+	public static void setDefaultLight(boolean light) {
+		defaultLight = light;
 	}
 	
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 		
 		// create the standard structure and get the message
-		SOAPMessage request = createTemplateSOAPMessage(user, namespace, "dcf");
+		SOAPMessage request = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "dcf");
 
 		SOAPBody soapBody = request.getSOAPPart().getEnvelope().getBody();
 		
 		SOAPElement soapElem = soapBody.addChildElement("GetAck", "dcf");
 
 		SOAPElement arg = soapElem.addChildElement("messageId");
-		arg.setTextContent(this.messageId);
+		arg.setTextContent(context.getParameter(MESSAGE_ID));
 
 		// save the changes in the message and return it
 		request.saveChanges();
@@ -143,7 +161,7 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		
 		boolean hasFault = hasFaultCode(soapResponse);
 		
@@ -155,7 +173,7 @@ public class GetAck extends SOAPRequest implements IGetAck {
 		else 
 			state = extractState(soapResponse);
 		
-		DcfAckLog log = null;
+		IDcfAckLog log = null;
 		
 		// no attachment in these cases
 		if (state == FileState.READY) {
@@ -163,7 +181,7 @@ public class GetAck extends SOAPRequest implements IGetAck {
 			log = extractAcklog(soapResponse);
 			
 			if (log == null)
-				LOGGER.warn("Ack ready but no log found for message id: " + this.messageId);
+				LOGGER.warn("Ack ready but no log found for message id: " + context.getParameter(MESSAGE_ID));
 		}
 
 		// create the ack object
@@ -172,6 +190,51 @@ public class GetAck extends SOAPRequest implements IGetAck {
 		return ack;
 	}
 	
+	@Override
+	public boolean isStreamingResponse() {
+		return isLight();
+	}
+	
+	@Override
+	public boolean isStreamingResponse(SOAPRequestContext context) {
+		return isLight() && context.getParameter(FULL_LOG) == null;
+	}
+	
+	@Override
+	public boolean isStreamedResponseRepeatable(SOAPRequestContext context) {
+		// a new ack is read at each attempt
+		return true;
+	}
+	
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) 
+			throws IOException, XMLStreamException {
+		
+		// get the state from the response
+		FileState state;
+		
+		if (response.isFault())
+			state = FileState.EXCEPTION;
+		else 
+			state = extractState(response.getBodyReader());
+		
+		IDcfAckLog log = null;
+		
+		// no attachment in these cases
+		if (state == FileState.READY) {
+			
+			log = extractLightAcklog(response, () -> loadFullLog(context));
+			
+			if (log == null)
+				LOGGER.warn("Ack ready but no log found for message id: " + context.getParameter(MESSAGE_ID));
+		}
+		
+		// create the ack object
+		DcfAck ack = new DcfAck(state, log);
+		
+		return ack;
+	}
+	
 	/**
 	 * Check if the ack raised an exception
 	 * @param soapResponse
@@ -215,32 +278,130 @@ public class GetAck extends SOAPRequest implements IGetAck {
 	}
 	
 	/**
-	 * Extract the ack log from the attachment
-	 * @param soapResponse
+	 * Extract the ack state from the body of a streamed response
+	 * @param reader reader of the body
 	 * @return
-	 * @throws SOAPException
+	 * @throws XMLStreamException
 	 */
-	private DcfAckLog extractAcklog(SOAPMessage soapResponse) throws SOAPException {
+	static FileState extractState(XMLStreamReader reader) throws XMLStreamException {
 		
-		this.response = soapResponse;
+		// the reader is already on the first element of the body
+		while (!reader.isStartElement() || !isFileState(reader)) {
+			
+			if (!reader.hasNext())
+				return null;
+			
+			reader.next();
+		}
 		
-		Document attachment;
-		try {
+		String stateText = readText(reader);
+		
+		if (stateText.isEmpty())
+			return null;
+		
+		// get the state from the response
+		FileState state = FileState.fromString(stateText);
+		
+		return state;
+	}
+	
+	/**
+	 * Check if the current element is the file state, compared as the tag
+	 * name of the dom
+	 * @param reader
+	 * @return
+	 */
+	private static boolean isFileState(XMLStreamReader reader) {
+		String prefix = reader.getPrefix();
+		return (prefix == null || prefix.isEmpty()) && FILE_STATE.equals(reader.getLocalName());
+	}
+	
+	/**
+	 * Read all the text of the current element, including the text of its children
+	 * @param reader
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		
+		while (depth > 0) {
 			
-			attachment = getFirstXmlAttachment(soapResponse);
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if (reader.hasText() && event != XMLStreamConstants.COMMENT)
+				text.append(reader.getText());
+		}
+		
+		return text.toString();
+	}
+	
+	/**
+	 * Extract the light ack log from the attachment of a streamed response
+	 * @param response
+	 * @param loader loads the complete log when it is requested
+	 * @return
+	 */
+	private static IDcfAckLog extractLightAcklog(SOAPResponseStream response, LightDcfAckLog.Loader loader) {
+		
+		try (InputStream attachment = response.nextAttachment()) {
 			
 			if (attachment == null)
 				return null;
 			
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			e.printStackTrace();
+			return new LightDcfAckLog(attachment, loader);
+			
+		} catch (IOException e) {
+			LOGGER.error("Cannot read the ack log", e);
 			return null;
 		}
+	}
+	
+	/**
+	 * Get the complete log of a light ack with a new call
+	 * @param context the context of the light call
+	 * @return the log, null if the ack has no log anymore
+	 * @throws IOException
+	 */
+	private IDcfAckLog loadFullLog(SOAPRequestContext context) throws IOException {
 		
-		// get the ack from the attachment
-		DcfAckLog log = new DcfAckLog(attachment);
-		log.setRawLog(getFirstRawAttachment(soapResponse));
+		try {
+			
+			DcfAck ack = (DcfAck) makeRequest(context.withParameter(FULL_LOG, true));
+			
+			return ack == null ? null : ack.getLog();
+			
+		} catch (DetailedSOAPException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	/**
+	 * Extract the ack log from the attachment. The log is read in a single
+	 * pass, without keeping its dom.
+	 * @param soapResponse
+	 * @return
+	 * @throws SOAPException
+	 */
+	private static IDcfAckLog extractAcklog(SOAPMessage soapResponse) throws SOAPException {
 		
-		return log;
+		try (InputStream attachment = getFirstRawAttachment(soapResponse)) {
+			
+			if (attachment == null)
+				return null;
+			
+			// get the ack from the attachment
+			return new CompactDcfAckLog(attachment);
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 }
\ No newline at end of file
@@ -3,23 +3,23 @@ package soap;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
+import ack.CompactDcfAckLog;
 import ack.DcfAckDetailedResId;
-import ack.DcfAckLog;
+import ack.DetailedAckParser;
+import ack.DetailedAckSummary;
 import ack.FileState;
+import ack.IDcfAckLog;
 import config.Environment;
 import soap_interface.IGetAckDetailedResId;
 import user.IDcfUser;
@@ -37,8 +37,13 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	
-	private String detailedResId;
-	private SOAPMessage response;
+	private static final String MESSAGE_ID = "messageId";
+	private static final String ERROR_HANDLER = "errorHandler";
+	
+	// marks the streamed calls which only compute the aggregates
+	private static final DetailedAckParser.Handler NO_HANDLER = error -> {};
+	
+	private volatile DetailedAckParser parser = new DetailedAckParser();
 
 	
 	/**
@@ -49,12 +54,13 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 	@Override
 	public DcfAckDetailedResId getAckDetailedResId(Environment env, IDcfUser user, String detailedResId1) throws DetailedSOAPException {
 		
-		this.detailedResId = detailedResId1;
-		
 		SOAPConsole.log("GetAck: messageId=" + detailedResId1, user);
 
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
-		Object response1 = makeRequest(env, user, NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(MESSAGE_ID, detailedResId1);
+		
+		Object response1 = makeRequest(context);
 		
 		SOAPConsole.log("GetAckDetailedResId:", response1);
 		
@@ -63,53 +69,71 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 		
 		return (DcfAckDetailedResId) response1;
 	}
-
+	
 	/**
-	 * Get the attachment of the ack response
+	 * Get the ack of the message, parsing the detailed ack while it is
+	 * received with the {@link DetailedAckParser}. The errors of the records
+	 * are passed to the handler and only their aggregates are kept in
+	 * {@link DcfAckDetailedResId#getSummary()}, therefore large acks can be
+	 * read without keeping them in memory. The log of the ack is not read.
+	 * @param env
+	 * @param user
+	 * @param detailedResId1
+	 * @param handler receives the errors of the records, null to compute
+	 * only the aggregates
 	 * @return
-	 * @throws IOException 
-	 * @throws SAXException 
-	 * @throws ParserConfigurationException 
-	 * @throws SOAPException 
+	 * @throws DetailedSOAPException
 	 */
-	public Document getAttachment() throws SOAPException, 
-		ParserConfigurationException, SAXException, IOException {
+	public DcfAckDetailedResId getAckDetailedResId(Environment env, IDcfUser user, String detailedResId1,
+			DetailedAckParser.Handler handler) throws DetailedSOAPException {
+		
+		SOAPConsole.log("GetAck: messageId=" + detailedResId1, user);
+
+		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(MESSAGE_ID, detailedResId1)
+				.withParameter(ERROR_HANDLER, handler == null ? NO_HANDLER : handler);
+		
+		Object response1 = makeRequest(context);
 		
-		if (this.response == null) {
-			LOGGER.error("Cannot get attachment. Make request first!");
+		SOAPConsole.log("GetAckDetailedResId:", response1);
+		
+		if (response1 == null)
 			return null;
-		}
 		
-		return getFirstXmlAttachment(this.response);
+		return (DcfAckDetailedResId) response1;
 	}
 	
 	/**
-	 * Get raw attachment of the response
+	 * Get the parser of the detailed acks
 	 * @return
-	 * @throws SOAPException
 	 */
-	public InputStream getRawAttachment() throws DetailedSOAPException {
-		
-		if (this.response == null) {
-			LOGGER.error("Cannot get attachment. Make request first!");
-			return null;
-		}
-		
-		return getFirstRawAttachment(this.response);
+	public DetailedAckParser getDetailedAckParser() {
+		return this.parser;
 	}
 	
+	/**
+	 * Set the parser used by {@link #getAckDetailedResId(Environment, IDcfUser, String, DetailedAckParser.Handler)}
+	 * @param parser
+	 * @return
+	 */
+	public GetAckDetailedResId setDetailedAckParser(DetailedAckParser parser) {
+		this.parser = parser;
+		return this;
+	}
+
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 		
 		// create the standard structure and get the message
-		SOAPMessage request = createTemplateSOAPMessage(user, namespace, "dcf");
+		SOAPMessage request = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "dcf");
 
 		SOAPBody soapBody = request.getSOAPPart().getEnvelope().getBody();
 		
 		SOAPElement soapElem = soapBody.addChildElement("GetAck", "dcf");
 
 		SOAPElement arg = soapElem.addChildElement("messageId");
-		arg.setTextContent(this.detailedResId);
+		arg.setTextContent(context.getParameter(MESSAGE_ID));
 
 		// save the changes in the message and return it
 		request.saveChanges();
@@ -118,7 +142,7 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		
 		boolean hasFault = hasFaultCode(soapResponse);
 		
@@ -130,7 +154,7 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 		else 
 			state = extractState(soapResponse);
 		
-		DcfAckLog log = null;
+		IDcfAckLog log = null;
 		
 		// no attachment in these cases
 		if (state == FileState.READY) {
@@ -138,7 +162,7 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 			log = extractAcklog(soapResponse);
 			
 			if (log == null)
-				LOGGER.warn("Ack ready but no log found for message id: " + this.detailedResId);
+				LOGGER.warn("Ack ready but no log found for message id: " + context.getParameter(MESSAGE_ID));
 		}
 
 		// create the ack object
@@ -147,6 +171,45 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 		return ack;
 	}
 	
+	@Override
+	public boolean isStreamingResponse(SOAPRequestContext context) {
+		return context.getParameter(ERROR_HANDLER) != null;
+	}
+	
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) 
+			throws IOException, XMLStreamException {
+		
+		// get the state from the response
+		FileState state;
+		
+		if (response.isFault())
+			state = FileState.EXCEPTION;
+		else 
+			state = GetAck.extractState(response.getBodyReader());
+		
+		DetailedAckSummary summary = null;
+		
+		// no attachment in these cases
+		if (state == FileState.READY) {
+			
+			DetailedAckParser.Handler handler = context.getParameter(ERROR_HANDLER);
+			
+			try (InputStream attachment = response.nextAttachment()) {
+				if (attachment != null)
+					summary = this.parser.parse(attachment, handler == NO_HANDLER ? null : handler);
+			}
+			
+			if (summary == null)
+				LOGGER.warn("Ack ready but no log found for message id: " + context.getParameter(MESSAGE_ID));
+		}
+		
+		// create the ack object
+		DcfAckDetailedResId ack = new DcfAckDetailedResId(state, summary);
+		
+		return ack;
+	}
+	
 	/**
 	 * Check if the ack raised an exception
 	 * @param soapResponse
@@ -190,33 +253,26 @@ public class GetAckDetailedResId extends SOAPRequest implements IGetAckDetailedR
 	}
 	
 	/**
-	 * Extract the ack log from the attachment
+	 * Extract the ack log from the attachment. The log is read in a single
+	 * pass, without keeping its dom.
 	 * @param soapResponse
 	 * @return
 	 * @throws SOAPException
 	 */
-	private DcfAckLog extractAcklog(SOAPMessage soapResponse) throws SOAPException {
-		
-		this.response = soapResponse;
+	private static IDcfAckLog extractAcklog(SOAPMessage soapResponse) throws SOAPException {
 		
-		Document attachment;
-		try {
-			
-			attachment = getFirstXmlAttachment(soapResponse);
+		try (InputStream attachment = getFirstRawAttachment(soapResponse)) {
 			
 			if (attachment == null)
 				return null;
 			
-		} catch (ParserConfigurationException | SAXException | IOException e) {
+			// get the ack from the attachment
+			return new CompactDcfAckLog(attachment);
+			
+		} catch (IOException e) {
 			LOGGER.error("Error during extraction ", e);
 			e.printStackTrace();
 			return null;
 		}
-		
-		// get the ack from the attachment
-		DcfAckLog log = new DcfAckLog(attachment);
-		log.setRawLog(getFirstRawAttachment(soapResponse));
-		
-		return log;
 	}
 }
@@ -1,10 +1,11 @@
 package soap;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 
@@ -28,7 +29,7 @@ public class GetCataloguesList<T extends IDcfCatalogue> extends GetList<T> {
 	private static final String NAMESPACE = "http://ws.catalog.dc.efsa.europa.eu/";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dc-catalog-public-ws/catalogues/?wsdl";
 	
-	private IDcfCataloguesList<T> output;
+	private static final String OUTPUT = "output";
 	
 	// constructor for DCF or opeanpi users
 	public GetCataloguesList(boolean openapi) {
@@ -42,11 +43,11 @@ public class GetCataloguesList<T extends IDcfCatalogue> extends GetList<T> {
 	
 	public IDcfList<T> getList(Environment env, IDcfUser user, IDcfCataloguesList<T> output1) throws DetailedSOAPException {
 		
-		this.output = output1;
-		
 		SOAPConsole.log("GetCataloguesList", user);
 
-		IDcfList<T> response = super.getList(env, user);
+		SOAPRequestContext context = createContext(env, user).withParameter(OUTPUT, output1);
+		
+		IDcfList<T> response = getList(context);
 		
 		SOAPConsole.log("GetCataloguesList:", response);
 		
@@ -54,13 +55,24 @@ public class GetCataloguesList<T extends IDcfCatalogue> extends GetList<T> {
 	}
 	
 	@Override
-	public IDcfCataloguesList<T> getList(Document cdata) {
-		GetCataloguesListParser<T> parser = new GetCataloguesListParser<>(this.output);
+	public IDcfCataloguesList<T> getList(SOAPRequestContext context, Document cdata) {
+		IDcfCataloguesList<T> output = context.getParameter(OUTPUT);
+		GetCataloguesListParser<T> parser = new GetCataloguesListParser<>(output);
+		return parser.parse(cdata);
+	}
+	
+	@Override
+	public IDcfCataloguesList<T> getList(SOAPRequestContext context, XMLStreamReader cdata) throws XMLStreamException {
+		IDcfCataloguesList<T> output = context.getParameter(OUTPUT);
+		GetCataloguesListParser<T> parser = new GetCataloguesListParser<>(output);
 		return parser.parse(cdata);
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
 
 		boolean openapiUser = user.isOpeanapi();
 		
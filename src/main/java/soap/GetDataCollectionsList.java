@@ -1,9 +1,10 @@
 package soap;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 
@@ -27,7 +28,7 @@ public class GetDataCollectionsList<T extends IDcfDataCollection> extends GetLis
 	private static final String OPENAPI_URL = "https://openapi.efsa.europa.eu/api/collections.soap";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	
-	private IDcfDataCollectionsList<T> output;
+	private static final String OUTPUT = "output";
 	
 	public GetDataCollectionsList(boolean openapi) {
 		super((openapi ? OPENAPI_URL : URL), TEST_URL, NAMESPACE);
@@ -40,8 +41,8 @@ public class GetDataCollectionsList<T extends IDcfDataCollection> extends GetLis
 	public IDcfList<T> getList(Environment env, IDcfUser user, IDcfDataCollectionsList<T> output1) throws DetailedSOAPException {
 		SOAPConsole.log("GetDataCollectionsList", user);
 		
-		this.output = output1;
-		IDcfList<T> response = super.getList(env, user);
+		SOAPRequestContext context = createContext(env, user).withParameter(OUTPUT, output1);
+		IDcfList<T> response = getList(context);
 		
 		SOAPConsole.log("GetDataCollectionsList:", response);
 		
@@ -49,14 +50,27 @@ public class GetDataCollectionsList<T extends IDcfDataCollection> extends GetLis
 	}
 	
 	@Override
-	public IDcfDataCollectionsList<T> getList(Document cdata) {
+	public IDcfDataCollectionsList<T> getList(SOAPRequestContext context, Document cdata) {
 
-		GetDataCollectionsListParser<T> parser = new GetDataCollectionsListParser<>(this.output);
+		IDcfDataCollectionsList<T> output = context.getParameter(OUTPUT);
+		GetDataCollectionsListParser<T> parser = new GetDataCollectionsListParser<>(output);
+		return parser.parse(cdata);
+	}
+	
+	@Override
+	public IDcfDataCollectionsList<T> getList(SOAPRequestContext context, XMLStreamReader cdata)
+			throws XMLStreamException {
+
+		IDcfDataCollectionsList<T> output = context.getParameter(OUTPUT);
+		GetDataCollectionsListParser<T> parser = new GetDataCollectionsListParser<>(output);
 		return parser.parse(cdata);
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
 		
 		boolean openapiUser = user.isOpeanapi();
 		
@@ -1,9 +1,9 @@
 package soap;
 
 import java.io.File;
+import java.io.IOException;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -24,7 +24,7 @@ public class GetDataset extends SOAPRequest implements IGetDataset {
 	private static final String URL = "https://dcf-elect.efsa.europa.eu/elect2";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	
-	private String datasetId;
+	private static final String DATASET_ID = "datasetId";
 	
 	/**
 	 * Get an handle to the downloaded dataset
@@ -34,12 +34,13 @@ public class GetDataset extends SOAPRequest implements IGetDataset {
 	@Override
 	public File getDatasetFile(Environment env, IDcfUser user, String datasetId1) throws DetailedSOAPException {
 		
-		this.datasetId = datasetId1;
-		
 		SOAPConsole.log("GetDataset: datasetId=" + datasetId1, user);
 
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
-		Object response = makeRequest(env, user, NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(DATASET_ID, datasetId1);
+		
+		Object response = makeRequest(context);
 		
 		SOAPConsole.log("GetDataset:", response);
 		
@@ -58,16 +59,16 @@ public class GetDataset extends SOAPRequest implements IGetDataset {
 	}
 	
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 
 		// create the standard structure and get the message
-		SOAPMessage soapMsg = createTemplateSOAPMessage(user, namespace, "dcf");
+		SOAPMessage soapMsg = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "dcf");
 		SOAPBody soapBody = soapMsg.getSOAPPart().getEnvelope().getBody();
 		SOAPElement soapElem = soapBody.addChildElement("getDataset", "dcf");
 
 		// add resource id
 		SOAPElement arg = soapElem.addChildElement("datasetId");
-		arg.setTextContent(this.datasetId);
+		arg.setTextContent(context.getParameter(DATASET_ID));
 
 		// save the changes in the message and return it
 		soapMsg.saveChanges();
@@ -76,7 +77,24 @@ public class GetDataset extends SOAPRequest implements IGetDataset {
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		return writeZippedAttachment(soapResponse, ".xml");
 	}
+
+	@Override
+	public boolean isStreamingResponse() {
+		return true;
+	}
+
+	@Override
+	public boolean isStreamedResponseRepeatable(SOAPRequestContext context) {
+		// the attachment is written into a new file at each attempt
+		return true;
+	}
+
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) throws IOException {
+		// the dataset is unzipped while it is downloaded
+		return writeZippedAttachment(response, ".xml");
+	}
 }
@@ -1,10 +1,10 @@
 package soap;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
 
 import config.Environment;
 import dataset.IDcfDataset;
@@ -27,8 +27,9 @@ public class GetDatasetsList<T extends IDcfDataset> extends SOAPRequest implemen
 	private static final String LIST_NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	
-	private String dataCollectionCode;
-	private IDcfDatasetsList<T> output;
+	// parameters of the call
+	private static final String DATA_COLLECTION_CODE = "dataCollectionCode";
+	private static final String OUTPUT = "output";
 	
 	/**
 	 * Send the request and get the dataset list
@@ -41,14 +42,15 @@ public class GetDatasetsList<T extends IDcfDataset> extends SOAPRequest implemen
 		
 		SOAPConsole.log("GetDatasetsList: dcCode=" + dataCollectionCode1, user);
 		
-		this.dataCollectionCode = dataCollectionCode1;
-		this.output = output1;
-		
 		IDcfDatasetsList<T> datasets = null;
 
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
 		
-		Object response = makeRequest(env, user, LIST_NAMESPACE, url);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, LIST_NAMESPACE, url)
+				.withParameter(DATA_COLLECTION_CODE, dataCollectionCode1)
+				.withParameter(OUTPUT, output1);
+		
+		Object response = makeRequest(context);
 		
 		SOAPConsole.log("GetDatasetsList:", response);
 		
@@ -61,17 +63,17 @@ public class GetDatasetsList<T extends IDcfDataset> extends SOAPRequest implemen
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 		
 		// create the standard structure and get the message
-		SOAPMessage request = createTemplateSOAPMessage(user, namespace, "dcf");
+		SOAPMessage request = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "dcf");
 
 		SOAPBody soapBody = request.getSOAPPart().getEnvelope().getBody();
 		
 		SOAPElement soapElem = soapBody.addChildElement("getDatasetList", "dcf");
 
 		SOAPElement arg = soapElem.addChildElement("dataCollectionCode");
-		arg.setTextContent(this.dataCollectionCode);
+		arg.setTextContent(context.getParameter(DATA_COLLECTION_CODE));
 
 		// save the changes in the message and return it
 		request.saveChanges();
@@ -80,10 +82,25 @@ public class GetDatasetsList<T extends IDcfDataset> extends SOAPRequest implemen
 	}
 	
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		// parse the dom document and return the contents
-		GetDatasetsListParser<T> parser = new GetDatasetsListParser<>(this.output);
+		IDcfDatasetsList<T> output = context.getParameter(OUTPUT);
+		GetDatasetsListParser<T> parser = new GetDatasetsListParser<>(output);
 		SOAPBody body = soapResponse.getSOAPPart().getEnvelope().getBody();
 		return parser.parse(body);
 	}
+	
+	@Override
+	public boolean isStreamingResponse() {
+		return true;
+	}
+	
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) 
+			throws XMLStreamException {
+		// parse the datasets while they are received
+		IDcfDatasetsList<T> output = context.getParameter(OUTPUT);
+		GetDatasetsListParser<T> parser = new GetDatasetsListParser<>(output);
+		return parser.parse(response.getBodyReader());
+	}
 }
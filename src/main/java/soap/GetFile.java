@@ -3,7 +3,6 @@ package soap;
 import java.io.File;
 import java.io.IOException;
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -25,7 +24,7 @@ public class GetFile extends SOAPRequest {
 	private static final String OPENAPI_URL = "https://openapi.efsa.europa.eu/api/collections.soap";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 
-	private String resourceId;
+	private static final String RESOURCE_ID = "resourceId";
 
 	/**
 	 * Get a file using its id
@@ -40,7 +39,6 @@ public class GetFile extends SOAPRequest {
 	public File getFile(Environment env, IDcfUser user, String resourceId1)
 			throws SOAPException, IOException {
 		
-		this.resourceId = resourceId1;
 		SOAPConsole.log("GetFile: resourceId=" + resourceId1, user);
 
 		boolean isOpenapi = user.isOpeanapi();
@@ -48,7 +46,10 @@ public class GetFile extends SOAPRequest {
 		String url = (isOpenapi ? OPENAPI_URL : URL);
 		String finalUrl = env == Environment.PRODUCTION ? url : TEST_URL;
 
-		SOAPMessage response = (SOAPMessage) makeRequest(env, user, NAMESPACE, finalUrl);
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, finalUrl)
+				.withParameter(RESOURCE_ID, resourceId1);
+		
+		SOAPMessage response = (SOAPMessage) makeRequest(context);
 
 		File file = writeAttachment(response);
 
@@ -58,7 +59,10 @@ public class GetFile extends SOAPRequest {
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+		
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
 		
 		boolean openapiUser = user.isOpeanapi();
 		
@@ -75,7 +79,7 @@ public class GetFile extends SOAPRequest {
 
 		// add resource id
 		SOAPElement arg = soapElem.addChildElement("trxResourceId");
-		arg.setTextContent(this.resourceId);
+		arg.setTextContent(context.getParameter(RESOURCE_ID));
 
 		// save the changes in the message and return it
 		soapMsg.saveChanges();
@@ -84,7 +88,7 @@ public class GetFile extends SOAPRequest {
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		return soapResponse;
 	}
 }
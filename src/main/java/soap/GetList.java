@@ -1,7 +1,18 @@
 package soap;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stax.StAXSource;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +24,7 @@ import org.w3c.dom.NodeList;
 import config.Environment;
 import response_parser.IDcfList;
 import user.IDcfUser;
+import utils.XmlUtils;
 
 /**
  * Generic get list request
@@ -27,6 +39,8 @@ public abstract class GetList<T> extends SOAPRequest {
 	private String url;
 	private String testUrl;
 	private String namespace;
+	private volatile ResponseCache responseCache;
+	private static volatile ResponseCache defaultResponseCache = ResponseCache.none();
 
 	/**
 	 * 
@@ -48,14 +62,210 @@ public abstract class GetList<T> extends SOAPRequest {
 	 * @throws DetailedSOAPException 
 	 * @throws Exception
 	 */
-	@SuppressWarnings("unchecked")
 	public IDcfList<T> getList(Environment env, IDcfUser user) throws DetailedSOAPException {
+		return getList(createContext(env, user));
+	}
+	
+	/**
+	 * Get the list of T elements using the parameters of the context. If the
+	 * operation is cached by the {@link ResponseCache}, the cached elements
+	 * are copied into the output list of the call.
+	 * @param context
+	 * @return
+	 * @throws DetailedSOAPException
+	 */
+	@SuppressWarnings("unchecked")
+	protected IDcfList<T> getList(SOAPRequestContext context) throws DetailedSOAPException {
+		
+		ResponseCache cache = getResponseCache();
+		String operation = getOperationName();
+		
+		if (!cache.isCached(operation))
+			return (IDcfList<T>) makeRequest(context);
+		
+		Object key = getCallKey(context);
+		
+		Object cached = cache.get(operation, key, getRefresh(context));
+		if (cached != null)
+			return (IDcfList<T>) shareResult(context, cached);
+		
+		Object result = makeRequest(context);
+		cache.put(operation, key, copyResult(context, result));
+		
+		return (IDcfList<T>) result;
+	}
+	
+	/**
+	 * Get the call which refreshes the cached response in background. The
+	 * new response is parsed into a new output list, since the list of the
+	 * call was already returned.
+	 * @param context
+	 * @return the call, null if the output list cannot be created
+	 */
+	private ResponseCache.Loader getRefresh(SOAPRequestContext context) {
+		
+		SOAPRequestContext refreshContext = context;
+		
+		for (Map.Entry<String, Object> parameter : context.getParameters().entrySet()) {
+			
+			if (!(parameter.getValue() instanceof Collection))
+				continue;
+			
+			try {
+				Object output = parameter.getValue().getClass().getDeclaredConstructor().newInstance();
+				refreshContext = refreshContext.withParameter(parameter.getKey(), output);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				LOGGER.debug("GetList: cannot create a new " + parameter.getValue().getClass().getName(), e);
+				return null;
+			}
+		}
+		
+		SOAPRequestContext newContext = refreshContext;
+		
+		return () -> copyResult(newContext, makeRequest(newContext));
+	}
+	
+	/**
+	 * Get the result to cache. If the result was parsed into the output list
+	 * of the call, a copy of its elements is cached, since the list belongs
+	 * to the caller.
+	 * @param context
+	 * @param result
+	 * @return
+	 */
+	private static Object copyResult(SOAPRequestContext context, Object result) {
+		
+		if (!(result instanceof Collection) || !context.getParameters().containsValue(result))
+			return result;
+		
+		return Collections.unmodifiableList(new ArrayList<>((Collection<?>) result));
+	}
+	
+	/**
+	 * Get the response cache used by the request. If it was not set for this
+	 * request, the default one is used.
+	 * @return
+	 */
+	public ResponseCache getResponseCache() {
+		
+		if (this.responseCache == null)
+			return getDefaultResponseCache();
+		
+		return this.responseCache;
+	}
+	
+	/**
+	 * Use a custom response cache for this request only
+	 * @param responseCache
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+	
+	/**
+	 * Get the response cache shared by all the lists
+	 * @return
+	 */
+	public static ResponseCache getDefaultResponseCache() {
+		return defaultResponseCache;
+	}
+	
+	/**
+	 * Change the response cache shared by all the lists. By default no
+	 * response is cached.
+	 * @param responseCache the new cache, null to restore the default one
+	 */
+	public static void setDefaultResponseCache(ResponseCache responseCache) {
+		defaultResponseCache = responseCache == null ? ResponseCache.none() : responseCache;
+	}
+	
+	/**
+	 * Create the context of a call, with the endpoint of the environment
+	 * @param env
+	 * @param user
+	 * @return
+	 */
+	protected SOAPRequestContext createContext(Environment env, IDcfUser user) {
 		String endpoint = env == Environment.PRODUCTION ? this.url : this.testUrl;
-		return (IDcfList<T>) makeRequest(env, user, this.namespace, endpoint);
+		return new SOAPRequestContext(env, user, this.namespace, endpoint);
+	}
+	
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
+		
+		Document cdata = extractCData(soapResponse);
+		
+		if (cdata == null)
+			return null;
+		
+		return getList(context, cdata);
 	}
 	
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public boolean isStreamingResponse() {
+		return true;
+	}
+	
+	/**
+	 * Parse the cdata content of the return node while it is received. The
+	 * content is not copied into a string, it is read by a second reader
+	 * directly from the text events of the soap body.
+	 */
+	@Override
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response) 
+			throws XMLStreamException {
+		
+		XMLStreamReader body = response.getBodyReader();
+		
+		if (!moveToReturnNode(body)) {
+			LOGGER.error("GetList: no return node was found in the soap response");
+			return null;
+		}
+		
+		XMLStreamReader cdata = XmlUtils.getInputFactory().createXMLStreamReader(new CDataReader(body));
+		
+		try {
+			return getList(context, cdata);
+		} catch (XMLStreamException e) {
+			
+			// the connection failed while the list was read
+			if (response.getReadError() != null)
+				throw e;
+			
+			LOGGER.error("GetList: no data was found in the soap response", e);
+			return null;
+		} finally {
+			cdata.close();
+		}
+	}
+	
+	/**
+	 * Move the reader of a streamed response to the return node
+	 * @param reader reader of the soap body
+	 * @return false if there is no return node
+	 * @throws XMLStreamException
+	 */
+	private static boolean moveToReturnNode(XMLStreamReader reader) throws XMLStreamException {
+		
+		while (!(reader.isStartElement() && "return".equals(reader.getLocalName()))) {
+			
+			if (reader.getEventType() == XMLStreamConstants.END_DOCUMENT 
+					|| (reader.isEndElement() && "Body".equals(reader.getLocalName())))
+				return false;
+			
+			reader.next();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Get the cdata content of the return node of the response
+	 * @param soapResponse
+	 * @return
+	 * @throws SOAPException
+	 */
+	private static Document extractCData(SOAPMessage soapResponse) throws SOAPException {
 		
 		// get the children of the body
 		NodeList returnNodes = soapResponse.getSOAPPart().
@@ -77,14 +287,52 @@ public abstract class GetList<T> extends SOAPRequest {
 			return null;
 		}
 		
-		return getList(cdata);
+		return cdata;
+	}
+	
+	/**
+	 * Parse the cdata content of the received response. Lists which need the
+	 * parameters of the call should override {@link #getList(SOAPRequestContext, Document)}
+	 * instead.
+	 * @param cdata the cdata node
+	 * @return desired list of objects
+	 */
+	public IDcfList<T> getList(Document cdata) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not parse any list");
 	}
 	
 	/**
-	 * Parse the cdata content of the received response.
+	 * Parse the cdata content of the received response. By default
+	 * {@link #getList(Document)} is called.
+	 * @param context the parameters of the call
 	 * @param cdata the cdata node
 	 * @return desired list of objects
 	 */
-	public abstract IDcfList<T> getList(Document cdata);
+	public IDcfList<T> getList(SOAPRequestContext context, Document cdata) {
+		return getList(cdata);
+	}
+	
+	/**
+	 * Parse the cdata content of a streamed response, adding the elements to
+	 * the output while they are read. By default the content is converted
+	 * into a document and {@link #getList(SOAPRequestContext, Document)} is
+	 * called, lists should override it to not build the document.
+	 * @param context the parameters of the call
+	 * @param cdata reader of the cdata content, at the start of the document
+	 * @return desired list of objects
+	 * @throws XMLStreamException
+	 */
+	public IDcfList<T> getList(SOAPRequestContext context, XMLStreamReader cdata) throws XMLStreamException {
+		
+		DOMResult document = new DOMResult();
+		
+		try {
+			XmlUtils.newTransformer().transform(new StAXSource(cdata), document);
+		} catch (TransformerException e) {
+			throw new XMLStreamException(e);
+		}
+		
+		return getList(context, (Document) document.getNode());
+	}
 	
 }
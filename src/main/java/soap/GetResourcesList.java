@@ -1,10 +1,11 @@
 package soap;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 
@@ -23,15 +24,15 @@ import user.IDcfUser;
  */
 public class GetResourcesList<T extends IDcfResourceReference> extends GetList<T> {
 
-	private String dataCollectionCode;
-	
 	// web service link of the getDatasetList service
 	private static final String URL = "https://dcf-elect.efsa.europa.eu/elect2/";
 	private static final String OPENAPI_URL = "https://openapi.efsa.europa.eu/api/collections.soap";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
 	
-	private IDcfResourcesList<T> output;
+	// parameters of the call
+	private static final String DATA_COLLECTION_CODE = "dataCollectionCode";
+	private static final String OUTPUT = "output";
 	
 	// constructor for DCF or openapi users
 	public GetResourcesList(boolean openapi) {
@@ -45,11 +46,13 @@ public class GetResourcesList<T extends IDcfResourceReference> extends GetList<T
 	
 	public IDcfList<T> getList(Environment env, IDcfUser user, String dataCollectionCode1, IDcfResourcesList<T> output1) throws DetailedSOAPException {
 		
-		this.dataCollectionCode = dataCollectionCode1;
-		this.output = output1;
-		
 		SOAPConsole.log("GetResourcesList: dcCode=" + dataCollectionCode1, user);
-		IDcfList<T> response = super.getList(env, user);
+		
+		SOAPRequestContext context = createContext(env, user)
+				.withParameter(DATA_COLLECTION_CODE, dataCollectionCode1)
+				.withParameter(OUTPUT, output1);
+		
+		IDcfList<T> response = getList(context);
 		
 		SOAPConsole.log("GetResourcesList:", response);
 		
@@ -57,13 +60,24 @@ public class GetResourcesList<T extends IDcfResourceReference> extends GetList<T
 	}
 	
 	@Override
-	public IDcfResourcesList<T> getList(Document cdata) {
-		GetResourcesListParser<T> parser = new GetResourcesListParser<>(this.output);
+	public IDcfResourcesList<T> getList(SOAPRequestContext context, Document cdata) {
+		IDcfResourcesList<T> output = context.getParameter(OUTPUT);
+		GetResourcesListParser<T> parser = new GetResourcesListParser<>(output);
+		return parser.parse(cdata);
+	}
+	
+	@Override
+	public IDcfResourcesList<T> getList(SOAPRequestContext context, XMLStreamReader cdata) throws XMLStreamException {
+		IDcfResourcesList<T> output = context.getParameter(OUTPUT);
+		GetResourcesListParser<T> parser = new GetResourcesListParser<>(output);
 		return parser.parse(cdata);
 	}
 
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+		
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
 		
 		boolean openapiUser = user.isOpeanapi();
 		
@@ -79,7 +93,7 @@ public class GetResourcesList<T extends IDcfResourceReference> extends GetList<T
 		SOAPElement soapElem = soapBody.addChildElement("GetResourceList", "dcf");
 
 		SOAPElement arg = soapElem.addChildElement("dataCollection");
-		arg.setTextContent(this.dataCollectionCode);
+		arg.setTextContent(context.getParameter(DATA_COLLECTION_CODE));
 
 		// save the changes in the message and return it
 		request.saveChanges();
@@ -0,0 +1,15 @@
+package soap;
+
+/**
+ * Listener of the changes of state of the circuits of a {@link CircuitBreaker}
+ */
+public interface ICircuitBreakerListener {
+
+	/**
+	 * Called when the circuit of an endpoint changes state
+	 * @param url the endpoint
+	 * @param from previous state
+	 * @param to new state
+	 */
+	public void stateChanged(String url, CircuitState from, CircuitState to);
+}
@@ -0,0 +1,205 @@
+package soap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read the parts of a mime multipart stream one after the other, without
+ * buffering them. Only the current part can be read, moving to the next
+ * part skips what is left of the current one.
+ */
+class MultipartReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final PushbackInputStream input;
+	private final byte[] delimiter;
+	private PartInputStream current;
+	private boolean finished;
+
+	/**
+	 * @param input the multipart stream
+	 * @param boundary the boundary of the parts, as in the content type
+	 */
+	MultipartReader(InputStream input, String boundary) {
+
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+
+		// the first delimiter can be at the beginning, without the line break
+		InputStream withLineBreak = new SequenceInputStream(
+				new ByteArrayInputStream(new byte[] { '\r', '\n' }), input);
+
+		this.input = new PushbackInputStream(withLineBreak, Math.max(BUFFER_SIZE, this.delimiter.length));
+
+		// the preamble is read as a part and skipped
+		this.current = new PartInputStream();
+	}
+
+	/**
+	 * Move to the next part
+	 * @return the headers of the part, with lower case names, or null if
+	 * there are no more parts
+	 * @throws IOException
+	 */
+	Map<String, String> nextPart() throws IOException {
+
+		if (this.finished)
+			return null;
+
+		// skip what is left of the current part
+		this.current.skipToEnd();
+
+		String line = readLine();
+
+		// closing delimiter
+		if (line == null || line.startsWith("--")) {
+			this.finished = true;
+			return null;
+		}
+
+		Map<String, String> headers = new HashMap<>();
+
+		while ((line = readLine()) != null && !line.isEmpty()) {
+
+			int colon = line.indexOf(':');
+
+			if (colon > 0)
+				headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+		}
+
+		this.current = new PartInputStream();
+
+		return headers;
+	}
+
+	/**
+	 * Get the body of the current part
+	 * @return
+	 */
+	InputStream getPartStream() {
+		return this.current;
+	}
+
+	/**
+	 * Read a line of the headers
+	 * @return the line without the line break, null at the end of the stream
+	 * @throws IOException
+	 */
+	private String readLine() throws IOException {
+
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		int c;
+		while ((c = this.input.read()) != -1 && c != '\n') {
+			if (c != '\r')
+				line.write(c);
+		}
+
+		if (c == -1 && line.size() == 0)
+			return null;
+
+		return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Body of a part, which ends before the next delimiter
+	 */
+	private class PartInputStream extends InputStream {
+
+		private boolean ended;
+		private byte[] lookahead = new byte[MultipartReader.this.delimiter.length];
+
+		@Override
+		public int read() throws IOException {
+
+			if (this.ended)
+				return -1;
+
+			int c = MultipartReader.this.input.read();
+
+			if (c == -1) {
+				this.ended = true;
+				return -1;
+			}
+
+			byte[] delim = MultipartReader.this.delimiter;
+
+			if (c != delim[0])
+				return c;
+
+			// check if the delimiter starts here
+			int length = 1;
+			this.lookahead[0] = (byte) c;
+
+			while (length < delim.length) {
+
+				int next = MultipartReader.this.input.read();
+
+				if (next == -1)
+					break;
+
+				this.lookahead[length++] = (byte) next;
+
+				if (next != (delim[length - 1] & 0xff))
+					break;
+			}
+
+			if (length == delim.length && this.lookahead[length - 1] == delim[length - 1]) {
+				this.ended = true;
+				return -1;
+			}
+
+			// not a delimiter, read again the bytes after the first one
+			MultipartReader.this.input.unread(this.lookahead, 1, length - 1);
+
+			return c;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+
+			if (len == 0)
+				return 0;
+
+			int count = 0;
+
+			while (count < len) {
+
+				int c = read();
+
+				if (c == -1)
+					break;
+
+				b[off + count++] = (byte) c;
+
+				// do not block if the next bytes are not arrived yet
+				if (MultipartReader.this.input.available() == 0)
+					break;
+			}
+
+			return count == 0 ? -1 : count;
+		}
+
+		/**
+		 * Skip the body up to the next delimiter
+		 * @throws IOException
+		 */
+		void skipToEnd() throws IOException {
+			while (read() != -1) {
+				// skip
+			}
+		}
+
+		@Override
+		public void close() {
+			// the parts are closed with the response
+		}
+	}
+}
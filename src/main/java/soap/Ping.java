@@ -3,7 +3,6 @@ package soap;
 import java.util.Iterator;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
 
@@ -64,7 +63,10 @@ public class Ping extends SOAPRequest {
 	 * @throws SOAPException
 	 */
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection soapConnection) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+
+		IDcfUser user = context.getUser();
+		String namespace = context.getNamespace();
 
 		// create the standard structure and get the message
 		SOAPMessage soapMsg = createTemplateSOAPMessage(user, namespace, "dcf");
@@ -89,7 +91,7 @@ public class Ping extends SOAPRequest {
 	 * @throws SOAPException
 	 */
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		
 		String response = "";
 		
@@ -0,0 +1,37 @@
+package soap;
+
+import javax.xml.soap.SOAPException;
+
+/**
+ * Call refused locally by the {@link RateLimiter}, since it would have waited
+ * too much for its turn. The call did not reach the server.
+ */
+public class RateLimitExceededException extends DetailedSOAPException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfter;
+
+	/**
+	 * @param url endpoint of the call
+	 * @param retryAfter milliseconds after which the call would be allowed
+	 */
+	public RateLimitExceededException(String url, long retryAfter) {
+		super(new SOAPException("Too Many Requests: local rate limit reached for " + url));
+		this.retryAfter = retryAfter;
+	}
+
+	@Override
+	public SOAPError getError() {
+		return SOAPError.TOO_MANY_REQUESTS;
+	}
+
+	/**
+	 * Get when the call would be allowed by the limiter
+	 * @return milliseconds
+	 */
+	@Override
+	public long getRetryAfter() {
+		return this.retryAfter;
+	}
+}
@@ -0,0 +1,296 @@
+package soap;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import user.IDcfUser;
+
+/**
+ * Client side limit of the calls sent to the dcf, so that the calls made
+ * in parallel do not exceed the rate allowed by the api gateway. Each
+ * subscription (the subscription key for the openapi users, the username for
+ * the others) has a token bucket for each endpoint: the bucket allows bursts
+ * up to its size, then a call every 1/rate seconds.
+ *
+ * The calls exceeding the rate wait in a queue for their turn. The calls which
+ * would wait more than the max wait are refused with a
+ * {@link RateLimitExceededException}, without reaching the server.
+ *
+ * By default no limit is set and all the calls pass immediately.
+ */
+public class RateLimiter {
+
+	private volatile Limit defaultLimit;
+	private Map<String, Limit> endpointLimits;
+	private volatile long maxWait;
+	private Map<BucketKey, Bucket> buckets;
+
+	public RateLimiter() {
+		this.endpointLimits = new ConcurrentHashMap<>();
+		this.maxWait = -1;
+		this.buckets = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Set the limit of all the endpoints, for each subscription
+	 * @param permitsPerSecond calls allowed per second, 0 for no limit
+	 * @param burst number of calls which can be sent together
+	 * @return
+	 */
+	public RateLimiter setDefaultLimit(double permitsPerSecond, int burst) {
+		this.defaultLimit = Limit.of(permitsPerSecond, burst);
+		this.buckets.clear();
+		return this;
+	}
+
+	/**
+	 * Set the limit of a single endpoint, for each subscription
+	 * @param url the endpoint
+	 * @param permitsPerSecond calls allowed per second, 0 for no limit
+	 * @param burst number of calls which can be sent together
+	 * @return
+	 */
+	public RateLimiter setLimit(String url, double permitsPerSecond, int burst) {
+		this.endpointLimits.put(url, permitsPerSecond > 0 ? Limit.of(permitsPerSecond, burst) : Limit.NONE);
+		this.buckets.clear();
+		return this;
+	}
+
+	/**
+	 * Max milliseconds a call waits for its turn, -1 to wait always and 0
+	 * to refuse the calls instead of waiting
+	 * @param maxWait
+	 * @return
+	 */
+	public RateLimiter setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+		return this;
+	}
+
+	public long getMaxWait() {
+		return this.maxWait;
+	}
+
+	/**
+	 * Wait until the call can be sent
+	 * @param user user who makes the call
+	 * @param url endpoint of the call
+	 * @return the milliseconds waited
+	 * @throws RateLimitExceededException if the call would wait more than the
+	 * max wait
+	 * @throws InterruptedException
+	 */
+	public long acquire(IDcfUser user, String url) throws RateLimitExceededException, InterruptedException {
+
+		Bucket bucket = getBucket(user, url);
+
+		// no limit for the endpoint
+		if (bucket == null)
+			return 0;
+
+		long wait = bucket.reserve(System.nanoTime(), this.maxWait);
+
+		if (wait < 0) {
+			bucket.rejected.incrementAndGet();
+			throw new RateLimitExceededException(url, TimeUnit.NANOSECONDS.toMillis(-wait));
+		}
+
+		if (wait > 0) {
+			bucket.waiting.incrementAndGet();
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} finally {
+				bucket.waiting.decrementAndGet();
+			}
+		}
+
+		long waited = TimeUnit.NANOSECONDS.toMillis(wait);
+		bucket.granted.incrementAndGet();
+		bucket.totalQueueDelay.addAndGet(waited);
+		bucket.maxQueueDelay.accumulateAndGet(waited, Math::max);
+
+		return waited;
+	}
+
+	/**
+	 * Get the statistics of all the subscriptions and endpoints
+	 * @return
+	 */
+	public RateLimiterStats getStats() {
+
+		long granted = 0;
+		long rejected = 0;
+		int waiting = 0;
+		long totalQueueDelay = 0;
+		long maxQueueDelay = 0;
+
+		for (Bucket bucket : this.buckets.values()) {
+			granted += bucket.granted.get();
+			rejected += bucket.rejected.get();
+			waiting += bucket.waiting.get();
+			totalQueueDelay += bucket.totalQueueDelay.get();
+			maxQueueDelay = Math.max(maxQueueDelay, bucket.maxQueueDelay.get());
+		}
+
+		return new RateLimiterStats(granted, rejected, waiting, totalQueueDelay, maxQueueDelay);
+	}
+
+	/**
+	 * Get the statistics of the calls of a user to an endpoint
+	 * @param user
+	 * @param url
+	 * @return
+	 */
+	public RateLimiterStats getStats(IDcfUser user, String url) {
+
+		Bucket bucket = this.buckets.get(new BucketKey(getSubscription(user), url));
+
+		if (bucket == null)
+			return new RateLimiterStats(0, 0, 0, 0, 0);
+
+		return new RateLimiterStats(bucket.granted.get(), bucket.rejected.get(), bucket.waiting.get(),
+				bucket.totalQueueDelay.get(), bucket.maxQueueDelay.get());
+	}
+
+	/**
+	 * Get the bucket of the user for the endpoint
+	 * @param user
+	 * @param url
+	 * @return the bucket, null if the endpoint has no limit
+	 */
+	private Bucket getBucket(IDcfUser user, String url) {
+
+		Limit limit = this.endpointLimits.getOrDefault(url, this.defaultLimit);
+
+		if (limit == null || limit == Limit.NONE)
+			return null;
+
+		return this.buckets.computeIfAbsent(new BucketKey(getSubscription(user), url),
+				key -> new Bucket(limit, System.nanoTime()));
+	}
+
+	/**
+	 * Get the subscription which the gateway uses to count the calls
+	 * @param user
+	 * @return
+	 */
+	private static String getSubscription(IDcfUser user) {
+
+		if (user == null)
+			return "";
+
+		return user.isOpeanapi() ? "key:" + user.getPassword() : "user:" + user.getUsername();
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimiter [defaultLimit=" + this.defaultLimit + ", endpointLimits=" + this.endpointLimits
+				+ ", maxWait=" + this.maxWait + "]";
+	}
+
+	/**
+	 * Rate and burst of a bucket
+	 */
+	private static class Limit {
+
+		private static final Limit NONE = new Limit(0, 0);
+
+		private final double permitsPerSecond;
+		private final int burst;
+
+		private Limit(double permitsPerSecond, int burst) {
+			this.permitsPerSecond = permitsPerSecond;
+			this.burst = burst;
+		}
+
+		private static Limit of(double permitsPerSecond, int burst) {
+			return permitsPerSecond > 0 ? new Limit(permitsPerSecond, Math.max(burst, 1)) : null;
+		}
+
+		@Override
+		public String toString() {
+			return this.permitsPerSecond + "/s, burst=" + this.burst;
+		}
+	}
+
+	/**
+	 * Token bucket of a subscription for an endpoint. The tokens go below zero
+	 * when calls are waiting, so that each call waits for the ones which came
+	 * before it.
+	 */
+	private static class Bucket {
+
+		private final double nanosPerPermit;
+		private final int burst;
+		private double tokens;
+		private long lastRefill;
+
+		private final AtomicLong granted = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicInteger waiting = new AtomicInteger();
+		private final AtomicLong totalQueueDelay = new AtomicLong();
+		private final AtomicLong maxQueueDelay = new AtomicLong();
+
+		private Bucket(Limit limit, long now) {
+			this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / limit.permitsPerSecond;
+			this.burst = limit.burst;
+			this.tokens = limit.burst;
+			this.lastRefill = now;
+		}
+
+		/**
+		 * Take a token, waiting for it if needed
+		 * @param now
+		 * @param maxWait max milliseconds of wait, -1 for no limit
+		 * @return nanoseconds to wait before sending the call, or the
+		 * opposite of the wait if it is too long and no token was taken
+		 */
+		private synchronized long reserve(long now, long maxWait) {
+
+			this.tokens = Math.min(this.burst, this.tokens + (now - this.lastRefill) / this.nanosPerPermit);
+			this.lastRefill = now;
+
+			long wait = this.tokens >= 1 ? 0 : (long) Math.ceil((1 - this.tokens) * this.nanosPerPermit);
+
+			if (maxWait >= 0 && wait > TimeUnit.MILLISECONDS.toNanos(maxWait))
+				return -wait;
+
+			this.tokens -= 1;
+
+			return wait;
+		}
+	}
+
+	/**
+	 * Subscription and endpoint of a bucket
+	 */
+	private static class BucketKey {
+
+		private final String subscription;
+		private final String url;
+
+		private BucketKey(String subscription, String url) {
+			this.subscription = subscription;
+			this.url = url;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof BucketKey))
+				return false;
+
+			BucketKey other = (BucketKey) obj;
+			return this.subscription.equals(other.subscription) && Objects.equals(this.url, other.url);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.subscription, this.url);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package soap;
+
+/**
+ * Snapshot of the calls passed through a {@link RateLimiter}, for all the
+ * subscriptions or for a single one
+ */
+public class RateLimiterStats {
+
+	private long granted;
+	private long rejected;
+	private int waiting;
+	private long totalQueueDelay;
+	private long maxQueueDelay;
+
+	public RateLimiterStats(long granted, long rejected, int waiting, long totalQueueDelay, long maxQueueDelay) {
+		this.granted = granted;
+		this.rejected = rejected;
+		this.waiting = waiting;
+		this.totalQueueDelay = totalQueueDelay;
+		this.maxQueueDelay = maxQueueDelay;
+	}
+
+	/**
+	 * Get the number of calls which were allowed, immediately or after
+	 * waiting in the queue
+	 * @return
+	 */
+	public long getGranted() {
+		return this.granted;
+	}
+
+	/**
+	 * Get the number of calls refused since they would have waited too much
+	 * @return
+	 */
+	public long getRejected() {
+		return this.rejected;
+	}
+
+	/**
+	 * Get the number of calls currently waiting in the queue
+	 * @return
+	 */
+	public int getWaiting() {
+		return this.waiting;
+	}
+
+	/**
+	 * Get the sum of the milliseconds waited by the granted calls
+	 * @return
+	 */
+	public long getTotalQueueDelay() {
+		return this.totalQueueDelay;
+	}
+
+	/**
+	 * Get the longest wait of a granted call, in milliseconds
+	 * @return
+	 */
+	public long getMaxQueueDelay() {
+		return this.maxQueueDelay;
+	}
+
+	/**
+	 * Get the average wait of the granted calls, in milliseconds
+	 * @return
+	 */
+	public double getAverageQueueDelay() {
+		return this.granted == 0 ? 0 : (double) this.totalQueueDelay / this.granted;
+	}
+
+	@Override
+	public String toString() {
+		return "granted=" + this.granted
+				+ "; rejected=" + this.rejected
+				+ "; waiting=" + this.waiting
+				+ "; totalQueueDelay=" + this.totalQueueDelay
+				+ "; maxQueueDelay=" + this.maxQueueDelay;
+	}
+}
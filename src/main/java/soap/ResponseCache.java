@@ -0,0 +1,365 @@
+package soap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of the parsed responses of the operations whose data rarely change,
+ * as the lists of catalogues, data collections and resources. Each operation
+ * has its own time to live, the least recently used entries are evicted when
+ * the cache is full.
+ *
+ * When an entry expires it can still be served for the stale while revalidate
+ * time, while a single background call refreshes it. After that time the
+ * entry is dropped and the next call goes to the dcf.
+ *
+ * The operation of a request is its class name, see
+ * {@link SOAPRequest#getOperationName()}.
+ */
+public class ResponseCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(ResponseCache.class);
+
+	// operations cached by default, with their time to live
+	private static final String[] LIST_OPERATIONS = { "GetCataloguesList", "GetDataCollectionsList",
+			"GetResourcesList" };
+	private static final long DEFAULT_TTL = 600000;  // 10 minutes
+
+	private final boolean enabled;
+	private Map<String, Long> ttls;
+	private volatile long staleWhileRevalidate;
+	private volatile int maxEntries;
+	private volatile Executor executor;
+	private LinkedHashMap<Object, Entry> entries;
+
+	private AtomicLong hits;
+	private AtomicLong staleHits;
+	private AtomicLong misses;
+	private AtomicLong refreshes;
+	private AtomicLong evictions;
+
+	public ResponseCache() {
+		this(true);
+	}
+
+	private ResponseCache(boolean enabled) {
+		this.enabled = enabled;
+		this.ttls = new ConcurrentHashMap<>();
+		for (String operation : LIST_OPERATIONS)
+			this.ttls.put(operation, DEFAULT_TTL);
+		this.staleWhileRevalidate = 60000;  // 1 minute
+		this.maxEntries = 100;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);  // access order
+		this.hits = new AtomicLong();
+		this.staleHits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.refreshes = new AtomicLong();
+		this.evictions = new AtomicLong();
+	}
+
+	/**
+	 * Cache which never keeps any response
+	 * @return
+	 */
+	public static ResponseCache none() {
+		return new ResponseCache(false);
+	}
+
+	/**
+	 * Set the time to live of the responses of the operation
+	 * @param operation
+	 * @param ttl milliseconds, 0 to not cache the operation
+	 * @return
+	 */
+	public ResponseCache setTtl(String operation, long ttl) {
+
+		if (ttl <= 0)
+			this.ttls.remove(operation);
+		else
+			this.ttls.put(operation, ttl);
+
+		return this;
+	}
+
+	/**
+	 * Get the time to live of the responses of the operation
+	 * @param operation
+	 * @return milliseconds, 0 if the operation is not cached
+	 */
+	public long getTtl(String operation) {
+		Long ttl = this.ttls.get(operation);
+		return ttl == null ? 0 : ttl;
+	}
+
+	/**
+	 * Milliseconds an expired response is still served while it is refreshed
+	 * in background, 0 to always wait for the new response
+	 * @param staleWhileRevalidate
+	 * @return
+	 */
+	public ResponseCache setStaleWhileRevalidate(long staleWhileRevalidate) {
+		this.staleWhileRevalidate = staleWhileRevalidate;
+		return this;
+	}
+
+	/**
+	 * Maximum number of responses kept
+	 * @param maxEntries
+	 * @return
+	 */
+	public ResponseCache setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+		synchronized (this) {
+			evict();
+		}
+		return this;
+	}
+
+	/**
+	 * Executor of the background refreshes. By default the one of
+	 * {@link SOAPExecutors} is used.
+	 * @param executor
+	 * @return
+	 */
+	public ResponseCache setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Check if the responses of the operation are cached
+	 * @param operation
+	 * @return
+	 */
+	public boolean isCached(String operation) {
+		return this.enabled && this.ttls.containsKey(operation);
+	}
+
+	/**
+	 * Get the cached response of a call. If the response expired but it can
+	 * still be served, it is refreshed in background.
+	 * @param operation operation of the call
+	 * @param key identifies the identical calls
+	 * @param refresh call which gets the new response to cache, null if the
+	 * response cannot be refreshed in background
+	 * @return the cached response, null if it must be requested to the dcf
+	 */
+	public Object get(String operation, Object key, Loader refresh) {
+
+		if (!isCached(operation))
+			return null;
+
+		Entry entry;
+		boolean startRefresh = false;
+
+		synchronized (this) {
+
+			entry = this.entries.get(key);
+
+			if (entry == null) {
+				this.misses.incrementAndGet();
+				return null;
+			}
+
+			long age = System.currentTimeMillis() - entry.created;
+
+			if (age < getTtl(operation)) {
+				this.hits.incrementAndGet();
+				return entry.value;
+			}
+
+			// too old or cannot be refreshed, drop it
+			if (refresh == null || age >= getTtl(operation) + this.staleWhileRevalidate) {
+				this.entries.remove(key);
+				this.misses.incrementAndGet();
+				return null;
+			}
+
+			this.staleHits.incrementAndGet();
+
+			// a single refresh for each entry
+			if (!entry.refreshing) {
+				entry.refreshing = true;
+				startRefresh = true;
+			}
+		}
+
+		if (startRefresh)
+			refresh(operation, key, entry, refresh);
+
+		return entry.value;
+	}
+
+	/**
+	 * Cache the response of a call
+	 * @param operation
+	 * @param key
+	 * @param value the response, null values are not cached
+	 */
+	public void put(String operation, Object key, Object value) {
+
+		if (!isCached(operation) || value == null)
+			return;
+
+		synchronized (this) {
+			this.entries.put(key, new Entry(operation, value));
+			evict();
+		}
+	}
+
+	/**
+	 * Remove the cached responses of the operation
+	 * @param operation
+	 */
+	public synchronized void invalidate(String operation) {
+		this.entries.values().removeIf(entry -> entry.operation.equals(operation));
+	}
+
+	/**
+	 * Remove all the cached responses
+	 */
+	public synchronized void invalidateAll() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Get the number of cached responses
+	 * @return
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Get the number of calls served with a response not expired
+	 * @return
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Get the number of calls served with an expired response, while it was
+	 * refreshed
+	 * @return
+	 */
+	public long getStaleHits() {
+		return this.staleHits.get();
+	}
+
+	/**
+	 * Get the number of calls of cached operations sent to the dcf
+	 * @return
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Get the number of background refreshes completed
+	 * @return
+	 */
+	public long getRefreshes() {
+		return this.refreshes.get();
+	}
+
+	/**
+	 * Get the number of responses evicted since the cache was full
+	 * @return
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * Refresh an expired entry in background
+	 * @param operation
+	 * @param key
+	 * @param entry
+	 * @param refresh
+	 */
+	private void refresh(String operation, Object key, Entry entry, Loader refresh) {
+
+		Runnable task = () -> {
+			try {
+
+				Object value = refresh.load();
+
+				synchronized (this) {
+
+					// replace only the entry which was refreshed
+					if (value != null && this.entries.get(key) == entry) {
+						this.entries.put(key, new Entry(operation, value));
+						this.refreshes.incrementAndGet();
+					}
+				}
+			} catch (DetailedSOAPException | RuntimeException e) {
+				LOGGER.warn("Cannot refresh the cached response of operation=" + operation, e);
+			} finally {
+				entry.refreshing = false;
+			}
+		};
+
+		try {
+			Executor executor = this.executor;
+			(executor == null ? SOAPExecutors.getExecutor() : executor).execute(task);
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Cannot refresh the cached response of operation=" + operation, e);
+			entry.refreshing = false;
+		}
+	}
+
+	/**
+	 * Remove the least recently used entries which exceed the maximum size
+	 */
+	private void evict() {
+
+		Iterator<Entry> iterator = this.entries.values().iterator();
+
+		while (this.entries.size() > this.maxEntries && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			this.evictions.incrementAndGet();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ResponseCache [enabled=" + this.enabled + ", ttls=" + this.ttls + ", staleWhileRevalidate="
+				+ this.staleWhileRevalidate + ", maxEntries=" + this.maxEntries + ", hits=" + this.hits
+				+ ", staleHits=" + this.staleHits + ", misses=" + this.misses + "]";
+	}
+
+	/**
+	 * Gets the new response of a call
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		public Object load() throws DetailedSOAPException;
+	}
+
+	/**
+	 * Cached response
+	 */
+	private static class Entry {
+
+		private final String operation;
+		private final Object value;
+		private final long created;
+		private volatile boolean refreshing;
+
+		private Entry(String operation, Object value) {
+			this.operation = operation;
+			this.value = value;
+			this.created = System.currentTimeMillis();
+		}
+	}
+}
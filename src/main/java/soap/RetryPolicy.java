@@ -0,0 +1,225 @@
+package soap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy of the web service calls. The failed calls are repeated with
+ * an exponential backoff with full jitter, that is, a random delay between
+ * zero and base * 2^(attempt-1), so that many clients failing together do not
+ * retry at the same time.
+ *
+ * Only the idempotent operations are retried, since a request which reached
+ * the dcf (as a send message) could be executed twice. The operation of a
+ * request is its class name, see {@link SOAPRequest#getOperationName()}.
+ *
+ * If the server sends a Retry-After header, its delay replaces the backoff.
+ */
+public class RetryPolicy {
+
+	// operations which do not change anything in the dcf
+	private static final String[] IDEMPOTENT_OPERATIONS = { "Ping", "GetAck", "GetAckDetailedResId",
+			"GetDatasetsList", "GetDataset", "GetCataloguesList", "GetDataCollectionsList", "GetResourcesList",
+			"GetDataCollectionTables", "GetFile", "GetXsdFile", "ExportCatalogueFile" };
+
+	private int maxAttempts;
+	private Map<String, Integer> operationMaxAttempts;
+	private long baseDelay;
+	private long maxDelay;
+	private long deadline;
+	private Set<String> idempotentOperations;
+
+	public RetryPolicy() {
+		this.maxAttempts = 4;
+		this.operationMaxAttempts = new ConcurrentHashMap<>();
+		this.baseDelay = 500;
+		this.maxDelay = 30000;  // 30 seconds
+		this.deadline = 120000;  // 2 minutes
+		this.idempotentOperations = ConcurrentHashMap.newKeySet();
+		this.idempotentOperations.addAll(Arrays.asList(IDEMPOTENT_OPERATIONS));
+	}
+
+	/**
+	 * Policy which never repeats the calls
+	 * @return
+	 */
+	public static RetryPolicy none() {
+		return new RetryPolicy().setMaxAttempts(1);
+	}
+
+	/**
+	 * Max number of attempts of a call, including the first one
+	 * @param maxAttempts
+	 * @return
+	 */
+	public RetryPolicy setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * Max number of attempts for a single operation
+	 * @param operation name of the operation, as GetAck
+	 * @param maxAttempts
+	 * @return
+	 */
+	public RetryPolicy setMaxAttempts(String operation, int maxAttempts) {
+		this.operationMaxAttempts.put(operation, maxAttempts);
+		return this;
+	}
+
+	/**
+	 * Milliseconds of the first backoff, doubled at each attempt
+	 * @param baseDelay
+	 * @return
+	 */
+	public RetryPolicy setBaseDelay(long baseDelay) {
+		this.baseDelay = baseDelay;
+		return this;
+	}
+
+	/**
+	 * Max milliseconds of a single backoff
+	 * @param maxDelay
+	 * @return
+	 */
+	public RetryPolicy setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+		return this;
+	}
+
+	/**
+	 * Milliseconds after the first attempt after which the call is not
+	 * repeated anymore, -1 for no limit
+	 * @param deadline
+	 * @return
+	 */
+	public RetryPolicy setDeadline(long deadline) {
+		this.deadline = deadline;
+		return this;
+	}
+
+	/**
+	 * Set the operations which can be retried, replacing the default ones
+	 * @param operations
+	 * @return
+	 */
+	public RetryPolicy setIdempotentOperations(String... operations) {
+		this.idempotentOperations.clear();
+		this.idempotentOperations.addAll(Arrays.asList(operations));
+		return this;
+	}
+
+	/**
+	 * Add an operation which can be retried
+	 * @param operation
+	 * @return
+	 */
+	public RetryPolicy addIdempotentOperation(String operation) {
+		this.idempotentOperations.add(operation);
+		return this;
+	}
+
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * Get the max number of attempts of the operation
+	 * @param operation
+	 * @return
+	 */
+	public int getMaxAttempts(String operation) {
+		return this.operationMaxAttempts.getOrDefault(operation, this.maxAttempts);
+	}
+
+	public long getBaseDelay() {
+		return this.baseDelay;
+	}
+
+	public long getMaxDelay() {
+		return this.maxDelay;
+	}
+
+	public long getDeadline() {
+		return this.deadline;
+	}
+
+	/**
+	 * Check if the operation can be retried
+	 * @param operation
+	 * @return
+	 */
+	public boolean isIdempotent(String operation) {
+		return this.idempotentOperations.contains(operation);
+	}
+
+	/**
+	 * Check if the error is transient, so the call could succeed if repeated
+	 * @param e
+	 * @return
+	 */
+	public boolean isRetryable(DetailedSOAPException e) {
+		
+		// the endpoint is down, fail fast instead of waiting for it
+		if (e instanceof CircuitOpenException)
+			return false;
+		
+		// the quota is restored only when the server says when
+		if (e.isQuotaExceeded())
+			return e.getRetryAfter() >= 0;
+		
+		return e.isTransient();
+	}
+
+	/**
+	 * Get the backoff before the next attempt
+	 * @param attempt number of the attempt which failed, starting from 1
+	 * @return a random delay in milliseconds between 0 and the exponential
+	 * backoff of the attempt
+	 */
+	public long getDelay(int attempt) {
+
+		// no overflow for many attempts
+		int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+		long backoff = Math.min(this.maxDelay, this.baseDelay * (1L << exponent));
+
+		if (backoff <= 0)
+			return 0;
+
+		return ThreadLocalRandom.current().nextLong(backoff + 1);
+	}
+
+	/**
+	 * Get the backoff before repeating a failed call
+	 * @param operation the operation which failed
+	 * @param e the error of the call
+	 * @param attempt number of the attempt which failed, starting from 1
+	 * @param start time of the first attempt, in milliseconds
+	 * @return the delay in milliseconds, -1 if the call should not be repeated
+	 */
+	public long getRetryDelay(String operation, DetailedSOAPException e, int attempt, long start) {
+
+		if (attempt >= getMaxAttempts(operation) || !isIdempotent(operation) || !isRetryable(e))
+			return -1;
+
+		// wait as asked by the server, if it said it
+		long delay = e.getRetryAfter() >= 0 ? e.getRetryAfter() : getDelay(attempt);
+
+		// the next attempt would start after the deadline
+		if (this.deadline >= 0 && System.currentTimeMillis() + delay - start > this.deadline)
+			return -1;
+
+		return delay;
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy [maxAttempts=" + this.maxAttempts + ", operationMaxAttempts="
+				+ this.operationMaxAttempts + ", baseDelay=" + this.baseDelay + ", maxDelay=" + this.maxDelay
+				+ ", deadline=" + this.deadline + ", idempotentOperations=" + this.idempotentOperations + "]";
+	}
+}
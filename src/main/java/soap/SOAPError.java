@@ -6,5 +6,10 @@ public enum SOAPError {
 	MESSAGE_SEND_FAILED,
 	TOO_MANY_REQUESTS,
 	QUOTA_EXCEEDED,
-	NO_CONNECTION
+	NO_CONNECTION,
+	SERVER_ERROR,
+	CLIENT_ERROR,
+	SOAP_FAULT,
+	PARSE_ERROR,  // the response was received but it cannot be read
+	UNKNOWN
 }
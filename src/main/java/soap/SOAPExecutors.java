@@ -0,0 +1,241 @@
+package soap;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executor used to run the asynchronous web service calls. By default a
+ * bounded pool is used, it can be replaced with {@link #setExecutor(ExecutorService)}.
+ * 
+ * If the virtual threads mode is enabled (see {@link #setVirtualThreads(boolean)}
+ * or the {@value #VIRTUAL_THREADS_PROPERTY} system property) and the runtime
+ * supports them (java 21+), the calls and the pending requests are run on
+ * virtual threads. Otherwise platform threads are used.
+ * 
+ * The threads do not raise the limit of the calls sent at the same time to
+ * a host, which is set by the connection pool of the transport (see
+ * {@link soap_transport.PooledTransportConfig#setMaxPerRoute(int)}).
+ */
+public class SOAPExecutors {
+
+	private static final Logger LOGGER = LogManager.getLogger(SOAPExecutors.class);
+
+	public static final int DEFAULT_THREADS = 64;
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+	public static final String VIRTUAL_THREADS_PROPERTY = "dcf.soap.virtualThreads";
+
+	// null if the runtime does not support virtual threads
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+	private static ExecutorService executor;
+	private static boolean virtualThreads = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+
+	private SOAPExecutors() {}
+
+	/**
+	 * A web service call which can be run asynchronously
+	 * @param <T> the result of the call
+	 */
+	@FunctionalInterface
+	public interface SOAPCall<T> {
+		public T call() throws Exception;
+	}
+
+	/**
+	 * Get the executor of the asynchronous calls. It is created the first time
+	 * it is required with {@link #DEFAULT_THREADS} threads and a queue of
+	 * {@link #DEFAULT_QUEUE_SIZE} calls, or with a virtual thread for each
+	 * call if {@link #isVirtualThreads()}.
+	 * @return
+	 */
+	public static synchronized ExecutorService getExecutor() {
+
+		if (executor == null) {
+			executor = isVirtualThreads() ? newVirtualThreadExecutor()
+					: newBoundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Change the executor of the asynchronous calls. The previous executor
+	 * is shut down, the calls already submitted are completed.
+	 * @param newExecutor
+	 */
+	public static synchronized void setExecutor(ExecutorService newExecutor) {
+
+		if (executor != null && executor != newExecutor)
+			executor.shutdown();
+
+		executor = newExecutor;
+	}
+
+	/**
+	 * Enable or disable the virtual threads mode. The default executor is
+	 * created again with the new mode the next time it is required.
+	 * @param enabled
+	 */
+	public static synchronized void setVirtualThreads(boolean enabled) {
+
+		if (enabled && !isVirtualThreadsSupported())
+			LOGGER.warn("Virtual threads are not supported by java " + System.getProperty("java.version")
+					+ ", platform threads will be used");
+
+		if (virtualThreads != enabled)
+			setExecutor(null);
+
+		virtualThreads = enabled;
+	}
+
+	/**
+	 * Check if the calls are run on virtual threads, that is, if the mode is
+	 * enabled and the runtime supports it
+	 * @return
+	 */
+	public static synchronized boolean isVirtualThreads() {
+		return virtualThreads && isVirtualThreadsSupported();
+	}
+
+	/**
+	 * Check if the runtime supports virtual threads
+	 * @return
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * Create a new thread, virtual if {@link #isVirtualThreads()}, otherwise
+	 * a platform thread. The thread is not started.
+	 * @param task
+	 * @param name
+	 * @return
+	 */
+	public static Thread newThread(Runnable task, String name) {
+
+		Thread thread = isVirtualThreads() ? VIRTUAL_THREAD_FACTORY.newThread(task) : new Thread(task);
+		thread.setName(name);
+
+		return thread;
+	}
+
+	/**
+	 * Create an executor which starts a new virtual thread for each call.
+	 * The number of calls is not bounded by the executor. If virtual threads
+	 * are not supported, a bounded executor with {@link #DEFAULT_THREADS}
+	 * threads is returned.
+	 * @return
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+
+		if (!isVirtualThreadsSupported())
+			return newBoundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+
+		try {
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, VIRTUAL_THREAD_FACTORY);
+		} catch (ReflectiveOperationException e) {
+			LOGGER.error("Cannot create the virtual threads executor, platform threads will be used", e);
+			return newBoundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+		}
+	}
+
+	/**
+	 * Create an executor with a fixed number of threads and a bounded queue.
+	 * The calls submitted when the queue is full are rejected.
+	 * @param threads max number of calls running at the same time
+	 * @param queueSize max number of calls waiting for a thread
+	 * @return
+	 */
+	public static ExecutorService newBoundedExecutor(int threads, int queueSize) {
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize), new SOAPThreadFactory());
+
+		// idle threads are released
+		pool.allowCoreThreadTimeOut(true);
+
+		return pool;
+	}
+
+	/**
+	 * Run the call with the default executor
+	 * @param call
+	 * @return a future completed with the result of the call, or exceptionally
+	 * with a {@link CompletionException} wrapping the error of the call
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(SOAPCall<T> call) {
+		return supplyAsync(call, getExecutor());
+	}
+
+	/**
+	 * Run the call with the executor
+	 * @param call
+	 * @param executor
+	 * @return a future completed with the result of the call, or exceptionally
+	 * with a {@link CompletionException} wrapping the error of the call. If
+	 * the executor rejects the call, the future fails with a
+	 * {@link RejectedExecutionException}.
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(SOAPCall<T> call, Executor executor) {
+
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return call.call();
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+
+	/**
+	 * Get the factory of the virtual threads using reflection, since the
+	 * library is compiled for java 8
+	 * @return the factory, or null if the runtime does not support virtual threads
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "dcf-soap-virtual-", 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Create daemon threads, in order to not block the exit of the application
+	 */
+	private static class SOAPThreadFactory implements ThreadFactory {
+
+		private AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "dcf-soap-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -1,40 +1,34 @@
 package soap;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
-import java.net.Authenticator;
-import java.net.MalformedURLException;
-import java.net.PasswordAuthentication;
-import java.net.Proxy;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLStreamHandler;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipInputStream;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.soap.AttachmentPart;
 import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeaders;
 import javax.xml.soap.SOAPConnection;
-import javax.xml.soap.SOAPConnectionFactory;
 import javax.xml.soap.SOAPEnvelope;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
 import javax.xml.soap.SOAPPart;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -46,193 +40,293 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import config.Environment;
-import http.HttpManager;
-import proxy.ProxyConfigException;
-import sun.net.www.protocol.http.AuthCacheImpl;
-import sun.net.www.protocol.http.AuthCacheValue;
+import soap_transport.ISOAPTransport;
+import soap_transport.SOAPTransports;
 import user.IDcfUser;
 import utils.FileUtils;
+import utils.XmlUtils;
 import zip_manager.ZipManager;
 
 /**
  * Abstract class used to create soap requests and to process soap responses.
+ * The parameters of each call are passed through a {@link SOAPRequestContext},
+ * therefore the same request object can be shared by several threads.
  * 
  * @author avonva
  * @author shahaal
  */
-@SuppressWarnings("restriction")
 public abstract class SOAPRequest {
 
 	private static final Logger LOGGER = LogManager.getLogger(SOAPRequest.class);
+	private static ISOAPTransport defaultTransport; // shared by all the requests
 	private SOAPError error; // error, if occurred
+	private volatile ISOAPTransport transport;
+	private volatile RetryPolicy retryPolicy;
+	private static volatile RetryPolicy defaultRetryPolicy = new RetryPolicy();
+	private volatile RateLimiter rateLimiter;
+	private static volatile RateLimiter defaultRateLimiter = new RateLimiter();
+	private volatile ConcurrencyLimiter concurrencyLimiter;
+	private static volatile ConcurrencyLimiter defaultConcurrencyLimiter = ConcurrencyLimiter.none();
+	private volatile CircuitBreaker circuitBreaker;
+	private static volatile CircuitBreaker defaultCircuitBreaker = CircuitBreaker.none();
+	private volatile SingleFlight singleFlight;
+	private static volatile SingleFlight defaultSingleFlight = SingleFlight.none();
+
+	static {
+		createParserPool();
+	}
 
 	/**
-	 * Use the proxy if present
+	 * Create the request and get the response. Process the response and return the
+	 * results.
 	 * 
-	 * @param stringUrl
+	 * @param env
+	 * 
+	 * @param soapConnection
 	 * @return
-	 * @throws MalformedURLException
-	 * @throws ProxyConfigException
+	 * @throws DetailedSOAPException
 	 */
-	private static URL getEndpoint(String stringUrl) throws MalformedURLException, ProxyConfigException {
-
-		Proxy proxy = HttpManager.getProxy();
-
-		URL endpoint = new URL(null, stringUrl, new URLStreamHandler() {
-
-			@Override
-			protected URLConnection openConnection(URL url) throws IOException {
-
-				// The url is the parent of this stream handler, so must
-				// create clone
-				URL clone = new URL(url.toString());
+	public Object makeRequest(Environment env, IDcfUser user, String namespace, String url)
+			throws DetailedSOAPException {
+		return makeRequest(new SOAPRequestContext(env, user, namespace, url));
+	}
 
-				URLConnection connection = null;
+	/**
+	 * Create the request and get the response using the parameters of the
+	 * context. Process the response and return the results. No state is kept in
+	 * this object, so the same request can be made by several threads.
+	 * 
+	 * @param context parameters of the call
+	 * @return
+	 * @throws DetailedSOAPException
+	 */
+	public Object makeRequest(SOAPRequestContext context) throws DetailedSOAPException {
 
-				// set the proxy if needed
-				if (proxy == null)
-					connection = clone.openConnection();
-				else
-					connection = clone.openConnection(proxy);
+		SingleFlight flight = getSingleFlight();
 
-				connection.setConnectTimeout(80000);
-				connection.setReadTimeout(80000);
-				return connection;
-			}
-		});
+		// identical calls made at the same time share the same request
+		if (flight.isCoalesced(getOperationName()))
+			return flight.execute(getCallKey(context), () -> makeRequestWithRetries(context),
+					result -> shareResult(context, result));
 
-		return endpoint;
+		return makeRequestWithRetries(context);
 	}
 
 	/**
-	 * Get an https connection which ignores certificates
+	 * Make the call, repeating it as set in the retry policy. A streamed
+	 * response which failed while it was read is repeated only if
+	 * {@link #isStreamedResponseRepeatable(SOAPRequestContext)}, since part of
+	 * it could already be in the output of the caller.
 	 * 
-	 * @param url
+	 * @param context
 	 * @return
-	 * @throws KeyManagementException
-	 * @throws NoSuchAlgorithmException
-	 * @throws IOException
+	 * @throws DetailedSOAPException
 	 */
-	private static HttpsURLConnection avoidCertificates(String url)
-			throws KeyManagementException, NoSuchAlgorithmException, IOException {
+	private Object makeRequestWithRetries(SOAPRequestContext context) throws DetailedSOAPException {
 
-		HttpsURLConnection httpsConnection = null;
+		RetryPolicy policy = getRetryPolicy();
+		String operation = getOperationName();
+		long start = System.currentTimeMillis();
+		AtomicBoolean responseRead = new AtomicBoolean();
 
-		// Create SSL context and trust all certificates
-		SSLContext sslContext = SSLContext.getInstance("SSL");
+		for (int attempt = 1;; ++attempt) {
 
-		TrustManager[] trustAll = new TrustManager[] { new TrustAllCertificates() };
+			try {
+				acquirePermit(context);
+				return sendLimited(context, responseRead);
+			} catch (DetailedSOAPException e) {
 
-		sslContext.init(null, trustAll, new java.security.SecureRandom());
+				if (responseRead.get() && !isStreamedResponseRepeatable(context)) {
+					LOGGER.warn(operation + ": the response failed while it was read, it is not repeated");
+					throw e;
+				}
 
-		// Set trust all certificates context to HttpsURLConnection
-		HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+				long delay = policy.getRetryDelay(operation, e, attempt, start);
 
-		// Open HTTPS connection
-		URL link = new URL(url);
+				if (delay < 0)
+					throw e;
 
-		httpsConnection = (HttpsURLConnection) link.openConnection();
+				LOGGER.warn(operation + ": attempt " + attempt + " failed with error=" + e.getError()
+						+ ", retrying in " + delay + " ms");
 
-		// Trust all hosts
-		httpsConnection.setHostnameVerifier(new TrustAllHosts());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the key which identifies the identical calls: same request, environment,
+	 * user, endpoint and parameters. The collections which receive the results
+	 * are compared by their type only, since each call has its own. The
+	 * credentials are kept only as a hash, since the key stays in memory for
+	 * all the call.
+	 * 
+	 * @param context
+	 * @return
+	 */
+	Object getCallKey(SOAPRequestContext context) {
+
+		Map<String, Object> parameters = new HashMap<>();
+		for (Map.Entry<String, Object> parameter : context.getParameters().entrySet()) {
+			Object value = parameter.getValue();
+			parameters.put(parameter.getKey(), value instanceof Collection ? value.getClass() : value);
+		}
 
-		// Connect
-		httpsConnection.connect();
+		IDcfUser user = context.getUser();
 
-		return httpsConnection;
+		return Arrays.asList(getClass(), context.getEnvironment(), context.getUrl(), context.getNamespace(),
+				user == null ? null : user.getUsername(), user == null ? null : hash(user.getPassword()),
+				user != null && user.isOpeanapi(), parameters);
 	}
 
 	/**
-	 * Dummy class implementing HostnameVerifier to trust all host names
+	 * Get the sha-256 hash of a secret
+	 * 
+	 * @param secret
+	 * @return the hash in base64, null if the secret is null
 	 */
-	private static class TrustAllHosts implements HostnameVerifier {
-		@Override
-		public boolean verify(String hostname, SSLSession session) {
-			return true;
+	private static String hash(String secret) {
+
+		if (secret == null)
+			return null;
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			// sha-256 is available in all the jvms
+			throw new IllegalStateException(e);
 		}
 	}
 
 	/**
-	 * Dummy class implementing X509TrustManager to trust all certificates
+	 * Get the result of a call which was coalesced with an identical call made
+	 * at the same time. By default a collection result is copied into the
+	 * output collection of the call, if any, otherwise the same result is
+	 * returned to both the calls.
+	 * 
+	 * @param context the context of the waiting call
+	 * @param result the result of the call in flight
+	 * @return
 	 */
-	private static class TrustAllCertificates implements X509TrustManager {
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected Object shareResult(SOAPRequestContext context, Object result) {
 
-		@Override
-		public void checkClientTrusted(X509Certificate[] certs, String authType) {
-		}
+		if (!(result instanceof Collection))
+			return result;
 
-		@Override
-		public void checkServerTrusted(X509Certificate[] certs, String authType) {
+		for (Object value : context.getParameters().values()) {
+			if (value instanceof Collection && value != result) {
+				((Collection) value).addAll((Collection) result);
+				return value;
+			}
 		}
 
-		@Override
-		public X509Certificate[] getAcceptedIssuers() {
-			return null;
-		}
+		return result;
 	}
 
 	/**
-	 * Create the request and get the response. Process the response and return the
-	 * results.
+	 * Wait for the turn of the call in the rate limiter
 	 * 
-	 * @param env
+	 * @param context
+	 * @throws DetailedSOAPException if the call cannot be sent
+	 */
+	private void acquirePermit(SOAPRequestContext context) throws DetailedSOAPException {
+
+		try {
+
+			long waited = getRateLimiter().acquire(context.getUser(), context.getUrl());
+
+			if (waited > 0)
+				LOGGER.debug(getOperationName() + ": waited " + waited + " ms for the rate limit");
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DetailedSOAPException(new SOAPException("Interrupted while waiting for the rate limit", e));
+		}
+	}
+
+	/**
+	 * Make a single attempt of the call if the circuit of the endpoint is
+	 * closed, within the concurrency limit of the host. The outcome of the
+	 * call updates the circuit and adapts the limit.
 	 * 
-	 * @param soapConnection
+	 * @param context
+	 * @param responseRead set when the processing of a streamed response starts
 	 * @return
 	 * @throws DetailedSOAPException
 	 */
-	public Object makeRequest(Environment env, IDcfUser user, String namespace, String url)
+	private Object sendLimited(SOAPRequestContext context, AtomicBoolean responseRead)
 			throws DetailedSOAPException {
 
-		final boolean isHttps = url.toLowerCase().startsWith("https");
+		// fail fast if the endpoint is down
+		CircuitBreaker.Permit circuit = getCircuitBreaker().acquire(context.getUrl());
+		ConcurrencyLimiter.Permit permit = null;
 
-		HttpsURLConnection httpsConnection = null;
+		try {
 
-		// if https with test => skip certificates
-		if (isHttps /* && env == Environment.TEST */) {
-			try {
-				httpsConnection = avoidCertificates(url);
-			} catch (KeyManagementException | NoSuchAlgorithmException | IOException e) {
-				LOGGER.error("Error ", e);
-				e.printStackTrace();
-			}
-		}
+			permit = getConcurrencyLimiter().acquire(context.getUrl());
 
-		try {
-			// Connect to the url
-			SOAPConnectionFactory connectionFactory = SOAPConnectionFactory.newInstance();
+			Object result = send(context, responseRead);
+			permit.onSuccess();
+			circuit.onSuccess();
+			return result;
 
-			// open the connection
-			SOAPConnection soapConnection = connectionFactory.createConnection();
-			
-			// create the request message
-			SOAPMessage request = createRequest(user, namespace, soapConnection);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DetailedSOAPException(new SOAPException("Interrupted while waiting for the concurrency limit", e));
+		} catch (DetailedSOAPException e) {
 
-			SOAPMessage response;
-			try {
+			// timeouts and throttling mean that the host is overloaded
+			if (e.isConnectionProblem() || e.isTooManyRequests())
+				permit.onDropped();
+			else
+				permit.onIgnore();
 
-				URL endpoint = getEndpoint(url);
+			circuit.onError(e);
 
-				// get the response
-				response = soapConnection.call(request, endpoint);
+			throw e;
+		} finally {
+			if (permit != null)
+				permit.onIgnore();
+			circuit.onIgnore();
+		}
+	}
 
-			} catch (MalformedURLException | ProxyConfigException e) {
-				LOGGER.error("ERROR OCCURRED. Proceeding without using proxy", e);
-				e.printStackTrace();
-				// get the response with no proxy
-				response = soapConnection.call(request, url);
-			}
+	/**
+	 * Make a single attempt of the call
+	 * 
+	 * @param context
+	 * @param responseRead set when the processing of a streamed response starts
+	 * @return
+	 * @throws DetailedSOAPException
+	 */
+	private Object send(SOAPRequestContext context, AtomicBoolean responseRead) throws DetailedSOAPException {
 
-			// close the soap connection
-			soapConnection.close();
+		try {
 
-			// if https with test => skip certificates
-			if (httpsConnection != null) {
-				httpsConnection.disconnect();
-			}
+			// create the request message
+			SOAPMessage request = createRequest(context);
+
+			// read the response while it is received
+			if (isStreamingResponse(context))
+				return getTransport().call(context.getEnvironment(), context.getUser(), request,
+						context.getUrl(), (contentType, body) -> {
+							responseRead.set(true);
+							return processStreamingResponse(context, contentType, body);
+						});
+
+			// send the request using the persistent connections of the transport
+			SOAPMessage response = getTransport().call(context.getEnvironment(), context.getUser(), request,
+					context.getUrl());
 
 			// parse the response and get the result
-			return processResponse(response);
+			return processResponse(context, response);
 		} catch (SOAPException e) {
 			LOGGER.error("ERROR OCCURRED", e);
 			// parse error codes
@@ -240,6 +334,365 @@ public abstract class SOAPRequest {
 		}
 	}
 
+	/**
+	 * Process a response read from the connection
+	 * 
+	 * @param context
+	 * @param contentType
+	 * @param body
+	 * @return
+	 * @throws SOAPException
+	 * @throws IOException
+	 */
+	private Object processStreamingResponse(SOAPRequestContext context, String contentType, InputStream body)
+			throws SOAPException, IOException {
+
+		SOAPResponseStream response = new SOAPResponseStream(contentType, body);
+
+		try {
+			return processResponse(context, response);
+		} catch (XMLStreamException e) {
+
+			// the connection failed, the response is not malformed
+			if (response.getReadError() != null)
+				throw response.getReadError();
+
+			throw new SOAPException("Cannot parse the response", e);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link #makeRequest(Environment, IDcfUser, String, String)},
+	 * run with the executor of {@link SOAPExecutors}.
+	 * 
+	 * @param env
+	 * @param user
+	 * @param namespace
+	 * @param url
+	 * @return future completed with the processed response or with the
+	 *         {@link DetailedSOAPException} of the call
+	 */
+	public CompletableFuture<Object> makeRequestAsync(Environment env, IDcfUser user, String namespace, String url) {
+		return makeRequestAsync(new SOAPRequestContext(env, user, namespace, url));
+	}
+
+	/**
+	 * Asynchronous version of {@link #makeRequest(SOAPRequestContext)}, run with
+	 * the executor of {@link SOAPExecutors}.
+	 * 
+	 * The calls in flight are also limited by the connections of the transport:
+	 * with the {@link soap_transport.PooledSOAPTransport} at most
+	 * {@link soap_transport.PooledTransportConfig#setMaxPerRoute(int)} calls
+	 * use the same host, the others wait for a connection at most
+	 * {@link soap_transport.PooledTransportConfig#setLeaseTimeout(int)}
+	 * milliseconds and then fail as a connection problem (retried as set in
+	 * the {@link RetryPolicy}).
+	 * 
+	 * @param context
+	 * @return
+	 */
+	public CompletableFuture<Object> makeRequestAsync(SOAPRequestContext context) {
+		return SOAPExecutors.supplyAsync(() -> makeRequest(context));
+	}
+
+	/**
+	 * Get the transport used to send the requests. If no transport was set for
+	 * this request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public ISOAPTransport getTransport() {
+
+		if (this.transport == null)
+			return getDefaultTransport();
+
+		return this.transport;
+	}
+
+	/**
+	 * Use a custom transport for this request only
+	 * 
+	 * @param transport
+	 */
+	public void setTransport(ISOAPTransport transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * Get the retry policy of the request. If no policy was set for this
+	 * request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public RetryPolicy getRetryPolicy() {
+
+		if (this.retryPolicy == null)
+			return getDefaultRetryPolicy();
+
+		return this.retryPolicy;
+	}
+
+	/**
+	 * Use a custom retry policy for this request only
+	 * 
+	 * @param retryPolicy
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Get the retry policy shared by all the requests
+	 * 
+	 * @return
+	 */
+	public static RetryPolicy getDefaultRetryPolicy() {
+		return defaultRetryPolicy;
+	}
+
+	/**
+	 * Change the retry policy shared by all the requests
+	 * 
+	 * @param retryPolicy the new policy, null to restore the default one
+	 */
+	public static void setDefaultRetryPolicy(RetryPolicy retryPolicy) {
+		defaultRetryPolicy = retryPolicy == null ? new RetryPolicy() : retryPolicy;
+	}
+
+	/**
+	 * Get the rate limiter of the request. If no limiter was set for this
+	 * request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public RateLimiter getRateLimiter() {
+
+		if (this.rateLimiter == null)
+			return getDefaultRateLimiter();
+
+		return this.rateLimiter;
+	}
+
+	/**
+	 * Use a custom rate limiter for this request only
+	 * 
+	 * @param rateLimiter
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Get the rate limiter shared by all the requests. By default it has no
+	 * limits, set them with {@link RateLimiter#setDefaultLimit(double, int)}.
+	 * 
+	 * @return
+	 */
+	public static RateLimiter getDefaultRateLimiter() {
+		return defaultRateLimiter;
+	}
+
+	/**
+	 * Change the rate limiter shared by all the requests
+	 * 
+	 * @param rateLimiter the new limiter, null to remove the limits
+	 */
+	public static void setDefaultRateLimiter(RateLimiter rateLimiter) {
+		defaultRateLimiter = rateLimiter == null ? new RateLimiter() : rateLimiter;
+	}
+
+	/**
+	 * Get the concurrency limiter of the request. If no limiter was set for
+	 * this request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+
+		if (this.concurrencyLimiter == null)
+			return getDefaultConcurrencyLimiter();
+
+		return this.concurrencyLimiter;
+	}
+
+	/**
+	 * Use a custom concurrency limiter for this request only
+	 * 
+	 * @param concurrencyLimiter
+	 */
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	/**
+	 * Get the concurrency limiter shared by all the requests. By default the
+	 * calls are not limited.
+	 * 
+	 * @return
+	 */
+	public static ConcurrencyLimiter getDefaultConcurrencyLimiter() {
+		return defaultConcurrencyLimiter;
+	}
+
+	/**
+	 * Change the concurrency limiter shared by all the requests, for example
+	 * with a new {@link ConcurrencyLimiter} to adapt the calls in flight to
+	 * the latency of the dcf
+	 * 
+	 * @param concurrencyLimiter the new limiter, null to remove the limit
+	 */
+	public static void setDefaultConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		defaultConcurrencyLimiter = concurrencyLimiter == null ? ConcurrencyLimiter.none() : concurrencyLimiter;
+	}
+
+	/**
+	 * Get the circuit breaker of the request. If no circuit breaker was set
+	 * for this request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+
+		if (this.circuitBreaker == null)
+			return getDefaultCircuitBreaker();
+
+		return this.circuitBreaker;
+	}
+
+	/**
+	 * Use a custom circuit breaker for this request only
+	 * 
+	 * @param circuitBreaker
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * Get the circuit breaker shared by all the requests. By default the
+	 * calls are never refused.
+	 * 
+	 * @return
+	 */
+	public static CircuitBreaker getDefaultCircuitBreaker() {
+		return defaultCircuitBreaker;
+	}
+
+	/**
+	 * Change the circuit breaker shared by all the requests, for example
+	 * with a new {@link CircuitBreaker} to fail fast when a dcf endpoint is
+	 * down
+	 * 
+	 * @param circuitBreaker the new circuit breaker, null to remove it
+	 */
+	public static void setDefaultCircuitBreaker(CircuitBreaker circuitBreaker) {
+		defaultCircuitBreaker = circuitBreaker == null ? CircuitBreaker.none() : circuitBreaker;
+	}
+
+	/**
+	 * Get the coalescing of the identical calls used by the request. If it was
+	 * not set for this request, the default one is used.
+	 * 
+	 * @return
+	 */
+	public SingleFlight getSingleFlight() {
+
+		if (this.singleFlight == null)
+			return getDefaultSingleFlight();
+
+		return this.singleFlight;
+	}
+
+	/**
+	 * Use a custom coalescing of the calls for this request only
+	 * 
+	 * @param singleFlight
+	 */
+	public void setSingleFlight(SingleFlight singleFlight) {
+		this.singleFlight = singleFlight;
+	}
+
+	/**
+	 * Get the coalescing of the identical calls shared by all the requests
+	 * 
+	 * @return
+	 */
+	public static SingleFlight getDefaultSingleFlight() {
+		return defaultSingleFlight;
+	}
+
+	/**
+	 * Change the coalescing of the identical calls shared by all the requests,
+	 * for example with a new {@link SingleFlight} to share the result of the
+	 * identical read only calls made at the same time
+	 * 
+	 * @param singleFlight the new coalescing, null to remove it
+	 */
+	public static void setDefaultSingleFlight(SingleFlight singleFlight) {
+		defaultSingleFlight = singleFlight == null ? SingleFlight.none() : singleFlight;
+	}
+
+	/**
+	 * Get the name of the operation, used by the {@link RetryPolicy} to know if
+	 * the request can be repeated. By default it is the name of the class.
+	 * 
+	 * @return
+	 */
+	public String getOperationName() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * Get the transport shared by all the requests. It is created the first time
+	 * it is required, using a pool of persistent connections or the http/2
+	 * client, as set in the {@value SOAPTransports#TRANSPORT_PROPERTY} system
+	 * property.
+	 * 
+	 * @return
+	 */
+	public static synchronized ISOAPTransport getDefaultTransport() {
+
+		if (defaultTransport == null)
+			defaultTransport = SOAPTransports.createDefault();
+
+		return defaultTransport;
+	}
+
+	/**
+	 * Change the transport shared by all the requests. The previous transport is
+	 * closed.
+	 * 
+	 * @param transport
+	 */
+	public static synchronized void setDefaultTransport(ISOAPTransport transport) {
+
+		if (defaultTransport != null && defaultTransport != transport)
+			defaultTransport.close();
+
+		defaultTransport = transport;
+	}
+
+	/**
+	 * Parse an empty envelope in order to create the pool of sax parsers of
+	 * saaj. In java 8 the pool is created lazily without synchronization, and
+	 * if several threads parse their first response at the same time some
+	 * parsers are lost, blocking all the following calls.
+	 */
+	private static void createParserPool() {
+
+		String empty = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+				+ "<soap:Body/></soap:Envelope>";
+
+		try {
+			MessageFactory.newInstance()
+					.createMessage(new MimeHeaders(),
+							new ByteArrayInputStream(empty.getBytes(StandardCharsets.UTF_8)))
+					.getSOAPPart().getEnvelope();
+		} catch (SOAPException | IOException e) {
+			LOGGER.warn("Cannot initialize the soap parsers", e);
+		}
+	}
+
 	/**
 	 * Get the error type if it occurred
 	 * 
@@ -250,8 +703,9 @@ public abstract class SOAPRequest {
 	}
 
 	/**
-	 * Create the standard structure of a SOAPMessage, including the authentication
-	 * block
+	 * Create the standard structure of a SOAPMessage. The credentials of the
+	 * user are not stored here, they are sent by the {@link ISOAPTransport}
+	 * for this request only.
 	 * 
 	 * @param username
 	 * @param password
@@ -269,26 +723,6 @@ public abstract class SOAPRequest {
 		// add the content type header
 		soapMsg.getMimeHeaders().addHeader("Content-Type", "text/xml;charset=UTF-8");
 
-		// reset the cache of the authentication
-		AuthCacheValue.setAuthCache(new AuthCacheImpl());
-
-		// set the username and password for the https connection
-		// in order to be able to authenticate me to the DCF
-		Authenticator myAuth = new Authenticator() {
-
-			@Override
-			protected PasswordAuthentication getPasswordAuthentication() {
-
-				if (user.getUsername() == null || user.getPassword() == null)
-					return null;
-
-				return new PasswordAuthentication(user.getUsername(), user.getPassword().toCharArray());
-			}
-		};
-
-		// set the default authenticator
-		Authenticator.setDefault(myAuth);
-
 		// create the envelope and name it
 		SOAPEnvelope envelope = soapPart.getEnvelope();
 		envelope.addNamespaceDeclaration(prefix, namespace);
@@ -299,7 +733,7 @@ public abstract class SOAPRequest {
 
 	/**
 	 * Create the standard openapi structure of a SOAPMessage, including the
-	 * authentication block
+	 * subscription key of the user
 	 * 
 	 * @author shahaal
 	 * @param username
@@ -321,26 +755,6 @@ public abstract class SOAPRequest {
 		// add the token to the header
 		soapMsg.getMimeHeaders().addHeader("Ocp-Apim-Subscription-Key", user.getPassword());
 
-		// reset the cache of the authentication
-		AuthCacheValue.setAuthCache(new AuthCacheImpl());
-
-		// set the username and password for the https connection
-		// in order to be able to authenticate me to the DCF
-		Authenticator myAuth = new Authenticator() {
-
-			@Override
-			protected PasswordAuthentication getPasswordAuthentication() {
-
-				if (user.getUsername() == null || user.getPassword() == null)
-					return null;
-
-				return new PasswordAuthentication(user.getUsername(), user.getPassword().toCharArray());
-			}
-		};
-
-		// set the default authenticator
-		Authenticator.setDefault(myAuth);
-
 		// create the envelope and name it
 		SOAPEnvelope envelope = soapPart.getEnvelope();
 		envelope.addNamespaceDeclaration(prefix, namespace);
@@ -361,17 +775,11 @@ public abstract class SOAPRequest {
 	 */
 	public static Document getDocument(String xml) throws ParserConfigurationException, SAXException, IOException {
 
-		// create the factory object to create the document object
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-		// get the builder from the factory
-		DocumentBuilder builder = factory.newDocumentBuilder();
-
 		// Set the input source (the text string)
 		InputSource is = new InputSource(new StringReader(xml));
 
-		// get the xml document and return it
-		return builder.parse(is);
+		// get the xml document with the builder of the thread
+		return XmlUtils.parse(is);
 	}
 
 	/**
@@ -384,15 +792,7 @@ public abstract class SOAPRequest {
 	 * @throws IOException
 	 */
 	public static Document getDocument(File file) throws ParserConfigurationException, SAXException, IOException {
-
-		// create the factory object to create the document object
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-		// get the builder from the factory
-		DocumentBuilder builder = factory.newDocumentBuilder();
-
-		// get the xml document and return it
-		return builder.parse(file);
+		return XmlUtils.parse(file);
 	}
 
 	/**
@@ -406,15 +806,7 @@ public abstract class SOAPRequest {
 	 */
 	public static Document getDocument(InputStream input)
 			throws ParserConfigurationException, SAXException, IOException {
-
-		// create the factory object to create the document object
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-		// get the builder from the factory
-		DocumentBuilder builder = factory.newDocumentBuilder();
-
-		// get the xml document and return it
-		return builder.parse(input);
+		return XmlUtils.parse(input);
 	}
 
 	/**
@@ -538,6 +930,67 @@ public abstract class SOAPRequest {
 		return file;
 	}
 
+	/**
+	 * Write the first attachment of a streamed response into a file, without
+	 * keeping it in memory
+	 * 
+	 * @param response
+	 * @param isZipped true if the attachment is a zip file, whose first entry
+	 *                 is written
+	 * @return the file, null if there is no attachment
+	 * @throws IOException
+	 */
+	public static File writeXmlIntoFile(SOAPResponseStream response, boolean isZipped) throws IOException {
+
+		InputStream attachment = response.nextAttachment();
+
+		if (attachment == null) {
+			LOGGER.info("No attachment found!");
+			return null;
+		}
+
+		File file = FileUtils.createTempFile("attachment_" + System.currentTimeMillis(), ".xml");
+
+		InputStream input = attachment;
+
+		// read the first entry of the zip file
+		if (isZipped) {
+			ZipInputStream zipStream = new ZipInputStream(attachment);
+			zipStream.getNextEntry();
+			input = zipStream;
+		}
+
+		try (OutputStream outputStream = new FileOutputStream(file)) {
+			IOUtils.copy(input, outputStream);
+		}
+
+		return file;
+	}
+
+	/**
+	 * Unzip the first attachment of a streamed response into a file
+	 * 
+	 * @param response
+	 * @param attachmentFormat format of the file in the zip file
+	 * @return the file, null if there is no attachment
+	 * @throws IOException
+	 */
+	public static File writeZippedAttachment(SOAPResponseStream response, String attachmentFormat)
+			throws IOException {
+
+		InputStream attachment = response.nextAttachment();
+
+		if (attachment == null)
+			return null;
+
+		File file = FileUtils.createTempFile("attachment_" + System.currentTimeMillis(), attachmentFormat);
+
+		// unzip the stream into a file
+		ZipManager.unzipStream(attachment, file);
+
+		return file;
+	}
+
 	/**
 	 * Get the xsd from the attachment
 	 * 
@@ -564,11 +1017,7 @@ public abstract class SOAPRequest {
 		try (InputStream stream = part.getRawContent()) {
 
 			// parse the document
-			DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-			Document doc = docBuilder.parse(stream);
-
-			return doc;
+			return XmlUtils.parse(stream);
 		}
 	}
 
@@ -578,11 +1027,7 @@ public abstract class SOAPRequest {
 			return null;
 
 		// parse the document
-		DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-		Document doc = docBuilder.parse(file);
-
-		return doc;
+		return XmlUtils.parse(file);
 	}
 
 	/**
@@ -685,19 +1130,106 @@ public abstract class SOAPRequest {
 	}
 
 	/**
-	 * Create the request message which will be sent to the web service
+	 * Create the request message which will be sent to the web service. By
+	 * default {@link #createRequest(IDcfUser, String, SOAPConnection)} is called.
+	 * 
+	 * @param context parameters of the call
+	 * @return
+	 * @throws SOAPException
+	 */
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
+		return createRequest(context.getUser(), context.getNamespace(), null);
+	}
+
+	/**
+	 * Process the web service response and return something if needed. By
+	 * default {@link #processResponse(SOAPMessage)} is called.
+	 * 
+	 * @param context      parameters of the call
+	 * @param soapResponse the response returned after sending the soap request
+	 * @return a processed object. It can be whatever you want, be aware that you
+	 *         need to cast it to specify its type.
+	 * @throws SOAPException
+	 */
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
+		return processResponse(soapResponse);
+	}
+
+	/**
+	 * Check if the response is read while it is received, without building the
+	 * soap message. If true, {@link #processResponse(SOAPRequestContext, SOAPResponseStream)}
+	 * is called instead of {@link #processResponse(SOAPRequestContext, SOAPMessage)}.
+	 * 
+	 * @return false by default
+	 */
+	public boolean isStreamingResponse() {
+		return false;
+	}
+
+	/**
+	 * Check if the response of a call is read while it is received. Override
+	 * it when only some calls are streamed.
+	 * 
+	 * @param context parameters of the call
+	 * @return {@link #isStreamingResponse()} by default
+	 */
+	public boolean isStreamingResponse(SOAPRequestContext context) {
+		return isStreamingResponse();
+	}
+
+	/**
+	 * Check if the call can be repeated when its streamed response fails
+	 * while it is read. It must be true only if
+	 * {@link #processResponse(SOAPRequestContext, SOAPResponseStream)} does not
+	 * pass anything to the caller before the end of the response, as the
+	 * elements of the output lists or the errors notified to the handlers.
 	 * 
-	 * @param con
+	 * @param context parameters of the call
+	 * @return false by default
+	 */
+	public boolean isStreamedResponseRepeatable(SOAPRequestContext context) {
+		return false;
+	}
+
+	/**
+	 * Process the web service response while it is received. Used only if
+	 * {@link #isStreamingResponse(SOAPRequestContext)} is true.
+	 * 
+	 * @param context  parameters of the call
+	 * @param response the response, which can be read only once
 	 * @return
+	 * @throws SOAPException
+	 * @throws IOException
+	 * @throws XMLStreamException
 	 */
-	public abstract SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException;
+	public Object processResponse(SOAPRequestContext context, SOAPResponseStream response)
+			throws SOAPException, IOException, XMLStreamException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not process streamed responses");
+	}
 
 	/**
-	 * Process the web service response and return something if needed
+	 * Create the request message which will be sent to the web service. Requests
+	 * which need parameters should override {@link #createRequest(SOAPRequestContext)}
+	 * instead.
+	 * 
+	 * @param con not used anymore, the message is sent through the
+	 *            {@link ISOAPTransport} of the request. Always null.
+	 * @return
+	 */
+	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not create any request");
+	}
+
+	/**
+	 * Process the web service response and return something if needed. Requests
+	 * which need the parameters of the call should override
+	 * {@link #processResponse(SOAPRequestContext, SOAPMessage)} instead.
 	 * 
 	 * @param soapResponse the response returned after sending the soap request
 	 * @return a processed object. It can be whatever you want, be aware that you
 	 *         need to cast it to specify its type.
 	 */
-	public abstract Object processResponse(SOAPMessage soapResponse) throws SOAPException;
-}
\ No newline at end of file
+	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not process any response");
+	}
+}
@@ -0,0 +1,100 @@
+package soap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import config.Environment;
+import user.IDcfUser;
+
+/**
+ * Immutable parameters of a single web service call. The context is created
+ * for each call and passed to {@link SOAPRequest#createRequest(SOAPRequestContext)}
+ * and {@link SOAPRequest#processResponse(SOAPRequestContext, javax.xml.soap.SOAPMessage)},
+ * so that the same request object can be used by several threads at the same time.
+ */
+public class SOAPRequestContext {
+
+	private final Environment env;
+	private final IDcfUser user;
+	private final String namespace;
+	private final String url;
+	private final Map<String, Object> parameters;
+
+	/**
+	 * Create the context of a call
+	 * @param env environment of the call
+	 * @param user user who makes the call
+	 * @param namespace namespace of the web service
+	 * @param url endpoint of the web service
+	 */
+	public SOAPRequestContext(Environment env, IDcfUser user, String namespace, String url) {
+		this(env, user, namespace, url, Collections.emptyMap());
+	}
+
+	private SOAPRequestContext(Environment env, IDcfUser user, String namespace, String url,
+			Map<String, Object> parameters) {
+		this.env = env;
+		this.user = user;
+		this.namespace = namespace;
+		this.url = url;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Get a copy of the context with an additional parameter
+	 * @param key name of the parameter
+	 * @param value value of the parameter
+	 * @return the new context, this context is not modified
+	 */
+	public SOAPRequestContext withParameter(String key, Object value) {
+
+		Map<String, Object> newParameters = new HashMap<>(this.parameters);
+		newParameters.put(key, value);
+
+		return new SOAPRequestContext(this.env, this.user, this.namespace, this.url,
+				Collections.unmodifiableMap(newParameters));
+	}
+
+	public Environment getEnvironment() {
+		return this.env;
+	}
+
+	public IDcfUser getUser() {
+		return this.user;
+	}
+
+	public String getNamespace() {
+		return this.namespace;
+	}
+
+	public String getUrl() {
+		return this.url;
+	}
+
+	/**
+	 * Get a parameter of the call
+	 * @param key name of the parameter
+	 * @return the value of the parameter, null if not set
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getParameter(String key) {
+		return (T) this.parameters.get(key);
+	}
+
+	/**
+	 * Get all the parameters of the call
+	 * @return unmodifiable map of the parameters
+	 */
+	public Map<String, Object> getParameters() {
+		return this.parameters;
+	}
+
+	@Override
+	public String toString() {
+		return "env=" + this.env
+				+ "; user=" + this.user
+				+ "; url=" + this.url
+				+ "; parameters=" + this.parameters.keySet();
+	}
+}
@@ -0,0 +1,203 @@
+package soap;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import utils.XmlUtils;
+
+/**
+ * Response of a web service call read while it is received from the
+ * connection, without building the SAAJ message. The soap body is read with
+ * a {@link XMLStreamReader} and the mime attachments are exposed as streams,
+ * therefore the memory used does not depend on the size of the response.
+ *
+ * The parts of the response can be read only in order: the envelope first
+ * and then the attachments. Moving to an attachment skips what is left of
+ * the envelope.
+ */
+public class SOAPResponseStream {
+
+	private static final String SOAP_ENVELOPE_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+
+	private MultipartReader multipart;
+	private InputStream envelope;
+	private XMLStreamReader reader;
+	private IOException readError;
+
+	/**
+	 * Prepare the response
+	 * @param contentType content type of the http response
+	 * @param body body of the http response
+	 * @throws IOException
+	 */
+	public SOAPResponseStream(String contentType, InputStream body) throws IOException {
+
+		String boundary = getParameter(contentType, "boundary");
+
+		if (contentType.toLowerCase().startsWith("multipart/") && boundary != null) {
+
+			this.multipart = new MultipartReader(body, boundary);
+
+			// the envelope is the first part
+			if (this.multipart.nextPart() == null)
+				throw new IOException("No parts found in the multipart response");
+
+			this.envelope = new ErrorRecordingStream(this.multipart.getPartStream());
+		}
+		else {
+			this.envelope = new ErrorRecordingStream(body);
+		}
+	}
+
+	/**
+	 * Get the error of the connection which stopped the read of the envelope.
+	 * The xml parser reports it as a parse error, often without its cause.
+	 * @return the error, null if the envelope was read without io errors
+	 */
+	public IOException getReadError() {
+		return this.readError;
+	}
+
+	/**
+	 * Get the reader of the soap body. The reader is positioned on the start
+	 * of the first element contained in the body, or on the end of the body
+	 * if it is empty.
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public XMLStreamReader getBodyReader() throws XMLStreamException {
+
+		if (this.reader == null) {
+			// not coalescing, the long texts are read in pieces
+			this.reader = XmlUtils.getInputFactory().createXMLStreamReader(this.envelope);
+			moveToBodyContent(this.reader);
+		}
+
+		return this.reader;
+	}
+
+	/**
+	 * Check if the body contains a soap fault
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	public boolean isFault() throws XMLStreamException {
+
+		XMLStreamReader bodyReader = getBodyReader();
+
+		return bodyReader.isStartElement() && "Fault".equals(bodyReader.getLocalName())
+				&& SOAP_ENVELOPE_NS.equals(bodyReader.getNamespaceURI());
+	}
+
+	/**
+	 * Get the next attachment of the response
+	 * @return the content of the attachment, null if there are no more
+	 * attachments
+	 * @throws IOException
+	 */
+	public InputStream nextAttachment() throws IOException {
+
+		if (this.multipart == null)
+			return null;
+
+		Map<String, String> headers = this.multipart.nextPart();
+
+		if (headers == null)
+			return null;
+
+		InputStream part = this.multipart.getPartStream();
+
+		if ("base64".equalsIgnoreCase(headers.get("content-transfer-encoding")))
+			part = Base64.getMimeDecoder().wrap(part);
+
+		return part;
+	}
+
+	/**
+	 * Move the reader inside the soap body, on its first element
+	 * @param reader
+	 * @throws XMLStreamException
+	 */
+	private static void moveToBodyContent(XMLStreamReader reader) throws XMLStreamException {
+
+		while (reader.hasNext()) {
+
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT && "Body".equals(reader.getLocalName())) {
+
+				// first element of the body, or end of the body
+				while (reader.hasNext()) {
+					event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT)
+						return;
+				}
+			}
+		}
+
+		throw new XMLStreamException("No soap body found in the response");
+	}
+
+	/**
+	 * Stream which keeps the io errors of the connection
+	 */
+	private class ErrorRecordingStream extends FilterInputStream {
+
+		ErrorRecordingStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (IOException e) {
+				readError = e;
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				return super.read(b, off, len);
+			} catch (IOException e) {
+				readError = e;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Get a parameter of a content type header, as the boundary
+	 * @param contentType
+	 * @param name
+	 * @return the value of the parameter without quotes, null if not present
+	 */
+	private static String getParameter(String contentType, String name) {
+
+		for (String param : contentType.split(";")) {
+
+			String[] keyValue = param.trim().split("=", 2);
+
+			if (keyValue.length == 2 && keyValue[0].trim().equalsIgnoreCase(name)) {
+
+				String value = keyValue[1].trim();
+
+				if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1)
+					value = value.substring(1, value.length() - 1);
+
+				return value;
+			}
+		}
+
+		return null;
+	}
+}
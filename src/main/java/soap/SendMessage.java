@@ -2,13 +2,8 @@ package soap;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Base64;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -20,6 +15,7 @@ import config.Environment;
 import message.MessageResponse;
 import response_parser.SendMessageParser;
 import soap_interface.ISendMessage;
+import soap_transport.StreamingSOAPMessage;
 import user.IDcfUser;
 
 /**
@@ -36,8 +32,9 @@ public class SendMessage extends SOAPRequest implements ISendMessage {
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dcf-dp-ws/elect2/?wsdl";
 	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
 	
-	private String messageName;
-	private String message;
+	// parameters of the call
+	private static final String MESSAGE_NAME = "messageName";
+	private static final String FILE = "file";
 	
 	/**
 	 * Send a dataset to the dcf
@@ -52,14 +49,16 @@ public class SendMessage extends SOAPRequest implements ISendMessage {
 		if (!file.exists())
 			throw new IOException("The file=" + file + " does not exist");
 		
-		this.messageName = file.getName();
-		this.message = prepareMessage(file);
-		
-		LOGGER.info("File to be processed: " + file);
+		LOGGER.info("File to be processed: " + file + ", size=" + file.length() + " bytes");
 		
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
+		
+		// the file is encoded while it is sent
+		SOAPRequestContext context = new SOAPRequestContext(env, user, NAMESPACE, url)
+				.withParameter(MESSAGE_NAME, file.getName())
+				.withParameter(FILE, file);
 	
-		Object response = makeRequest(env, user, NAMESPACE, url);
+		Object response = makeRequest(context);
 		
 		LOGGER.info("Request has been created successfully");
 		
@@ -71,30 +70,11 @@ public class SendMessage extends SOAPRequest implements ISendMessage {
 		return (MessageResponse) response;
 	}
 	
-	/**
-	 * Create the message from the file
-	 * @param file
-	 * @return
-	 * @throws IOException
-	 */
-	private static String prepareMessage(File file) throws IOException {
-		
-		// add attachment to fileHandler node
-		Path path = Paths.get(file.getAbsolutePath());
-		
-		// read the file as byte array and encode it in base64
-		byte[] data = Files.readAllBytes(path);
-		String sData = new String(data);
-		LOGGER.info("Xml content : " + sData);
-		byte[] encodedData = Base64.getEncoder().encode(data);
-		return new String(encodedData);
-	}
-
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 		
 		// create the standard structure and get the message
-		SOAPMessage request = createTemplateSOAPMessage(user, namespace, "dcf");
+		SOAPMessage request = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "dcf");
 
         SOAPBody soapBody = request.getSOAPPart().getEnvelope().getBody();
 		
@@ -106,17 +86,18 @@ public class SendMessage extends SOAPRequest implements ISendMessage {
 
 		// set attachment
 		SOAPElement arg = trxFileMessage.addChildElement("fileName");
-		arg.setTextContent(this.messageName);
-		fileHandler.setValue(this.message);
+		arg.setTextContent(context.getParameter(MESSAGE_NAME));
+		fileHandler.setValue(StreamingSOAPMessage.PLACEHOLDER);
 		
 		// save the changes in the message and return it
 		request.saveChanges();
 		
-		return request;
+		// the placeholder is replaced with the encoded file
+		return new StreamingSOAPMessage(request, context.getParameter(FILE));
 	}
 
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		return SendMessageParser.parse(soapResponse.getSOAPBody());
 	}
 }
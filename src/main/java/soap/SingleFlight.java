@@ -0,0 +1,185 @@
+package soap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import javax.xml.soap.SOAPException;
+
+/**
+ * Coalescing of identical calls made at the same time. The first call is
+ * sent to the dcf, the identical calls which arrive while it is in flight
+ * wait for it and receive its result (or its error), without sending
+ * another request.
+ *
+ * Only the read only operations are coalesced, since the others change
+ * something in the dcf at each call. The operation of a request is its class
+ * name, see {@link SOAPRequest#getOperationName()}.
+ *
+ * The requests do not coalesce the calls by default, see
+ * {@link SOAPRequest#setDefaultSingleFlight(SingleFlight)}.
+ */
+public class SingleFlight {
+
+	// operations which only read from the dcf. The acks are not coalesced,
+	// since they are polled until their state changes and the errors of the
+	// detailed ack are passed to the handler of the call.
+	// The exports are not coalesced since all the calls would receive the
+	// same file, which can be deleted or moved by any of them
+	private static final String[] READ_ONLY_OPERATIONS = { "GetDatasetsList", "GetCataloguesList",
+			"GetDataCollectionsList", "GetResourcesList", "GetDataCollectionTables" };
+
+	private final boolean enabled;
+	private Set<String> operations;
+	private Map<Object, CompletableFuture<Object>> calls;
+	private AtomicLong coalesced;
+
+	public SingleFlight() {
+		this(true);
+	}
+
+	private SingleFlight(boolean enabled) {
+		this.enabled = enabled;
+		this.operations = ConcurrentHashMap.newKeySet();
+		this.operations.addAll(Arrays.asList(READ_ONLY_OPERATIONS));
+		this.calls = new ConcurrentHashMap<>();
+		this.coalesced = new AtomicLong();
+	}
+
+	/**
+	 * Never coalesce the calls
+	 * @return
+	 */
+	public static SingleFlight none() {
+		return new SingleFlight(false);
+	}
+
+	/**
+	 * Set the operations which can be coalesced, replacing the default ones
+	 * @param operations
+	 * @return
+	 */
+	public SingleFlight setOperations(String... operations) {
+		this.operations.clear();
+		this.operations.addAll(Arrays.asList(operations));
+		return this;
+	}
+
+	/**
+	 * Add an operation which can be coalesced
+	 * @param operation
+	 * @return
+	 */
+	public SingleFlight addOperation(String operation) {
+		this.operations.add(operation);
+		return this;
+	}
+
+	/**
+	 * Check if the calls of the operation are coalesced
+	 * @param operation
+	 * @return
+	 */
+	public boolean isCoalesced(String operation) {
+		return this.enabled && this.operations.contains(operation);
+	}
+
+	/**
+	 * Make the call, or wait for the identical call in flight
+	 * @param key identifies the identical calls
+	 * @param call the call to make
+	 * @param share converts the result of the call in flight into the
+	 * result of the waiting call
+	 * @return
+	 * @throws DetailedSOAPException
+	 */
+	public Object execute(Object key, Call call, UnaryOperator<Object> share) throws DetailedSOAPException {
+
+		CompletableFuture<Object> flight = new CompletableFuture<>();
+		CompletableFuture<Object> inFlight = this.calls.putIfAbsent(key, flight);
+
+		// identical call in flight, wait for it
+		if (inFlight != null) {
+			this.coalesced.incrementAndGet();
+			return share.apply(await(inFlight));
+		}
+
+		try {
+
+			Object result = call.execute();
+			flight.complete(result);
+			return result;
+
+		} catch (Throwable e) {
+			// the waiting calls must not wait forever
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.calls.remove(key, flight);
+		}
+	}
+
+	/**
+	 * Get the result of the call in flight
+	 * @param flight
+	 * @return
+	 * @throws DetailedSOAPException
+	 */
+	private static Object await(CompletableFuture<Object> flight) throws DetailedSOAPException {
+
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DetailedSOAPException(new SOAPException("Interrupted while waiting for an identical call", e));
+		} catch (ExecutionException e) {
+
+			if (e.getCause() instanceof DetailedSOAPException)
+				throw (DetailedSOAPException) e.getCause();
+
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Get the number of calls which received the result of an identical call
+	 * instead of sending their request
+	 * @return
+	 */
+	public long getCoalescedCalls() {
+		return this.coalesced.get();
+	}
+
+	/**
+	 * Get the number of distinct calls in flight
+	 * @return
+	 */
+	public int getInFlight() {
+		return this.calls.size();
+	}
+
+	@Override
+	public String toString() {
+		return "SingleFlight [enabled=" + this.enabled + ", operations=" + this.operations + ", coalesced="
+				+ this.coalesced + "]";
+	}
+
+	/**
+	 * A call to the dcf
+	 */
+	@FunctionalInterface
+	public interface Call {
+		public Object execute() throws DetailedSOAPException;
+	}
+}
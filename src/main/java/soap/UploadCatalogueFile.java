@@ -2,12 +2,9 @@ package soap;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.Base64;
 
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -18,6 +15,7 @@ import org.apache.logging.log4j.Logger;
 import config.Environment;
 import response_parser.UploadCatalogueFileParser;
 import soap_interface.IUploadCatalogueFile;
+import soap_transport.StreamingSOAPMessage;
 import user.IDcfUser;
 
 /**
@@ -37,20 +35,27 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 	private static final String URL = "https://dcf-cms.efsa.europa.eu/catalogues/?wsdl";
 	private static final String TEST_URL = "https://dcf-01.efsa.test/dc-catalog-public-ws/catalogues/?wsdl";
 	
-	private String attachment;
+	private static final String ATTACHMENT = "attachment";
+	private static final String FILE = "file";
 	
 	/**
-	 * Upload a file to DCF
+	 * Upload a file to DCF. The file is encoded while it is sent, so it is
+	 * never loaded in memory.
 	 * @return the code of the log which tracks the request
 	 * @throws SOAPException 
 	 * @throws IOException 
 	 */
 	public String send(Environment env, IDcfUser user, File file) throws DetailedSOAPException, IOException {
 		
-		// read the file into a string
-		String data = new String(Files.readAllBytes(Paths.get(file.getAbsolutePath())));
-
-		return this.send(env, user, data);
+		if (!file.exists())
+			throw new IOException("The file=" + file + " does not exist");
+		
+		SOAPConsole.log("UploadCatalogueFile: file=" + file, user);
+		
+		SOAPRequestContext context = createContext(env, user)
+				.withParameter(FILE, file);
+		
+		return upload(context);
 	}
 	
 	/**
@@ -64,12 +69,33 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 		
 		SOAPConsole.log("UploadCatalogueFile: attachment=" + attachment1, user);
 		
-		this.attachment = attachment1;
+		SOAPRequestContext context = createContext(env, user)
+				.withParameter(ATTACHMENT, attachment1);
 		
+		return upload(context);
+	}
+	
+	/**
+	 * Create the context of the call
+	 * @param env
+	 * @param user
+	 * @return
+	 */
+	private static SOAPRequestContext createContext(Environment env, IDcfUser user) {
 		String url = env == Environment.PRODUCTION ? URL : TEST_URL;
+		return new SOAPRequestContext(env, user, NAMESPACE, url);
+	}
+	
+	/**
+	 * Send the request
+	 * @param context
+	 * @return the log code
+	 * @throws DetailedSOAPException
+	 */
+	private String upload(SOAPRequestContext context) throws DetailedSOAPException {
 		
 		// return the log code got from dcf
-		Object response = makeRequest(env, user, NAMESPACE, url);
+		Object response = makeRequest(context);
 		
 		SOAPConsole.log("UploadCatalogueFile:", response);
 		
@@ -83,10 +109,10 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 	 * Create the reserve request message
 	 */
 	@Override
-	public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+	public SOAPMessage createRequest(SOAPRequestContext context) throws SOAPException {
 
 		// create the standard structure and get the message
-		SOAPMessage soapMsg = createTemplateSOAPMessage(user, namespace, "ws");
+		SOAPMessage soapMsg = createTemplateSOAPMessage(context.getUser(), context.getNamespace(), "ws");
 		
 		// get the body of the message
 		SOAPBody soapBody = soapMsg.getSOAPPart().getEnvelope().getBody();
@@ -97,8 +123,11 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 		// file data node (child of upload cf)
 		SOAPElement fileData = upload.addChildElement("fileData");
 		
-		// get the attachment in base64 format
-		String encodedAttachment = encodeAttachment(this.attachment);
+		File file = context.getParameter(FILE);
+
+		// get the attachment in base64 format, the file is encoded while it is sent
+		String encodedAttachment = file != null ? StreamingSOAPMessage.PLACEHOLDER
+				: encodeAttachment(context.getParameter(ATTACHMENT));
 
 		// row data node (child of file data)
 		SOAPElement rowData = fileData.addChildElement("rowData");
@@ -107,6 +136,9 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 		// save the changes in the message and return it
 		soapMsg.saveChanges();
 
+		if (file != null)
+			return new StreamingSOAPMessage(soapMsg, file);
+
 		return soapMsg;
 	}
 	
@@ -116,7 +148,7 @@ public class UploadCatalogueFile extends SOAPRequest implements IUploadCatalogue
 	}
 	
 	@Override
-	public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+	public Object processResponse(SOAPRequestContext context, SOAPMessage soapResponse) throws SOAPException {
 		
 		// get the log code of the response
 		String logCode = UploadCatalogueFileParser.parse(soapResponse.getSOAPBody());
@@ -1,11 +1,13 @@
 package soap_interface;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import javax.xml.soap.SOAPException;
 
 import config.Environment;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 public interface IExportCatalogueFile {
@@ -37,4 +39,29 @@ public interface IExportCatalogueFile {
 	 * @throws SOAPException
 	 */
 	public File exportLastInternalVersion(Environment env, IDcfUser user, String catalogueCode) throws SOAPException;
+	
+	/**
+	 * Asynchronous version of {@link #exportCatalogue(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<File> exportCatalogueAsync(Environment env, IDcfUser user, String catalogueCode) {
+		return SOAPExecutors.supplyAsync(() -> exportCatalogue(env, user, catalogueCode));
+	}
+	
+	/**
+	 * Asynchronous version of {@link #exportLog(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<File> exportLogAsync(Environment env, IDcfUser user, String code) {
+		return SOAPExecutors.supplyAsync(() -> exportLog(env, user, code));
+	}
+	
+	/**
+	 * Asynchronous version of {@link #exportLastInternalVersion(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<File> exportLastInternalVersionAsync(Environment env, IDcfUser user, 
+			String catalogueCode) {
+		return SOAPExecutors.supplyAsync(() -> exportLastInternalVersion(env, user, catalogueCode));
+	}
 }
@@ -1,11 +1,14 @@
 package soap_interface;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.xml.soap.SOAPException;
 
 import ack.DcfAck;
 import ack.DcfAckDetailedResId;
 import config.Environment;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 /**
@@ -33,4 +36,23 @@ public interface IGetAck {
 	 */
 	public DcfAckDetailedResId getAckDetailedResId(Environment env, IDcfUser user, String detailedResId)
 			throws DetailedSOAPException;
+
+	/**
+	 * Asynchronous version of {@link #getAck(Environment, IDcfUser, String)}
+	 * 
+	 * @return
+	 */
+	public default CompletableFuture<DcfAck> getAckAsync(Environment env, IDcfUser user, String messageId) {
+		return SOAPExecutors.supplyAsync(() -> getAck(env, user, messageId));
+	}
+
+	/**
+	 * Asynchronous version of {@link #getAckDetailedResId(Environment, IDcfUser, String)}
+	 * 
+	 * @return
+	 */
+	public default CompletableFuture<DcfAckDetailedResId> getAckDetailedResIdAsync(Environment env,
+			IDcfUser user, String detailedResId) {
+		return SOAPExecutors.supplyAsync(() -> getAckDetailedResId(env, user, detailedResId));
+	}
 }
@@ -1,10 +1,13 @@
 package soap_interface;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.xml.soap.SOAPException;
 
 import ack.DcfAckDetailedResId;
 import config.Environment;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 /**
@@ -20,4 +23,13 @@ public interface IGetAckDetailedResId {
 	 * @throws SOAPException
 	 */
 	public DcfAckDetailedResId getAckDetailedResId(Environment env, IDcfUser user, String messageId) throws DetailedSOAPException;
+	
+	/**
+	 * Asynchronous version of {@link #getAckDetailedResId(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<DcfAckDetailedResId> getAckDetailedResIdAsync(Environment env, IDcfUser user, 
+			String messageId) {
+		return SOAPExecutors.supplyAsync(() -> getAckDetailedResId(env, user, messageId));
+	}
 }
@@ -1,11 +1,13 @@
 package soap_interface;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import javax.xml.soap.SOAPException;
 
 import config.Environment;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 /**
@@ -21,4 +23,12 @@ public interface IGetDataset {
 	 * @throws SOAPException
 	 */
 	public File getDatasetFile(Environment env, IDcfUser user, String datasetId) throws DetailedSOAPException;
+	
+	/**
+	 * Asynchronous version of {@link #getDatasetFile(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<File> getDatasetFileAsync(Environment env, IDcfUser user, String datasetId) {
+		return SOAPExecutors.supplyAsync(() -> getDatasetFile(env, user, datasetId));
+	}
 }
@@ -1,9 +1,12 @@
 package soap_interface;
 
+import java.util.concurrent.CompletableFuture;
+
 import config.Environment;
 import dataset.IDcfDataset;
 import dataset.IDcfDatasetsList;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 /**
@@ -20,4 +23,13 @@ public interface IGetDatasetsList<T extends IDcfDataset> {
 	 */
 	public IDcfDatasetsList<T> getList(Environment env, IDcfUser user, String dcCode, 
 			IDcfDatasetsList<T> output) throws DetailedSOAPException;
+	
+	/**
+	 * Asynchronous version of {@link #getList(Environment, IDcfUser, String, IDcfDatasetsList)}
+	 * @return
+	 */
+	public default CompletableFuture<IDcfDatasetsList<T>> getListAsync(Environment env, IDcfUser user, 
+			String dcCode, IDcfDatasetsList<T> output) {
+		return SOAPExecutors.supplyAsync(() -> getList(env, user, dcCode, output));
+	}
 }
@@ -2,10 +2,12 @@ package soap_interface;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import config.Environment;
 import message.MessageResponse;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 /**
@@ -21,4 +23,12 @@ public interface ISendMessage {
 	 * @throws IOException 
 	 */
 	public MessageResponse send(Environment env, IDcfUser user, File file) throws DetailedSOAPException, IOException;
+	
+	/**
+	 * Asynchronous version of {@link #send(Environment, IDcfUser, File)}
+	 * @return
+	 */
+	public default CompletableFuture<MessageResponse> sendAsync(Environment env, IDcfUser user, File file) {
+		return SOAPExecutors.supplyAsync(() -> send(env, user, file));
+	}
 }
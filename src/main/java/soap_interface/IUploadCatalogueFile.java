@@ -1,9 +1,20 @@
 package soap_interface;
 
+import java.util.concurrent.CompletableFuture;
+
 import config.Environment;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import user.IDcfUser;
 
 public interface IUploadCatalogueFile {
 	public String send(Environment env, IDcfUser user, String attachment) throws DetailedSOAPException;
+	
+	/**
+	 * Asynchronous version of {@link #send(Environment, IDcfUser, String)}
+	 * @return
+	 */
+	public default CompletableFuture<String> sendAsync(Environment env, IDcfUser user, String attachment) {
+		return SOAPExecutors.supplyAsync(() -> send(env, user, attachment));
+	}
 }
@@ -2,10 +2,12 @@ package soap_interface;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import config.Environment;
 import pending_request.IPendingRequest;
 import soap.DetailedSOAPException;
+import soap.SOAPExecutors;
 import soap.UploadCatalogueFileAction;
 import soap.UploadCatalogueFileImpl.PublishLevel;
 import soap.UploadCatalogueFileImpl.ReserveLevel;
@@ -26,6 +28,43 @@ public interface IUploadCatalogueFileImpl {
 			String attachment, String uploadCatalogueFileType, Map<String, String> requestData)
 			throws DetailedSOAPException, IOException;
 	
+	/**
+	 * Asynchronous version of {@link #reserve(IDcfUser, Environment, ReserveLevel, String, String)}
+	 * @return
+	 */
+	public default CompletableFuture<IPendingRequest> reserveAsync(IDcfUser user, Environment env, 
+			ReserveLevel level, String catalogueCode, String description) {
+		return SOAPExecutors.supplyAsync(() -> reserve(user, env, level, catalogueCode, description));
+	}
+	
+	/**
+	 * Asynchronous version of {@link #unreserve(IDcfUser, Environment, String, String)}
+	 * @return
+	 */
+	public default CompletableFuture<IPendingRequest> unreserveAsync(IDcfUser user, Environment env, 
+			String catalogueCode, String description) {
+		return SOAPExecutors.supplyAsync(() -> unreserve(user, env, catalogueCode, description));
+	}
+	
+	/**
+	 * Asynchronous version of {@link #publish(IDcfUser, Environment, PublishLevel, String)}
+	 * @return
+	 */
+	public default CompletableFuture<IPendingRequest> publishAsync(IDcfUser user, Environment env, 
+			PublishLevel level, String catalogueCode) {
+		return SOAPExecutors.supplyAsync(() -> publish(user, env, level, catalogueCode));
+	}
+	
+	/**
+	 * Asynchronous version of {@link #uploadCatalogueFile(IDcfUser, Environment, String, String, Map)}
+	 * @return
+	 */
+	public default CompletableFuture<IPendingRequest> uploadCatalogueFileAsync(IDcfUser user, Environment env, 
+			String attachment, String uploadCatalogueFileType, Map<String, String> requestData) {
+		return SOAPExecutors.supplyAsync(() -> uploadCatalogueFile(user, env, attachment, uploadCatalogueFileType, 
+				requestData));
+	}
+	
 	/**
 	 * Convert publish level to upload catalogue file action
 	 * @param level
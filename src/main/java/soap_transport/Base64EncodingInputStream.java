@@ -0,0 +1,116 @@
+package soap_transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+
+/**
+ * Stream which encodes in base64 the content of another stream while it
+ * is read, using a fixed size buffer
+ */
+class Base64EncodingInputStream extends InputStream {
+
+	// multiple of 3, so that no padding is added before the end
+	private static final int CHUNK_SIZE = 3 * 4096;
+
+	private final InputStream input;
+	private final Base64.Encoder encoder;
+	private final byte[] chunk;
+	private final byte[] encoded;
+	private int encodedLength;
+	private int position;
+	private boolean finished;
+
+	/**
+	 * @param input the stream to encode
+	 */
+	Base64EncodingInputStream(InputStream input) {
+		this.input = input;
+		this.encoder = Base64.getEncoder();
+		this.chunk = new byte[CHUNK_SIZE];
+		this.encoded = new byte[CHUNK_SIZE / 3 * 4];
+	}
+
+	/**
+	 * Get the length of the encoded content
+	 * @param length length of the content to encode
+	 * @return
+	 */
+	static long getEncodedLength(long length) {
+		return (length + 2) / 3 * 4;
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if (!fill())
+			return -1;
+
+		return this.encoded[this.position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (len == 0)
+			return 0;
+
+		if (!fill())
+			return -1;
+
+		int count = Math.min(len, this.encodedLength - this.position);
+		System.arraycopy(this.encoded, this.position, b, off, count);
+		this.position += count;
+
+		return count;
+	}
+
+	/**
+	 * Encode the next chunk if the current one was read
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+
+		if (this.position < this.encodedLength)
+			return true;
+
+		if (this.finished)
+			return false;
+
+		// read a full chunk, since only the last one can be padded
+		int length = 0;
+		while (length < this.chunk.length) {
+
+			int read = this.input.read(this.chunk, length, this.chunk.length - length);
+
+			if (read == -1) {
+				this.finished = true;
+				break;
+			}
+
+			length += read;
+		}
+
+		if (length == 0)
+			return false;
+
+		if (length == this.chunk.length) {
+			this.encodedLength = this.encoder.encode(this.chunk, this.encoded);
+		}
+		else {
+			byte[] last = new byte[length];
+			System.arraycopy(this.chunk, 0, last, 0, length);
+			this.encodedLength = this.encoder.encode(last, this.encoded);
+		}
+
+		this.position = 0;
+
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+}
@@ -0,0 +1,27 @@
+package soap_transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.soap.SOAPException;
+
+/**
+ * Receives the body of a soap response while it is read from the
+ * connection, without building the SAAJ message
+ * @param <T> the result of the processing
+ */
+@FunctionalInterface
+public interface ISOAPResponseHandler<T> {
+
+	/**
+	 * Process the response. The stream is closed by the transport when
+	 * the method returns, therefore it must not be kept.
+	 * @param contentType content type of the response (as text/xml or
+	 * multipart/related with the boundary of the parts)
+	 * @param body the body of the response
+	 * @return the result of the processing
+	 * @throws SOAPException
+	 * @throws IOException
+	 */
+	public T handle(String contentType, InputStream body) throws SOAPException, IOException;
+}
@@ -0,0 +1,77 @@
+package soap_transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import config.Environment;
+import soap.SOAPRequest;
+import user.IDcfUser;
+
+/**
+ * Transport layer used by {@link SOAPRequest} to deliver a soap message
+ * to the DCF and to retrieve its response.
+ */
+public interface ISOAPTransport extends AutoCloseable {
+
+	/**
+	 * Send the request to the url and wait for the response
+	 *
+	 * @param env     environment of the request (production/test)
+	 * @param user    user who is making the request, its credentials are used
+	 *                for this request only
+	 * @param request the soap message to be sent
+	 * @param url     the endpoint of the web service
+	 * @return the soap response, null if the server sent an empty body
+	 * @throws SOAPException if the message could not be delivered or the server
+	 *                       replied with an error status
+	 */
+	public SOAPMessage call(Environment env, IDcfUser user, SOAPMessage request, String url) throws SOAPException;
+
+	/**
+	 * Send the request to the url and process the response while it is read
+	 * from the connection. By default the response is read with
+	 * {@link #call(Environment, IDcfUser, SOAPMessage, String)} and then passed
+	 * to the handler, transports should override it to avoid buffering the
+	 * response.
+	 *
+	 * @param env     environment of the request (production/test)
+	 * @param user    user who is making the request
+	 * @param request the soap message to be sent
+	 * @param url     the endpoint of the web service
+	 * @param handler processes the body of the response
+	 * @return the result of the handler
+	 * @throws SOAPException if the message could not be delivered, the server
+	 *                       replied with an error status or the handler failed
+	 */
+	public default <T> T call(Environment env, IDcfUser user, SOAPMessage request, String url,
+			ISOAPResponseHandler<T> handler) throws SOAPException {
+
+		SOAPMessage response = call(env, user, request, url);
+
+		if (response == null)
+			return null;
+
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			response.writeTo(body);
+
+			String[] contentType = response.getMimeHeaders().getHeader("Content-Type");
+
+			return handler.handle(contentType == null ? "text/xml" : contentType[0],
+					new ByteArrayInputStream(body.toByteArray()));
+
+		} catch (IOException e) {
+			throw new SOAPException("Cannot read the response", e);
+		}
+	}
+
+	/**
+	 * Release all the resources held by the transport (as open connections)
+	 */
+	@Override
+	public void close();
+}
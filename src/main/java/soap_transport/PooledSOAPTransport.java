@@ -0,0 +1,606 @@
+package soap_transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpHeaders;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.TargetAuthenticationStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import config.Environment;
+import http.HttpManager;
+import proxy.ProxyConfigException;
+import user.IDcfUser;
+
+/**
+ * Transport which keeps a bounded pool of persistent http(s) connections
+ * for each DCF host, in order to avoid paying the TCP and TLS setup
+ * on every web service call.
+ */
+public class PooledSOAPTransport implements ISOAPTransport {
+
+	private static final Logger LOGGER = LogManager.getLogger(PooledSOAPTransport.class);
+	private static final String ENVIRONMENT_ATTRIBUTE = "dcf.environment";
+	private static final String CHALLENGED_ATTRIBUTE = "dcf.challenged";
+
+	private PooledTransportConfig config;
+	private PoolingHttpClientConnectionManager connectionManager;
+	private CloseableHttpClient client;
+	private MessageFactory messageFactory;
+	private AtomicLong connectionsOpened;
+	private AtomicLong challengesReceived;
+	private AtomicLong challengesAvoided;
+
+	/**
+	 * Create a transport with the default configuration
+	 */
+	public PooledSOAPTransport() {
+		this(new PooledTransportConfig());
+	}
+
+	/**
+	 * Create a transport with a custom pool configuration
+	 * @param config
+	 */
+	public PooledSOAPTransport(PooledTransportConfig config) {
+
+		this.config = config;
+		this.connectionsOpened = new AtomicLong();
+		this.challengesReceived = new AtomicLong();
+		this.challengesAvoided = new AtomicLong();
+
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", new CountingSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+				.register("https", new CountingSocketFactory(createSSLSocketFactory(config.getTlsConfig())))
+				.build();
+
+		this.connectionManager = new PoolingHttpClientConnectionManager(registry, null, null, null,
+				config.getTimeToLive(), TimeUnit.MILLISECONDS);
+
+		this.connectionManager.setMaxTotal(config.getMaxTotal());
+		this.connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+		this.connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(config.getConnectTimeout())
+				.setConnectionRequestTimeout(config.getLeaseTimeout())
+				.setSocketTimeout(config.getReadTimeout())
+				.build();
+
+		this.client = HttpClients.custom()
+				.setConnectionManager(this.connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.evictExpiredConnections()
+				.evictIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS)
+				.setTargetAuthenticationStrategy(new CountingAuthenticationStrategy())
+				.build();
+
+		try {
+			this.messageFactory = MessageFactory.newInstance();
+		} catch (SOAPException e) {
+			LOGGER.error("Cannot create the soap message factory", e);
+			throw new IllegalStateException(e);
+		}
+
+		LOGGER.info("Pooled soap transport created with " + config);
+	}
+
+	/**
+	 * Get the socket factory used for the https connections. The ssl contexts
+	 * are created only once, in order to share the tls session cache between
+	 * all the connections of the transport.
+	 * @return
+	 */
+	private static LayeredConnectionSocketFactory createSSLSocketFactory(TlsConfig tlsConfig) {
+
+		Map<Environment, SSLConnectionSocketFactory> factories = new EnumMap<>(Environment.class);
+
+		for (Environment env : Environment.values()) {
+			try {
+				SSLContext sslContext = tlsConfig.createSSLContext(env);
+				factories.put(env, new SSLConnectionSocketFactory(sslContext,
+						SSLConnectionSocketFactory.getDefaultHostnameVerifier()));
+			} catch (NoSuchAlgorithmException | KeyManagementException e) {
+				LOGGER.error("Cannot initialise the ssl context for env=" + env + ", using the default one", e);
+				factories.put(env, SSLConnectionSocketFactory.getSocketFactory());
+			}
+		}
+
+		return new EnvironmentSSLSocketFactory(factories);
+	}
+
+	@Override
+	public SOAPMessage call(Environment env, IDcfUser user, SOAPMessage request, String url) throws SOAPException {
+		return execute(env, user, request, url, response -> readResponse(response));
+	}
+
+	@Override
+	public <T> T call(Environment env, IDcfUser user, SOAPMessage request, String url,
+			ISOAPResponseHandler<T> handler) throws SOAPException {
+
+		return execute(env, user, request, url, response -> {
+
+			HttpEntity entity = checkStatus(response);
+
+			if (entity == null)
+				return null;
+
+			Header contentType = entity.getContentType();
+
+			// the handler reads the body directly from the connection
+			T result = handler.handle(contentType == null ? "text/xml" : contentType.getValue(), entity.getContent());
+
+			// read what is left, so that the connection can be reused
+			EntityUtils.consume(entity);
+
+			return result;
+		});
+	}
+
+	/**
+	 * Send the request and read the response
+	 * @param env
+	 * @param user
+	 * @param request
+	 * @param url
+	 * @param reader reads the response, before the connection goes back to the pool
+	 * @return
+	 * @throws SOAPException
+	 */
+	private <T> T execute(Environment env, IDcfUser user, SOAPMessage request, String url,
+			ResponseReader<T> reader) throws SOAPException {
+
+		HttpPost post = new HttpPost(url);
+
+		// use the proxy if present
+		post.setConfig(getRequestConfig());
+
+		// copy the headers of the soap message
+		Iterator<?> headers = request.getMimeHeaders().getAllHeaders();
+		while (headers.hasNext()) {
+			MimeHeader header = (MimeHeader) headers.next();
+			if (!header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH))
+				post.addHeader(header.getName(), header.getValue());
+		}
+
+		if (!post.containsHeader("SOAPAction"))
+			post.addHeader("SOAPAction", "\"\"");
+
+		try {
+
+			post.setEntity(createEntity(request));
+
+			HttpClientContext context = HttpClientContext.create();
+			context.setAttribute(ENVIRONMENT_ATTRIBUTE, env);
+
+			// connections opened with a trust policy are not reused by the other environment
+			context.setUserToken(env);
+
+			// credentials are bound to this request only
+			context.setCredentialsProvider(getCredentialsProvider(user));
+
+			// send the credentials with the first attempt, without waiting for the challenge
+			boolean preemptive = this.config.isPreemptiveAuth() && hasCredentials(user);
+			if (preemptive) {
+				AuthCache authCache = new BasicAuthCache();
+				authCache.put(URIUtils.extractHost(post.getURI()), new BasicScheme());
+				context.setAuthCache(authCache);
+			}
+
+			// the connection goes back to the pool when the response is closed
+			try (CloseableHttpResponse response = this.client.execute(post, context)) {
+
+				if (preemptive && context.getAttribute(CHALLENGED_ATTRIBUTE) == null)
+					this.challengesAvoided.incrementAndGet();
+
+				return reader.read(response);
+			}
+
+		} catch (IOException e) {
+			LOGGER.error("Cannot send the soap message to=" + url, e);
+			throw new SOAPException("Message send failed", e);
+		}
+	}
+
+	/**
+	 * Create the body of the post. The messages with a streamed content are
+	 * written directly into the connection.
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 * @throws SOAPException
+	 */
+	private static HttpEntity createEntity(SOAPMessage request) throws IOException, SOAPException {
+
+		if (request instanceof StreamingSOAPMessage)
+			return new StreamingEntity((StreamingSOAPMessage) request);
+
+		// serialise the message
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		request.writeTo(body);
+
+		return new ByteArrayEntity(body.toByteArray());
+	}
+
+	/**
+	 * Get the credentials used to answer the authentication challenges of the
+	 * DCF. Openapi users are authenticated by the subscription key contained
+	 * in the message headers, therefore no credentials are provided for them.
+	 * @param user
+	 * @return
+	 */
+	private static CredentialsProvider getCredentialsProvider(IDcfUser user) {
+
+		CredentialsProvider provider = new BasicCredentialsProvider();
+
+		if (!hasCredentials(user))
+			return provider;
+
+		provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user.getUsername(), user.getPassword()));
+
+		return provider;
+	}
+
+	/**
+	 * Check if the user should be authenticated with username and password
+	 * @param user
+	 * @return
+	 */
+	private static boolean hasCredentials(IDcfUser user) {
+		return user != null && !user.isOpeanapi() && user.getUsername() != null && user.getPassword() != null;
+	}
+
+	/**
+	 * Get the configuration of the request, including the proxy if needed
+	 * @return
+	 */
+	private RequestConfig getRequestConfig() {
+
+		RequestConfig.Builder builder = RequestConfig.custom()
+				.setConnectTimeout(this.config.getConnectTimeout())
+				.setConnectionRequestTimeout(this.config.getLeaseTimeout())
+				.setSocketTimeout(this.config.getReadTimeout());
+
+		try {
+			Proxy proxy = HttpManager.getProxy();
+
+			if (proxy != null && proxy.type() == Proxy.Type.HTTP
+					&& proxy.address() instanceof InetSocketAddress) {
+
+				InetSocketAddress address = (InetSocketAddress) proxy.address();
+				builder.setProxy(new HttpHost(address.getHostString(), address.getPort()));
+			}
+		} catch (ProxyConfigException e) {
+			LOGGER.error("ERROR OCCURRED. Proceeding without using proxy", e);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Convert the http response into a soap message
+	 * @param response
+	 * @return
+	 * @throws IOException
+	 * @throws SOAPException
+	 */
+	private SOAPMessage readResponse(CloseableHttpResponse response) throws IOException, SOAPException {
+
+		HttpEntity entity = checkStatus(response);
+
+		// read all the body, so that the connection can be reused
+		byte[] body = entity == null ? null : EntityUtils.toByteArray(entity);
+
+		if (body == null || body.length == 0)
+			return null;
+
+		MimeHeaders mimeHeaders = new MimeHeaders();
+		for (Header header : response.getAllHeaders()) {
+			mimeHeaders.addHeader(header.getName(), header.getValue());
+		}
+
+		return this.messageFactory.createMessage(mimeHeaders, new ByteArrayInputStream(body));
+	}
+
+	/**
+	 * Check the status of the response
+	 * @param response
+	 * @return the body of the response, null if empty
+	 * @throws IOException
+	 * @throws SOAPException if the status is an error
+	 */
+	private static HttpEntity checkStatus(CloseableHttpResponse response) throws IOException, SOAPException {
+
+		int status = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+
+		// 500 is used for soap faults, which are parsed as a normal message
+		if (status / 100 != 2 && status != 500) {
+
+			// the body and the headers tell why the request was refused
+			byte[] body = entity == null ? null : SOAPHttpException.readBody(entity.getContent());
+			EntityUtils.consume(entity);
+
+			Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+
+			throw new SOAPHttpException(status, response.getStatusLine().getReasonPhrase(),
+					retryAfter == null ? null : retryAfter.getValue(), body);
+		}
+
+		if (entity == null || entity.getContentLength() == 0)
+			return null;
+
+		return entity;
+	}
+
+	/**
+	 * Get the statistics of the entire pool
+	 * @return
+	 */
+	public TransportPoolStats getTotalStats() {
+		return convert(this.connectionManager.getTotalStats());
+	}
+
+	/**
+	 * Get the statistics of the pool for each host which was contacted
+	 * @return map with key the host (as https://dcf-elect.efsa.europa.eu:443)
+	 * and value its statistics
+	 */
+	public Map<String, TransportPoolStats> getRouteStats() {
+
+		Map<String, TransportPoolStats> stats = new HashMap<>();
+
+		for (HttpRoute route : this.connectionManager.getRoutes()) {
+			stats.put(route.getTargetHost().toURI(), convert(this.connectionManager.getStats(route)));
+		}
+
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * Get how many physical connections were opened since the creation
+	 * of the transport. If the pool works, this number is much lower
+	 * than the number of calls.
+	 * @return
+	 */
+	public long getConnectionsOpened() {
+		return this.connectionsOpened.get();
+	}
+
+	/**
+	 * Get how many 401 authentication challenges were received. Each one
+	 * costs an additional round trip, in which the whole message is sent again.
+	 * @return
+	 */
+	public long getChallengesReceived() {
+		return this.challengesReceived.get();
+	}
+
+	/**
+	 * Get how many challenge round trips were avoided by sending the
+	 * credentials preemptively (see {@link PooledTransportConfig#setPreemptiveAuth(boolean)})
+	 * @return
+	 */
+	public long getChallengesAvoided() {
+		return this.challengesAvoided.get();
+	}
+
+	public PooledTransportConfig getConfig() {
+		return this.config;
+	}
+
+	private static TransportPoolStats convert(PoolStats stats) {
+		return new TransportPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.client.close();
+		} catch (IOException e) {
+			LOGGER.error("Cannot close the soap transport", e);
+		}
+	}
+
+	/**
+	 * Socket factory which counts the new connections
+	 */
+	private class CountingSocketFactory implements LayeredConnectionSocketFactory {
+
+		private ConnectionSocketFactory factory;
+
+		public CountingSocketFactory(ConnectionSocketFactory factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public Socket createSocket(HttpContext context) throws IOException {
+			return this.factory.createSocket(context);
+		}
+
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+
+			Socket socket = this.factory.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress,
+					context);
+
+			long count = PooledSOAPTransport.this.connectionsOpened.incrementAndGet();
+			LOGGER.debug("New connection opened to=" + host + ", total connections opened=" + count);
+
+			return socket;
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+
+			if (!(this.factory instanceof LayeredConnectionSocketFactory))
+				throw new IOException("Tunnelling is not supported for the host=" + target);
+
+			return ((LayeredConnectionSocketFactory) this.factory).createLayeredSocket(socket, target, port, context);
+		}
+	}
+
+	/**
+	 * Authentication strategy which counts the challenges sent by the server
+	 */
+	private class CountingAuthenticationStrategy extends TargetAuthenticationStrategy {
+
+		@Override
+		public boolean isAuthenticationRequested(HttpHost authhost, HttpResponse response, HttpContext context) {
+
+			boolean requested = super.isAuthenticationRequested(authhost, response, context);
+
+			if (requested) {
+				PooledSOAPTransport.this.challengesReceived.incrementAndGet();
+				context.setAttribute(CHALLENGED_ATTRIBUTE, Boolean.TRUE);
+			}
+
+			return requested;
+		}
+	}
+
+	/**
+	 * Socket factory which uses the ssl context of the environment of the request
+	 */
+	private static class EnvironmentSSLSocketFactory implements LayeredConnectionSocketFactory {
+
+		private Map<Environment, SSLConnectionSocketFactory> factories;
+
+		public EnvironmentSSLSocketFactory(Map<Environment, SSLConnectionSocketFactory> factories) {
+			this.factories = factories;
+		}
+
+		private SSLConnectionSocketFactory getFactory(HttpContext context) {
+
+			Object env = context == null ? null : context.getAttribute(ENVIRONMENT_ATTRIBUTE);
+
+			if (env instanceof Environment)
+				return this.factories.get(env);
+
+			return this.factories.get(Environment.PRODUCTION);
+		}
+
+		@Override
+		public Socket createSocket(HttpContext context) throws IOException {
+			return getFactory(context).createSocket(context);
+		}
+
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+			return getFactory(context).connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+			return getFactory(context).createLayeredSocket(socket, target, port, context);
+		}
+	}
+
+	/**
+	 * Body of a post which writes the streamed message into the connection.
+	 * It is repeatable, since the message can be written again when the
+	 * request is retried after an authentication challenge.
+	 */
+	private static class StreamingEntity extends AbstractHttpEntity {
+
+		private StreamingSOAPMessage message;
+
+		public StreamingEntity(StreamingSOAPMessage message) {
+			this.message = message;
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;
+		}
+
+		@Override
+		public long getContentLength() {
+			return this.message.getContentLength();
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return this.message.openStream();
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			try {
+				this.message.writeTo(out);
+			} catch (SOAPException e) {
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the http response before the connection is released
+	 */
+	private interface ResponseReader<T> {
+		public T read(CloseableHttpResponse response) throws IOException, SOAPException;
+	}
+}
@@ -0,0 +1,198 @@
+package soap_transport;
+
+/**
+ * Configuration of the connection pool used by {@link PooledSOAPTransport}.
+ * Default values are tuned for the DCF traffic, that is, few hosts
+ * (dcf-elect, dcf-cms, openapi) called many times.
+ * 
+ * Each call holds a connection of its host until the response is read, so
+ * the asynchronous calls (see {@link soap.SOAPExecutors}) in flight on the
+ * same host are limited by {@link #setMaxPerRoute(int)}. The calls over the
+ * limit wait for a free connection at most {@link #setLeaseTimeout(int)}
+ * milliseconds, and then fail as a connection problem.
+ */
+public class PooledTransportConfig {
+
+	private int maxTotal;
+	private int maxPerRoute;
+	private long idleTimeout;
+	private long timeToLive;
+	private int validateAfterInactivity;
+	private int connectTimeout;
+	private int leaseTimeout;
+	private int readTimeout;
+	private TlsConfig tlsConfig;
+	private boolean preemptiveAuth;
+
+	public PooledTransportConfig() {
+		this.maxTotal = 200;
+		this.maxPerRoute = 100;
+		this.idleTimeout = 60000;  // 1 minute
+		this.timeToLive = -1;  // no limit
+		this.validateAfterInactivity = 2000;
+		this.connectTimeout = 80000;
+		this.leaseTimeout = 10000;
+		this.readTimeout = 80000;
+		this.tlsConfig = new TlsConfig();
+		this.preemptiveAuth = false;
+	}
+
+	/**
+	 * Max number of connections kept open in the pool, for all the hosts
+	 * @param maxTotal
+	 * @return
+	 */
+	public PooledTransportConfig setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+		return this;
+	}
+
+	/**
+	 * Max number of connections kept open for a single host
+	 * @param maxPerRoute
+	 * @return
+	 */
+	public PooledTransportConfig setMaxPerRoute(int maxPerRoute) {
+		this.maxPerRoute = maxPerRoute;
+		return this;
+	}
+
+	/**
+	 * Milliseconds after which an unused connection is evicted from the pool
+	 * @param idleTimeout
+	 * @return
+	 */
+	public PooledTransportConfig setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Milliseconds after which a connection is closed even if it is still used,
+	 * -1 for no limit
+	 * @param timeToLive
+	 * @return
+	 */
+	public PooledTransportConfig setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+		return this;
+	}
+
+	/**
+	 * Milliseconds of inactivity after which a pooled connection is checked
+	 * before being reused
+	 * @param validateAfterInactivity
+	 * @return
+	 */
+	public PooledTransportConfig setValidateAfterInactivity(int validateAfterInactivity) {
+		this.validateAfterInactivity = validateAfterInactivity;
+		return this;
+	}
+
+	/**
+	 * Milliseconds to wait to establish a connection
+	 * @param connectTimeout
+	 * @return
+	 */
+	public PooledTransportConfig setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+
+	/**
+	 * Milliseconds to wait for a free connection of the pool, when all the
+	 * connections of the host are used by other calls
+	 * @param leaseTimeout
+	 * @return
+	 */
+	public PooledTransportConfig setLeaseTimeout(int leaseTimeout) {
+		this.leaseTimeout = leaseTimeout;
+		return this;
+	}
+
+	/**
+	 * Milliseconds to wait for the response data
+	 * @param readTimeout
+	 * @return
+	 */
+	public PooledTransportConfig setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * Tls settings used for the https connections
+	 * @param tlsConfig
+	 * @return
+	 */
+	public PooledTransportConfig setTlsConfig(TlsConfig tlsConfig) {
+		this.tlsConfig = tlsConfig;
+		return this;
+	}
+
+	/**
+	 * Send the basic credentials of the user with the first attempt of each
+	 * request, instead of waiting for the 401 challenge of the server. This
+	 * avoids sending twice the messages (as uploads), but the credentials
+	 * are sent also to servers which do not ask for them.
+	 * @param preemptiveAuth
+	 * @return
+	 */
+	public PooledTransportConfig setPreemptiveAuth(boolean preemptiveAuth) {
+		this.preemptiveAuth = preemptiveAuth;
+		return this;
+	}
+
+	public int getMaxTotal() {
+		return this.maxTotal;
+	}
+
+	public int getMaxPerRoute() {
+		return this.maxPerRoute;
+	}
+
+	public long getIdleTimeout() {
+		return this.idleTimeout;
+	}
+
+	public long getTimeToLive() {
+		return this.timeToLive;
+	}
+
+	public int getValidateAfterInactivity() {
+		return this.validateAfterInactivity;
+	}
+
+	public int getConnectTimeout() {
+		return this.connectTimeout;
+	}
+
+	public int getLeaseTimeout() {
+		return this.leaseTimeout;
+	}
+
+	public int getReadTimeout() {
+		return this.readTimeout;
+	}
+
+	public boolean isPreemptiveAuth() {
+		return this.preemptiveAuth;
+	}
+
+	public TlsConfig getTlsConfig() {
+		return this.tlsConfig;
+	}
+
+	@Override
+	public String toString() {
+		return "maxTotal=" + this.maxTotal
+				+ "; maxPerRoute=" + this.maxPerRoute
+				+ "; idleTimeout=" + this.idleTimeout
+				+ "; timeToLive=" + this.timeToLive
+				+ "; connectTimeout=" + this.connectTimeout
+				+ "; leaseTimeout=" + this.leaseTimeout
+				+ "; readTimeout=" + this.readTimeout
+				+ "; preemptiveAuth=" + this.preemptiveAuth
+				+ "; " + this.tlsConfig;
+	}
+}
@@ -0,0 +1,190 @@
+package soap_transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import utils.XmlUtils;
+
+/**
+ * Error status received by a transport. It keeps the information needed to
+ * classify the error: the http status, the Retry-After header and the soap
+ * fault contained in the body, if any.
+ *
+ * The message starts with "Bad response: (" followed by the status, as the
+ * messages of the SAAJ connection, and then the reason phrase, if any, as
+ * "Bad response: (503 Service Unavailable)".
+ */
+public class SOAPHttpException extends SOAPException {
+
+	private static final long serialVersionUID = 1L;
+
+	// only the beginning of the body is kept, enough for a fault
+	private static final int MAX_BODY = 64 * 1024;
+
+	private final int status;
+	private final long retryAfter;
+	private final String body;
+	private final String faultCode;
+	private final String faultString;
+
+	/**
+	 * @param status http status of the response
+	 * @param reason reason phrase of the status, null if not available as
+	 * with http/2
+	 * @param retryAfter value of the Retry-After header, can be null
+	 * @param body beginning of the body of the response, can be null
+	 */
+	public SOAPHttpException(int status, String reason, String retryAfter, byte[] body) {
+
+		super("Bad response: (" + status + (reason == null || reason.isEmpty() ? "" : " " + reason) + ")");
+
+		this.status = status;
+		this.retryAfter = parseRetryAfter(retryAfter);
+		this.body = body == null ? "" : new String(body, StandardCharsets.UTF_8);
+
+		String[] fault = parseFault(body);
+		this.faultCode = fault[0];
+		this.faultString = fault[1];
+	}
+
+	/**
+	 * Read the beginning of the body of an error response
+	 * @param input the body, it is not closed
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] readBody(InputStream input) throws IOException {
+
+		if (input == null)
+			return new byte[0];
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		byte[] buffer = new byte[4096];
+		int read;
+		while (out.size() < MAX_BODY && (read = input.read(buffer, 0, Math.min(buffer.length, MAX_BODY - out.size()))) != -1) {
+			out.write(buffer, 0, read);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Get the http status of the response
+	 * @return
+	 */
+	public int getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Get how long the server asked to wait before the next request
+	 * @return milliseconds, -1 if the server did not say it
+	 */
+	public long getRetryAfter() {
+		return this.retryAfter;
+	}
+
+	/**
+	 * Get the beginning of the body of the response
+	 * @return
+	 */
+	public String getBody() {
+		return this.body;
+	}
+
+	/**
+	 * Get the code of the soap fault contained in the response, as
+	 * soap:Server
+	 * @return the code, null if the body is not a soap fault
+	 */
+	public String getFaultCode() {
+		return this.faultCode;
+	}
+
+	/**
+	 * Get the description of the soap fault contained in the response
+	 * @return the description, null if the body is not a soap fault
+	 */
+	public String getFaultString() {
+		return this.faultString;
+	}
+
+	/**
+	 * Convert the Retry-After header, which contains the seconds to wait or
+	 * the date after which the request can be repeated
+	 * @param value
+	 * @return milliseconds, -1 if not valid
+	 */
+	static long parseRetryAfter(String value) {
+
+		if (value == null || value.trim().isEmpty())
+			return -1;
+
+		String trimmed = value.trim();
+
+		try {
+			return Math.max(0, Long.parseLong(trimmed) * 1000);
+		} catch (NumberFormatException e) {
+			// not in seconds, try the date
+		}
+
+		try {
+			ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+			return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Get code and description of the soap fault, both for soap 1.1
+	 * (faultcode, faultstring) and soap 1.2 (Code/Value, Reason/Text)
+	 * @param body
+	 * @return array with code and description, null if not found
+	 */
+	private static String[] parseFault(byte[] body) {
+
+		String[] fault = new String[2];
+
+		if (body == null || body.length == 0)
+			return fault;
+
+		try {
+
+			XMLStreamReader reader = XmlUtils.getInputFactory().createXMLStreamReader(new ByteArrayInputStream(body));
+
+			boolean inFault = false;
+			while (reader.hasNext()) {
+
+				if (reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = reader.getLocalName();
+
+				if ("Fault".equals(name))
+					inFault = true;
+				else if (inFault && fault[0] == null && ("faultcode".equals(name) || "Value".equals(name)))
+					fault[0] = reader.getElementText().trim();
+				else if (inFault && fault[1] == null && ("faultstring".equals(name) || "Text".equals(name)))
+					fault[1] = reader.getElementText().trim();
+			}
+
+		} catch (XMLStreamException e) {
+			// not xml or truncated, keep what was found
+		}
+
+		return fault;
+	}
+}
@@ -0,0 +1,83 @@
+package soap_transport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Create the {@link ISOAPTransport} selected at runtime. The http/2
+ * transport is compiled only with java 11+ (see the java11 maven profile),
+ * therefore it is loaded by reflection and, if it is not available, the
+ * pooled transport is used.
+ */
+public class SOAPTransports {
+
+	private static final Logger LOGGER = LogManager.getLogger(SOAPTransports.class);
+
+	public static final String TRANSPORT_PROPERTY = "dcf.soap.transport";
+	private static final String HTTP2_TRANSPORT_CLASS = "soap_transport.Http2SOAPTransport";
+
+	private SOAPTransports() {}
+
+	/**
+	 * Create the transport set in the {@value #TRANSPORT_PROPERTY} system
+	 * property (pooled or http2), the pooled one if not set
+	 * @return
+	 */
+	public static ISOAPTransport createDefault() {
+
+		String value = System.getProperty(TRANSPORT_PROPERTY);
+
+		TransportType type = TransportType.POOLED;
+
+		if (value != null) {
+			try {
+				type = TransportType.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				LOGGER.warn("Unknown transport=" + value + ", the pooled transport will be used");
+			}
+		}
+
+		return create(type, new PooledTransportConfig());
+	}
+
+	/**
+	 * Create a transport of the required type
+	 * @param type
+	 * @param config timeouts and tls settings, the pool sizes apply only to the
+	 * pooled transport
+	 * @return the transport, the pooled one if http/2 is not supported
+	 */
+	public static ISOAPTransport create(TransportType type, PooledTransportConfig config) {
+
+		if (type == TransportType.HTTP2) {
+
+			if (isHttp2Supported()) {
+				try {
+					return (ISOAPTransport) Class.forName(HTTP2_TRANSPORT_CLASS)
+							.getConstructor(PooledTransportConfig.class).newInstance(config);
+				} catch (ReflectiveOperationException e) {
+					LOGGER.error("Cannot create the http/2 transport, the pooled transport will be used", e);
+				}
+			} else {
+				LOGGER.warn("The http/2 transport requires java 11+, the pooled transport will be used");
+			}
+		}
+
+		return new PooledSOAPTransport(config);
+	}
+
+	/**
+	 * Check if the http/2 transport can be used, that is, the runtime has
+	 * the java.net.http client and the transport was compiled
+	 * @return
+	 */
+	public static boolean isHttp2Supported() {
+		try {
+			Class.forName("java.net.http.HttpClient");
+			Class.forName(HTTP2_TRANSPORT_CLASS);
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
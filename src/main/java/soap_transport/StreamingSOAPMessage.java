@@ -0,0 +1,232 @@
+package soap_transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.xml.soap.AttachmentPart;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPBody;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.soap.SOAPPart;
+
+/**
+ * Soap message which contains a file encoded in base64, as the datasets sent
+ * to the dcf. The file is encoded while the message is written, therefore
+ * the memory used does not depend on the size of the file.
+ *
+ * The message is created from a template which contains {@link #PLACEHOLDER}
+ * as text of the element where the file should be written. All the other
+ * methods are delegated to the template, which still contains the
+ * placeholder.
+ *
+ * The message cannot contain attachments: the template is refused if it has
+ * any and {@link #addAttachmentPart(AttachmentPart)} throws an
+ * {@link UnsupportedOperationException}.
+ */
+public class StreamingSOAPMessage extends SOAPMessage {
+
+	public static final String PLACEHOLDER = "dcf-streamed-content";
+
+	private SOAPMessage template;
+	private File file;
+	private byte[] prefix;
+	private byte[] suffix;
+
+	/**
+	 * Create the message
+	 * @param template message containing the placeholder and without attachments
+	 * @param file file to encode in place of the placeholder
+	 * @throws SOAPException if the placeholder is not found
+	 */
+	public StreamingSOAPMessage(SOAPMessage template, File file) throws SOAPException {
+
+		if (template.countAttachments() > 0)
+			throw new SOAPException("Attachments are not supported by the streaming message");
+
+		this.template = template;
+		this.file = file;
+
+		if (template.saveRequired())
+			template.saveChanges();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			template.writeTo(out);
+		} catch (IOException e) {
+			throw new SOAPException("Cannot write the template of the message", e);
+		}
+
+		// split the envelope where the file should be written
+		byte[] envelope = out.toByteArray();
+		int index = indexOf(envelope, PLACEHOLDER.getBytes(StandardCharsets.US_ASCII));
+
+		if (index < 0)
+			throw new SOAPException("No placeholder found in the template of the message");
+
+		this.prefix = Arrays.copyOfRange(envelope, 0, index);
+		this.suffix = Arrays.copyOfRange(envelope, index + PLACEHOLDER.length(), envelope.length);
+	}
+
+	/**
+	 * Get the length of the written message
+	 * @return
+	 */
+	public long getContentLength() {
+		return this.prefix.length + Base64EncodingInputStream.getEncodedLength(this.file.length())
+				+ this.suffix.length;
+	}
+
+	/**
+	 * Open a new stream of the message. Can be called more than once, as
+	 * when the message is sent again after an authentication challenge.
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream openStream() throws IOException {
+
+		InputStream content = new Base64EncodingInputStream(new FileInputStream(this.file));
+
+		return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(this.prefix), content, new ByteArrayInputStream(this.suffix))));
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws SOAPException, IOException {
+
+		try (InputStream input = openStream()) {
+
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+
+	/**
+	 * Find the first occurrence of the pattern
+	 * @param data
+	 * @param pattern
+	 * @return the index of the pattern, -1 if not found
+	 */
+	private static int indexOf(byte[] data, byte[] pattern) {
+
+		for (int i = 0; i <= data.length - pattern.length; ++i) {
+
+			int j = 0;
+			while (j < pattern.length && data[i + j] == pattern[j]) {
+				j++;
+			}
+
+			if (j == pattern.length)
+				return i;
+		}
+
+		return -1;
+	}
+
+	@Override
+	public String getContentDescription() {
+		return this.template.getContentDescription();
+	}
+
+	@Override
+	public void setContentDescription(String description) {
+		this.template.setContentDescription(description);
+	}
+
+	@Override
+	public SOAPPart getSOAPPart() {
+		return this.template.getSOAPPart();
+	}
+
+	@Override
+	public SOAPBody getSOAPBody() throws SOAPException {
+		return this.template.getSOAPBody();
+	}
+
+	@Override
+	public SOAPHeader getSOAPHeader() throws SOAPException {
+		return this.template.getSOAPHeader();
+	}
+
+	@Override
+	public void removeAllAttachments() {
+		this.template.removeAllAttachments();
+	}
+
+	@Override
+	public int countAttachments() {
+		return this.template.countAttachments();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")  // raw iterator in the saaj of java 8
+	public Iterator<AttachmentPart> getAttachments() {
+		return this.template.getAttachments();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Iterator<AttachmentPart> getAttachments(MimeHeaders headers) {
+		return this.template.getAttachments(headers);
+	}
+
+	@Override
+	public void removeAttachments(MimeHeaders headers) {
+		this.template.removeAttachments(headers);
+	}
+
+	@Override
+	public AttachmentPart getAttachment(SOAPElement element) throws SOAPException {
+		return this.template.getAttachment(element);
+	}
+
+	@Override
+	public void addAttachmentPart(AttachmentPart attachmentPart) {
+		throw new UnsupportedOperationException("Attachments are not supported by the streaming message");
+	}
+
+	@Override
+	public AttachmentPart createAttachmentPart() {
+		return this.template.createAttachmentPart();
+	}
+
+	@Override
+	public MimeHeaders getMimeHeaders() {
+		return this.template.getMimeHeaders();
+	}
+
+	@Override
+	public void saveChanges() throws SOAPException {
+		// the envelope is fixed when the message is created
+	}
+
+	@Override
+	public boolean saveRequired() {
+		return false;
+	}
+
+	@Override
+	public void setProperty(String property, Object value) throws SOAPException {
+		this.template.setProperty(property, value);
+	}
+
+	@Override
+	public Object getProperty(String property) throws SOAPException {
+		return this.template.getProperty(property);
+	}
+}
@@ -0,0 +1,135 @@
+package soap_transport;
+
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import config.Environment;
+
+/**
+ * Tls settings of a transport. The trust policy can be chosen for each
+ * {@link Environment}. The ssl contexts are created once by the transport,
+ * so that all its connections share the same tls session cache and can
+ * resume the previous sessions instead of making a full handshake.
+ */
+public class TlsConfig {
+
+	private Map<Environment, TrustPolicy> trustPolicies;
+	private int sessionCacheSize;
+	private int sessionTimeout;
+
+	public TlsConfig() {
+
+		this.trustPolicies = new EnumMap<>(Environment.class);
+
+		// certificates were never checked, also in production
+		for (Environment env : Environment.values()) {
+			this.trustPolicies.put(env, TrustPolicy.TRUST_ALL);
+		}
+
+		this.sessionCacheSize = 1000;
+		this.sessionTimeout = 3600;  // 1 hour
+	}
+
+	/**
+	 * Set how the certificates are checked for the environment
+	 * @param env
+	 * @param policy
+	 * @return
+	 */
+	public TlsConfig setTrustPolicy(Environment env, TrustPolicy policy) {
+		this.trustPolicies.put(env, policy);
+		return this;
+	}
+
+	/**
+	 * Max number of tls sessions kept for resumption, 0 for no limit
+	 * @param sessionCacheSize
+	 * @return
+	 */
+	public TlsConfig setSessionCacheSize(int sessionCacheSize) {
+		this.sessionCacheSize = sessionCacheSize;
+		return this;
+	}
+
+	/**
+	 * Seconds after which a cached tls session cannot be resumed anymore,
+	 * 0 for no limit
+	 * @param sessionTimeout
+	 * @return
+	 */
+	public TlsConfig setSessionTimeout(int sessionTimeout) {
+		this.sessionTimeout = sessionTimeout;
+		return this;
+	}
+
+	public TrustPolicy getTrustPolicy(Environment env) {
+		return this.trustPolicies.get(env);
+	}
+
+	public int getSessionCacheSize() {
+		return this.sessionCacheSize;
+	}
+
+	public int getSessionTimeout() {
+		return this.sessionTimeout;
+	}
+
+	/**
+	 * Create the ssl context for the environment, following its trust policy
+	 * @param env
+	 * @return
+	 * @throws NoSuchAlgorithmException
+	 * @throws KeyManagementException
+	 */
+	public SSLContext createSSLContext(Environment env) throws NoSuchAlgorithmException, KeyManagementException {
+
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+
+		TrustManager[] trustManagers = null;  // default trust store
+		if (getTrustPolicy(env) == TrustPolicy.TRUST_ALL)
+			trustManagers = new TrustManager[] { new TrustAllCertificates() };
+
+		sslContext.init(null, trustManagers, new SecureRandom());
+
+		SSLSessionContext sessions = sslContext.getClientSessionContext();
+		sessions.setSessionCacheSize(this.sessionCacheSize);
+		sessions.setSessionTimeout(this.sessionTimeout);
+
+		return sslContext;
+	}
+
+	@Override
+	public String toString() {
+		return "trustPolicies=" + this.trustPolicies
+				+ "; sessionCacheSize=" + this.sessionCacheSize
+				+ "; sessionTimeout=" + this.sessionTimeout;
+	}
+
+	/**
+	 * Dummy class implementing X509TrustManager to trust all certificates
+	 */
+	private static class TrustAllCertificates implements X509TrustManager {
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] certs, String authType) {
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] certs, String authType) {
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+	}
+}
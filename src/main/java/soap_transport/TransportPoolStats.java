@@ -0,0 +1,59 @@
+package soap_transport;
+
+/**
+ * Snapshot of the state of a connection pool (or of a single route of it)
+ */
+public class TransportPoolStats {
+
+	private int leased;
+	private int available;
+	private int pending;
+	private int max;
+
+	public TransportPoolStats(int leased, int available, int pending, int max) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+	}
+
+	/**
+	 * Get the number of connections currently used by a request
+	 * @return
+	 */
+	public int getLeased() {
+		return this.leased;
+	}
+
+	/**
+	 * Get the number of idle connections ready to be reused
+	 * @return
+	 */
+	public int getAvailable() {
+		return this.available;
+	}
+
+	/**
+	 * Get the number of requests waiting for a free connection
+	 * @return
+	 */
+	public int getPending() {
+		return this.pending;
+	}
+
+	/**
+	 * Get the max number of connections allowed
+	 * @return
+	 */
+	public int getMax() {
+		return this.max;
+	}
+
+	@Override
+	public String toString() {
+		return "leased=" + this.leased
+				+ "; available=" + this.available
+				+ "; pending=" + this.pending
+				+ "; max=" + this.max;
+	}
+}
@@ -0,0 +1,10 @@
+package soap_transport;
+
+/**
+ * Implementations of {@link ISOAPTransport} which can be selected at runtime
+ * with {@link SOAPTransports#create(TransportType, PooledTransportConfig)}
+ */
+public enum TransportType {
+	POOLED,  // pool of persistent http/1.1 connections
+	HTTP2;  // java.net.http client with http/2 multiplexing, requires java 11+
+}
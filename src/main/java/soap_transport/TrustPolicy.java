@@ -0,0 +1,18 @@
+package soap_transport;
+
+/**
+ * How the server certificates are checked when connecting in https
+ */
+public enum TrustPolicy {
+
+	/**
+	 * Accept any server certificate (the DCF test hosts use self signed
+	 * certificates). Host names are still verified.
+	 */
+	TRUST_ALL,
+
+	/**
+	 * Validate the certificates against the default trust store of the JVM
+	 */
+	SYSTEM_DEFAULT;
+}
@@ -0,0 +1,208 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Parsers of the xml documents shared by the library. The factories are
+ * looked up and configured only once, instead of at each parse, and the
+ * document builders are reused. All of them do not load external dtds and
+ * entities and use the secure processing limits.
+ *
+ * The StAX factories are thread safe once configured and are shared by all
+ * the threads. The document builders are not, therefore they are kept in a
+ * bounded pool and each parse borrows one of them, so that the number of
+ * builders does not grow with the number of threads.
+ */
+public class XmlUtils {
+
+	private static final int MAX_IDLE_BUILDERS = Runtime.getRuntime().availableProcessors() * 2;
+
+	private static final BlockingQueue<DocumentBuilder> DOCUMENT_BUILDERS = new ArrayBlockingQueue<>(
+			MAX_IDLE_BUILDERS);
+
+	private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory(false);
+
+	private static final XMLInputFactory COALESCING_INPUT_FACTORY = createInputFactory(true);
+
+	private static final TransformerFactory TRANSFORMER_FACTORY = createTransformerFactory();
+
+	/**
+	 * Get a document builder, reset to its initial state. The builder is
+	 * taken from the pool and it is not returned to it, therefore it can be
+	 * kept by the caller.
+	 * @return
+	 * @throws ParserConfigurationException if the builder cannot be created
+	 */
+	public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+
+		DocumentBuilder builder = DOCUMENT_BUILDERS.poll();
+
+		if (builder == null)
+			return newDocumentBuilder();
+
+		return builder;
+	}
+
+	/**
+	 * Parse a document
+	 * @param input
+	 * @return
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static Document parse(InputStream input) throws ParserConfigurationException, SAXException, IOException {
+
+		DocumentBuilder builder = getDocumentBuilder();
+		try {
+			return builder.parse(input);
+		} finally {
+			release(builder);
+		}
+	}
+
+	/**
+	 * Parse a document
+	 * @param input
+	 * @return
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static Document parse(InputSource input) throws ParserConfigurationException, SAXException, IOException {
+
+		DocumentBuilder builder = getDocumentBuilder();
+		try {
+			return builder.parse(input);
+		} finally {
+			release(builder);
+		}
+	}
+
+	/**
+	 * Parse a document
+	 * @param file
+	 * @return
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static Document parse(File file) throws ParserConfigurationException, SAXException, IOException {
+
+		DocumentBuilder builder = getDocumentBuilder();
+		try {
+			return builder.parse(file);
+		} finally {
+			release(builder);
+		}
+	}
+
+	/**
+	 * Get the shared StAX factory
+	 * @return
+	 */
+	public static XMLInputFactory getInputFactory() {
+		return INPUT_FACTORY;
+	}
+
+	/**
+	 * Get the shared StAX factory which reports the adjacent text as a single
+	 * event
+	 * @return
+	 */
+	public static XMLInputFactory getCoalescingInputFactory() {
+		return COALESCING_INPUT_FACTORY;
+	}
+
+	/**
+	 * Create a new transformer with the shared factory
+	 * @return
+	 * @throws TransformerConfigurationException
+	 */
+	public static Transformer newTransformer() throws TransformerConfigurationException {
+
+		// the transformer factory is not thread safe
+		synchronized (TRANSFORMER_FACTORY) {
+			return TRANSFORMER_FACTORY.newTransformer();
+		}
+	}
+
+	/**
+	 * Get the number of document builders which are waiting in the pool
+	 * @return
+	 */
+	static int getIdleBuilders() {
+		return DOCUMENT_BUILDERS.size();
+	}
+
+	/**
+	 * Give back a builder to the pool. If the pool is full the builder is
+	 * dropped.
+	 * @param builder
+	 */
+	private static void release(DocumentBuilder builder) {
+		builder.reset();
+		DOCUMENT_BUILDERS.offer(builder);
+	}
+
+	private static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+
+		// the builder factory is not thread safe
+		synchronized (DOCUMENT_BUILDER_FACTORY) {
+			return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+		}
+	}
+
+	private static DocumentBuilderFactory createDocumentBuilderFactory() {
+
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+		try {
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+			factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+			factory.setXIncludeAware(false);
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return factory;
+	}
+
+	private static XMLInputFactory createInputFactory(boolean coalescing) {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, coalescing);
+		return factory;
+	}
+
+	private static TransformerFactory createTransformerFactory() {
+
+		TransformerFactory factory = TransformerFactory.newInstance();
+		factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+		factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+
+		return factory;
+	}
+}
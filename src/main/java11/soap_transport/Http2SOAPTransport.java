@@ -0,0 +1,385 @@
+package soap_transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import config.Environment;
+import http.HttpManager;
+import proxy.ProxyConfigException;
+import user.IDcfUser;
+
+/**
+ * Transport based on the java.net.http client (java 11+). With the https
+ * endpoints the client negotiates http/2, so many concurrent calls are
+ * multiplexed on a few connections. Servers which do not support http/2 are
+ * called with http/1.1.
+ *
+ * The client cannot answer the authentication challenges with the
+ * credentials of a single request, therefore the basic credentials of the
+ * user are always sent with the first attempt.
+ *
+ * Use {@link SOAPTransports#create(TransportType, PooledTransportConfig)}
+ * to create it, since this class is not available with java 8.
+ */
+public class Http2SOAPTransport implements ISOAPTransport {
+
+	private static final Logger LOGGER = LogManager.getLogger(Http2SOAPTransport.class);
+
+	// headers managed by the client, which cannot be set in the request
+	private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(
+			Arrays.asList("connection", "content-length", "date", "expect", "from", "host", "upgrade", "via", "warning"));
+
+	private PooledTransportConfig config;
+	private Map<Environment, HttpClient> clients;
+	private MessageFactory messageFactory;
+	private AtomicLong http2Responses;
+	private AtomicLong http11Responses;
+
+	/**
+	 * Create a transport with the default configuration
+	 */
+	public Http2SOAPTransport() {
+		this(new PooledTransportConfig());
+	}
+
+	/**
+	 * Create a transport using the timeouts and the tls settings of the
+	 * configuration. The pool sizes are not used, since the client manages
+	 * its connections by itself.
+	 * @param config
+	 */
+	public Http2SOAPTransport(PooledTransportConfig config) {
+
+		this.config = config;
+		this.http2Responses = new AtomicLong();
+		this.http11Responses = new AtomicLong();
+
+		// one client for each environment, since the trust policy can be different
+		this.clients = new EnumMap<>(Environment.class);
+		for (Environment env : Environment.values()) {
+			this.clients.put(env, createClient(env));
+		}
+
+		try {
+			this.messageFactory = MessageFactory.newInstance();
+		} catch (SOAPException e) {
+			LOGGER.error("Cannot create the soap message factory", e);
+			throw new IllegalStateException(e);
+		}
+
+		LOGGER.info("Http/2 soap transport created with " + config);
+	}
+
+	/**
+	 * Create the client used for the environment
+	 * @param env
+	 * @return
+	 */
+	private HttpClient createClient(Environment env) {
+
+		HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(Duration.ofMillis(this.config.getConnectTimeout()))
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.proxy(new DcfProxySelector());
+
+		try {
+			builder.sslContext(this.config.getTlsConfig().createSSLContext(env));
+		} catch (NoSuchAlgorithmException | KeyManagementException e) {
+			LOGGER.error("Cannot initialise the ssl context for env=" + env + ", using the default one", e);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public SOAPMessage call(Environment env, IDcfUser user, SOAPMessage request, String url) throws SOAPException {
+
+		try {
+
+			HttpResponse<byte[]> response = send(env, user, request, url, HttpResponse.BodyHandlers.ofByteArray());
+
+			return readResponse(response);
+
+		} catch (IOException e) {
+			LOGGER.error("Cannot send the soap message to=" + url, e);
+			throw new SOAPException("Message send failed", e);
+		}
+	}
+
+	@Override
+	public <T> T call(Environment env, IDcfUser user, SOAPMessage request, String url,
+			ISOAPResponseHandler<T> handler) throws SOAPException {
+
+		try {
+
+			HttpResponse<InputStream> response = send(env, user, request, url,
+					HttpResponse.BodyHandlers.ofInputStream());
+
+			// the handler reads the body while it is received
+			try (InputStream body = response.body()) {
+
+				checkStatus(response, body);
+
+				String contentType = response.headers().firstValue("Content-Type").orElse("text/xml");
+
+				return handler.handle(contentType, body);
+			}
+
+		} catch (IOException e) {
+			LOGGER.error("Cannot send the soap message to=" + url, e);
+			throw new SOAPException("Message send failed", e);
+		}
+	}
+
+	/**
+	 * Send the request with the client of the environment
+	 * @param env
+	 * @param user
+	 * @param request
+	 * @param url
+	 * @param bodyHandler
+	 * @return
+	 * @throws IOException
+	 * @throws SOAPException
+	 */
+	private <T> HttpResponse<T> send(Environment env, IDcfUser user, SOAPMessage request, String url,
+			HttpResponse.BodyHandler<T> bodyHandler) throws IOException, SOAPException {
+
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+				.timeout(Duration.ofMillis(this.config.getReadTimeout()))
+				.POST(createBodyPublisher(request));
+
+		// copy the headers of the soap message
+		boolean soapAction = false;
+		Iterator<?> headers = request.getMimeHeaders().getAllHeaders();
+		while (headers.hasNext()) {
+
+			MimeHeader header = (MimeHeader) headers.next();
+
+			if (RESTRICTED_HEADERS.contains(header.getName().toLowerCase()))
+				continue;
+
+			soapAction |= header.getName().equalsIgnoreCase("SOAPAction");
+			builder.header(header.getName(), header.getValue());
+		}
+
+		if (!soapAction)
+			builder.header("SOAPAction", "\"\"");
+
+		// credentials are bound to this request only
+		if (hasCredentials(user))
+			builder.header("Authorization", getBasicAuthorization(user));
+
+		try {
+
+			HttpResponse<T> response = this.clients.get(env).send(builder.build(), bodyHandler);
+
+			if (response.version() == HttpClient.Version.HTTP_2)
+				this.http2Responses.incrementAndGet();
+			else
+				this.http11Responses.incrementAndGet();
+
+			return response;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SOAPException("Message send failed", e);
+		}
+	}
+
+	/**
+	 * Create the body of the request. The messages with a streamed content
+	 * are read while they are sent.
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 * @throws SOAPException
+	 */
+	private static HttpRequest.BodyPublisher createBodyPublisher(SOAPMessage request)
+			throws IOException, SOAPException {
+
+		if (request instanceof StreamingSOAPMessage) {
+
+			StreamingSOAPMessage message = (StreamingSOAPMessage) request;
+
+			// a new stream for each attempt of the client
+			HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+				try {
+					return message.openStream();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+
+			return HttpRequest.BodyPublishers.fromPublisher(stream, message.getContentLength());
+		}
+
+		// serialise the message
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		request.writeTo(body);
+
+		return HttpRequest.BodyPublishers.ofByteArray(body.toByteArray());
+	}
+
+	/**
+	 * Check if the user should be authenticated with username and password.
+	 * Openapi users are authenticated by the subscription key contained in
+	 * the message headers.
+	 * @param user
+	 * @return
+	 */
+	private static boolean hasCredentials(IDcfUser user) {
+		return user != null && !user.isOpeanapi() && user.getUsername() != null && user.getPassword() != null;
+	}
+
+	/**
+	 * Get the value of the basic authorization header for the user
+	 * @param user
+	 * @return
+	 */
+	private static String getBasicAuthorization(IDcfUser user) {
+		String credentials = user.getUsername() + ":" + user.getPassword();
+		return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Convert the http response into a soap message
+	 * @param response
+	 * @return
+	 * @throws IOException
+	 * @throws SOAPException
+	 */
+	private SOAPMessage readResponse(HttpResponse<byte[]> response) throws IOException, SOAPException {
+
+		byte[] body = response.body();
+
+		checkStatus(response, body == null ? null : new ByteArrayInputStream(body));
+
+		if (body == null || body.length == 0)
+			return null;
+
+		MimeHeaders mimeHeaders = new MimeHeaders();
+		for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+			for (String value : header.getValue()) {
+				mimeHeaders.addHeader(header.getKey(), value);
+			}
+		}
+
+		return this.messageFactory.createMessage(mimeHeaders, new ByteArrayInputStream(body));
+	}
+
+	/**
+	 * Check the status of the response
+	 * @param response
+	 * @param body the body of the response, read only if the status is an error
+	 * @throws IOException
+	 * @throws SOAPException if the status is an error
+	 */
+	private static void checkStatus(HttpResponse<?> response, InputStream body) throws IOException, SOAPException {
+
+		int status = response.statusCode();
+
+		// 500 is used for soap faults, which are parsed as a normal message
+		if (status / 100 != 2 && status != 500) {
+			// http/2 has no reason phrase
+			throw new SOAPHttpException(status, null, response.headers().firstValue("Retry-After").orElse(null),
+					SOAPHttpException.readBody(body));
+		}
+	}
+
+	/**
+	 * Get the number of responses received with http/2
+	 * @return
+	 */
+	public long getHttp2Responses() {
+		return this.http2Responses.get();
+	}
+
+	/**
+	 * Get the number of responses received with http/1.1, since the server
+	 * does not support http/2
+	 * @return
+	 */
+	public long getHttp11Responses() {
+		return this.http11Responses.get();
+	}
+
+	@Override
+	public void close() {
+
+		// the client can be closed only from java 21
+		for (HttpClient client : this.clients.values()) {
+			if (client instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) client).close();
+				} catch (Exception e) {
+					LOGGER.error("Cannot close the http client", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Use the proxy of the {@link HttpManager}, read for each request since
+	 * it can be changed by the user
+	 */
+	private static class DcfProxySelector extends ProxySelector {
+
+		@Override
+		public List<Proxy> select(URI uri) {
+
+			try {
+				Proxy proxy = HttpManager.getProxy();
+
+				if (proxy != null && proxy.type() == Proxy.Type.HTTP && proxy.address() instanceof InetSocketAddress)
+					return Collections.singletonList(proxy);
+
+			} catch (ProxyConfigException e) {
+				LOGGER.error("ERROR OCCURRED. Proceeding without using proxy", e);
+			}
+
+			return Collections.singletonList(Proxy.NO_PROXY);
+		}
+
+		@Override
+		public void connectFailed(URI uri, SocketAddress address, IOException e) {
+			LOGGER.error("Cannot connect to the proxy=" + address, e);
+		}
+	}
+}
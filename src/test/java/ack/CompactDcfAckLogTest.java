@@ -0,0 +1,113 @@
+package ack;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import dataset.DcfDatasetStatus;
+import soap.SOAPRequest;
+
+/**
+ * Tests that the compact ack log reads the same fields of the dom one
+ */
+public class CompactDcfAckLogTest {
+
+	private static final String ACK = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<messageAck>\n"
+			+ "  <messageInfo><messageId>12345</messageId><dcCode>TEST_DC</dcCode></messageInfo>\n"
+			+ "  <messageValResCode>DELIVERED</messageValResCode>\n"
+			+ "  <messageValResText>The message was <b>delivered</b></messageValResText>\n"
+			+ "  <detailedAckResId>678</detailedAckResId>\n"
+			+ "  <operationAck>\n"
+			+ "    <opResCode>KO</opResCode>\n"
+			+ "    <opResLog>Account not authorized for the Data Collection</opResLog>\n"
+			+ "    <opResLog><![CDATA[Generic error & more]]></opResLog>\n"
+			+ "  </operationAck>\n"
+			+ "  <datasetInfo><datasetId>999</datasetId><datasetStatus>VALID</datasetStatus></datasetInfo>\n"
+			+ "  <datasetInfo><datasetId>1000</datasetId></datasetInfo>\n"
+			+ "</messageAck>";
+
+	@Test
+	public void sameFieldsOfTheDomLog() throws Exception {
+
+		DcfAckLog dom = new DcfAckLog(SOAPRequest.getDocument(toStream(ACK)));
+		CompactDcfAckLog compact = new CompactDcfAckLog(toStream(ACK));
+
+		assertEquals(dom.getDCCode(), compact.getDCCode());
+		assertEquals(dom.getMessageValResCode(), compact.getMessageValResCode());
+		assertEquals(dom.getMessageValResText(), compact.getMessageValResText());
+		assertEquals(dom.getDetailedAckResId(), compact.getDetailedAckResId());
+		assertEquals(dom.getOpResCode(), compact.getOpResCode());
+		assertEquals(dom.isOk(), compact.isOk());
+		assertEquals(dom.getOpResLog(), compact.getOpResLog());
+		assertEquals(dom.hasErrors(), compact.hasErrors());
+		assertEquals(dom.getOpResError(), compact.getOpResError());
+		assertEquals(dom.getDatasetId(), compact.getDatasetId());
+		assertEquals(dom.getDatasetStatus(), compact.getDatasetStatus());
+		assertEquals(dom.toString(), compact.toString());
+
+		assertEquals("999", compact.getDatasetId());
+		assertEquals(DcfDatasetStatus.VALID, compact.getDatasetStatus());
+		assertEquals(OpResError.OTHER, compact.getOpResError());
+		assertEquals(2, compact.getOpResLogCount());
+	}
+
+	@Test
+	public void opResLogIsIterated() throws IOException {
+
+		CompactDcfAckLog log = new CompactDcfAckLog(toStream(ACK));
+
+		Iterator<String> iterator = log.opResLogIterator();
+
+		assertEquals("Account not authorized for the Data Collection", iterator.next());
+		assertEquals("Generic error & more", iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void rawLogCanBeReadMoreTimes() throws IOException {
+
+		CompactDcfAckLog log = new CompactDcfAckLog(toStream(ACK));
+
+		for (int i = 0; i < 2; ++i) {
+			try (InputStream raw = log.getRawLog()) {
+				assertArrayEquals(ACK.getBytes(StandardCharsets.UTF_8), IOUtils.toByteArray(raw));
+			}
+		}
+	}
+
+	@Test
+	public void okAckWithoutErrors() throws IOException {
+
+		String ack = "<messageAck><operationAck><opResCode>OK</opResCode></operationAck></messageAck>";
+
+		CompactDcfAckLog log = new CompactDcfAckLog(toStream(ack));
+
+		assertTrue(log.isOk());
+		assertFalse(log.hasErrors());
+		assertEquals(OpResError.NONE, log.getOpResError());
+		assertNull(log.getMessageValResCode());
+		assertNull(log.getDatasetStatus());
+	}
+
+	@Test
+	public void invalidAckIsRefused() {
+		assertThrows(IOException.class, () -> new CompactDcfAckLog(toStream("<messageAck><opResCode>")));
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,181 @@
+package ack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the streaming parser of the detailed acks
+ */
+public class DetailedAckParserTest {
+
+	private static final String ACK = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<messageAck>\n"
+			+ "  <operationAck><opResCode>KO</opResCode></operationAck>\n"
+			+ "  <records>\n"
+			+ "    <record>\n"
+			+ "      <recordId>1</recordId>\n"
+			+ "      <errors>\n"
+			+ "        <error><code>E1</code><field>sampCountry</field><message>Not valid</message></error>\n"
+			+ "        <error><code>E2</code><field>sampY</field><message><![CDATA[Year < 2000]]></message></error>\n"
+			+ "      </errors>\n"
+			+ "    </record>\n"
+			+ "    <record>\n"
+			+ "      <error><code>E1</code><field>sampCountry</field></error>\n"
+			+ "      <recordId>2</recordId>\n"
+			+ "    </record>\n"
+			+ "    <record><recordId>3</recordId></record>\n"
+			+ "  </records>\n"
+			+ "</messageAck>";
+
+	@Test
+	public void errorsAreNotifiedWithTheirRecord() throws IOException {
+
+		List<RecordError> errors = new ArrayList<>();
+
+		DetailedAckSummary summary = new DetailedAckParser().parse(toStream(ACK), errors::add);
+
+		assertEquals(3, errors.size());
+
+		assertEquals("1", errors.get(0).getRecordId());
+		assertEquals("E1", errors.get(0).getCode());
+		assertEquals("sampCountry", errors.get(0).getField());
+		assertEquals("Not valid", errors.get(0).getMessage());
+		assertEquals("Year < 2000", errors.get(1).getMessage());
+
+		// the id follows the error
+		assertEquals("2", errors.get(2).getRecordId());
+		assertNull(errors.get(2).getMessage());
+
+		assertEquals(3, summary.getRecordsCount());
+		assertEquals(2, summary.getRecordsWithErrorsCount());
+		assertEquals(3, summary.getErrorsCount());
+		assertEquals(Long.valueOf(2), summary.getCountsByCode().get("E1"));
+		assertEquals(Long.valueOf(1), summary.getCountsByCode().get("E2"));
+		assertEquals(Long.valueOf(2), summary.getCountsByField().get("sampCountry"));
+	}
+
+	@Test
+	public void keysAreBounded() throws IOException {
+
+		DetailedAckSummary summary = new DetailedAckParser().setMaxKeys(1).parse(toStream(ACK), null);
+
+		assertEquals(1, summary.getCountsByCode().size());
+		assertEquals(Long.valueOf(2), summary.getCountsByCode().get("E1"));
+		assertEquals(1, summary.getOtherCodesCount());
+		assertEquals(1, summary.getOtherFieldsCount());
+	}
+
+	@Test
+	public void largeAckIsAggregated() throws IOException {
+
+		int records = 200000;
+
+		DetailedAckSummary summary = new DetailedAckParser().parse(createAck(records), null);
+
+		assertEquals(records, summary.getRecordsCount());
+		assertEquals(records, summary.getErrorsCount());
+		assertEquals(100, summary.getCountsByCode().size());
+		assertEquals(Long.valueOf(records / 100), summary.getCountsByCode().get("E42"));
+	}
+
+	@Test
+	public void opResLogsAreErrorsOfTheOperation() throws IOException {
+
+		String ack = "<messageAck><messageValResCode>DELIVERED</messageValResCode>"
+				+ "<operationAck><opResCode>KO</opResCode>"
+				+ "<opResLog>Account not authorized for the Data Collection</opResLog>"
+				+ "<opResLog>Generic failure</opResLog></operationAck></messageAck>";
+
+		List<RecordError> errors = new ArrayList<>();
+
+		DetailedAckSummary summary = new DetailedAckParser().parse(toStream(ack), errors::add);
+
+		assertEquals(2, errors.size());
+		assertEquals(OpResError.USER_NOT_AUTHORIZED.name(), errors.get(0).getCode());
+		assertEquals("Generic failure", errors.get(1).getMessage());
+		assertEquals(Long.valueOf(1), summary.getCountsByCode().get(OpResError.OTHER.name()));
+	}
+
+	@Test
+	public void prefixedAndIndentedElementsAreRead() throws IOException {
+
+		String ack = "<ns:messageAck xmlns:ns=\"http://dcf-elect.efsa.europa.eu/\">"
+				+ "<ns:record><ns:recordId>\n 1 \n</ns:recordId>"
+				+ "<ns:error><ns:code>\n  E1\n</ns:code><ns:field> sampY </ns:field></ns:error></ns:record>"
+				+ "<ns:record><ns:recordId>2</ns:recordId>"
+				+ "<ns:error><ns:code>E1</ns:code><ns:field>sampY</ns:field></ns:error></ns:record>"
+				+ "</ns:messageAck>";
+
+		List<RecordError> errors = new ArrayList<>();
+
+		DetailedAckSummary summary = new DetailedAckParser().parse(toStream(ack), errors::add);
+
+		assertEquals("1", errors.get(0).getRecordId());
+		assertEquals(2, summary.getRecordsCount());
+		assertEquals(Long.valueOf(2), summary.getCountsByCode().get("E1"));
+		assertEquals(Long.valueOf(2), summary.getCountsByField().get("sampY"));
+	}
+
+	@Test
+	public void ackWithoutKnownElementsIsRefused() {
+		assertThrows(IOException.class, () -> new DetailedAckParser()
+				.parse(toStream("<messageAck><results><item>E1</item></results></messageAck>"), null));
+	}
+
+	@Test
+	public void invalidAckIsRefused() {
+		assertThrows(IOException.class,
+				() -> new DetailedAckParser().parse(toStream("<messageAck><record>"), null));
+	}
+
+	/**
+	 * Create an ack with an error for each record, generated while it is read
+	 * @param records
+	 * @return
+	 */
+	private static InputStream createAck(int records) {
+
+		Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+
+			private int index = -1;
+
+			@Override
+			public boolean hasMoreElements() {
+				return this.index <= records;
+			}
+
+			@Override
+			public InputStream nextElement() {
+
+				int current = this.index++;
+
+				if (current < 0)
+					return toStream("<messageAck><records>");
+
+				if (current == records)
+					return toStream("</records></messageAck>");
+
+				return toStream("<record><recordId>" + current + "</recordId><error><code>E" + (current % 100)
+						+ "</code><field>field" + (current % 7) + "</field><message>Not valid</message></error></record>");
+			}
+		};
+
+		return new SequenceInputStream(parts);
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,99 @@
+package ack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the light ack log reads the polled fields first and the others
+ * only when requested
+ */
+public class LightDcfAckLogTest {
+
+	private static final String ACK = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<messageAck>\n"
+			+ "  <messageInfo><messageId>12345</messageId><dcCode>TEST_DC</dcCode></messageInfo>\n"
+			+ "  <messageValResCode>DELIVERED</messageValResCode>\n"
+			+ "  <operationAck>\n"
+			+ "    <opResCode>KO</opResCode>\n"
+			+ "    <opResLog>Account not authorized for the Data Collection</opResLog>\n"
+			+ "  </operationAck>\n"
+			+ "  <datasetInfo><datasetId>999</datasetId><datasetStatus>VALID</datasetStatus></datasetInfo>\n"
+			+ "  <datasetInfo><datasetId>1000</datasetId></datasetInfo>\n"
+			+ "</messageAck>";
+
+	@Test
+	public void sameFieldsOfTheCompactLog() throws IOException {
+
+		CompactDcfAckLog compact = new CompactDcfAckLog(toStream(ACK));
+		LightDcfAckLog light = new LightDcfAckLog(toStream(ACK), () -> new CompactDcfAckLog(toStream(ACK)));
+
+		assertEquals(compact.getOpResCode(), light.getOpResCode());
+		assertEquals(compact.isOk(), light.isOk());
+		assertEquals(compact.getDatasetId(), light.getDatasetId());
+		assertEquals(compact.getDatasetStatus(), light.getDatasetStatus());
+		assertFalse(light.isFullLogLoaded());
+
+		assertEquals(compact.getDCCode(), light.getDCCode());
+		assertEquals(compact.getMessageValResCode(), light.getMessageValResCode());
+		assertEquals(compact.getOpResLog(), light.getOpResLog());
+		assertEquals(compact.getOpResError(), light.getOpResError());
+		assertEquals(compact.toString(), light.toString());
+		assertTrue(light.isFullLogLoaded());
+	}
+
+	@Test
+	public void readStopsAfterThePolledFields() throws IOException {
+
+		StringBuilder datasets = new StringBuilder();
+		for (int i = 0; i < 50000; ++i) {
+			datasets.append("<datasetInfo><datasetId>").append(i).append("</datasetId></datasetInfo>");
+		}
+
+		byte[] ack = ACK.replace("</messageAck>", datasets + "</messageAck>").getBytes(StandardCharsets.UTF_8);
+
+		// the rest of the log is never read
+		ByteArrayInputStream input = new ByteArrayInputStream(ack);
+		LightDcfAckLog log = new LightDcfAckLog(input, null);
+
+		assertEquals(OkCode.KO, log.getOpResCode());
+		assertEquals("999", log.getDatasetId());
+		assertTrue(input.available() > ack.length / 2);
+
+		// the other fields need the complete log
+		assertThrows(IllegalStateException.class, () -> log.getDCCode());
+	}
+
+	@Test
+	public void completeLogIsLoadedAgainAfterErrors() throws IOException {
+
+		AtomicInteger loads = new AtomicInteger();
+
+		LightDcfAckLog log = new LightDcfAckLog(toStream(ACK), () -> {
+			if (loads.incrementAndGet() == 1)
+				throw new IOException("Connection reset");
+			return new CompactDcfAckLog(toStream(ACK));
+		});
+
+		assertThrows(UncheckedIOException.class, () -> log.getDCCode());
+		assertFalse(log.isFullLogLoaded());
+
+		assertEquals("TEST_DC", log.getDCCode());
+		assertTrue(log.getRawLog().read() != -1);
+		assertEquals(2, loads.get());
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
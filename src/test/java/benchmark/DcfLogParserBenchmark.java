@@ -0,0 +1,110 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import dcf_log.DcfLog;
+import dcf_log.DcfLogParser;
+import dcf_log.DcfLogStreamParser;
+
+/**
+ * Compare the dom and the streaming parsers of the dcf logs on synthetic
+ * logs from 1 KB to 100 MB, made mostly of validation errors as the logs of
+ * the large catalogue uploads.
+ * Usage: DcfLogParserBenchmark [jmh options], or run with the jmh runner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DcfLogParserBenchmark {
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<transmissionResult xsi:type=\"updateCatalogueResultType\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+			+ "  <action>Web service</action>\n"
+			+ "  <transmissionDateTime>2018-01-31T12:37:07.984+01:00</transmissionDateTime>\n"
+			+ "  <processingDateTime>2018-01-31T12:37:08.257+01:00</processingDateTime>\n"
+			+ "  <uploadedFileName>catalogue.xml</uploadedFileName>\n"
+			+ "  <catalogueCode>MTX</catalogueCode>\n"
+			+ "  <catalogueVersion>12.0</catalogueVersion>\n"
+			+ "  <catalogueStatus>DRAFT MAJOR RESERVED</catalogueStatus>\n"
+			+ "  <macroOperationName>uploadCatalogueFile</macroOperationName>\n"
+			+ "  <macroOperationResult>AP</macroOperationResult>\n"
+			+ "  <macroOperationLogs>\n"
+			+ "    <operationLog>The file contains validation errors</operationLog>\n"
+			+ "  </macroOperationLogs>\n"
+			+ "  <operations>\n"
+			+ "    <operation>\n"
+			+ "      <operationName>validate</operationName>\n"
+			+ "      <operationResult>AP</operationResult>\n"
+			+ "      <operationLogs/>\n"
+			+ "    </operation>\n"
+			+ "  </operations>\n"
+			+ "  <validationErrorLogs>\n";
+
+	private static final String FOOTER = "  </validationErrorLogs>\n</transmissionResult>\n";
+
+	@Param({ "1024", "1048576", "104857600" })
+	private int size;
+
+	private byte[] log;
+
+	@Setup
+	public void createLog() {
+		this.log = createLog(this.size);
+	}
+
+	@Benchmark
+	public DcfLog dom() throws IOException {
+		return new DcfLogParser().parse(new ByteArrayInputStream(this.log));
+	}
+
+	@Benchmark
+	public DcfLog stream() throws IOException {
+		return new DcfLogStreamParser().parse(new ByteArrayInputStream(this.log));
+	}
+
+	/**
+	 * Create a log of about the size, adding validation errors
+	 * @param size bytes of the log
+	 * @return
+	 */
+	public static byte[] createLog(int size) {
+
+		StringBuilder log = new StringBuilder(size + 256);
+		log.append(HEADER);
+
+		for (int i = 0; log.length() + FOOTER.length() < size; ++i) {
+			log.append("    <validationError><code>TERM_").append(i % 100)
+				.append("</code><message>The term A0").append(i)
+				.append(" has an invalid implicit facet</message></validationError>\n");
+		}
+
+		log.append(FOOTER);
+
+		return log.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DcfLogParserBenchmark.class.getSimpleName()).build()).run();
+	}
+}
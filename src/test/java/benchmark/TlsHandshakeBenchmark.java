@@ -0,0 +1,205 @@
+package benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import javax.xml.soap.SOAPConnection;
+import javax.xml.soap.SOAPConnectionFactory;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+
+import config.Environment;
+import soap.Ping;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import soap_transport.PooledTransportConfig;
+import user.DcfUser;
+
+/**
+ * Compare the number of tls handshakes and the latency of the ping calls
+ * made against a local https stub:
+ * <ul>
+ * <li>legacy: a new ssl context and a throwaway connection before each call,
+ * as done by the old SOAPRequest.avoidCertificates</li>
+ * <li>resumed: one ssl context per transport, a new connection for each call
+ * (the tls session is resumed)</li>
+ * <li>pooled: one ssl context per transport and persistent connections</li>
+ * </ul>
+ * Usage: TlsHandshakeBenchmark [calls]
+ */
+public class TlsHandshakeBenchmark {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	public static void main(String[] args) throws Exception {
+
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		run("legacy", calls, url -> legacyPing(user, url));
+
+		PooledTransportConfig noKeepAlive = new PooledTransportConfig().setTimeToLive(1);
+		try (PooledSOAPTransport transport = new PooledSOAPTransport(noKeepAlive)) {
+			run("resumed", calls, url -> ping(transport, user, url));
+		}
+
+		try (PooledSOAPTransport transport = new PooledSOAPTransport()) {
+			run("pooled", calls, url -> ping(transport, user, url));
+		}
+	}
+
+	private static void run(String name, int calls, Call call) throws Exception {
+
+		CountingConfigurator configurator = new CountingConfigurator(SOAPStubServer.createServerSSLContext());
+
+		try (SOAPStubServer server = new SOAPStubServer(configurator)) {
+
+			// warm up the jvm, not counted
+			for (int i = 0; i < 20; ++i) {
+				call.ping(server.getUrl());
+			}
+
+			configurator.reset();
+
+			long[] latencies = new long[calls];
+			for (int i = 0; i < calls; ++i) {
+				long start = System.nanoTime();
+				call.ping(server.getUrl());
+				latencies[i] = System.nanoTime() - start;
+			}
+
+			Arrays.sort(latencies);
+
+			System.out.println(String.format(
+					"%-8s calls=%d; tls connections=%d; full handshakes=%d; p50=%.2f ms; p99=%.2f ms", name, calls,
+					configurator.getConnections(), configurator.getFullHandshakes(),
+					percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6));
+		}
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	private static void ping(PooledSOAPTransport transport, DcfUser user, String url) throws SOAPException {
+		Ping ping = new Ping();
+		ping.setTransport(transport);
+		check(ping.makeRequest(Environment.TEST, user, NAMESPACE, url));
+	}
+
+	/**
+	 * Ping as it was done before, with the pre-flight connection and the saaj
+	 * client
+	 */
+	private static void legacyPing(DcfUser user, String url) throws Exception {
+
+		SSLSocketFactory previous = HttpsURLConnection.getDefaultSSLSocketFactory();
+
+		try {
+			SSLContext sslContext = SSLContext.getInstance("SSL");
+			sslContext.init(null, new TrustManager[] { new TrustAllCertificates() }, new SecureRandom());
+			HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+
+			HttpsURLConnection httpsConnection = (HttpsURLConnection) new URL(url).openConnection();
+			httpsConnection.setHostnameVerifier((hostname, session) -> true);
+			httpsConnection.connect();
+
+			Ping ping = new Ping();
+			SOAPConnection connection = SOAPConnectionFactory.newInstance().createConnection();
+			SOAPMessage request = ping.createRequest(user, NAMESPACE, connection);
+			SOAPMessage response = connection.call(request, url);
+			check(ping.processResponse(response));
+			connection.close();
+
+			httpsConnection.disconnect();
+		} finally {
+			HttpsURLConnection.setDefaultSSLSocketFactory(previous);
+		}
+	}
+
+	private static void check(Object pingResult) {
+		if (!Boolean.TRUE.equals(pingResult))
+			throw new IllegalStateException("Wrong ping response");
+	}
+
+	private interface Call {
+		public void ping(String url) throws Exception;
+	}
+
+	/**
+	 * Server configuration which counts the tls connections. Tls 1.2 is used
+	 * so that a resumed session keeps its id, therefore the number of session
+	 * ids is the number of full handshakes.
+	 */
+	private static class CountingConfigurator extends HttpsConfigurator {
+
+		private AtomicInteger connections;
+		private int sessionsBefore;
+
+		public CountingConfigurator(SSLContext context) {
+			super(context);
+			this.connections = new AtomicInteger();
+		}
+
+		@Override
+		public void configure(HttpsParameters params) {
+
+			this.connections.incrementAndGet();
+
+			SSLParameters sslParams = getSSLContext().getDefaultSSLParameters();
+			sslParams.setProtocols(new String[] { "TLSv1.2" });
+			params.setSSLParameters(sslParams);
+		}
+
+		private int countSessions() {
+			return Collections.list(getSSLContext().getServerSessionContext().getIds()).size();
+		}
+
+		public void reset() {
+			this.connections.set(0);
+			this.sessionsBefore = countSessions();
+		}
+
+		public int getConnections() {
+			return this.connections.get();
+		}
+
+		public int getFullHandshakes() {
+			return countSessions() - this.sessionsBefore;
+		}
+	}
+
+	private static class TrustAllCertificates implements X509TrustManager {
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] certs, String authType) {
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] certs, String authType) {
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import utils.XmlUtils;
+
+/**
+ * Compare the parse of a small document, as an ack, creating the factories
+ * at each parse and using the shared parsers of {@link XmlUtils}
+ * Usage: XmlParsersBenchmark [jmh options], or run with the jmh runner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmlParsersBenchmark {
+
+	private static final byte[] ACK = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<messageAck>\n"
+			+ "  <messageInfo><messageId>12345</messageId><dcCode>TEST_DC</dcCode></messageInfo>\n"
+			+ "  <messageValResCode>DELIVERED</messageValResCode>\n"
+			+ "  <detailedAckResId>678</detailedAckResId>\n"
+			+ "  <operationAck><opResCode>OK</opResCode></operationAck>\n"
+			+ "  <datasetInfo><datasetId>999</datasetId><datasetStatus>VALID</datasetStatus></datasetInfo>\n"
+			+ "</messageAck>").getBytes(StandardCharsets.UTF_8);
+
+	@Benchmark
+	public Document newDocumentBuilder() throws ParserConfigurationException, SAXException, IOException {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(ACK));
+	}
+
+	@Benchmark
+	public Document sharedDocumentBuilder() throws ParserConfigurationException, SAXException, IOException {
+		return XmlUtils.parse(new ByteArrayInputStream(ACK));
+	}
+
+	@Benchmark
+	public int newInputFactory() throws XMLStreamException {
+		return read(XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(ACK)));
+	}
+
+	@Benchmark
+	public int sharedInputFactory() throws XMLStreamException {
+		return read(XmlUtils.getInputFactory().createXMLStreamReader(new ByteArrayInputStream(ACK)));
+	}
+
+	/**
+	 * Read all the document
+	 * @param reader
+	 * @return number of elements
+	 * @throws XMLStreamException
+	 */
+	private static int read(XMLStreamReader reader) throws XMLStreamException {
+
+		int elements = 0;
+
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamReader.START_ELEMENT)
+				elements++;
+		}
+
+		reader.close();
+
+		return elements;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(XmlParsersBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,136 @@
+package config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the in memory configuration files
+ */
+public class ConfigFilesTest {
+
+	private Path folder;
+	private Path file;
+	private ConfigFiles files;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.folder = Files.createTempDirectory("config");
+		this.file = this.folder.resolve("env.xml");
+		this.files = new ConfigFiles();
+	}
+
+	@AfterEach
+	public void close() throws IOException {
+		this.files.close();
+		Files.deleteIfExists(this.file);
+		Files.deleteIfExists(this.folder);
+	}
+
+	@Test
+	public void fileIsReadOnce() throws IOException {
+
+		write("YES");
+
+		assertEquals("YES", getValue());
+
+		// without notification the value in memory is used
+		this.files.close();
+		write("NO");
+
+		assertEquals("YES", getValue());
+
+		this.files.reload();
+		assertEquals("NO", getValue());
+	}
+
+	@Test
+	public void changedFileIsReadAgain() throws Exception {
+
+		write("YES");
+		assertEquals("YES", getValue());
+
+		write("NO");
+		assertEquals("NO", waitFor("NO", this::getValue));
+	}
+
+	@Test
+	public void createdFileIsRead() throws Exception {
+
+		assertNull(getValue());
+
+		write("YES");
+		assertEquals("YES", waitFor("YES", this::getValue));
+
+		Files.delete(this.file);
+		assertNull(waitFor(null, this::getValue));
+	}
+
+	@Test
+	public void fileOfMissingFolderIsReadWhenCreated() throws Exception {
+
+		this.files.close();
+		this.files = new ConfigFiles(100);
+
+		Path missing = this.folder.resolve("config");
+		this.file = missing.resolve("env.xml");
+
+		try {
+			assertNull(getValue());
+
+			Files.createDirectory(missing);
+			write("YES");
+			assertEquals("YES", waitFor("YES", this::getValue));
+
+			// the folder is now watched
+			write("NO");
+			assertEquals("NO", waitFor("NO", this::getValue));
+		}
+		finally {
+			Files.deleteIfExists(this.file);
+			Files.deleteIfExists(missing);
+		}
+	}
+
+	private String getValue() {
+		return this.files.getValue(this.file.toString(), "Environment.Production");
+	}
+
+	private void write(String production) throws IOException {
+
+		Properties properties = new Properties();
+		properties.setProperty("Environment.Production", production);
+
+		try (OutputStream stream = Files.newOutputStream(this.file)) {
+			properties.storeToXML(stream, null);
+		}
+	}
+
+	/**
+	 * Wait until the value is the expected one, at most 10 seconds
+	 * @return the last value
+	 */
+	private static String waitFor(String expected, Supplier<String> value) throws InterruptedException {
+
+		long end = System.currentTimeMillis() + 10000;
+
+		String current = value.get();
+		while (!(expected == null ? current == null : expected.equals(current))
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+			current = value.get();
+		}
+
+		return current;
+	}
+}
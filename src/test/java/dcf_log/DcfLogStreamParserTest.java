@@ -0,0 +1,175 @@
+package dcf_log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the streaming parser builds the same log of the dom parser
+ */
+public class DcfLogStreamParserTest {
+
+	private static final String LOG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<transmissionResult xsi:type=\"updateCatalogueResultType\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+			+ "  <action>Web service</action>\n"
+			+ "  <transmissionDateTime>2018-01-31T12:37:07.984+01:00</transmissionDateTime>\n"
+			+ "  <processingDateTime>2018-01-31T12:37:08.257+01:00</processingDateTime>\n"
+			+ "  <uploadedFileName xsi:nil=\"true\"/>\n"
+			+ "  <catalogueCode>AMRPROG</catalogueCode>\n"
+			+ "  <catalogueVersion>1.3.2</catalogueVersion>\n"
+			+ "  <catalogueStatus>DRAFT MINOR UNRESERVED</catalogueStatus>\n"
+			+ "  <macroOperationName>updateCatalogue</macroOperationName>\n"
+			+ "  <macroOperationResult>AP</macroOperationResult>\n"
+			+ "  <macroOperationLogs>\n"
+			+ "    <operationLog>The catalogue &amp; its terms were checked</operationLog>\n"
+			+ "    <!-- comment -->\n"
+			+ "    <operationLog><![CDATA[<b>second</b>]]></operationLog>\n"
+			+ "  </macroOperationLogs>\n"
+			+ "  <operations>\n"
+			+ "    <operation>\n"
+			+ "      <operationName>addTerm</operationName>\n"
+			+ "      <operationResult>OK</operationResult>\n"
+			+ "      <operationLogs><operationLog>added</operationLog><other>x</other></operationLogs>\n"
+			+ "    </operation>\n"
+			+ "    <operation>\n"
+			+ "      <operationName>removeTerm</operationName>\n"
+			+ "      <operationResult>AP</operationResult>\n"
+			+ "      <operationLogs/>\n"
+			+ "    </operation>\n"
+			+ "  </operations>\n"
+			+ "  <validationErrorLogs>\n"
+			+ "    <validationError><code>E1</code><message>Term <term>A01</term> not valid</message></validationError>\n"
+			+ "    <validationError>\n"
+			+ "      <code>E2</code>\n"
+			+ "      <!-- note -->\n"
+			+ "    </validationError>\n"
+			+ "  </validationErrorLogs>\n"
+			+ "</transmissionResult>";
+
+	@Test
+	public void sameLogOfTheDomParser() throws IOException {
+
+		DcfLog dom = new DcfLogParser().parse(toStream(LOG));
+		DcfLog stax = new DcfLogStreamParser().parse(toStream(LOG));
+
+		assertSameLog(dom, stax);
+
+		assertEquals(2, stax.getMacroOpLogs().size());
+		assertEquals(2, stax.getLogNodes().size());
+		assertEquals(2, stax.getValidationErrors().size());
+
+		Iterator<String> macroOpLogs = stax.getMacroOpLogs().iterator();
+		assertEquals("The catalogue & its terms were checked", macroOpLogs.next());
+		assertEquals("<b>second</b>", macroOpLogs.next());
+
+		LogNode error = stax.getValidationErrors().iterator().next();
+		assertEquals("Term A01 not valid", error.getOpLogs().toArray()[1]);
+	}
+
+	@Test
+	public void sameLogOfTheDomParserForTheTestFiles() throws IOException {
+
+		for (String file : new String[] { "log.xml", "log2.xml" }) {
+
+			DcfLog dom;
+			try (InputStream input = getClass().getClassLoader().getResourceAsStream(file)) {
+				dom = new DcfLogParser().parse(input);
+			}
+
+			DcfLog stax;
+			try (InputStream input = getClass().getClassLoader().getResourceAsStream(file)) {
+				stax = new DcfLogStreamParser().parse(input);
+			}
+
+			assertSameLog(dom, stax);
+		}
+	}
+
+	@Test
+	public void resultIsParsedFirst() throws IOException {
+
+		File file = File.createTempFile("log", ".xml");
+		try {
+
+			Files.write(file.toPath(), LOG.getBytes(StandardCharsets.UTF_8));
+
+			DcfLog log = new DcfLogStreamParser().parseResult(file);
+
+			assertEquals(DcfResponse.AP, log.getMacroOpResult());
+			assertEquals("AMRPROG", log.getCatalogueCode());
+			assertEquals(2, log.getMacroOpLogs().size());
+			assertFalse(log.isDetailsLoaded());
+
+			// the operations are loaded when requested
+			assertEquals(2, log.getLogNodes().size());
+			assertTrue(log.isDetailsLoaded());
+			assertSameLog(new DcfLogParser().parse(file), log);
+
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void resultParseStopsAfterTheResult() throws IOException {
+
+		// the operations are never read
+		String truncated = LOG.substring(0, LOG.indexOf("<operations>") + 30);
+
+		File file = File.createTempFile("log", ".xml");
+		try {
+
+			Files.write(file.toPath(), truncated.getBytes(StandardCharsets.UTF_8));
+
+			DcfLog log = new DcfLogStreamParser().parseResult(file);
+			assertEquals(DcfResponse.AP, log.getMacroOpResult());
+
+			// the broken part is read only now
+			assertThrows(UncheckedIOException.class, log::getLogNodes);
+			assertFalse(log.isDetailsLoaded());
+
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void deletedLogIsNotEmpty() throws IOException {
+
+		File file = File.createTempFile("log", ".xml");
+		Files.write(file.toPath(), LOG.getBytes(StandardCharsets.UTF_8));
+
+		DcfLog log = new DcfLogStreamParser().parseResult(file);
+		file.delete();
+
+		assertEquals(DcfResponse.AP, log.getMacroOpResult());
+		assertThrows(UncheckedIOException.class, log::getValidationErrors);
+	}
+
+	@Test
+	public void invalidDocumentIsRefused() {
+		assertThrows(IOException.class,
+				() -> new DcfLogStreamParser().parse(toStream("<transmissionResult><action>")));
+	}
+
+	private static void assertSameLog(DcfLog expected, DcfLog actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getValidationErrors().toString(), actual.getValidationErrors().toString());
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
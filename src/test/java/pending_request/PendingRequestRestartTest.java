@@ -0,0 +1,113 @@
+package pending_request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import dcf_log.DcfLogParser;
+import soap.SOAPExecutors;
+import soap.SOAPRequest;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Check that a paused pending request is woken up by {@link PendingRequest#restart()},
+ * both on platform and on virtual threads
+ */
+public class PendingRequestRestartTest {
+
+	private SOAPStubServer server;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+
+		// the stub never returns the log, so the request polls the dcf
+		this.server = new SOAPStubServer();
+		SOAPRequest.setDefaultTransport(new RedirectingTransport(new PooledSOAPTransport(), this.server.getUrl()));
+
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		SOAPExecutors.setVirtualThreads(false);
+		SOAPRequest.setDefaultTransport(null);
+		this.server.close();
+	}
+
+	@Test
+	public void restartWakesThePausedRequest() throws InterruptedException {
+		restart();
+	}
+
+	@Test
+	public void restartWakesThePausedRequestOnVirtualThread() throws InterruptedException {
+		SOAPExecutors.setVirtualThreads(true);
+		restart();
+	}
+
+	private void restart() throws InterruptedException {
+
+		PendingRequest request = new PendingRequest("RESERVE", this.user, "LOG_CODE", Environment.TEST);
+
+		Thread thread = SOAPExecutors.newThread(() -> {
+			try {
+				request.start(new DcfLogParser());
+			} catch (Exception e) {
+				// the last call fails on purpose
+			}
+		}, "pending-test");
+
+		thread.start();
+
+		// first attempt done, waiting 10 seconds before the next one
+		waitUntil(request::isPaused);
+		assertEquals(1, this.server.getRequestsCount());
+
+		request.restart();
+
+		// second attempt done well before the 10 seconds
+		waitUntil(() -> this.server.getRequestsCount() == 2 && request.isPaused());
+
+		// make the next attempt fail to stop the polling
+		this.server.setStatus(404);
+		request.restart();
+
+		thread.join(5000);
+
+		assertTrue(!thread.isAlive());
+		assertEquals(3, this.server.getRequestsCount());
+	}
+
+	/**
+	 * Wait the condition for at most 5 seconds, less than the interval
+	 * between two attempts of the pending request
+	 * @param condition
+	 */
+	private static void waitUntil(Condition condition) throws InterruptedException {
+
+		long end = System.currentTimeMillis() + 5000;
+
+		while (!condition.isTrue()) {
+
+			if (System.currentTimeMillis() > end)
+				throw new AssertionError("Condition not reached in 5 seconds");
+
+			Thread.sleep(10);
+		}
+	}
+
+	private interface Condition {
+		public boolean isTrue();
+	}
+}
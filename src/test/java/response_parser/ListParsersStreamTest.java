@@ -0,0 +1,96 @@
+package response_parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import catalogue.DcfCataloguesList;
+import data_collection.DcfDataCollectionsList;
+import resource.DcfResourcesList;
+import soap.SOAPRequest;
+
+/**
+ * Tests that the list parsers read the same elements from the dom and from
+ * the stream of the cdata content
+ */
+public class ListParsersStreamTest {
+
+	// the dom parser needs the catalogues without spaces between the nodes
+	private static final String CATALOGUES = "<catalogues>\n"
+			+ "  <catalogue>"
+			+ "<catalogueDesc><code>ACTION</code><name>Action</name><label>Action &amp; more</label>"
+			+ "<scopeNote><![CDATA[<b>notes</b>]]></scopeNote><termCodeLength>5</termCodeLength><other/></catalogueDesc>"
+			+ "<catalogueVersion><version>1.0</version><validFrom>2017-01-01T10:00:00.000+01:00</validFrom>"
+			+ "<status>PUBLISHED</status></catalogueVersion>"
+			+ "</catalogue>\n"
+			+ "  <catalogue><catalogueDesc><code>YESNO</code></catalogueDesc>"
+			+ "<catalogueVersion><version>2.1</version></catalogueVersion></catalogue>\n"
+			+ "</catalogues>";
+
+	private static final String DATA_COLLECTIONS = "<dataCollections>"
+			+ "<dataCollectionMainInfo><dcCode>TEST_DC</dcCode><dcDescription>Test</dcDescription>"
+			+ "<activeFrom>2017-01-01Z</activeFrom><resourceId>RES</resourceId></dataCollectionMainInfo>"
+			+ "<dataCollectionMainInfo><dcCode>OTHER_DC</dcCode><dcCategory/></dataCollectionMainInfo>"
+			+ "</dataCollections>";
+
+	private static final String RESOURCES = "<resources>"
+			+ "<resourceReference><resourceType>TABLE</resourceType><resourceId>ID_1</resourceId></resourceReference>"
+			+ "<resourceReference><resourceId>ID_2</resourceId></resourceReference>"
+			+ "</resources>";
+
+	@Test
+	public void cataloguesAreTheSame() throws Exception {
+
+		DcfCataloguesList dom = new DcfCataloguesList();
+		new GetCataloguesListParser<>(dom).parse(getDocument(CATALOGUES));
+
+		DcfCataloguesList stream = new DcfCataloguesList();
+		new GetCataloguesListParser<>(stream).parse(getReader(CATALOGUES));
+
+		assertEquals(2, stream.size());
+		assertEquals(dom.toString(), stream.toString());
+		assertEquals("PUBLISHED", stream.get(0).getStatus());
+		assertEquals("<b>notes</b>", stream.get(0).getScopenotes());
+	}
+
+	@Test
+	public void dataCollectionsAreTheSame() throws Exception {
+
+		DcfDataCollectionsList dom = new DcfDataCollectionsList();
+		new GetDataCollectionsListParser<>(dom).parse(getDocument(DATA_COLLECTIONS));
+
+		DcfDataCollectionsList stream = new DcfDataCollectionsList();
+		new GetDataCollectionsListParser<>(stream).parse(getReader(DATA_COLLECTIONS));
+
+		assertEquals(2, stream.size());
+		assertEquals(dom.toString(), stream.toString());
+	}
+
+	@Test
+	public void resourcesAreTheSame() throws Exception {
+
+		DcfResourcesList dom = new DcfResourcesList();
+		new GetResourcesListParser<>(dom).parse(getDocument(RESOURCES));
+
+		DcfResourcesList stream = new DcfResourcesList();
+		new GetResourcesListParser<>(stream).parse(getReader(RESOURCES));
+
+		assertEquals(2, stream.size());
+		assertEquals(dom.toString(), stream.toString());
+	}
+
+	private static Document getDocument(String xml) throws Exception {
+		return SOAPRequest.getDocument(xml);
+	}
+
+	private static XMLStreamReader getReader(String xml) throws XMLStreamException {
+		return XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+	}
+}
@@ -0,0 +1,174 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Tests of the circuit breaker of the endpoints
+ */
+public class CircuitBreakerTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+	private CircuitBreaker breaker;
+	private List<String> events;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+
+		this.events = new ArrayList<>();
+		this.breaker = new CircuitBreaker().setFailureThreshold(3).setOpenDuration(300);
+		this.breaker.addListener((url, from, to) -> this.events.add(from + "->" + to));
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void circuitOpensAndCloses() throws Exception {
+
+		this.server.setStatus(503);
+
+		for (int i = 0; i < 3; ++i) {
+			assertTrue(ping() instanceof DetailedSOAPException);
+		}
+
+		assertEquals(CircuitState.OPEN, this.breaker.getState(this.server.getUrl()));
+
+		// refused without reaching the server
+		Object result = ping();
+		assertTrue(result instanceof CircuitOpenException);
+		assertTrue(((CircuitOpenException) result).isConnectionProblem());
+		assertEquals(3, this.server.getRequestsCount());
+
+		// the endpoint is back, the trial closes the circuit
+		this.server.setStatus(200);
+		Thread.sleep(350);
+
+		assertEquals(true, ping());
+		assertEquals(CircuitState.CLOSED, this.breaker.getState(this.server.getUrl()));
+
+		assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), this.events);
+
+		CircuitBreakerStats stats = this.breaker.getStats(this.server.getUrl());
+		assertEquals(3, stats.getFailures());
+		assertEquals(1, stats.getRejected());
+		assertEquals(1, stats.getOpened());
+		assertEquals(0, stats.getConsecutiveFailures());
+	}
+
+	@Test
+	public void failedTrialOpensAgain() throws Exception {
+
+		this.server.setStatus(503);
+
+		for (int i = 0; i < 3; ++i) {
+			ping();
+		}
+
+		Thread.sleep(350);
+
+		assertTrue(ping() instanceof DetailedSOAPException);
+		assertEquals(CircuitState.OPEN, this.breaker.getState(this.server.getUrl()));
+		assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), this.events);
+	}
+
+	@Test
+	public void reachableEndpointDoesNotOpen() {
+
+		this.server.setStatus(404);
+
+		for (int i = 0; i < 10; ++i) {
+			ping();
+		}
+
+		assertEquals(CircuitState.CLOSED, this.breaker.getState(this.server.getUrl()));
+		assertEquals(10, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void openCircuitIsNotRetried() throws DetailedSOAPException {
+
+		this.server.setStatus(503);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setCircuitBreaker(this.breaker);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10).setMaxAttempts(10));
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+			fail("The call should fail");
+		} catch (CircuitOpenException e) {
+			assertTrue(e.getRetryAfter() > 0 && e.getRetryAfter() <= 300);
+		}
+
+		// the retries stopped when the circuit opened
+		assertEquals(3, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void callsAreNotRefusedByDefault() {
+
+		this.server.setStatus(503);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(RetryPolicy.none());
+
+		for (int i = 0; i < 10; ++i) {
+			try {
+				ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+				fail("The call should fail");
+			} catch (DetailedSOAPException e) {
+				assertFalse(e instanceof CircuitOpenException);
+			}
+		}
+
+		assertEquals(10, this.server.getRequestsCount());
+	}
+
+	/**
+	 * Ping the stub
+	 * @return the result, or the error of the call
+	 */
+	private Object ping() {
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setCircuitBreaker(this.breaker);
+		ping.setRetryPolicy(RetryPolicy.none());
+
+		try {
+			return ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		} catch (DetailedSOAPException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import soap_transport.PooledTransportConfig;
+import user.DcfUser;
+
+/**
+ * Tests of the adaptive limit of the calls in flight
+ */
+public class ConcurrencyLimiterTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+	private static final String URL = "https://dcf-elect.efsa.europa.eu/elect2";
+
+	// requests processed together by the stub, as many can wait
+	private static final int CAPACITY = 8;
+	private static final int CLIENTS = 48;
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport(
+				new PooledTransportConfig().setMaxPerRoute(CLIENTS).setMaxTotal(CLIENTS));
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void dropsDecreaseTheLimit() throws InterruptedException {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(10).setBackoffRatio(0.5);
+
+		ConcurrencyLimiter.Permit first = limiter.acquire(URL);
+		ConcurrencyLimiter.Permit second = limiter.acquire(URL);
+		assertEquals(2, limiter.getInFlight(URL));
+
+		first.onDropped();
+		assertEquals(5, limiter.getLimit(URL));
+
+		// started with the old limit, it does not decrease it again
+		second.onDropped();
+		assertEquals(5, limiter.getLimit(URL));
+
+		limiter.acquire(URL).onDropped();
+		assertEquals(2, limiter.getLimit(URL));
+		assertEquals(0, limiter.getInFlight(URL));
+	}
+
+	@Test
+	public void limitGrowsWhenUsed() throws InterruptedException {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(2).setWindowSize(1000);
+
+		for (int round = 0; round < 20; ++round) {
+
+			List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+			int limit = Math.max(limiter.getLimit(URL), 2);
+			for (int i = 0; i < limit; ++i) {
+				permits.add(limiter.acquire(URL));
+			}
+
+			for (ConcurrencyLimiter.Permit permit : permits) {
+				permit.onSuccess();
+			}
+		}
+
+		int limit = limiter.getLimit(URL);
+		assertTrue(limit >= 8 && limit <= 22, "limit=" + limit);
+	}
+
+	@Test
+	public void limitStopsDecreasingAfterALastingLatencyStep() throws InterruptedException {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(10).setWindowSize(5);
+
+		// fast host
+		sendSequentially(limiter, 10, 2);
+
+		// the latency grows ten times and stays there
+		sendSequentially(limiter, 15, 20);
+		int limit = limiter.getLimit(URL);
+		assertTrue(limit < 10 && limit > 1, "limit=" + limit);
+
+		// the new latency is the baseline now
+		sendSequentially(limiter, 15, 20);
+		assertEquals(limit, limiter.getLimit(URL));
+	}
+
+	@Test
+	public void noLimit() throws InterruptedException {
+
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.none();
+
+		for (int i = 0; i < 1000; ++i) {
+			limiter.acquire(URL);
+		}
+
+		assertEquals(-1, limiter.getLimit(URL));
+	}
+
+	@Test
+	public void limitGrowsToTheCapacityOfTheServer() throws Exception {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(1);
+
+		int limit = simulate(limiter);
+
+		assertTrue(limit >= CAPACITY / 2 && limit <= CAPACITY * 4, "limit=" + limit);
+	}
+
+	@Test
+	public void limitShrinksToTheCapacityOfTheServer() throws Exception {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(CLIENTS);
+
+		int limit = simulate(limiter);
+
+		assertTrue(limit >= CAPACITY / 2 && limit <= CAPACITY * 4, "limit=" + limit);
+	}
+
+	@Test
+	public void throttlingShrinksTheLimit() throws DetailedSOAPException {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit(20);
+
+		this.server.setFailures(3, 429);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setConcurrencyLimiter(limiter);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+
+		int limit = limiter.getLimit(this.server.getUrl());
+		assertTrue(limit < 20, "limit=" + limit);
+	}
+
+	/**
+	 * Make calls one at a time, so that the limit is not used and cannot grow
+	 * @param limiter
+	 * @param windows number of windows of calls
+	 * @param latency milliseconds of each call
+	 * @throws InterruptedException
+	 */
+	private static void sendSequentially(ConcurrencyLimiter limiter, int windows, long latency)
+			throws InterruptedException {
+
+		for (int i = 0; i < windows * 5; ++i) {
+			ConcurrencyLimiter.Permit permit = limiter.acquire(URL);
+			Thread.sleep(latency);
+			permit.onSuccess();
+		}
+	}
+
+	/**
+	 * Send calls from many clients to a stub whose latency grows when more
+	 * than {@link #CAPACITY} requests are in flight, and which refuses the
+	 * requests over twice the capacity
+	 * @param limiter
+	 * @return the limit at the end of the simulation
+	 */
+	private int simulate(ConcurrencyLimiter limiter) throws Exception {
+
+		this.server.setDelay(50);
+		this.server.setCapacity(CAPACITY, CAPACITY);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setConcurrencyLimiter(limiter);
+		ping.setRetryPolicy(RetryPolicy.none());
+
+		long end = System.currentTimeMillis() + 6000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+
+		List<Future<?>> clients = new ArrayList<>();
+		for (int i = 0; i < CLIENTS; ++i) {
+			clients.add(executor.submit(() -> {
+				while (System.currentTimeMillis() < end) {
+					try {
+						ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+					} catch (DetailedSOAPException e) {
+						// refused, the limiter learns from it
+					}
+				}
+				return null;
+			}));
+		}
+
+		for (Future<?> client : clients) {
+			client.get();
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		return limiter.getLimit(this.server.getUrl());
+	}
+}
@@ -0,0 +1,201 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import soap_transport.SOAPHttpException;
+import user.DcfUser;
+
+/**
+ * Tests of the classification of the errors from the responses of the server
+ */
+public class DetailedSOAPExceptionTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private static final String FAULT = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><soap:Fault><faultcode>soap:Server</faultcode>"
+			+ "<faultstring>Dataset not found</faultstring></soap:Fault></soap:Body></soap:Envelope>";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void faultIsNotRetried() {
+
+		this.server.setStatus(503);
+		this.server.setResponse(FAULT);
+
+		DetailedSOAPException e = ping(new RetryPolicy().setBaseDelay(10));
+
+		assertEquals(SOAPError.SOAP_FAULT, e.getError());
+		assertEquals("soap:Server", e.getFaultCode());
+		assertEquals("Dataset not found", e.getFaultString());
+		assertFalse(e.isTransient());
+		assertEquals(1, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void serverErrorIsTransient() {
+
+		this.server.setStatus(502);
+		this.server.setResponse("<html>Bad Gateway</html>");
+
+		DetailedSOAPException e = ping(RetryPolicy.none());
+
+		assertEquals(SOAPError.SERVER_ERROR, e.getError());
+		assertEquals(502, e.getHttpStatus());
+		assertTrue(e.isTransient());
+	}
+
+	@Test
+	public void clientErrorIsNotTransient() {
+
+		this.server.setStatus(404);
+
+		DetailedSOAPException e = ping(RetryPolicy.none());
+
+		assertEquals(SOAPError.CLIENT_ERROR, e.getError());
+		assertFalse(e.isTransient());
+		assertFalse(e.isConnectionProblem());
+	}
+
+	@Test
+	public void quotaIsRecognisedFromTheBody() {
+
+		this.server.setStatus(403);
+		this.server.setResponse("Quota Exceeded");
+
+		DetailedSOAPException e = ping(new RetryPolicy().setBaseDelay(10));
+
+		assertTrue(e.isQuotaExceeded());
+
+		// the server did not say when the quota is restored
+		assertEquals(1, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void retryAfterIsRespected() throws DetailedSOAPException {
+
+		this.server.setFailures(1, 429);
+		this.server.setResponseHeader("Retry-After", "1");
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		long start = System.currentTimeMillis();
+
+		assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+
+		assertTrue(System.currentTimeMillis() - start >= 1000);
+		assertEquals(2, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void retryAfterDate() {
+
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+
+		long retryAfter = new SOAPHttpException(503, "Service Unavailable", date, null).getRetryAfter();
+
+		assertTrue(retryAfter > 25000 && retryAfter <= 30000, "retryAfter=" + retryAfter);
+		assertEquals(-1, new SOAPHttpException(503, "Service Unavailable", "soon", null).getRetryAfter());
+	}
+
+	@Test
+	public void messageContainsStatusAndReason() {
+
+		assertEquals("Bad response: (503 Service Unavailable)",
+				new SOAPHttpException(503, "Service Unavailable", null, null).getMessage());
+		assertEquals("Bad response: (503)", new SOAPHttpException(503, null, null, null).getMessage());
+		assertEquals(503, new DetailedSOAPException(new SOAPHttpException(503, null, null, null)).getHttpStatus());
+	}
+
+	@Test
+	public void refusedConnectionIsConnectionProblem() {
+
+		// nobody listens anymore on the port
+		this.server.close();
+
+		DetailedSOAPException e = ping(RetryPolicy.none());
+
+		assertTrue(e.isConnectionProblem());
+		assertEquals(-1, e.getHttpStatus());
+	}
+
+	@Test
+	public void unreadableResponseIsNotTransient() {
+
+		DetailedSOAPException parse = new DetailedSOAPException(
+				new SOAPException("Cannot parse the response", new XMLStreamException("Unexpected EOF")));
+
+		assertEquals(SOAPError.PARSE_ERROR, parse.getError());
+		assertFalse(parse.isTransient());
+		assertFalse(parse.isConnectionProblem());
+
+		DetailedSOAPException unknown = new DetailedSOAPException(new SOAPException("Unexpected response"));
+
+		assertEquals(SOAPError.UNKNOWN, unknown.getError());
+		assertFalse(unknown.isTransient());
+	}
+
+	@Test
+	public void responseInterruptedWhileParsedIsTransient() {
+
+		DetailedSOAPException e = new DetailedSOAPException(new SOAPException("Cannot parse the response",
+				new XMLStreamException(new SocketTimeoutException("Read timed out"))));
+
+		assertTrue(e.isConnectionProblem());
+		assertTrue(e.isTransient());
+	}
+
+	private DetailedSOAPException ping(RetryPolicy policy) {
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(policy);
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		} catch (DetailedSOAPException e) {
+			return e;
+		}
+
+		fail("The call should fail");
+		return null;
+	}
+}
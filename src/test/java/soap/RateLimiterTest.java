@@ -0,0 +1,153 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Tests of the client side rate limit of the calls
+ */
+public class RateLimiterTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+	private static final String URL = "https://openapi.efsa.europa.eu/api/dcf";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void burstThenRate() throws Exception {
+
+		RateLimiter limiter = new RateLimiter().setDefaultLimit(10, 2);
+		DcfUser user = openapiUser("key1");
+
+		long start = System.currentTimeMillis();
+
+		// the burst passes immediately
+		assertEquals(0, limiter.acquire(user, URL));
+		assertEquals(0, limiter.acquire(user, URL));
+
+		// then a call every 100 ms
+		limiter.acquire(user, URL);
+		limiter.acquire(user, URL);
+
+		long time = System.currentTimeMillis() - start;
+		assertTrue(time >= 190, "time=" + time);
+
+		RateLimiterStats stats = limiter.getStats(user, URL);
+		assertEquals(4, stats.getGranted());
+		assertEquals(0, stats.getWaiting());
+		assertTrue(stats.getMaxQueueDelay() >= 90);
+		assertTrue(stats.getTotalQueueDelay() >= 190);
+	}
+
+	@Test
+	public void eachSubscriptionHasItsBucket() throws Exception {
+
+		RateLimiter limiter = new RateLimiter().setDefaultLimit(1, 1).setMaxWait(0);
+
+		assertEquals(0, limiter.acquire(openapiUser("key1"), URL));
+		assertEquals(0, limiter.acquire(openapiUser("key2"), URL));
+		assertEquals(0, limiter.acquire(openapiUser("key1"), URL + "/other"));
+
+		try {
+			limiter.acquire(openapiUser("key1"), URL);
+			fail("The call should be refused");
+		} catch (RateLimitExceededException e) {
+			assertTrue(e.isTooManyRequests());
+			assertTrue(e.getRetryAfter() > 0 && e.getRetryAfter() <= 1000);
+		}
+
+		assertEquals(3, limiter.getStats().getGranted());
+		assertEquals(1, limiter.getStats().getRejected());
+	}
+
+	@Test
+	public void endpointWithoutLimit() throws Exception {
+
+		RateLimiter limiter = new RateLimiter().setDefaultLimit(1, 1).setLimit(URL, 0, 0).setMaxWait(0);
+		DcfUser user = openapiUser("key1");
+
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(0, limiter.acquire(user, URL));
+		}
+
+		assertEquals(0, limiter.getStats().getGranted());
+	}
+
+	@Test
+	public void callsWaitForTheirTurn() throws DetailedSOAPException {
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRateLimiter(new RateLimiter().setDefaultLimit(5, 1));
+
+		long start = System.currentTimeMillis();
+
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(true, ping.makeRequest(Environment.TEST, user, NAMESPACE, this.server.getUrl()));
+		}
+
+		long time = System.currentTimeMillis() - start;
+		assertTrue(time >= 390, "time=" + time);
+		assertEquals(3, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void refusedCallsDoNotReachTheServer() throws DetailedSOAPException {
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		RateLimiter limiter = new RateLimiter().setDefaultLimit(0.1, 1).setMaxWait(0);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRateLimiter(limiter);
+		ping.setRetryPolicy(RetryPolicy.none());
+
+		assertEquals(true, ping.makeRequest(Environment.TEST, user, NAMESPACE, this.server.getUrl()));
+
+		try {
+			ping.makeRequest(Environment.TEST, user, NAMESPACE, this.server.getUrl());
+			fail("The call should be refused");
+		} catch (DetailedSOAPException e) {
+			assertTrue(e.isTooManyRequests());
+		}
+
+		assertEquals(1, this.server.getRequestsCount());
+		assertEquals(1, limiter.getStats().getRejected());
+	}
+
+	private static DcfUser openapiUser(String key) {
+		DcfUser user = new DcfUser();
+		user.login("", key, true);
+		return user;
+	}
+}
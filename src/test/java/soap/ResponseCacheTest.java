@@ -0,0 +1,144 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import catalogue.DcfCataloguesList;
+import catalogue.IDcfCatalogue;
+import config.Environment;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Tests of the cache of the list responses
+ */
+public class ResponseCacheTest {
+
+	private static final String CATALOGUES_RESPONSE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><ns2:getCatalogueListResponse xmlns:ns2=\"http://ws.catalog.dc.efsa.europa.eu/\"><return>"
+			+ "<![CDATA[<catalogues><catalogue><catalogueDesc><code>ACTION</code></catalogueDesc>"
+			+ "<catalogueVersion><version>1.0</version></catalogueVersion></catalogue>"
+			+ "<catalogue><catalogueDesc><code>YESNO</code></catalogueDesc>"
+			+ "<catalogueVersion><version>1.0</version></catalogueVersion></catalogue></catalogues>]]>"
+			+ "</return></ns2:getCatalogueListResponse></soap:Body></soap:Envelope>";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+	private ResponseCache cache;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.server.setResponse(CATALOGUES_RESPONSE);
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+		this.cache = new ResponseCache().setExecutor(Runnable::run);
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void listIsServedFromTheCache() throws DetailedSOAPException {
+
+		DcfCataloguesList first = getCatalogues();
+		DcfCataloguesList second = getCatalogues();
+
+		assertEquals(2, first.size());
+		assertEquals(2, second.size());
+		assertEquals("ACTION", second.get(0).getCode());
+		assertEquals(1, this.server.getRequestsCount());
+		assertEquals(1, this.cache.getHits());
+		assertEquals(1, this.cache.getMisses());
+
+		// the cached elements do not change with the list of the caller
+		first.clear();
+		assertEquals(2, getCatalogues().size());
+	}
+
+	@Test
+	public void staleListIsRefreshed() throws Exception {
+
+		this.cache.setTtl("GetCataloguesList", 100).setStaleWhileRevalidate(10000);
+
+		getCatalogues();
+		Thread.sleep(150);
+
+		// stale response served, refreshed in background
+		assertEquals(2, getCatalogues().size());
+		assertEquals(2, this.server.getRequestsCount());
+		assertEquals(1, this.cache.getStaleHits());
+		assertEquals(1, this.cache.getRefreshes());
+
+		// the refreshed response is fresh
+		getCatalogues();
+		assertEquals(2, this.server.getRequestsCount());
+		assertEquals(1, this.cache.getHits());
+	}
+
+	@Test
+	public void expiredListIsRequested() throws Exception {
+
+		this.cache.setTtl("GetCataloguesList", 50).setStaleWhileRevalidate(0);
+
+		getCatalogues();
+		Thread.sleep(100);
+		getCatalogues();
+
+		assertEquals(2, this.server.getRequestsCount());
+		assertEquals(0, this.cache.getStaleHits());
+	}
+
+	@Test
+	public void invalidatedListIsRequested() throws DetailedSOAPException {
+
+		getCatalogues();
+		this.cache.invalidate("GetCataloguesList");
+		getCatalogues();
+
+		assertEquals(2, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() throws DetailedSOAPException {
+
+		this.cache.setMaxEntries(1);
+
+		getCatalogues();
+		getCatalogues(Environment.PRODUCTION);
+		getCatalogues();
+
+		assertEquals(3, this.server.getRequestsCount());
+		assertEquals(2, this.cache.getEvictions());
+		assertEquals(1, this.cache.size());
+	}
+
+	private DcfCataloguesList getCatalogues() throws DetailedSOAPException {
+		return getCatalogues(Environment.TEST);
+	}
+
+	private DcfCataloguesList getCatalogues(Environment env) throws DetailedSOAPException {
+
+		GetCataloguesList<IDcfCatalogue> request = new GetCataloguesList<>();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+		request.setResponseCache(this.cache);
+		request.setRetryPolicy(RetryPolicy.none());
+
+		DcfCataloguesList output = new DcfCataloguesList();
+		request.getList(env, this.user, output);
+
+		return output;
+	}
+}
@@ -0,0 +1,275 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import catalogue.DcfCataloguesList;
+import catalogue.IDcfCatalogue;
+import config.Environment;
+import dataset.DcfDatasetsList;
+import dataset.IDcfDataset;
+import soap_test.SOAPStubServer;
+import soap_transport.ISOAPResponseHandler;
+import soap_transport.ISOAPTransport;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+import user.IDcfUser;
+
+/**
+ * Tests of the retry of the failed calls
+ */
+public class RetryPolicyTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void delayHasFullJitter() {
+
+		RetryPolicy policy = new RetryPolicy().setBaseDelay(100).setMaxDelay(1000);
+
+		long max = 0;
+		long min = Long.MAX_VALUE;
+
+		for (int i = 0; i < 1000; ++i) {
+
+			long delay = policy.getDelay(3);
+
+			assertTrue(delay >= 0 && delay <= 400);
+			max = Math.max(max, delay);
+			min = Math.min(min, delay);
+
+			// capped by the max delay
+			assertTrue(policy.getDelay(50) <= 1000);
+		}
+
+		// the delays are spread on all the interval
+		assertTrue(min < 100);
+		assertTrue(max > 300);
+	}
+
+	@Test
+	public void onlyTransientErrorsOfIdempotentOperationsAreRetried() {
+
+		RetryPolicy policy = new RetryPolicy().setMaxAttempts("GetAck", 2);
+		long now = System.currentTimeMillis();
+
+		DetailedSOAPException unavailable = error("Bad response: (503Service Unavailable");
+		DetailedSOAPException notFound = error("Bad response: (404Not Found");
+		DetailedSOAPException throttled = error("Bad response: (429Too Many Requests");
+
+		assertTrue(policy.getRetryDelay("GetAck", unavailable, 1, now) >= 0);
+		assertTrue(policy.getRetryDelay("GetAck", throttled, 1, now) >= 0);
+		assertEquals(-1, policy.getRetryDelay("GetAck", notFound, 1, now));
+		assertEquals(-1, policy.getRetryDelay("GetAck", error("Bad response: (401Unauthorized"), 1, now));
+
+		// max attempts of the operation
+		assertEquals(-1, policy.getRetryDelay("GetAck", unavailable, 2, now));
+		assertTrue(policy.getRetryDelay("Ping", unavailable, 3, now) >= 0);
+
+		// not idempotent
+		assertEquals(-1, policy.getRetryDelay("SendMessage", unavailable, 1, now));
+		assertEquals(-1, policy.getRetryDelay("UploadCatalogueFile", unavailable, 1, now));
+	}
+
+	@Test
+	public void noRetryAfterTheDeadline() {
+
+		RetryPolicy policy = new RetryPolicy().setBaseDelay(0).setDeadline(1000);
+		DetailedSOAPException unavailable = error("Bad response: (503Service Unavailable");
+
+		long now = System.currentTimeMillis();
+
+		assertTrue(policy.getRetryDelay("Ping", unavailable, 1, now - 500) >= 0);
+		assertEquals(-1, policy.getRetryDelay("Ping", unavailable, 1, now - 2000));
+	}
+
+	@Test
+	public void transientFailuresRecover() throws DetailedSOAPException {
+
+		this.server.setFailures(2, 503);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+		assertEquals(3, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void clientErrorsAreNotRetried() {
+
+		this.server.setStatus(404);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+			fail("The call should fail");
+		} catch (DetailedSOAPException e) {
+			assertEquals(404, e.getHttpStatus());
+		}
+
+		assertEquals(1, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void retriesStopAtMaxAttempts() {
+
+		this.server.setFailures(10, 503);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(new RetryPolicy().setBaseDelay(10).setMaxAttempts(3));
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+			fail("The call should fail");
+		} catch (DetailedSOAPException e) {
+			assertFalse(e.isUnauthorized());
+		}
+
+		assertEquals(3, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void streamedResponseFailedWhileReadIsNotRetried() {
+
+		String partial = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getDatasetListResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ "<dataset><datasetId>1</datasetId></dataset><dataset><datasetId>2</datasetId></dataset>";
+
+		BrokenTransport transport = new BrokenTransport(partial);
+
+		GetDatasetsList<IDcfDataset> request = new GetDatasetsList<>();
+		request.setTransport(transport);
+		request.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		DcfDatasetsList output = new DcfDatasetsList();
+
+		try {
+			request.getList(Environment.TEST, this.user, "DC", output);
+			fail("The call should fail");
+		} catch (DetailedSOAPException e) {
+			// the datasets read before the failure are not added again
+			assertEquals(1, transport.getCallsCount());
+			assertEquals(2, output.size());
+		}
+	}
+
+	@Test
+	public void listInterruptedWhileReadIsAnError() {
+
+		StringBuilder catalogues = new StringBuilder();
+		for (int i = 0; i < 2000; ++i) {
+			catalogues.append("&lt;catalogue&gt;&lt;catalogueDesc&gt;&lt;code&gt;CAT_").append(i)
+					.append("&lt;/code&gt;&lt;/catalogueDesc&gt;&lt;/catalogue&gt;");
+		}
+
+		// escaped list, the text is received in pieces
+		String partial = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getCatalogueListResponse xmlns:ns2=\"http://ws.catalog.dc.efsa.europa.eu/\"><return>"
+				+ "&lt;catalogues&gt;" + catalogues;
+
+		BrokenTransport transport = new BrokenTransport(partial);
+
+		GetCataloguesList<IDcfCatalogue> request = new GetCataloguesList<>();
+		request.setTransport(transport);
+		request.setRetryPolicy(new RetryPolicy().setBaseDelay(10));
+
+		try {
+			request.getList(Environment.TEST, this.user, new DcfCataloguesList());
+			fail("The call should fail");
+		} catch (DetailedSOAPException e) {
+			// the failure is not confused with an empty response
+			assertTrue(e.isTransient());
+		}
+	}
+
+	private static DetailedSOAPException error(String message) {
+		return new DetailedSOAPException(new SOAPException(message));
+	}
+
+	/**
+	 * Transport whose connection is reset after sending a part of the response
+	 */
+	private static class BrokenTransport implements ISOAPTransport {
+
+		private final byte[] partialResponse;
+		private final AtomicInteger calls = new AtomicInteger();
+
+		public BrokenTransport(String partialResponse) {
+			this.partialResponse = partialResponse.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public SOAPMessage call(Environment env, IDcfUser user, SOAPMessage request, String url)
+				throws SOAPException {
+			throw new SOAPException("Only streamed responses are supported");
+		}
+
+		@Override
+		public <T> T call(Environment env, IDcfUser user, SOAPMessage request, String url,
+				ISOAPResponseHandler<T> handler) throws SOAPException {
+
+			this.calls.incrementAndGet();
+
+			InputStream reset = new InputStream() {
+				@Override
+				public int read() throws IOException {
+					throw new IOException("Connection reset");
+				}
+			};
+
+			try {
+				return handler.handle("text/xml", new SequenceInputStream(
+						new ByteArrayInputStream(this.partialResponse), reset));
+			} catch (IOException e) {
+				throw new SOAPException("Message send failed", e);
+			}
+		}
+
+		public int getCallsCount() {
+			return this.calls.get();
+		}
+
+		@Override
+		public void close() {}
+	}
+}
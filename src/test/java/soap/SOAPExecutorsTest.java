@@ -0,0 +1,171 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ack.DcfAck;
+import config.Environment;
+import soap_test.GetAckMock;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import soap_transport.PooledTransportConfig;
+import user.DcfUser;
+
+/**
+ * Check the asynchronous calls
+ */
+public class SOAPExecutorsTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport(new PooledTransportConfig().setMaxPerRoute(200).setMaxTotal(200));
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		SOAPExecutors.setVirtualThreads(false);
+		SOAPExecutors.setExecutor(null);
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void manyCallsInFlight() throws InterruptedException, ExecutionException {
+
+		// each call takes 200 ms: sequentially 200 calls would take 40 seconds
+		this.server.setDelay(200);
+
+		SOAPExecutors.setExecutor(SOAPExecutors.newBoundedExecutor(200, 200));
+
+		long start = System.currentTimeMillis();
+
+		List<CompletableFuture<Object>> results = new ArrayList<>();
+		for (int i = 0; i < 200; ++i) {
+			Ping ping = new Ping();
+			ping.setTransport(this.transport);
+			results.add(ping.makeRequestAsync(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+		}
+
+		CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get();
+
+		long time = System.currentTimeMillis() - start;
+
+		for (CompletableFuture<Object> result : results) {
+			assertEquals(true, result.get());
+		}
+
+		assertEquals(200, this.server.getRequestsCount());
+		assertTrue(time < 10000, "Calls were not run in parallel, time=" + time);
+	}
+
+	@Test
+	public void errorsAreReportedByTheFuture() throws InterruptedException {
+
+		this.server.setStatus(503);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+
+		CompletableFuture<Object> result = ping.makeRequestAsync(Environment.TEST, this.user, NAMESPACE,
+				this.server.getUrl());
+
+		try {
+			result.join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof DetailedSOAPException);
+			return;
+		}
+
+		throw new AssertionError("Exception expected");
+	}
+
+	@Test
+	public void callsOverTheQueueAreRejected() throws InterruptedException {
+
+		ExecutorService executor = SOAPExecutors.newBoundedExecutor(1, 1);
+
+		CountDownLatch latch = new CountDownLatch(1);
+
+		// one running, one queued
+		SOAPExecutors.supplyAsync(() -> {
+			latch.await();
+			return null;
+		}, executor);
+		SOAPExecutors.supplyAsync(() -> {
+			latch.await();
+			return null;
+		}, executor);
+
+		CompletableFuture<Object> rejected = SOAPExecutors.supplyAsync(() -> null, executor);
+
+		try {
+			rejected.join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+			return;
+		} finally {
+			latch.countDown();
+			executor.shutdown();
+		}
+
+		throw new AssertionError("Exception expected");
+	}
+
+	@Test
+	public void interfaceAsyncVariant() {
+
+		DcfAck ack = new DcfAck(null, null);
+
+		GetAckMock getAck = new GetAckMock();
+		getAck.setAck(ack);
+
+		assertSame(ack, getAck.getAckAsync(Environment.TEST, this.user, "1234").join());
+	}
+
+	@Test
+	public void virtualThreadsWhenSupported() throws InterruptedException, ExecutionException {
+
+		SOAPExecutors.setVirtualThreads(true);
+
+		// on java < 21 the calls fall back to platform threads
+		boolean supported = SOAPExecutors.isVirtualThreadsSupported();
+		assertEquals(supported, SOAPExecutors.isVirtualThreads());
+
+		Thread thread = SOAPExecutors.supplyAsync(() -> Thread.currentThread()).get();
+		assertEquals(supported, isVirtual(thread));
+
+		assertEquals(supported, isVirtual(SOAPExecutors.newThread(() -> {}, "test")));
+	}
+
+	private static boolean isVirtual(Thread thread) {
+		try {
+			return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import javax.xml.soap.SOAPConnection;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+import user.IDcfUser;
+
+/**
+ * Check that the requests written before the request context still work
+ */
+public class SOAPRequestTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void requestWithTheOldMethodsIsMade() throws DetailedSOAPException {
+
+		LegacyPing ping = new LegacyPing();
+		ping.setTransport(this.transport);
+
+		Object result = ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+
+		assertEquals("TRXOK", result);
+		assertEquals(this.user, ping.user);
+		assertEquals(NAMESPACE, ping.namespace);
+	}
+
+	@Test
+	public void requestWithoutMethodsFails() {
+
+		SOAPRequest empty = new SOAPRequest() {};
+		empty.setTransport(this.transport);
+
+		assertThrows(UnsupportedOperationException.class,
+				() -> empty.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+	}
+
+	/**
+	 * Request which overrides only the methods without the context
+	 */
+	private static class LegacyPing extends SOAPRequest {
+
+		private IDcfUser user;
+		private String namespace;
+
+		@Override
+		public SOAPMessage createRequest(IDcfUser user, String namespace, SOAPConnection con) throws SOAPException {
+
+			this.user = user;
+			this.namespace = namespace;
+
+			SOAPMessage message = createTemplateSOAPMessage(user, namespace, "dcf");
+			message.getSOAPPart().getEnvelope().getBody().addChildElement("Ping", "dcf");
+			message.saveChanges();
+
+			return message;
+		}
+
+		@Override
+		public Object processResponse(SOAPMessage soapResponse) throws SOAPException {
+			return soapResponse.getSOAPBody().getTextContent();
+		}
+	}
+}
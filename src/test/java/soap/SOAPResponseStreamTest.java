@@ -0,0 +1,121 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the parsing of the streamed responses
+ */
+public class SOAPResponseStreamTest {
+
+	private static final String ENVELOPE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Header/><soap:Body><ns2:exportResponse xmlns:ns2=\"http://ws.catalog.dc.efsa.europa.eu/\">"
+			+ "<return>ok</return></ns2:exportResponse></soap:Body></soap:Envelope>";
+
+	private static final String FAULT = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><soap:Fault><faultcode>soap:Server</faultcode><faultstring>error</faultstring>"
+			+ "</soap:Fault></soap:Body></soap:Envelope>";
+
+	private static final String BOUNDARY = "uuid:4b1f0c2e";
+
+	@Test
+	public void bodyReaderIsOnTheFirstElement() throws IOException, XMLStreamException {
+
+		SOAPResponseStream response = new SOAPResponseStream("text/xml;charset=UTF-8", stream(ENVELOPE));
+
+		XMLStreamReader reader = response.getBodyReader();
+
+		assertFalse(response.isFault());
+		assertEquals("exportResponse", reader.getLocalName());
+		assertNull(response.nextAttachment());
+	}
+
+	@Test
+	public void faultIsDetected() throws IOException, XMLStreamException {
+		SOAPResponseStream response = new SOAPResponseStream("text/xml", stream(FAULT));
+		assertTrue(response.isFault());
+	}
+
+	@Test
+	public void multipartAttachmentsAreReadInOrder() throws IOException, XMLStreamException {
+
+		// the attachment contains pieces of the delimiter
+		byte[] binary = ("\r\n--uuid:4b1f0c2\r\n-\r\r\n--uuid" + "\r\n--").getBytes(StandardCharsets.ISO_8859_1);
+		byte[] text = "<catalogue code=\"ABC\"/>".getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+		writePart(multipart, "application/xop+xml", null, ENVELOPE.getBytes(StandardCharsets.UTF_8));
+		writePart(multipart, "application/octet-stream", "binary", binary);
+		writePart(multipart, "text/xml", "base64", Base64.getMimeEncoder().encode(text));
+		multipart.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+		SOAPResponseStream response = new SOAPResponseStream(
+				"multipart/related; type=\"application/xop+xml\"; boundary=\"" + BOUNDARY + "\"",
+				new ByteArrayInputStream(multipart.toByteArray()));
+
+		assertEquals("exportResponse", response.getBodyReader().getLocalName());
+
+		assertArrayEquals(binary, IOUtils.toByteArray(response.nextAttachment()));
+		assertArrayEquals(text, IOUtils.toByteArray(response.nextAttachment()));
+		assertNull(response.nextAttachment());
+	}
+
+	@Test
+	public void unreadAttachmentsAreSkipped() throws IOException {
+
+		byte[] first = new byte[100000];
+		byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+		multipart.write("preamble".getBytes(StandardCharsets.ISO_8859_1));
+		writePart(multipart, "text/xml", null, ENVELOPE.getBytes(StandardCharsets.UTF_8));
+		writePart(multipart, "application/octet-stream", "binary", first);
+		writePart(multipart, "application/octet-stream", "binary", second);
+		multipart.write(("\r\n--" + BOUNDARY + "--").getBytes(StandardCharsets.ISO_8859_1));
+
+		SOAPResponseStream response = new SOAPResponseStream("multipart/related; boundary=" + BOUNDARY,
+				new ByteArrayInputStream(multipart.toByteArray()));
+
+		// envelope and first attachment are not read
+		response.nextAttachment();
+
+		assertArrayEquals(second, IOUtils.toByteArray(response.nextAttachment()));
+		assertNull(response.nextAttachment());
+	}
+
+	private static void writePart(ByteArrayOutputStream out, String contentType, String encoding, byte[] content)
+			throws IOException {
+
+		StringBuilder headers = new StringBuilder();
+		headers.append("\r\n--").append(BOUNDARY).append("\r\n");
+		headers.append("Content-Type: ").append(contentType).append("\r\n");
+
+		if (encoding != null)
+			headers.append("Content-Transfer-Encoding: ").append(encoding).append("\r\n");
+
+		headers.append("\r\n");
+
+		out.write(headers.toString().getBytes(StandardCharsets.ISO_8859_1));
+		out.write(content);
+	}
+
+	private static InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
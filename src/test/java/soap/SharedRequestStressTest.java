@@ -0,0 +1,174 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ack.DcfAck;
+import ack.FileState;
+import config.Environment;
+import dataset.DcfDatasetsList;
+import dataset.IDcfDataset;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import soap_transport.PooledTransportConfig;
+import user.DcfUser;
+
+/**
+ * Use a single request object from many threads at the same time and check
+ * that each call gets the response of its own parameters
+ */
+public class SharedRequestStressTest {
+
+	private static final int THREADS = 16;
+	private static final int CALLS = 50;
+
+	private static final Pattern DC_CODE = Pattern.compile("<dataCollectionCode>(.*?)</dataCollectionCode>");
+	private static final Pattern MESSAGE_ID = Pattern.compile("<messageId>(.*?)</messageId>");
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private ExecutorService executor;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport(new PooledTransportConfig().setMaxPerRoute(THREADS));
+		this.executor = Executors.newFixedThreadPool(THREADS);
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.executor.shutdownNow();
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void sharedGetDatasetsList() throws InterruptedException, ExecutionException {
+
+		// the dataset returned by the stub has the data collection code of the request as id
+		this.server.setResponder(request -> datasetsResponse(find(DC_CODE, request)));
+
+		GetDatasetsList<IDcfDataset> shared = new GetDatasetsList<>();
+		shared.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		int errors = hammer(call -> {
+
+			String dcCode = "DC_" + call;
+
+			DcfDatasetsList output = new DcfDatasetsList();
+			shared.getList(Environment.TEST, this.user, dcCode, output);
+
+			return output.size() == 1 && dcCode.equals(output.get(0).getId());
+		});
+
+		assertEquals(0, errors);
+		assertEquals(THREADS * CALLS, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void sharedGetAck() throws InterruptedException, ExecutionException {
+
+		// the stub replies with the state written in the message id
+		this.server.setResponder(request -> {
+			String messageId = find(MESSAGE_ID, request);
+			return ackResponse(messageId.substring(0, messageId.lastIndexOf('_')));
+		});
+
+		GetAck shared = new GetAck();
+		shared.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		FileState[] states = { FileState.WAIT, FileState.FAIL, FileState.ACCESS_DENIED, FileState.OTHER };
+
+		int errors = hammer(call -> {
+
+			FileState expected = states[call % states.length];
+
+			DcfAck ack = shared.getAck(Environment.TEST, this.user, expected.name() + "_" + call);
+
+			return ack.getState() == expected;
+		});
+
+		assertEquals(0, errors);
+	}
+
+	/**
+	 * Run the calls from all the threads at the same time
+	 * @param call
+	 * @return the number of calls with a wrong result
+	 */
+	private int hammer(Call call) throws InterruptedException, ExecutionException {
+
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Future<Integer>> results = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; ++t) {
+
+			int thread = t;
+
+			results.add(this.executor.submit(() -> {
+
+				start.await();
+
+				int errors = 0;
+				for (int i = 0; i < CALLS; ++i) {
+					if (!call.run(thread * CALLS + i))
+						errors++;
+				}
+
+				return errors;
+			}));
+		}
+
+		start.countDown();
+
+		int errors = 0;
+		for (Future<Integer> result : results) {
+			errors += result.get();
+		}
+
+		return errors;
+	}
+
+	private static String find(Pattern pattern, String request) {
+		Matcher matcher = pattern.matcher(request);
+		return matcher.find() ? matcher.group(1) : "";
+	}
+
+	private static String datasetsResponse(String datasetId) {
+		return "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getDatasetListResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ "<dataset><datasetId>" + datasetId + "</datasetId><senderDatasetId>sender</senderDatasetId>"
+				+ "</dataset></return></ns2:getDatasetListResponse></soap:Body></soap:Envelope>";
+	}
+
+	private static String ackResponse(String state) {
+		return "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:GetAckResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ "<fileState>" + state + "</fileState>"
+				+ "</return></ns2:GetAckResponse></soap:Body></soap:Envelope>";
+	}
+
+	private interface Call {
+		public boolean run(int call) throws Exception;
+	}
+}
@@ -0,0 +1,203 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import dataset.DcfDatasetsList;
+import dataset.IDcfDataset;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Tests of the coalescing of the identical calls
+ */
+public class SingleFlightTest {
+
+	private static final int THREADS = 10;
+
+	private static final String DATASETS_RESPONSE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><ns2:getDatasetListResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+			+ "<dataset><datasetId>123</datasetId><senderDatasetId>sender</senderDatasetId></dataset>"
+			+ "</return></ns2:getDatasetListResponse></soap:Body></soap:Envelope>";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+	private SingleFlight singleFlight;
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.server.setResponse(DATASETS_RESPONSE);
+		this.server.setDelay(300);
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+		this.singleFlight = new SingleFlight();
+		this.executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@AfterEach
+	public void close() {
+		this.executor.shutdownNow();
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void identicalCallsShareTheRequest() throws Exception {
+
+		List<Object> results = callTogether(thread -> "DC");
+
+		for (Object result : results) {
+			DcfDatasetsList output = (DcfDatasetsList) result;
+			assertEquals(1, output.size());
+			assertEquals("123", output.get(0).getId());
+		}
+
+		assertEquals(1, this.server.getRequestsCount());
+		assertEquals(THREADS - 1, this.singleFlight.getCoalescedCalls());
+		assertEquals(0, this.singleFlight.getInFlight());
+	}
+
+	@Test
+	public void differentParametersAreNotCoalesced() throws Exception {
+
+		callTogether(thread -> "DC_" + thread);
+
+		assertEquals(THREADS, this.server.getRequestsCount());
+		assertEquals(0, this.singleFlight.getCoalescedCalls());
+	}
+
+	@Test
+	public void errorIsShared() throws Exception {
+
+		this.server.setStatus(404);
+
+		List<Object> results = callTogether(thread -> "DC");
+
+		for (Object result : results) {
+			assertTrue(result instanceof DetailedSOAPException);
+		}
+
+		assertEquals(1, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void callsAfterTheEndAreSent() throws DetailedSOAPException {
+
+		this.server.setDelay(0);
+
+		GetDatasetsList<IDcfDataset> request = createRequest();
+
+		request.getList(Environment.TEST, this.user, "DC", new DcfDatasetsList());
+		request.getList(Environment.TEST, this.user, "DC", new DcfDatasetsList());
+
+		assertEquals(2, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void acksAreNotCoalescedByDefault() {
+		assertFalse(this.singleFlight.isCoalesced("GetAck"));
+		assertFalse(this.singleFlight.isCoalesced("GetAckDetailedResId"));
+		assertTrue(this.singleFlight.isCoalesced("GetDatasetsList"));
+	}
+
+	@Test
+	public void exportedFilesAreNotShared() {
+		assertFalse(this.singleFlight.isCoalesced("GetDataset"));
+		assertFalse(this.singleFlight.isCoalesced("ExportCatalogueFile"));
+	}
+
+	@Test
+	public void callsAreNotCoalescedByDefault() {
+		assertFalse(SOAPRequest.getDefaultSingleFlight().isCoalesced("GetDatasetsList"));
+	}
+
+	@Test
+	public void keyDoesNotContainThePassword() {
+
+		SOAPRequestContext context = new SOAPRequestContext(Environment.TEST, this.user, "namespace", "url");
+		Object key = createRequest().getCallKey(context);
+
+		assertFalse(key.toString().contains("password"));
+
+		DcfUser other = new DcfUser();
+		other.login("user", "other");
+
+		assertNotEquals(key, createRequest().getCallKey(new SOAPRequestContext(Environment.TEST, other,
+				"namespace", "url")));
+		assertEquals(key, createRequest().getCallKey(context));
+	}
+
+	/**
+	 * Get the datasets list from all the threads at the same time
+	 * @param dcCode data collection of each thread
+	 * @return the output list or the error of each call
+	 */
+	private List<Object> callTogether(DataCollection dcCode) throws InterruptedException, ExecutionException {
+
+		GetDatasetsList<IDcfDataset> request = createRequest();
+
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Object>> futures = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; ++t) {
+
+			int thread = t;
+
+			futures.add(this.executor.submit(() -> {
+
+				start.await();
+
+				DcfDatasetsList output = new DcfDatasetsList();
+				try {
+					request.getList(Environment.TEST, this.user, dcCode.get(thread), output);
+					return output;
+				} catch (DetailedSOAPException e) {
+					return e;
+				}
+			}));
+		}
+
+		start.countDown();
+
+		List<Object> results = new ArrayList<>();
+		for (Future<Object> future : futures) {
+			results.add(future.get());
+		}
+
+		return results;
+	}
+
+	private GetDatasetsList<IDcfDataset> createRequest() {
+		GetDatasetsList<IDcfDataset> request = new GetDatasetsList<>();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+		request.setSingleFlight(this.singleFlight);
+		request.setRetryPolicy(RetryPolicy.none());
+		return request;
+	}
+
+	private interface DataCollection {
+		public String get(int thread);
+	}
+}
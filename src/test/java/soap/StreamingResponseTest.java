@@ -0,0 +1,224 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ack.DcfAck;
+import ack.DcfAckDetailedResId;
+import ack.FileState;
+import ack.LightDcfAckLog;
+import ack.OkCode;
+import ack.RecordError;
+import config.Environment;
+import dataset.DcfDatasetStatus;
+import dataset.DcfDatasetsList;
+import dataset.IDcfDataset;
+import soap_test.ChildJvm;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Check that the responses are parsed while they are received, without
+ * keeping them in memory
+ */
+public class StreamingResponseTest {
+
+	private static final String BOUNDARY = "uuid:0d6a3e1c";
+	private static final long ATTACHMENT_SIZE = 150L * 1024 * 1024;
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void datasetsAreParsedFromTheStream() throws DetailedSOAPException {
+
+		StringBuilder datasets = new StringBuilder();
+		for (int i = 0; i < 1000; ++i) {
+			datasets.append("<dataset><datasetId>").append(i).append("</datasetId>")
+					.append("<senderDatasetId>sender_").append(i).append("</senderDatasetId>")
+					.append("<datasetStatus><status>VALID</status><step>step_").append(i).append("</step>")
+					.append("</datasetStatus><unknown><nested>x</nested></unknown>")
+					.append("<lastMessageId>msg_").append(i).append("</lastMessageId></dataset>");
+		}
+
+		this.server.setResponse("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getDatasetListResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ datasets + "</return></ns2:getDatasetListResponse></soap:Body></soap:Envelope>");
+
+		GetDatasetsList<IDcfDataset> request = new GetDatasetsList<>();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		DcfDatasetsList output = new DcfDatasetsList();
+		request.getList(Environment.TEST, this.user, "DC", output);
+
+		assertEquals(1000, output.size());
+
+		IDcfDataset last = output.get(999);
+		assertEquals("999", last.getId());
+		assertEquals("sender_999", last.getSenderId());
+		assertEquals("msg_999", last.getLastMessageId());
+		assertEquals(DcfDatasetStatus.VALID, last.getStatus());
+	}
+
+	@Test
+	public void ackIsReadFromTheStreamInLightMode() throws Exception {
+
+		String envelope = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getAckResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ "<messageId>12345</messageId><fileState>READY</fileState>"
+				+ "</return></ns2:getAckResponse></soap:Body></soap:Envelope>";
+
+		String log = "<messageAck><messageInfo><dcCode>TEST_DC</dcCode></messageInfo>"
+				+ "<operationAck><opResCode>OK</opResCode></operationAck>"
+				+ "<datasetInfo><datasetId>999</datasetId><datasetStatus>VALID</datasetStatus></datasetInfo>"
+				+ "</messageAck>";
+
+		this.server.setStreamingResponse("multipart/related; type=\"text/xml\"; boundary=\"" + BOUNDARY + "\"",
+				out -> out.write(("--" + BOUNDARY + "\r\nContent-Type: text/xml\r\n\r\n" + envelope
+						+ "\r\n--" + BOUNDARY + "\r\nContent-Type: application/xml\r\n\r\n" + log
+						+ "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+
+		GetAck request = new GetAck().setLight(true);
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		DcfAck ack = request.getAck(Environment.TEST, this.user, "12345");
+
+		assertEquals(FileState.READY, ack.getState());
+
+		LightDcfAckLog ackLog = (LightDcfAckLog) ack.getLog();
+		assertEquals(OkCode.OK, ackLog.getOpResCode());
+		assertEquals("999", ackLog.getDatasetId());
+		assertEquals(DcfDatasetStatus.VALID, ackLog.getDatasetStatus());
+		assertFalse(ackLog.isFullLogLoaded());
+
+		// the other fields are read when requested, with a new call
+		assertEquals(1, this.server.getRequestsCount());
+		assertEquals("TEST_DC", ackLog.getDCCode());
+		assertTrue(ackLog.isFullLogLoaded());
+		assertEquals(2, this.server.getRequestsCount());
+
+		// the attachment is kept by the ack of the call
+		assertEquals("messageAck", ack.getAttachment().getDocumentElement().getNodeName());
+	}
+
+	@Test
+	public void detailedAckIsParsedFromTheStream() throws DetailedSOAPException {
+
+		String envelope = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getAckResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+				+ "<fileState>READY</fileState></return></ns2:getAckResponse></soap:Body></soap:Envelope>";
+
+		StringBuilder ack = new StringBuilder("<messageAck><records>");
+		for (int i = 0; i < 1000; ++i) {
+			ack.append("<record><recordId>").append(i).append("</recordId><error><code>E")
+					.append(i % 2).append("</code><field>sampY</field></error></record>");
+		}
+		ack.append("</records></messageAck>");
+
+		this.server.setStreamingResponse("multipart/related; type=\"text/xml\"; boundary=\"" + BOUNDARY + "\"",
+				out -> out.write(("--" + BOUNDARY + "\r\nContent-Type: text/xml\r\n\r\n" + envelope
+						+ "\r\n--" + BOUNDARY + "\r\nContent-Type: application/xml\r\n\r\n" + ack
+						+ "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+
+		GetAckDetailedResId request = new GetAckDetailedResId();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		List<RecordError> errors = new ArrayList<>();
+		DcfAckDetailedResId detailedAck = request.getAckDetailedResId(Environment.TEST, this.user, "12345",
+				errors::add);
+
+		assertEquals(FileState.READY, detailedAck.getState());
+		assertEquals(1000, errors.size());
+		assertEquals("999", errors.get(999).getRecordId());
+		assertEquals(1000, detailedAck.getSummary().getErrorsCount());
+		assertEquals(Long.valueOf(500), detailedAck.getSummary().getCountsByCode().get("E1"));
+	}
+
+	@Test
+	public void largeAttachmentIsDownloadedWithSmallHeap() throws IOException, InterruptedException {
+
+		this.server.setStreamingResponse("multipart/related; type=\"text/xml\"; boundary=\"" + BOUNDARY + "\"",
+				StreamingResponseTest::writeLargeExport);
+
+		// the attachment is five times the heap of the jvm
+		int exitCode = ChildJvm.run("32m", 120, StreamingResponseTest.class, this.server.getUrl());
+
+		assertEquals(0, exitCode);
+	}
+
+	/**
+	 * Export the catalogue from the stub, run in the child jvm
+	 * @param args url of the stub
+	 */
+	public static void main(String[] args) throws Exception {
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		ExportCatalogueFile request = new ExportCatalogueFile();
+		request.setTransport(new RedirectingTransport(new PooledSOAPTransport(), args[0]));
+
+		File file = request.exportCatalogue(Environment.TEST, user, "CATALOGUE");
+
+		long length = file.length();
+		file.delete();
+
+		System.exit(length == ATTACHMENT_SIZE ? 0 : 1);
+	}
+
+	/**
+	 * Write a multipart response with a large attachment
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeLargeExport(OutputStream out) throws IOException {
+
+		String envelope = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:exportCatalogueFileResponse xmlns:ns2=\"http://ws.catalog.dc.efsa.europa.eu/\">"
+				+ "<return>CATALOGUE</return></ns2:exportCatalogueFileResponse></soap:Body></soap:Envelope>";
+
+		out.write(("--" + BOUNDARY + "\r\nContent-Type: text/xml\r\n\r\n" + envelope
+				+ "\r\n--" + BOUNDARY + "\r\nContent-Type: application/octet-stream\r\n"
+				+ "Content-Transfer-Encoding: binary\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+		byte[] chunk = new byte[64 * 1024];
+		for (int i = 0; i < chunk.length; ++i) {
+			chunk[i] = (byte) ('a' + i % 26);
+		}
+
+		for (long written = 0; written < ATTACHMENT_SIZE; written += chunk.length) {
+			out.write(chunk);
+		}
+
+		out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+	}
+}
@@ -0,0 +1,148 @@
+package soap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import message.MessageResponse;
+import soap_test.ChildJvm;
+import soap_test.RedirectingTransport;
+import soap_test.SOAPStubServer;
+import soap_transport.PooledSOAPTransport;
+import user.DcfUser;
+
+/**
+ * Check that the files are encoded while they are sent, without loading
+ * them in memory
+ */
+public class StreamingUploadTest {
+
+	private static final long FILE_SIZE = 300L * 1024 * 1024;
+
+	private static final String SEND_MESSAGE_RESPONSE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><ns2:SendMessageResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\"><return>"
+			+ "<messageId>12345</messageId><trxState>TRXOK</trxState></return>"
+			+ "</ns2:SendMessageResponse></soap:Body></soap:Envelope>";
+
+	private static final String UPLOAD_RESPONSE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><ns2:UploadCatalogueFileResponse xmlns:ns2=\"http://ws.catalog.dc.efsa.europa.eu/\">"
+			+ "<return>LOG_CODE</return></ns2:UploadCatalogueFileResponse></soap:Body></soap:Envelope>";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+	private File file;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+		this.file = File.createTempFile("upload", ".xml");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+		this.file.delete();
+	}
+
+	@Test
+	public void uploadedFileIsEncoded() throws IOException, DetailedSOAPException {
+
+		byte[] data = "<catalogue code=\"ABC\">\u00e0\u00e8\u00ec</catalogue>".getBytes(StandardCharsets.UTF_8);
+		Files.write(this.file.toPath(), data);
+
+		this.server.setResponse(UPLOAD_RESPONSE);
+
+		UploadCatalogueFile request = new UploadCatalogueFile();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		assertEquals("LOG_CODE", request.send(Environment.TEST, this.user, this.file));
+
+		String body = new String(this.server.getLastBody(), StandardCharsets.UTF_8);
+		assertTrue(body.contains("<rowData>" + Base64.getEncoder().encodeToString(data) + "</rowData>"));
+	}
+
+	@Test
+	public void uploadIsRepeatedAfterTheChallenge() throws IOException, DetailedSOAPException {
+
+		Files.write(this.file.toPath(), "<message/>".getBytes(StandardCharsets.UTF_8));
+
+		this.server.setResponse(SEND_MESSAGE_RESPONSE);
+		this.server.setBasicAuth(true);
+
+		SendMessage request = new SendMessage();
+		request.setTransport(new RedirectingTransport(this.transport, this.server.getUrl()));
+
+		MessageResponse response = request.send(Environment.TEST, this.user, this.file);
+
+		assertEquals("12345", response.getMessageId());
+		assertEquals(1, this.server.getChallengesCount());
+		assertEquals(this.server.getLastBodyLength(), this.server.getLastBody().length);
+	}
+
+	@Test
+	public void largeFileIsSentWithSmallHeap() throws IOException, InterruptedException {
+
+		writeLargeFile(this.file);
+
+		this.server.setResponse(SEND_MESSAGE_RESPONSE);
+
+		// the file is ten times the heap of the jvm
+		int exitCode = ChildJvm.run("32m", 180, StreamingUploadTest.class, this.server.getUrl(),
+				this.file.getAbsolutePath());
+
+		assertEquals(0, exitCode);
+
+		// the envelope around the encoded file is small
+		long encodedSize = (FILE_SIZE + 2) / 3 * 4;
+		assertTrue(this.server.getLastBodyLength() > encodedSize);
+		assertTrue(this.server.getLastBodyLength() < encodedSize + 2048);
+	}
+
+	/**
+	 * Send the file to the stub, run in the child jvm
+	 * @param args url of the stub and path of the file
+	 */
+	public static void main(String[] args) throws Exception {
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		SendMessage request = new SendMessage();
+		request.setTransport(new RedirectingTransport(new PooledSOAPTransport(), args[0]));
+
+		MessageResponse response = request.send(Environment.TEST, user, new File(args[1]));
+
+		System.exit("12345".equals(response.getMessageId()) ? 0 : 1);
+	}
+
+	private static void writeLargeFile(File file) throws IOException {
+
+		byte[] chunk = new byte[64 * 1024];
+		for (int i = 0; i < chunk.length; ++i) {
+			chunk[i] = (byte) ('a' + i % 26);
+		}
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			for (long written = 0; written < FILE_SIZE; written += chunk.length) {
+				out.write(chunk);
+			}
+		}
+	}
+}
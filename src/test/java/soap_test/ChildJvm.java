@@ -0,0 +1,48 @@
+package soap_test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run a main class in a new jvm with the classpath of the tests. Used to
+ * check the memory used by a call with a small heap.
+ */
+public class ChildJvm {
+
+	/**
+	 * Run the main class and wait for its end
+	 * @param maxHeap maximum heap of the jvm, as 32m
+	 * @param timeoutSeconds
+	 * @param mainClass
+	 * @param args
+	 * @return the exit code of the jvm
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static int run(String maxHeap, long timeoutSeconds, Class<?> mainClass, String... args)
+			throws IOException, InterruptedException {
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		List<String> command = new ArrayList<>();
+		command.add(java);
+		command.add("-Xmx" + maxHeap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(mainClass.getName());
+		command.addAll(Arrays.asList(args));
+
+		Process process = new ProcessBuilder(command).inheritIO().start();
+
+		if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+			process.destroyForcibly();
+			throw new AssertionError("The child jvm did not end in " + timeoutSeconds + " seconds");
+		}
+
+		return process.exitValue();
+	}
+}
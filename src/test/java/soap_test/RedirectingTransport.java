@@ -0,0 +1,41 @@
+package soap_test;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import config.Environment;
+import soap_transport.ISOAPResponseHandler;
+import soap_transport.ISOAPTransport;
+import user.IDcfUser;
+
+/**
+ * Transport which sends all the requests to a fixed url (as the url of
+ * a {@link SOAPStubServer}), ignoring the DCF endpoint of the request.
+ */
+public class RedirectingTransport implements ISOAPTransport {
+
+	private ISOAPTransport transport;
+	private String url;
+
+	public RedirectingTransport(ISOAPTransport transport, String url) {
+		this.transport = transport;
+		this.url = url;
+	}
+
+	@Override
+	public SOAPMessage call(Environment env, IDcfUser user, SOAPMessage request, String endpoint)
+			throws SOAPException {
+		return this.transport.call(env, user, request, this.url);
+	}
+
+	@Override
+	public <T> T call(Environment env, IDcfUser user, SOAPMessage request, String endpoint,
+			ISOAPResponseHandler<T> handler) throws SOAPException {
+		return this.transport.call(env, user, request, this.url, handler);
+	}
+
+	@Override
+	public void close() {
+		this.transport.close();
+	}
+}
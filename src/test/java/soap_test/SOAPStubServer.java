@@ -0,0 +1,411 @@
+package soap_test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Local http(s) server which replies to any request with a fixed soap message.
+ * Used to test the transport layer without contacting the DCF.
+ */
+public class SOAPStubServer implements AutoCloseable {
+
+	public static final String PING_RESPONSE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Body><ns2:PingResponse xmlns:ns2=\"http://dcf-elect.efsa.europa.eu/\">"
+			+ "<return><trxState>TRXOK</trxState></return>"
+			+ "</ns2:PingResponse></soap:Body></soap:Envelope>";
+
+	// larger requests are counted but not kept in memory
+	private static final int MAX_STORED_BODY = 1024 * 1024;
+
+	private static final String KEYSTORE = "stub-keystore.jks";
+	private static final String KEYSTORE_PASSWORD = "changeit";
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private volatile Function<String, String> responder;
+	private volatile String streamingContentType;
+	private volatile ResponseWriter streamingWriter;
+	private volatile int status;
+	private AtomicInteger failures;
+	private volatile int failureStatus;
+	private Map<String, String> responseHeaders;
+	private volatile long delay;
+	private volatile Semaphore capacity;
+	private volatile int maxActive;
+	private AtomicInteger activeRequests;
+	private AtomicInteger maxActiveRequests;
+	private volatile Map<String, List<String>> lastHeaders;
+	private volatile byte[] lastBody;
+	private volatile long lastBodyLength;
+	private AtomicInteger requestsCount;
+	private volatile boolean basicAuth;
+	private AtomicInteger challengesCount;
+	private Map<String, AtomicInteger> authenticatedRequests;
+
+	/**
+	 * Start a server on a free port of localhost, replying with a successful ping
+	 * @throws IOException
+	 */
+	public SOAPStubServer() throws IOException {
+		this(HttpServer.create(new InetSocketAddress("localhost", 0), 0));
+	}
+
+	/**
+	 * Start an https server on a free port of localhost
+	 * @param configurator tls configuration of the server
+	 * @throws IOException
+	 */
+	public SOAPStubServer(HttpsConfigurator configurator) throws IOException {
+		this(createHttpsServer(configurator));
+	}
+
+	private SOAPStubServer(HttpServer server) {
+
+		this.responder = request -> PING_RESPONSE;
+		this.status = 200;
+		this.requestsCount = new AtomicInteger();
+		this.failures = new AtomicInteger();
+		this.activeRequests = new AtomicInteger();
+		this.maxActiveRequests = new AtomicInteger();
+		this.responseHeaders = new ConcurrentHashMap<>();
+		this.challengesCount = new AtomicInteger();
+		this.authenticatedRequests = new ConcurrentHashMap<>();
+
+		this.server = server;
+		this.server.createContext("/", this::handle);
+		this.executor = Executors.newCachedThreadPool();
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	private static HttpsServer createHttpsServer(HttpsConfigurator configurator) throws IOException {
+		HttpsServer server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setHttpsConfigurator(configurator);
+		return server;
+	}
+
+	/**
+	 * Create the ssl context of the server, using the self signed certificate
+	 * of localhost contained in the test resources
+	 * @return
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	public static SSLContext createServerSSLContext() throws IOException, GeneralSecurityException {
+
+		char[] password = KEYSTORE_PASSWORD.toCharArray();
+
+		KeyStore keyStore = KeyStore.getInstance("JKS");
+		try (InputStream in = SOAPStubServer.class.getClassLoader().getResourceAsStream(KEYSTORE)) {
+			keyStore.load(in, password);
+		}
+
+		KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		kmf.init(keyStore, password);
+
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(kmf.getKeyManagers(), null, null);
+
+		return sslContext;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+
+		this.requestsCount.incrementAndGet();
+		this.lastHeaders = exchange.getRequestHeaders();
+
+		// read all the request
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		long length = 0;
+		try (InputStream in = exchange.getRequestBody()) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (length < MAX_STORED_BODY)
+					body.write(buffer, 0, read);
+				length += read;
+			}
+		}
+		this.lastBody = body.toByteArray();
+		this.lastBodyLength = length;
+
+		if (this.basicAuth && !authenticate(exchange)) {
+			this.challengesCount.incrementAndGet();
+			exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"DCF\"");
+			exchange.sendResponseHeaders(401, -1);
+			exchange.close();
+			return;
+		}
+
+		int active = this.activeRequests.incrementAndGet();
+		this.maxActiveRequests.accumulateAndGet(active, Math::max);
+
+		try {
+
+			// overloaded, as the gateway the requests are refused
+			if (this.maxActive > 0 && active > this.maxActive) {
+				exchange.sendResponseHeaders(429, -1);
+				exchange.close();
+				return;
+			}
+
+			process();
+
+		} finally {
+			this.activeRequests.decrementAndGet();
+		}
+
+		for (Map.Entry<String, String> header : this.responseHeaders.entrySet()) {
+			exchange.getResponseHeaders().add(header.getKey(), header.getValue());
+		}
+
+		// temporary failure, without body
+		if (this.failures.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+			exchange.sendResponseHeaders(this.failureStatus, -1);
+			exchange.close();
+			return;
+		}
+
+		ResponseWriter writer = this.streamingWriter;
+
+		// chunked response, generated while it is sent
+		if (writer != null) {
+
+			exchange.getResponseHeaders().add("Content-Type", this.streamingContentType);
+			exchange.sendResponseHeaders(this.status, 0);
+
+			try (OutputStream out = exchange.getResponseBody()) {
+				writer.write(out);
+			}
+
+			return;
+		}
+
+		String request = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		byte[] data = this.responder.apply(request).getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().add("Content-Type", "text/xml;charset=UTF-8");
+		exchange.sendResponseHeaders(this.status, data.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(data);
+		}
+	}
+
+	/**
+	 * Simulate the processing of the request, which waits the delay when
+	 * the server has capacity for it
+	 */
+	private void process() {
+
+		if (this.delay <= 0)
+			return;
+
+		Semaphore capacity = this.capacity;
+
+		try {
+
+			if (capacity != null)
+				capacity.acquire();
+
+			try {
+				Thread.sleep(this.delay);
+			} finally {
+				if (capacity != null)
+					capacity.release();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Check the basic credentials of the request, any password is accepted
+	 * @param exchange
+	 * @return true if the request contains the credentials
+	 */
+	private boolean authenticate(HttpExchange exchange) {
+
+		String header = exchange.getRequestHeaders().getFirst("Authorization");
+
+		if (header == null || !header.startsWith("Basic "))
+			return false;
+
+		String credentials = new String(Base64.getDecoder().decode(header.substring(6)), StandardCharsets.UTF_8);
+		String username = credentials.substring(0, credentials.indexOf(':'));
+
+		this.authenticatedRequests.computeIfAbsent(username, key -> new AtomicInteger()).incrementAndGet();
+
+		return true;
+	}
+
+	/**
+	 * Get the url of the server
+	 * @return
+	 */
+	public String getUrl() {
+		String protocol = this.server instanceof HttpsServer ? "https" : "http";
+		return protocol + "://localhost:" + this.server.getAddress().getPort() + "/";
+	}
+
+	public void setResponse(String response) {
+		this.streamingWriter = null;
+		this.responder = request -> response;
+	}
+
+	/**
+	 * Build the response starting from the body of the request
+	 * @param responder
+	 */
+	public void setResponder(Function<String, String> responder) {
+		this.streamingWriter = null;
+		this.responder = responder;
+	}
+
+	/**
+	 * Write the response while it is sent, without a content length. Used
+	 * for responses too big to be kept in memory.
+	 * @param contentType content type of the response
+	 * @param writer
+	 */
+	public void setStreamingResponse(String contentType, ResponseWriter writer) {
+		this.streamingContentType = contentType;
+		this.streamingWriter = writer;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	/**
+	 * Reply to the next requests with an error status, then go back to the
+	 * normal response
+	 * @param count number of requests which fail
+	 * @param status status of the failed requests
+	 */
+	public void setFailures(int count, int status) {
+		this.failureStatus = status;
+		this.failures.set(count);
+	}
+
+	/**
+	 * Process at most the given number of requests at the same time, the
+	 * others wait in a queue, so that the latency grows with the load. The
+	 * requests which do not fit in the queue are refused with 429.
+	 * @param capacity the max requests processed together, 0 for no limit
+	 * @param queue the max requests waiting
+	 */
+	public void setCapacity(int capacity, int queue) {
+		this.capacity = capacity > 0 ? new Semaphore(capacity, true) : null;
+		this.maxActive = capacity > 0 ? capacity + queue : 0;
+	}
+
+	/**
+	 * Get the max number of requests handled at the same time
+	 * @return
+	 */
+	public int getMaxActiveRequests() {
+		return this.maxActiveRequests.get();
+	}
+
+	/**
+	 * Add a header to the next responses
+	 * @param name
+	 * @param value
+	 */
+	public void setResponseHeader(String name, String value) {
+		this.responseHeaders.put(name, value);
+	}
+
+	/**
+	 * Milliseconds to wait before replying
+	 * @param delay
+	 */
+	public void setDelay(long delay) {
+		this.delay = delay;
+	}
+
+	/**
+	 * Require the basic authentication, the requests without credentials
+	 * are challenged with a 401
+	 * @param basicAuth
+	 */
+	public void setBasicAuth(boolean basicAuth) {
+		this.basicAuth = basicAuth;
+	}
+
+	/**
+	 * Get how many requests were rejected with a 401 challenge
+	 * @return
+	 */
+	public int getChallengesCount() {
+		return this.challengesCount.get();
+	}
+
+	/**
+	 * Get how many requests were authenticated for the user
+	 * @param username
+	 * @return
+	 */
+	public int getAuthenticatedRequests(String username) {
+		AtomicInteger count = this.authenticatedRequests.get(username);
+		return count == null ? 0 : count.get();
+	}
+
+	public int getRequestsCount() {
+		return this.requestsCount.get();
+	}
+
+	public Map<String, List<String>> getLastHeaders() {
+		return this.lastHeaders;
+	}
+
+	public byte[] getLastBody() {
+		return this.lastBody;
+	}
+
+	/**
+	 * Get the length of the last request, also if it was too large to be stored
+	 * @return
+	 */
+	public long getLastBodyLength() {
+		return this.lastBodyLength;
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Writer of a streamed response
+	 */
+	public interface ResponseWriter {
+		public void write(OutputStream out) throws IOException;
+	}
+}
@@ -0,0 +1,268 @@
+package soap_transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap.DetailedSOAPException;
+import soap.Ping;
+import soap.RetryPolicy;
+import soap.SOAPExecutors;
+import soap.SOAPRequest;
+import soap_test.SOAPStubServer;
+import user.DcfUser;
+
+/**
+ * Tests of the pooled transport against a local stub of the DCF
+ */
+public class PooledSOAPTransportTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private PooledSOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new PooledSOAPTransport(new PooledTransportConfig().setMaxPerRoute(2));
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void sequentialCallsReuseTheSameConnection() throws DetailedSOAPException {
+
+		for (int i = 0; i < 20; ++i) {
+			Ping ping = new Ping();
+			ping.setTransport(this.transport);
+			assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+		}
+
+		assertEquals(20, this.server.getRequestsCount());
+		assertEquals(1, this.transport.getConnectionsOpened());
+
+		TransportPoolStats stats = this.transport.getTotalStats();
+		assertEquals(0, stats.getLeased());
+		assertEquals(1, stats.getAvailable());
+	}
+
+	@Test
+	public void routeStatsAreTrackedByHost() throws DetailedSOAPException {
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+
+		Map<String, TransportPoolStats> stats = this.transport.getRouteStats();
+
+		assertEquals(1, stats.size());
+
+		TransportPoolStats route = stats.values().iterator().next();
+		assertEquals(2, route.getMax());
+		assertEquals(1, route.getAvailable());
+	}
+
+	@Test
+	public void defaultPoolDoesNotThrottleTheAsyncCalls() {
+
+		PooledTransportConfig config = new PooledTransportConfig();
+
+		assertTrue(config.getMaxPerRoute() >= SOAPExecutors.DEFAULT_THREADS);
+		assertTrue(config.getLeaseTimeout() < config.getConnectTimeout());
+	}
+
+	@Test
+	public void callWithoutFreeConnectionsFailsAfterTheLeaseTimeout() throws Exception {
+
+		this.server.setDelay(3000);
+
+		try (PooledSOAPTransport transport = new PooledSOAPTransport(
+				new PooledTransportConfig().setMaxPerRoute(1).setLeaseTimeout(200))) {
+
+			Ping busy = new Ping();
+			busy.setTransport(transport);
+			Future<Object> call = busy.makeRequestAsync(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+
+			while (transport.getTotalStats().getLeased() == 0)
+				Thread.sleep(10);
+
+			Ping ping = new Ping();
+			ping.setTransport(transport);
+			ping.setRetryPolicy(RetryPolicy.none());
+
+			long start = System.currentTimeMillis();
+
+			try {
+				ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+				throw new AssertionError("Exception expected");
+			} catch (DetailedSOAPException e) {
+				assertTrue(e.isConnectionProblem());
+			}
+
+			assertTrue(System.currentTimeMillis() - start < 2000);
+			assertEquals(true, call.get());
+		}
+	}
+
+	@Test
+	public void badStatusIsReported() {
+
+		this.server.setStatus(404);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		} catch (DetailedSOAPException e) {
+			assertTrue(e.getMessage().contains("Bad response: (404"));
+			return;
+		}
+
+		throw new AssertionError("Exception expected");
+	}
+
+	@Test
+	public void parallelUsersAuthenticateAsThemselves() throws InterruptedException, ExecutionException {
+
+		this.server.setBasicAuth(true);
+
+		int users = 8;
+		int calls = 25;
+
+		ExecutorService executor = Executors.newFixedThreadPool(users);
+		List<Future<Boolean>> results = new ArrayList<>();
+
+		for (int i = 0; i < users; ++i) {
+
+			DcfUser current = new DcfUser();
+			current.login("user" + i, "password" + i);
+
+			results.add(executor.submit(() -> {
+				boolean ok = true;
+				for (int j = 0; j < calls; ++j) {
+					Ping ping = new Ping();
+					ping.setTransport(this.transport);
+					ok &= (boolean) ping.makeRequest(Environment.TEST, current, NAMESPACE, this.server.getUrl());
+				}
+				return ok;
+			}));
+		}
+
+		for (Future<Boolean> result : results) {
+			assertTrue(result.get());
+		}
+
+		executor.shutdown();
+
+		for (int i = 0; i < users; ++i) {
+			assertEquals(calls, this.server.getAuthenticatedRequests("user" + i));
+		}
+	}
+
+	@Test
+	public void openapiUserSendsOnlyTheSubscriptionKey() throws SOAPException {
+
+		DcfUser openapi = new DcfUser();
+		openapi.login("openapiUser", "token", true);
+
+		SOAPMessage request = SOAPRequest.createOpenapiTemplateSOAPMessage(openapi, NAMESPACE, "dcf");
+		request.getSOAPBody().addChildElement("Ping", "dcf");
+		request.saveChanges();
+
+		this.transport.call(Environment.TEST, openapi, request, this.server.getUrl());
+
+		Map<String, List<String>> headers = this.server.getLastHeaders();
+		assertEquals("token", headers.get("Ocp-apim-subscription-key").get(0));
+		assertFalse(headers.containsKey("Authorization"));
+	}
+
+	@Test
+	public void challengeIsAnsweredWithoutPreemptiveAuth() throws DetailedSOAPException {
+
+		this.server.setBasicAuth(true);
+
+		for (int i = 0; i < 5; ++i) {
+			Ping ping = new Ping();
+			ping.setTransport(this.transport);
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		}
+
+		assertEquals(5, this.server.getChallengesCount());
+		assertEquals(5, this.transport.getChallengesReceived());
+		assertEquals(0, this.transport.getChallengesAvoided());
+		assertEquals(10, this.server.getRequestsCount());
+	}
+
+	@Test
+	public void preemptiveAuthAvoidsTheChallenge() throws DetailedSOAPException {
+
+		this.server.setBasicAuth(true);
+
+		try (PooledSOAPTransport preemptive = new PooledSOAPTransport(
+				new PooledTransportConfig().setPreemptiveAuth(true))) {
+
+			for (int i = 0; i < 5; ++i) {
+				Ping ping = new Ping();
+				ping.setTransport(preemptive);
+				assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+			}
+
+			assertEquals(0, this.server.getChallengesCount());
+			assertEquals(0, preemptive.getChallengesReceived());
+			assertEquals(5, preemptive.getChallengesAvoided());
+			assertEquals(5, this.server.getAuthenticatedRequests("user"));
+		}
+	}
+
+	@Test
+	public void http2FallsBackToPooledWithoutJava11() {
+
+		ISOAPTransport created = SOAPTransports.create(TransportType.HTTP2, new PooledTransportConfig());
+
+		// the http/2 transport is compiled only with java 11+
+		assertEquals(!SOAPTransports.isHttp2Supported(), created instanceof PooledSOAPTransport);
+
+		created.close();
+	}
+
+	@Test
+	public void responseIsPassedToTheHandler() throws SOAPException {
+
+		SOAPMessage request = SOAPRequest.createTemplateSOAPMessage(this.user, NAMESPACE, "dcf");
+		request.getSOAPBody().addChildElement("Ping", "dcf");
+		request.saveChanges();
+
+		String response = this.transport.call(Environment.TEST, this.user, request, this.server.getUrl(),
+				(contentType, body) -> contentType + " " + IOUtils.toString(body, StandardCharsets.UTF_8));
+
+		assertEquals("text/xml;charset=UTF-8 " + SOAPStubServer.PING_RESPONSE, response);
+	}
+}
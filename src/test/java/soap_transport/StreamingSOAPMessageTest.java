@@ -0,0 +1,82 @@
+package soap_transport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Random;
+
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import soap.SOAPRequest;
+import user.DcfUser;
+
+/**
+ * Check that the streamed message is the same message built with SAAJ
+ */
+public class StreamingSOAPMessageTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	@Test
+	public void sameContentOfTheSaajMessage() throws SOAPException, IOException {
+
+		// lengths around the padding and the size of the encoded chunks
+		int[] lengths = { 1, 2, 3, 4, 12287, 12288, 12289, 100000 };
+
+		Random random = new Random(42);
+
+		for (int length : lengths) {
+
+			byte[] data = new byte[length];
+			random.nextBytes(data);
+
+			File file = File.createTempFile("streaming", ".xml");
+			file.deleteOnExit();
+			Files.write(file.toPath(), data);
+
+			StreamingSOAPMessage streamed = new StreamingSOAPMessage(
+					createMessage(StreamingSOAPMessage.PLACEHOLDER), file);
+
+			byte[] expected = write(createMessage(Base64.getEncoder().encodeToString(data)));
+			byte[] actual = write(streamed);
+
+			assertArrayEquals(expected, actual, "length=" + length);
+			assertEquals(expected.length, streamed.getContentLength());
+
+			// the stream can be read again
+			assertArrayEquals(expected, IOUtils.toByteArray(streamed.openStream()));
+
+			file.delete();
+		}
+	}
+
+	private static SOAPMessage createMessage(String content) throws SOAPException {
+
+		DcfUser user = new DcfUser();
+		user.login("user", "password");
+
+		SOAPMessage message = SOAPRequest.createTemplateSOAPMessage(user, NAMESPACE, "dcf");
+
+		SOAPElement send = message.getSOAPBody().addChildElement("SendMessage", "dcf");
+		send.addChildElement("fileHandler").setValue(content);
+		message.saveChanges();
+
+		return message;
+	}
+
+	private static byte[] write(SOAPMessage message) throws SOAPException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		return out.toByteArray();
+	}
+}
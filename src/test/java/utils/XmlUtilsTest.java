@@ -0,0 +1,112 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests of the shared xml parsers
+ */
+public class XmlUtilsTest {
+
+	@Test
+	public void buildersAreReusedByTheParses() throws Exception {
+
+		XmlUtils.parse(toStream("<a/>"));
+
+		int idle = XmlUtils.getIdleBuilders();
+		assertTrue(idle > 0);
+
+		// the builder taken from the pool is not given to the parses
+		DocumentBuilder builder = XmlUtils.getDocumentBuilder();
+		assertEquals(idle - 1, XmlUtils.getIdleBuilders());
+
+		XmlUtils.parse(toStream("<a/>"));
+		assertEquals(idle - 1, XmlUtils.getIdleBuilders());
+		assertNotSame(builder, XmlUtils.getDocumentBuilder());
+	}
+
+	@Test
+	public void poolIsBoundedWithManyThreads() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(64);
+		try {
+
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 1000; ++i) {
+				String text = "text_" + i;
+				results.add(executor.submit(() -> XmlUtils.parse(toStream("<a><b>" + text + "</b></a>"))
+						.getDocumentElement().getTextContent()));
+			}
+
+			for (int i = 0; i < results.size(); ++i) {
+				assertEquals("text_" + i, results.get(i).get());
+			}
+
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(XmlUtils.getIdleBuilders() <= Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	@Test
+	public void documentsAreParsedAfterErrors() throws Exception {
+
+		assertThrows(SAXException.class, () -> XmlUtils.parse(toStream("<a><b></a>")));
+
+		Document document = XmlUtils.parse(toStream("<a><b>text</b></a>"));
+		assertEquals("text", document.getDocumentElement().getTextContent());
+	}
+
+	@Test
+	public void externalEntitiesAreNotLoaded() throws Exception {
+
+		File secret = File.createTempFile("secret", ".txt");
+		try {
+
+			Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+
+			String xml = "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY e SYSTEM \"" + secret.toURI() + "\">]>"
+					+ "<a>&e;</a>";
+
+			Document document = XmlUtils.parse(toStream(xml));
+			assertEquals("", document.getDocumentElement().getTextContent());
+
+			// the entity is not declared without the dtd
+			XMLStreamReader reader = XmlUtils.getInputFactory().createXMLStreamReader(toStream(xml));
+			assertThrows(XMLStreamException.class, () -> {
+				while (reader.hasNext()) {
+					reader.next();
+				}
+			});
+
+		} finally {
+			secret.delete();
+		}
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
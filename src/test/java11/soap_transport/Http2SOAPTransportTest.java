@@ -0,0 +1,164 @@
+package soap_transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import config.Environment;
+import soap.DetailedSOAPException;
+import soap.Ping;
+import soap.RetryPolicy;
+import soap.SOAPRequest;
+import soap_test.SOAPStubServer;
+import user.DcfUser;
+
+/**
+ * Tests of the java.net.http transport against a local stub of the DCF.
+ * The stub supports only http/1.1, which is negotiated by the client.
+ */
+public class Http2SOAPTransportTest {
+
+	private static final String NAMESPACE = "http://dcf-elect.efsa.europa.eu/";
+
+	private SOAPStubServer server;
+	private Http2SOAPTransport transport;
+	private DcfUser user;
+
+	@BeforeEach
+	public void init() throws IOException {
+		this.server = new SOAPStubServer();
+		this.transport = new Http2SOAPTransport();
+		this.user = new DcfUser();
+		this.user.login("user", "password");
+	}
+
+	@AfterEach
+	public void close() {
+		this.transport.close();
+		this.server.close();
+	}
+
+	@Test
+	public void callWithHttp11Server() throws DetailedSOAPException {
+
+		for (int i = 0; i < 5; ++i) {
+			Ping ping = new Ping();
+			ping.setTransport(this.transport);
+			assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+		}
+
+		assertEquals(5, this.server.getRequestsCount());
+		assertEquals(5, this.transport.getHttp11Responses());
+		assertEquals(0, this.transport.getHttp2Responses());
+	}
+
+	@Test
+	public void credentialsAreSentWithTheFirstAttempt() throws DetailedSOAPException {
+
+		this.server.setBasicAuth(true);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		assertEquals(true, ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl()));
+
+		assertEquals(0, this.server.getChallengesCount());
+		assertEquals(1, this.server.getAuthenticatedRequests("user"));
+	}
+
+	@Test
+	public void badStatusIsReported() {
+
+		this.server.setStatus(404);
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		} catch (DetailedSOAPException e) {
+			assertTrue(e.getMessage().contains("Bad response: (404"));
+			return;
+		}
+
+		throw new AssertionError("Exception expected");
+	}
+
+	@Test
+	public void throttlingIsClassifiedFromTheStatus() {
+
+		this.server.setStatus(429);
+		this.server.setResponseHeader("Retry-After", "7");
+
+		Ping ping = new Ping();
+		ping.setTransport(this.transport);
+		ping.setRetryPolicy(RetryPolicy.none());
+
+		try {
+			ping.makeRequest(Environment.TEST, this.user, NAMESPACE, this.server.getUrl());
+		} catch (DetailedSOAPException e) {
+			assertTrue(e.isTooManyRequests());
+			assertEquals(7000, e.getRetryAfter());
+			return;
+		}
+
+		throw new AssertionError("Exception expected");
+	}
+
+	@Test
+	public void selectedAtRuntime() {
+
+		ISOAPTransport created = SOAPTransports.create(TransportType.HTTP2, new PooledTransportConfig());
+
+		assertTrue(SOAPTransports.isHttp2Supported());
+		assertTrue(created instanceof Http2SOAPTransport);
+
+		created.close();
+	}
+
+	@Test
+	public void responseIsPassedToTheHandler() throws SOAPException {
+
+		SOAPMessage request = SOAPRequest.createTemplateSOAPMessage(this.user, NAMESPACE, "dcf");
+		request.getSOAPBody().addChildElement("Ping", "dcf");
+		request.saveChanges();
+
+		String response = this.transport.call(Environment.TEST, this.user, request, this.server.getUrl(),
+				(contentType, body) -> contentType + " " + IOUtils.toString(body, StandardCharsets.UTF_8));
+
+		assertEquals("text/xml;charset=UTF-8 " + SOAPStubServer.PING_RESPONSE, response);
+	}
+
+	@Test
+	public void streamedMessageIsSent() throws SOAPException, IOException {
+
+		File file = File.createTempFile("streaming", ".xml");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "<message/>".getBytes(StandardCharsets.UTF_8));
+
+		SOAPMessage template = SOAPRequest.createTemplateSOAPMessage(this.user, NAMESPACE, "dcf");
+		template.getSOAPBody().addChildElement("SendMessage", "dcf").setValue(StreamingSOAPMessage.PLACEHOLDER);
+		template.saveChanges();
+
+		StreamingSOAPMessage request = new StreamingSOAPMessage(template, file);
+
+		this.transport.call(Environment.TEST, this.user, request, this.server.getUrl());
+
+		String body = new String(this.server.getLastBody(), StandardCharsets.UTF_8);
+		assertTrue(body.contains("PG1lc3NhZ2UvPg=="));
+		assertEquals(request.getContentLength(), this.server.getLastBodyLength());
+
+		file.delete();
+	}
+}